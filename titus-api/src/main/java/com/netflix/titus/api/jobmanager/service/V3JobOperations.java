@@ -16,6 +16,8 @@
 
 package com.netflix.titus.api.jobmanager.service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -111,6 +113,16 @@ public interface V3JobOperations extends ReadOnlyJobOperations {
      */
     Completable updateTask(String taskId, Function<Task, Optional<Task>> changeFunction, Trigger trigger, String reason, CallMetadata callMetadata);
 
+    /**
+     * Applies the provided update functions to tasks of a single job. The default implementation updates each task
+     * individually. Implementations may apply all the updates as a single change.
+     */
+    default Completable updateTasks(String jobId, Map<String, Function<Task, Optional<Task>>> changeFunctions, Trigger trigger, String reason, CallMetadata callMetadata) {
+        List<Completable> updates = new ArrayList<>(changeFunctions.size());
+        changeFunctions.forEach((taskId, changeFunction) -> updates.add(updateTask(taskId, changeFunction, trigger, reason, callMetadata)));
+        return Completable.merge(updates);
+    }
+
     /**
      * Called by scheduler when a task is assigned to an agent. The new task state is written to store first, and next
      * internal models are updated.
@@ -101,6 +101,14 @@ public interface JobStore {
      */
     Completable updateTask(Task task);
 
+    /**
+     * Update existing tasks in a single store request. The write is not atomic, so if it fails some of the tasks
+     * may be updated, and some not. The caller should retry all of them.
+     *
+     * @param tasks
+     */
+    Completable updateTasks(List<Task> tasks);
+
     /**
      * Replace an existing task.
      *
@@ -19,8 +19,10 @@ package com.netflix.titus.api.json;
 import java.util.Collection;
 
 import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.netflix.titus.api.agent.model.AgentInstance;
 import com.netflix.titus.api.agent.model.AgentInstanceGroup;
@@ -159,7 +161,8 @@ import com.netflix.titus.common.util.jackson.CommonObjectMappers;
  */
 public class ObjectMappers {
 
-    private static final ObjectMapper STORE = createStoreMapper();
+    private static final ObjectMapper STORE = createStoreMapper(new JsonFactory());
+    private static final ObjectMapper BINARY_STORE = createStoreMapper(new SmileFactory());
     private static final ObjectMapper APP_SCALE_STORE = createAppScalePolicyMapper();
 
     /**
@@ -175,6 +178,13 @@ public class ObjectMappers {
         return STORE;
     }
 
+    /**
+     * Same as {@link #storeMapper()}, but with the binary Smile encoding instead of JSON text.
+     */
+    public static ObjectMapper binaryStoreMapper() {
+        return BINARY_STORE;
+    }
+
     public static ObjectMapper appScalePolicyMapper() {
         return APP_SCALE_STORE;
     }
@@ -231,8 +241,8 @@ public class ObjectMappers {
         return objectMapper;
     }
 
-    private static ObjectMapper createStoreMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+    private static ObjectMapper createStoreMapper(JsonFactory jsonFactory) {
+        ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         objectMapper.registerModule(new Jdk8Module());
 
@@ -18,12 +18,9 @@ package com.netflix.titus.runtime.connector.jobmanager;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
@@ -31,13 +28,12 @@ import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
-import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.collections.PersistentHashMap;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatedSnapshot;
 
 import static java.util.Collections.unmodifiableList;
-import static java.util.Collections.unmodifiableMap;
 
 /**
  * TODO Handle moved tasks
@@ -45,15 +41,20 @@ import static java.util.Collections.unmodifiableMap;
  */
 public class JobSnapshot extends ReplicatedSnapshot {
 
-    private static final JobSnapshot EMPTY = new Builder("empty", Collections.emptyMap(), Collections.emptyMap()).build();
+    private static final JobSnapshot EMPTY = new Builder("empty").build();
 
     private final String snapshotId;
-    private final Map<String, Job<?>> jobsById;
-    private final Map<String, List<Task>> tasksByJobId;
-    private final List<Job<?>> allJobs;
-    private final List<Task> allTasks;
-    private final List<Pair<Job<?>, List<Task>>> allJobsAndTasks;
-    private final Map<String, Task> taskById;
+    private final PersistentHashMap<String, Job<?>> jobsById;
+    private final PersistentHashMap<String, JobTasks> tasksByJobId;
+    private final PersistentHashMap<String, Task> taskById;
+
+    /**
+     * The snapshot is updated on each replicated event, but the collection views are read much less frequently, so
+     * they are built lazily, on first access.
+     */
+    private volatile List<Job<?>> allJobs;
+    private volatile List<Task> allTasks;
+    private volatile List<Pair<Job<?>, List<Task>>> allJobsAndTasks;
 
     private final String signature;
 
@@ -73,15 +74,13 @@ public class JobSnapshot extends ReplicatedSnapshot {
         return new Builder(snapshotId);
     }
 
-    private JobSnapshot(String snapshotId, Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId,
-                        List<Job<?>> allJobs, List<Task> allTasks, List<Pair<Job<?>, List<Task>>> allJobsAndTasks,
-                        Map<String, Task> taskById) {
+    private JobSnapshot(String snapshotId,
+                        PersistentHashMap<String, Job<?>> jobsById,
+                        PersistentHashMap<String, JobTasks> tasksByJobId,
+                        PersistentHashMap<String, Task> taskById) {
         this.snapshotId = snapshotId;
         this.jobsById = jobsById;
         this.tasksByJobId = tasksByJobId;
-        this.allJobs = allJobs;
-        this.allTasks = allTasks;
-        this.allJobsAndTasks = allJobsAndTasks;
         this.taskById = taskById;
         this.signature = computeSignature();
     }
@@ -91,7 +90,16 @@ public class JobSnapshot extends ReplicatedSnapshot {
     }
 
     public List<Job<?>> getJobs() {
-        return allJobs;
+        List<Job<?>> result = allJobs;
+        if (result == null) {
+            result = unmodifiableList(jobsById.values());
+            this.allJobs = result;
+        }
+        return result;
+    }
+
+    public int getJobCount() {
+        return jobsById.size();
     }
 
     public Optional<Job<?>> findJob(String jobId) {
@@ -99,15 +107,34 @@ public class JobSnapshot extends ReplicatedSnapshot {
     }
 
     public List<Task> getTasks() {
-        return allTasks;
+        List<Task> result = allTasks;
+        if (result == null) {
+            List<Task> tasks = new ArrayList<>(taskById.size());
+            tasksByJobId.forEach((jobId, jobTasks) -> tasks.addAll(jobTasks.asList()));
+            result = unmodifiableList(tasks);
+            this.allTasks = result;
+        }
+        return result;
+    }
+
+    public int getTaskCount() {
+        return taskById.size();
     }
 
     public List<Task> getTasks(String jobId) {
-        return tasksByJobId.getOrDefault(jobId, Collections.emptyList());
+        JobTasks jobTasks = tasksByJobId.get(jobId);
+        return jobTasks == null ? Collections.emptyList() : jobTasks.asList();
     }
 
     public List<Pair<Job<?>, List<Task>>> getJobsAndTasks() {
-        return allJobsAndTasks;
+        List<Pair<Job<?>, List<Task>>> result = allJobsAndTasks;
+        if (result == null) {
+            List<Pair<Job<?>, List<Task>>> jobsAndTasks = new ArrayList<>(jobsById.size());
+            jobsById.forEach((jobId, job) -> jobsAndTasks.add(Pair.of(job, getTasks(jobId))));
+            result = unmodifiableList(jobsAndTasks);
+            this.allJobsAndTasks = result;
+        }
+        return result;
     }
 
     public Optional<Pair<Job<?>, Task>> findTaskById(String taskId) {
@@ -164,7 +191,7 @@ public class JobSnapshot extends ReplicatedSnapshot {
     public String toString() {
         StringBuilder sb = new StringBuilder("JobSnapshot{snapshotId=").append(snapshotId).append(", jobs=");
         jobsById.forEach((id, job) -> {
-            List<Task> tasks = tasksByJobId.get(id);
+            JobTasks tasks = tasksByJobId.get(id);
             int tasksCount = tasks == null ? 0 : tasks.size();
             sb.append(id).append('=').append(tasksCount).append(',');
         });
@@ -175,62 +202,93 @@ public class JobSnapshot extends ReplicatedSnapshot {
     private String computeSignature() {
         return "JobSnapshot{snapshotId=" + snapshotId +
                 ", jobs=" + jobsById.size() +
-                ", tasks=" + allTasks.size() +
+                ", tasks=" + taskById.size() +
                 "}";
     }
 
+    /**
+     * Tasks of a single job, with a lazily built list view. A task update creates a new instance for the owning job
+     * only, so the list views of all other jobs are reused by the next snapshot.
+     */
+    private static class JobTasks {
+
+        private static final JobTasks EMPTY = new JobTasks(PersistentHashMap.empty());
+
+        private final PersistentHashMap<String, Task> tasksById;
+        private volatile List<Task> asList;
+
+        private JobTasks(PersistentHashMap<String, Task> tasksById) {
+            this.tasksById = tasksById;
+        }
+
+        private int size() {
+            return tasksById.size();
+        }
+
+        private boolean contains(String taskId) {
+            return tasksById.containsKey(taskId);
+        }
+
+        private JobTasks with(Task task) {
+            return new JobTasks(tasksById.put(task.getId(), task));
+        }
+
+        private JobTasks without(String taskId) {
+            return new JobTasks(tasksById.remove(taskId));
+        }
+
+        private List<Task> asList() {
+            List<Task> result = asList;
+            if (result == null) {
+                result = tasksById.isEmpty() ? Collections.emptyList() : unmodifiableList(tasksById.values());
+                this.asList = result;
+            }
+            return result;
+        }
+    }
+
     public static class Builder {
         private final String snapshotId;
-        private final Map<String, Job<?>> jobsById;
-        private final Map<String, List<Task>> tasksByJobId;
+        private PersistentHashMap<String, Job<?>> jobsById;
+        private PersistentHashMap<String, JobTasks> tasksByJobId;
+        private PersistentHashMap<String, Task> taskById;
 
         private Builder(String snapshotId) {
             this.snapshotId = snapshotId;
-            this.jobsById = new HashMap<>();
-            this.tasksByJobId = new HashMap<>();
+            this.jobsById = PersistentHashMap.empty();
+            this.tasksByJobId = PersistentHashMap.empty();
+            this.taskById = PersistentHashMap.empty();
         }
 
         private Builder(JobSnapshot from) {
-            this(from.snapshotId, from.jobsById, from.tasksByJobId);
+            this.snapshotId = from.snapshotId;
+            this.jobsById = from.jobsById;
+            this.tasksByJobId = from.tasksByJobId;
+            this.taskById = from.taskById;
         }
 
         private Builder(String snapshotId, Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId) {
-            this.snapshotId = snapshotId;
-            this.jobsById = new HashMap<>(jobsById);
-            HashMap<String, List<Task>> copy = new HashMap<>();
-            tasksByJobId.forEach((jobId, tasks) -> copy.put(jobId, new ArrayList<>(tasks)));
-            this.tasksByJobId = copy;
+            this(snapshotId);
+            this.jobsById = PersistentHashMap.from(jobsById);
+            tasksByJobId.forEach((jobId, tasks) -> tasks.forEach(task -> addOrUpdateTask(task, false)));
         }
 
         public JobSnapshot build() {
-            Map<String, List<Task>> immutableTasksByJobId = new HashMap<>();
-            tasksByJobId.forEach((jobId, tasks) -> immutableTasksByJobId.put(jobId, unmodifiableList(tasks)));
-
-            List<Task> allTasks = new ArrayList<>();
-            tasksByJobId.values().forEach(allTasks::addAll);
-
-            Map<String, Task> taskById = allTasks.stream().collect(Collectors.toMap(Task::getId, Function.identity()));
-
-            return new JobSnapshot(
-                    snapshotId,
-                    unmodifiableMap(jobsById),
-                    unmodifiableMap(immutableTasksByJobId),
-                    unmodifiableList(new ArrayList<>(jobsById.values())),
-                    unmodifiableList(allTasks),
-                    buildAllJobsAndTasksList(jobsById, tasksByJobId),
-                    unmodifiableMap(taskById)
-            );
-
+            return new JobSnapshot(snapshotId, jobsById, tasksByJobId, taskById);
         }
 
         public Builder removeJob(Job<?> job) {
-            jobsById.remove(job.getId());
-            tasksByJobId.remove(job.getId());
+            jobsById = jobsById.remove(job.getId());
+            JobTasks jobTasks = tasksByJobId.get(job.getId());
+            if (jobTasks != null) {
+                jobTasks.tasksById.forEach((taskId, task) -> taskById = taskById.remove(taskId));
+                tasksByJobId = tasksByJobId.remove(job.getId());
+            }
             return this;
         }
 
         public Builder addOrUpdateJob(Job<?> job) {
-            jobsById.put(job.getId(), job);
+            jobsById = jobsById.put(job.getId(), job);
             return this;
         }
 
@@ -240,10 +298,7 @@ public class JobSnapshot extends ReplicatedSnapshot {
                     task.getJobId();
             Preconditions.checkArgument(StringExt.isNotEmpty(jobIdIndexToUpdate));
 
-            if (tasksByJobId.containsKey(jobIdIndexToUpdate)) {
-                tasksByJobId.get(jobIdIndexToUpdate).removeIf(t -> t.getId().equals(task.getId()));
-            }
-
+            removeTaskFromJob(jobIdIndexToUpdate, task.getId());
             return this;
         }
 
@@ -251,31 +306,30 @@ public class JobSnapshot extends ReplicatedSnapshot {
             if (movedFromAnotherJob) {
                 removeTask(task, true);
             }
-            tasksByJobId.putIfAbsent(task.getJobId(), new ArrayList<>());
-            List<Task> jobTasks = tasksByJobId.get(task.getJobId());
-            jobTasks.removeIf(t -> t.getId().equals(task.getId()));
-            jobTasks.add(task);
-
-            return this;
-        }
 
-        private static List<Pair<Job<?>, List<Task>>> buildAllJobsAndTasksList(Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId) {
-            List<Pair<Job<?>, List<Task>>> result = new ArrayList<>();
+            // A task belongs to a single job only. Clean up any other job index, if an earlier move was not
+            // explicitly reported.
+            Task previous = taskById.get(task.getId());
+            if (previous != null && !previous.getJobId().equals(task.getJobId())) {
+                removeTaskFromJob(previous.getJobId(), task.getId());
+            }
 
-            jobsById.values().forEach(job -> {
-                List<Task> tasks = tasksByJobId.get(job.getId());
-                if (CollectionsExt.isNullOrEmpty(tasks)) {
-                    result.add(Pair.of(job, Collections.emptyList()));
-                } else {
-                    result.add(Pair.of(job, unmodifiableList(tasks)));
-                }
-            });
+            tasksByJobId = tasksByJobId.put(task.getJobId(), tasksByJobId.getOrDefault(task.getJobId(), JobTasks.EMPTY).with(task));
+            taskById = taskById.put(task.getId(), task);
 
-            return unmodifiableList(result);
+            return this;
         }
 
         public Job<?> getJob(String jobId) {
             return jobsById.get(jobId);
         }
+
+        private void removeTaskFromJob(String jobId, String taskId) {
+            JobTasks jobTasks = tasksByJobId.get(jobId);
+            if (jobTasks != null && jobTasks.contains(taskId)) {
+                tasksByJobId = tasksByJobId.put(jobId, jobTasks.without(taskId));
+                taskById = taskById.remove(taskId);
+            }
+        }
     }
 }
@@ -107,8 +107,8 @@ public class JobDataReplicatorProvider implements Provider<JobDataReplicator> {
         @Override
         public void event(ReplicatorEvent<JobSnapshot, JobManagerEvent<?>> event) {
             super.event(event);
-            setCacheCollectionSize("jobs", event.getSnapshot().getJobs().size());
-            setCacheCollectionSize("tasks", event.getSnapshot().getTasks().size());
+            setCacheCollectionSize("jobs", event.getSnapshot().getJobCount());
+            setCacheCollectionSize("tasks", event.getSnapshot().getTaskCount());
         }
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.cache.Cache;
+import com.netflix.titus.common.util.cache.Caches;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+
+/**
+ * Caches gRPC representations of the core job and task objects. The core objects are immutable, and each change
+ * creates a new instance, so the cache is keyed by the object identity. Keys are weakly referenced, so an entry
+ * is released together with the job or task version it was created for. As a result, a job or a task is converted
+ * once per change, instead of once per query or per subscriber.
+ */
+@Singleton
+public class GrpcJobManagementModelCache {
+
+    private static final String METRIC_ROOT = "titus.grpcJobManagementModelCache.";
+
+    private static final long MAX_JOBS = 100_000;
+    private static final long MAX_TASKS = 1_000_000;
+
+    private final LogStorageInfo<Task> logStorageInfo;
+
+    private final Cache<Job<?>, com.netflix.titus.grpc.protogen.Job> jobCache;
+    private final Cache<Task, com.netflix.titus.grpc.protogen.Task> taskCache;
+
+    @Inject
+    public GrpcJobManagementModelCache(LogStorageInfo<Task> logStorageInfo, TitusRuntime titusRuntime) {
+        this.logStorageInfo = logStorageInfo;
+        this.jobCache = Caches.instrumentedCacheWithWeakKeys(MAX_JOBS, METRIC_ROOT + "jobs", titusRuntime.getRegistry());
+        this.taskCache = Caches.instrumentedCacheWithWeakKeys(MAX_TASKS, METRIC_ROOT + "tasks", titusRuntime.getRegistry());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobCache.shutdown();
+        taskCache.shutdown();
+    }
+
+    public com.netflix.titus.grpc.protogen.Job toGrpcJob(Job<?> coreJob) {
+        return jobCache.get(coreJob, GrpcJobManagementModelConverters::toGrpcJob);
+    }
+
+    public com.netflix.titus.grpc.protogen.Task toGrpcTask(Task coreTask) {
+        return taskCache.get(coreTask, task -> GrpcJobManagementModelConverters.toGrpcTask(task, logStorageInfo));
+    }
+
+    /**
+     * Equivalent of {@link GrpcJobManagementModelConverters#toGrpcJobChangeNotification(JobManagerEvent, LogStorageInfo)}.
+     */
+    public JobChangeNotification toGrpcJobChangeNotification(JobManagerEvent<?> event) {
+        if (event instanceof JobUpdateEvent) {
+            JobUpdateEvent jobUpdateEvent = (JobUpdateEvent) event;
+            return JobChangeNotification.newBuilder()
+                    .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder()
+                            .setJob(toGrpcJob(jobUpdateEvent.getCurrent()))
+                    ).build();
+        }
+
+        TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
+        return JobChangeNotification.newBuilder().setTaskUpdate(
+                JobChangeNotification.TaskUpdate.newBuilder()
+                        .setTask(toGrpcTask(taskUpdateEvent.getCurrent()))
+                        .setMovedFromAnotherJob(taskUpdateEvent.isMovedFromAnotherJob())
+        ).build();
+    }
+}
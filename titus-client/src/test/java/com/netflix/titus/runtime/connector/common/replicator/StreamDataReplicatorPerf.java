@@ -16,10 +16,20 @@
 
 package com.netflix.titus.runtime.connector.common.replicator;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
@@ -34,14 +44,27 @@ import org.mockito.Mockito;
 import reactor.core.publisher.Flux;
 
 /**
- * Test to expose memory leaks.
+ * Test to expose memory leaks. When run with the 'throughput' argument, measures instead the job snapshot update
+ * throughput and the memory allocated per replicated event, with a large job snapshot.
  */
 public class StreamDataReplicatorPerf {
 
     private static final Job<?> JOB = JobGenerator.oneBatchJob();
     private static final Task TASK = JobGenerator.oneBatchTask().toBuilder().withJobId(JOB.getId()).build();
 
+    private static final int THROUGHPUT_JOB_COUNT = 1_000;
+    private static final int THROUGHPUT_TASKS_PER_JOB = 100;
+    private static final int THROUGHPUT_EVENT_COUNT = 100_000;
+
     public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("throughput")) {
+            runThroughputTest();
+        } else {
+            runLeakTest();
+        }
+    }
+
+    private static void runLeakTest() throws InterruptedException {
         JobManagementClient client = Mockito.mock(JobManagementClient.class);
 
         Mockito.when(client.observeJobs(ArgumentMatchers.any())).thenAnswer(invocation -> Flux.defer(() -> {
@@ -59,4 +82,77 @@ public class StreamDataReplicatorPerf {
 
         Thread.sleep(3600_000);
     }
+
+    private static void runThroughputTest() throws InterruptedException {
+        List<JobManagerEvent<?>> snapshotEvents = new ArrayList<>();
+        List<Job<?>> jobs = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        for (int j = 0; j < THROUGHPUT_JOB_COUNT; j++) {
+            Job<?> job = JOB.toBuilder().withId("job#" + j).build();
+            jobs.add(job);
+            snapshotEvents.add(JobUpdateEvent.newJob(job, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA));
+            for (int t = 0; t < THROUGHPUT_TASKS_PER_JOB; t++) {
+                Task task = ((BatchJobTask) TASK).toBuilder().withId(job.getId() + "-task#" + t).withJobId(job.getId()).build();
+                tasks.add(task);
+                snapshotEvents.add(TaskUpdateEvent.newTask(job, task, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA));
+            }
+        }
+        snapshotEvents.add(JobManagerEvent.snapshotMarker());
+
+        // Updates are generated upfront, so they are not included in the allocation per event measurement.
+        Random random = new Random(123);
+        List<JobManagerEvent<?>> updateEvents = new ArrayList<>(THROUGHPUT_EVENT_COUNT);
+        for (int i = 0; i < THROUGHPUT_EVENT_COUNT; i++) {
+            int taskIdx = random.nextInt(tasks.size());
+            Task task = tasks.get(taskIdx);
+            Task updated = ((BatchJobTask) task).toBuilder()
+                    .withStatus(TaskStatus.newBuilder().withState(i % 2 == 0 ? TaskState.Launched : TaskState.Started).build())
+                    .build();
+            updateEvents.add(TaskUpdateEvent.taskChange(jobs.get(taskIdx / THROUGHPUT_TASKS_PER_JOB), updated, task, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA));
+        }
+
+        JobManagementClient client = Mockito.mock(JobManagementClient.class);
+        Mockito.when(client.observeJobs(ArgumentMatchers.any())).thenAnswer(invocation -> Flux.fromIterable(snapshotEvents)
+                .concatWith(Flux.fromIterable(updateEvents).delaySubscription(Duration.ofSeconds(1)))
+                .concatWith(Flux.never())
+        );
+
+        CountDownLatch latch = new CountDownLatch(THROUGHPUT_EVENT_COUNT);
+        AtomicLong startTimeNs = new AtomicLong();
+        AtomicLong startAllocatedBytes = new AtomicLong();
+
+        JobDataReplicator replicator = new JobDataReplicatorProvider(client, TitusRuntimes.internal()).get();
+        replicator.events().subscribe(next -> {
+            if (latch.getCount() == THROUGHPUT_EVENT_COUNT) {
+                startTimeNs.set(System.nanoTime());
+                startAllocatedBytes.set(allocatedBytes());
+            }
+            latch.countDown();
+        });
+
+        if (!latch.await(10, TimeUnit.MINUTES)) {
+            System.out.println("Timeout; received " + (THROUGHPUT_EVENT_COUNT - latch.getCount()) + " events");
+            return;
+        }
+        long elapsedNs = System.nanoTime() - startTimeNs.get();
+        long allocated = allocatedBytes() - startAllocatedBytes.get();
+
+        System.out.println(String.format("tasks=%s, events=%s, events/sec=%.0f, allocated bytes/event=%s",
+                tasks.size(), THROUGHPUT_EVENT_COUNT,
+                THROUGHPUT_EVENT_COUNT * 1_000_000_000.0 / elapsedNs,
+                allocated / THROUGHPUT_EVENT_COUNT
+        ));
+    }
+
+    /**
+     * Total number of bytes allocated by all live threads.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
 }
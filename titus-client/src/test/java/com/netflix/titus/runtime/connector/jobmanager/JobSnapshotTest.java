@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.JobStatus;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobSnapshotTest {
+
+    private final Job<BatchJobExt> job1 = JobGenerator.oneBatchJob().toBuilder().withId("job1").build();
+    private final Job<BatchJobExt> job2 = JobGenerator.oneBatchJob().toBuilder().withId("job2").build();
+
+    private final BatchJobTask task1 = newTask("task1", job1);
+    private final BatchJobTask task2 = newTask("task2", job1);
+
+    @Test
+    public void testUpdatesDoNotChangePreviousSnapshot() {
+        JobSnapshot initial = JobSnapshot.newBuilder("test")
+                .addOrUpdateJob(job1)
+                .addOrUpdateTask(task1, false)
+                .build();
+
+        JobSnapshot updated = initial.updateTask(task2, false).get();
+        assertThat(initial.getTasks()).containsExactly(task1);
+        assertThat(updated.getTasks()).containsExactlyInAnyOrder(task1, task2);
+        assertThat(updated.getTasks(job1.getId())).containsExactlyInAnyOrder(task1, task2);
+        assertThat(updated.getTaskCount()).isEqualTo(2);
+        assertThat(updated.getJobsAndTasks()).hasSize(1);
+        assertThat(updated.getJobsAndTasks().get(0).getRight()).hasSize(2);
+
+        Task finished = task1.toBuilder().withStatus(TaskStatus.newBuilder().withState(TaskState.Finished).build()).build();
+        JobSnapshot afterFinish = updated.updateTask(finished, false).get();
+        assertThat(afterFinish.getTasks()).containsExactly(task2);
+        assertThat(afterFinish.findTaskById(task1.getId())).isEmpty();
+        assertThat(updated.findTaskById(task1.getId())).isPresent();
+    }
+
+    @Test
+    public void testJobRemoveRemovesItsTasks() {
+        JobSnapshot snapshot = JobSnapshot.newBuilder("test")
+                .addOrUpdateJob(job1)
+                .addOrUpdateTask(task1, false)
+                .build();
+
+        Job<BatchJobExt> finishedJob = job1.toBuilder().withStatus(JobStatus.newBuilder().withState(JobState.Finished).build()).build();
+        JobSnapshot updated = snapshot.updateJob(finishedJob).get();
+        assertThat(updated.getJobs()).isEmpty();
+        assertThat(updated.getTasks()).isEmpty();
+        assertThat(updated.findTaskById(task1.getId())).isEmpty();
+        assertThat(updated.getTaskCount()).isZero();
+    }
+
+    @Test
+    public void testTaskMove() {
+        JobSnapshot snapshot = JobSnapshot.newBuilder("test")
+                .addOrUpdateJob(job1)
+                .addOrUpdateJob(job2)
+                .addOrUpdateTask(task1, false)
+                .build();
+
+        Task moved = task1.toBuilder()
+                .withJobId(job2.getId())
+                .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_MOVED_FROM_JOB, job1.getId())
+                .build();
+        JobSnapshot updated = snapshot.updateTask(moved, true).get();
+
+        assertThat(updated.getTasks(job1.getId())).isEmpty();
+        assertThat(updated.getTasks(job2.getId())).containsExactly(moved);
+        assertThat(updated.findTaskById(task1.getId()).get().getLeft().getId()).isEqualTo(job2.getId());
+    }
+
+    private static BatchJobTask newTask(String taskId, Job<?> job) {
+        return JobGenerator.oneBatchTask().toBuilder().withId(taskId).withJobId(job.getId()).build();
+    }
+}
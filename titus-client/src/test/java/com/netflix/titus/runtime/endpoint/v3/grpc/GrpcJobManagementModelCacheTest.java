@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GrpcJobManagementModelCacheTest {
+
+    private final GrpcJobManagementModelCache cache = new GrpcJobManagementModelCache(EmptyLogStorageInfo.empty(), TitusRuntimes.internal());
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    public void testJobIsConvertedOncePerVersion() {
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        com.netflix.titus.grpc.protogen.Job grpcJob = cache.toGrpcJob(job);
+        assertThat(grpcJob).isEqualTo(GrpcJobManagementModelConverters.toGrpcJob(job));
+        assertThat(cache.toGrpcJob(job)).isSameAs(grpcJob);
+
+        // A new instance with the same content is converted again, as the cache uses the object identity.
+        Job<BatchJobExt> jobCopy = job.toBuilder().build();
+        com.netflix.titus.grpc.protogen.Job grpcJobCopy = cache.toGrpcJob(jobCopy);
+        assertThat(grpcJobCopy).isNotSameAs(grpcJob);
+        assertThat(grpcJobCopy).isEqualTo(grpcJob);
+    }
+
+    @Test
+    public void testTaskIsConvertedOncePerVersion() {
+        BatchJobTask task = JobGenerator.oneBatchTask();
+        com.netflix.titus.grpc.protogen.Task grpcTask = cache.toGrpcTask(task);
+        assertThat(grpcTask).isEqualTo(GrpcJobManagementModelConverters.toGrpcTask(task, EmptyLogStorageInfo.empty()));
+        assertThat(cache.toGrpcTask(task)).isSameAs(grpcTask);
+
+        BatchJobTask updatedTask = task.toBuilder().withId("updatedTask").build();
+        com.netflix.titus.grpc.protogen.Task updatedGrpcTask = cache.toGrpcTask(updatedTask);
+        assertThat(updatedGrpcTask).isNotSameAs(grpcTask);
+        assertThat(updatedGrpcTask.getId()).isEqualTo("updatedTask");
+    }
+}
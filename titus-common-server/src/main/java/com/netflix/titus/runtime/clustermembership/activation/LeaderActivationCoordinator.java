@@ -231,7 +231,9 @@ public class LeaderActivationCoordinator implements LeaderActivationStatus {
         this.activatedServices = activated;
         this.activationTimestamp = clock.wallTime();
 
-        logger.info("Activation process finished in: {}", DateTimeExt.toTimeUnitString(allStart.elapsed(TimeUnit.MILLISECONDS)));
+        long activationTimeMs = allStart.elapsed(TimeUnit.MILLISECONDS);
+        registry.gauge(METRIC_ROOT + "activationTimeMs").set(activationTimeMs);
+        logger.info("Activation process finished in: {}", DateTimeExt.toTimeUnitString(activationTimeMs));
     }
 
     private void deactivate() {
@@ -32,6 +32,12 @@ public final class CallMetadataHeaders {
      */
     public final static String COMPRESSION_HEADER = "X-Titus-Compression";
 
+    /**
+     * If set to true, query requests are always served by TitusMaster, even if they could be answered from a local
+     * cache with a bounded staleness.
+     */
+    public final static String READ_FROM_MASTER_HEADER = "X-Titus-ReadFromMaster";
+
     /*
      * Caller authentication/authorization headers.
      */
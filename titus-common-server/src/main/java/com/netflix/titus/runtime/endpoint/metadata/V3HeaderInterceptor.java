@@ -48,6 +48,7 @@ public class V3HeaderInterceptor implements ServerInterceptor {
 
     public static Metadata.Key<String> DEBUG_KEY = Metadata.Key.of(CallMetadataHeaders.DEBUG_HEADER, Metadata.ASCII_STRING_MARSHALLER);
     public static Metadata.Key<String> COMPRESSION_KEY = Metadata.Key.of(CallMetadataHeaders.COMPRESSION_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+    public static Metadata.Key<String> READ_FROM_MASTER_KEY = Metadata.Key.of(CallMetadataHeaders.READ_FROM_MASTER_HEADER, Metadata.ASCII_STRING_MARSHALLER);
     public static Metadata.Key<String> CALLER_ID_KEY = Metadata.Key.of(CallMetadataHeaders.CALLER_ID_HEADER, Metadata.ASCII_STRING_MARSHALLER);
     public static Metadata.Key<String> CALLER_TYPE_KEY = Metadata.Key.of(CallMetadataHeaders.CALLER_TYPE_HEADER, Metadata.ASCII_STRING_MARSHALLER);
     public static Metadata.Key<String> DIRECT_CALLER_ID_KEY = Metadata.Key.of(CallMetadataHeaders.DIRECT_CALLER_ID_HEADER, Metadata.ASCII_STRING_MARSHALLER);
@@ -56,6 +57,7 @@ public class V3HeaderInterceptor implements ServerInterceptor {
 
     public static Context.Key<String> DEBUG_CONTEXT_KEY = Context.key(CallMetadataHeaders.DEBUG_HEADER);
     public static Context.Key<String> COMPRESSION_CONTEXT_KEY = Context.key(CallMetadataHeaders.COMPRESSION_HEADER);
+    public static Context.Key<String> READ_FROM_MASTER_CONTEXT_KEY = Context.key(CallMetadataHeaders.READ_FROM_MASTER_HEADER);
     public static Context.Key<String> CALLER_ID_CONTEXT_KEY = Context.key(CallMetadataHeaders.CALLER_ID_HEADER);
     public static Context.Key<String> CALLER_TYPE_CONTEXT_KEY = Context.key(CallMetadataHeaders.CALLER_TYPE_HEADER);
     public static Context.Key<String> DIRECT_CALLER_ID_CONTEXT_KEY = Context.key(CallMetadataHeaders.DIRECT_CALLER_ID_HEADER);
@@ -83,6 +85,10 @@ public class V3HeaderInterceptor implements ServerInterceptor {
                 wrappedContext = wrappedContext.withValue(COMPRESSION_CONTEXT_KEY, compressionType);
             }
         }
+        Object readFromMasterValue = headers.get(READ_FROM_MASTER_KEY);
+        if (readFromMasterValue != null && Boolean.parseBoolean(readFromMasterValue.toString())) {
+            wrappedContext = wrappedContext.withValue(READ_FROM_MASTER_CONTEXT_KEY, "true");
+        }
 
         wrappedContext = copyIntoContext(wrappedContext, headers, CALLER_ID_KEY, CALLER_ID_CONTEXT_KEY);
         wrappedContext = copyIntoContext(wrappedContext, headers, CALLER_TYPE_KEY, CALLER_TYPE_CONTEXT_KEY);
@@ -16,35 +16,39 @@
 
 package com.netflix.titus.common.framework.reconciler;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import com.netflix.titus.common.util.collections.PersistentHashMap;
 import com.netflix.titus.common.util.tuple.Pair;
 
 /**
  * Composite entity hierarchy. The parent-child association runs from parent to child only. {@link EntityHolder} instances
  * are immutable, thus each change produces a new version of an entity. Also each child update requires update of a parent
  * entity, when the reference to the child changes (a new version is created).
+ * <p>
+ * Children and attributes are kept in persistent maps, so a new version shares all unchanged entries with the previous
+ * one, and adding or replacing a single child of a holder with many children does not copy the others. The list of
+ * children is built on first access.
  */
 public class EntityHolder {
 
     private final String id;
     private final Object entity;
 
-    private final List<EntityHolder> children;
-    private final Map<String, EntityHolder> childrenById;
-    private final Map<String, Object> attributes;
+    private final PersistentHashMap<String, EntityHolder> childrenById;
+    private final PersistentHashMap<String, Object> attributes;
 
-    private EntityHolder(String id, Object entity, Map<String, EntityHolder> childrenById, Map<String, Object> attributes) {
+    private volatile List<EntityHolder> children;
+    private volatile Map<String, Object> attributesView;
+
+    private EntityHolder(String id, Object entity, PersistentHashMap<String, EntityHolder> childrenById, PersistentHashMap<String, Object> attributes) {
         this.id = id;
         this.entity = entity;
         this.childrenById = childrenById;
-        this.children = new ArrayList<>(childrenById.values());
         this.attributes = attributes;
     }
 
@@ -57,11 +61,17 @@ public class EntityHolder {
     }
 
     public List<EntityHolder> getChildren() {
+        if (children == null) {
+            children = childrenById.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(childrenById.values());
+        }
         return children;
     }
 
     public Map<String, Object> getAttributes() {
-        return attributes;
+        if (attributesView == null) {
+            attributesView = attributes.asMap();
+        }
+        return attributesView;
     }
 
     public Optional<EntityHolder> findById(String requestedId) {
@@ -72,14 +82,14 @@ public class EntityHolder {
     }
 
     public Optional<EntityHolder> findChildById(String childId) {
-        if (children.isEmpty()) {
+        if (childrenById.isEmpty()) {
             return Optional.empty();
         }
         EntityHolder entityHolder = childrenById.get(childId);
         if (entityHolder != null) {
             return Optional.of(entityHolder);
         }
-        for (EntityHolder child : children) {
+        for (EntityHolder child : getChildren()) {
             Optional<EntityHolder> result = child.findChildById(childId);
             if (result.isPresent()) {
                 return result;
@@ -89,35 +99,33 @@ public class EntityHolder {
     }
 
     public EntityHolder addChild(EntityHolder child) {
-        Map<String, EntityHolder> newChildrenById = new HashMap<>(childrenById);
-        newChildrenById.put(child.getId(), child);
-        return new EntityHolder(id, entity, newChildrenById, attributes);
+        return new EntityHolder(id, entity, childrenById.put(child.getId(), child), attributes);
     }
 
     public Pair<EntityHolder, Optional<EntityHolder>> removeChild(String id) {
-        if (!childrenById.containsKey(id)) {
+        EntityHolder removedChild = childrenById.get(id);
+        if (removedChild == null) {
             return Pair.of(this, Optional.empty());
         }
-        Map<String, EntityHolder> newChildrenById = new HashMap<>(childrenById);
-        EntityHolder removedChild = newChildrenById.remove(id);
-
-        EntityHolder newRoot = new EntityHolder(this.id, this.entity, newChildrenById, this.attributes);
+        EntityHolder newRoot = new EntityHolder(this.id, this.entity, childrenById.remove(id), this.attributes);
         return Pair.of(newRoot, Optional.of(removedChild));
     }
 
+    /**
+     * Null values are not stored, so a tag set to null is removed.
+     */
     public EntityHolder addTag(String tagName, Object tagValue) {
-        Map<String, Object> newTags = new HashMap<>(attributes);
-        newTags.put(tagName, tagValue);
-        return new EntityHolder(id, entity, childrenById, newTags);
+        if (tagValue == null) {
+            return removeTag(tagName);
+        }
+        return new EntityHolder(id, entity, childrenById, attributes.put(tagName, tagValue));
     }
 
     public EntityHolder removeTag(String tagName) {
         if (!attributes.containsKey(tagName)) {
             return this;
         }
-        Map<String, Object> newTags = new HashMap<>(attributes);
-        newTags.remove(tagName);
-        return new EntityHolder(id, entity, childrenById, newTags);
+        return new EntityHolder(id, entity, childrenById, attributes.remove(tagName));
     }
 
     public <E> EntityHolder setEntity(E entity) {
@@ -126,10 +134,10 @@ public class EntityHolder {
 
     public void visit(Consumer<EntityHolder> visitor) {
         visitor.accept(this);
-        children.forEach(c -> c.visit(visitor));
+        childrenById.forEach((childId, child) -> child.visit(visitor));
     }
 
     public static <E> EntityHolder newRoot(String id, E entity) {
-        return new EntityHolder(id, entity, Collections.emptyMap(), Collections.emptyMap());
+        return new EntityHolder(id, entity, PersistentHashMap.empty(), PersistentHashMap.empty());
     }
 }
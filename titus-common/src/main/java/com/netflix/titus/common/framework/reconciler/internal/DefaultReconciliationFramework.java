@@ -17,6 +17,7 @@
 package com.netflix.titus.common.framework.reconciler.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -32,12 +33,12 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
@@ -53,7 +54,6 @@ import com.netflix.titus.common.util.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Completable;
-import rx.Emitter;
 import rx.Observable;
 import rx.Scheduler;
 import rx.Subscriber;
@@ -82,8 +82,9 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
     private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> enginesAdded = new LinkedBlockingQueue<>();
     private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> enginesToRemove = new LinkedBlockingQueue<>();
 
-    private final AtomicReference<Map<String, InternalReconciliationEngine<EVENT>>> idToEngineMapRef = new AtomicReference<>(Collections.emptyMap());
-    private IndexSet<EntityHolder> indexSet;
+    private final Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap = new ConcurrentHashMap<>();
+    private final Map<InternalReconciliationEngine<EVENT>, EntityHolder> indexedReferenceViews = new HashMap<>();
+    private final IncrementalIndexSet<EntityHolder> indexSet;
 
     private final Scheduler.Worker worker;
 
@@ -107,11 +108,26 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                                           Map<Object, Comparator<EntityHolder>> indexComparators,
                                           Registry registry,
                                           Optional<Scheduler> optionalScheduler) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, indexComparators, registry, optionalScheduler, Optional.empty());
+    }
+
+    /**
+     * Constructor for a framework instance running as one of the shards of {@link ShardedReconciliationFramework}.
+     * The shard id is added to the thread name, and as a tag to the framework metrics.
+     */
+    DefaultReconciliationFramework(List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                   Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                   long idleTimeoutMs,
+                                   long activeTimeoutMs,
+                                   Map<Object, Comparator<EntityHolder>> indexComparators,
+                                   Registry registry,
+                                   Optional<Scheduler> optionalScheduler,
+                                   Optional<String> shardId) {
         Preconditions.checkArgument(idleTimeoutMs > 0, "idleTimeout <= 0 (%s)", idleTimeoutMs);
         Preconditions.checkArgument(activeTimeoutMs <= idleTimeoutMs, "activeTimeout(%s) > idleTimeout(%s)", activeTimeoutMs, idleTimeoutMs);
 
         this.engineFactory = engineFactory;
-        this.indexSet = IndexSet.newIndexSet(indexComparators);
+        this.indexSet = IncrementalIndexSet.newIndexSet(indexComparators, EntityHolder::getId);
 
         this.idleTimeoutMs = idleTimeoutMs;
         this.activeTimeoutMs = activeTimeoutMs;
@@ -121,7 +137,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
             this.executor = null;
         } else {
             this.executor = Executors.newSingleThreadExecutor(runnable -> {
-                Thread thread = new Thread(runnable, "TitusReconciliationFramework");
+                Thread thread = new Thread(runnable, shardId.map(id -> "TitusReconciliationFramework-" + id).orElse("TitusReconciliationFramework"));
                 thread.setDaemon(true);
                 return thread;
             });
@@ -134,16 +150,16 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         // To keep eventsObservable permanently active.
         this.internalEventSubscription = eventsObservable.subscribe(ObservableExt.silentSubscriber());
 
-        this.loopExecutionTime = registry.timer(LOOP_EXECUTION_TIME_METRIC);
+        this.loopExecutionTime = registry.timer(newMetricId(registry, LOOP_EXECUTION_TIME_METRIC, shardId));
         this.lastFullCycleExecutionTimeMs = scheduler.now() - idleTimeoutMs;
         this.lastExecutionTimeMs = scheduler.now();
-        PolledMeter.using(registry).withName(LAST_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
-        PolledMeter.using(registry).withName(LAST_FULL_CYCLE_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastFullCycleExecutionTimeMs);
+        PolledMeter.using(registry).withId(newMetricId(registry, LAST_EXECUTION_TIME_METRIC, shardId)).monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
+        PolledMeter.using(registry).withId(newMetricId(registry, LAST_FULL_CYCLE_EXECUTION_TIME_METRIC, shardId)).monitorValue(this, self -> scheduler.now() - self.lastFullCycleExecutionTimeMs);
 
         engines.addAll(bootstrapEngines);
         bootstrapEngines.forEach(engine -> eventsMergeSubject.onNext(engine.events()));
 
-        updateIndexSet();
+        updateIndexes(bootstrapEngines, Collections.emptyList());
     }
 
     @Override
@@ -224,44 +240,28 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 "Change action for multiple engines requested, but %s root id holders provided", rootEntityHolderIds.length
         );
 
-        return Observable.create(emitter -> {
-
-            List<ReconciliationEngine<EVENT>> engines = new ArrayList<>();
-            for (String id : rootEntityHolderIds) {
-                ReconciliationEngine<EVENT> engine = findEngineByRootId(id).orElseThrow(() -> new IllegalArgumentException("Reconciliation engine not found: rootId=" + id));
-                engines.add(engine);
-            }
-
-            List<Observable<Map<String, List<ModelActionHolder>>>> outputs = ObservableExt.propagate(multiEngineChangeAction.apply(), engines.size());
-            List<Observable<Void>> engineActions = new ArrayList<>();
-            for (int i = 0; i < engines.size(); i++) {
-                ReconciliationEngine<EVENT> engine = engines.get(i);
-                String rootId = engine.getReferenceView().getId();
-                ChangeAction engineAction = engineChangeActionFactory.apply(rootId, outputs.get(i).map(r -> r.get(rootId)));
-                engineActions.add(engine.changeReferenceModel(engineAction));
-            }
-
-            // Synchronize on subscription to make sure that this operation is not interleaved with concurrent
-            // subscriptions for the same set or subset of the reconciliation engines. The interleaving might result
-            // in a deadlock. For example with two engines engineA and engineB:
-            // - multi-engine change action M1 for engineA and engineB is scheduled
-            // - M1/engineA is added to its queue
-            // - another multi-engine change action M2 for engineA and engineB is scheduled
-            // - M2/engineB is added to its queue
-            // - M1/engineB is added to its queue, and next M2/engineA
-            // Executing M1 requires that both M1/engineA and M1/engineB are at the top of the queue, but in this case
-            // M2/engineB is ahead of the M1/engineB. On the other hand, M1/engineA is ahead of M2/engineB. Because
-            // of that we have deadlock. Please, note that we can ignore here the regular (engine scoped) change actions.
-            Subscription subscription;
-            synchronized (multiEngineChangeLock) {
-                subscription = Observable.mergeDelayError(engineActions).subscribe(
-                        emitter::onNext,
-                        emitter::onError,
-                        emitter::onCompleted
-                );
-            }
-            emitter.setSubscription(subscription);
-        }, Emitter.BackpressureMode.NONE);
+        // Synchronize on subscription to make sure that this operation is not interleaved with concurrent
+        // subscriptions for the same set or subset of the reconciliation engines. The interleaving might result
+        // in a deadlock. For example with two engines engineA and engineB:
+        // - multi-engine change action M1 for engineA and engineB is scheduled
+        // - M1/engineA is added to its queue
+        // - another multi-engine change action M2 for engineA and engineB is scheduled
+        // - M2/engineB is added to its queue
+        // - M1/engineB is added to its queue, and next M2/engineA
+        // Executing M1 requires that both M1/engineA and M1/engineB are at the top of the queue, but in this case
+        // M2/engineB is ahead of the M1/engineB. On the other hand, M1/engineA is ahead of M2/engineB. Because
+        // of that we have deadlock. Please, note that we can ignore here the regular (engine scoped) change actions.
+        return MultiEngineChangeActions.changeReferenceModel(
+                this::findEngineByRootId,
+                rootEntityHolderIds,
+                multiEngineChangeAction,
+                engineChangeActionFactory,
+                subscribeAction -> {
+                    synchronized (multiEngineChangeLock) {
+                        subscribeAction.run();
+                    }
+                }
+        );
     }
 
     @Override
@@ -271,7 +271,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<ReconciliationEngine<EVENT>> findEngineByRootId(String id) {
-        InternalReconciliationEngine<EVENT> engine = idToEngineMapRef.get().get(id);
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(id);
         if (engine == null) {
             return Optional.empty();
         }
@@ -280,7 +280,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> findEngineByChildId(String childId) {
-        InternalReconciliationEngine<EVENT> engine = idToEngineMapRef.get().get(childId);
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(childId);
         if (engine == null) {
             return Optional.empty();
         }
@@ -326,11 +326,12 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         Set<InternalReconciliationEngine<EVENT>> mustRunEngines = new HashSet<>();
 
         // Apply pending model updates/send events
-        boolean modelUpdates = false;
-        for (InternalReconciliationEngine engine : engines) {
+        List<InternalReconciliationEngine<EVENT>> modelUpdatedEngines = new ArrayList<>();
+        for (InternalReconciliationEngine<EVENT> engine : engines) {
             try {
-                boolean anyChange = engine.applyModelUpdates();
-                modelUpdates = modelUpdates || anyChange;
+                if (engine.applyModelUpdates()) {
+                    modelUpdatedEngines.add(engine);
+                }
             } catch (Exception e) {
                 logger.warn("Unexpected error from reconciliation engine 'applyModelUpdates' method", e);
             }
@@ -343,6 +344,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
             InternalReconciliationEngine<EVENT> newEngine = pair.getLeft();
             engines.add(newEngine);
             mustRunEngines.add(newEngine);
+            modelUpdatedEngines.add(newEngine);
             eventsMergeSubject.onNext(newEngine.events());
         });
 
@@ -351,11 +353,9 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         enginesToRemove.drainTo(recentlyRemoved);
         shutdownEnginesToRemove(recentlyRemoved);
 
-        boolean engineSetUpdate = !recentlyAdded.isEmpty() || !recentlyRemoved.isEmpty();
-
-        // Update indexes if there are model changes.
-        if (modelUpdates || engineSetUpdate) {
-            updateIndexSet();
+        // Update indexes for engines with model changes only.
+        if (!modelUpdatedEngines.isEmpty() || !recentlyRemoved.isEmpty()) {
+            updateIndexes(modelUpdatedEngines, recentlyRemoved.stream().map(Pair::getLeft).collect(Collectors.toList()));
         }
 
         // Complete engine add/remove subscribers.
@@ -412,11 +412,48 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         });
     }
 
-    private void updateIndexSet() {
-        Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap = new HashMap<>();
-        engines.forEach(engine -> engine.getReferenceView().visit(h -> idToEngineMap.put(h.getId(), engine)));
-        this.idToEngineMapRef.set(idToEngineMap);
+    /**
+     * Re-indexes only the engines whose reference model changed, or which were added/removed in this iteration.
+     * The engine removal is processed last, as the same engine may show up in both collections.
+     */
+    private void updateIndexes(Collection<InternalReconciliationEngine<EVENT>> updated,
+                               Collection<InternalReconciliationEngine<EVENT>> removed) {
+        List<EntityHolder> updatedRoots = new ArrayList<>(updated.size());
+        for (InternalReconciliationEngine<EVENT> engine : updated) {
+            EntityHolder current = engine.getReferenceView();
+            EntityHolder previous = indexedReferenceViews.put(engine, current);
+            if (previous != current) {
+                updateIdToEngineMap(engine, previous, current);
+                updatedRoots.add(current);
+            }
+        }
+        indexSet.update(updatedRoots);
+
+        List<EntityHolder> removedRoots = new ArrayList<>(removed.size());
+        for (InternalReconciliationEngine<EVENT> engine : removed) {
+            EntityHolder previous = indexedReferenceViews.remove(engine);
+            if (previous != null) {
+                // Conditional removal, as a child (for example a moved task) may already belong to another engine.
+                previous.visit(h -> idToEngineMap.remove(h.getId(), engine));
+                removedRoots.add(previous);
+            }
+        }
+        indexSet.remove(removedRoots);
+    }
+
+    private void updateIdToEngineMap(InternalReconciliationEngine<EVENT> engine, EntityHolder previous, EntityHolder current) {
+        if (previous != null) {
+            previous.visit(h -> {
+                if (!current.findById(h.getId()).isPresent()) {
+                    idToEngineMap.remove(h.getId(), engine);
+                }
+            });
+        }
+        current.visit(h -> idToEngineMap.put(h.getId(), engine));
+    }
 
-        indexSet = indexSet.apply(engines.stream().map(ReconciliationEngine::getReferenceView).collect(Collectors.toList()));
+    private static Id newMetricId(Registry registry, String name, Optional<String> shardId) {
+        Id id = registry.createId(name);
+        return shardId.map(s -> id.withTag("shard", s)).orElse(id);
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Mutable counterpart of {@link IndexSet}, which keeps each index sorted at all times, and re-positions only the
+ * elements that changed. An update of k elements in an index of size n costs O(k * log(n)) instead of the full
+ * O(n * log(n)) re-sort done by {@link IndexSet#apply(Collection)}. The ordered list view is materialized lazily,
+ * and only if there was a change since the last read.
+ * <p>
+ * Updates must be done by a single writer thread (the reconciliation loop). Reads are safe from any thread.
+ */
+public class IncrementalIndexSet<T> {
+
+    private final Function<T, String> idResolver;
+    private final Map<Object, Index<T>> indexes;
+    private final Map<String, T> elementsById = new HashMap<>();
+
+    private IncrementalIndexSet(Map<Object, Comparator<T>> comparators, Function<T, String> idResolver) {
+        this.idResolver = idResolver;
+        Map<Object, Index<T>> indexes = new HashMap<>();
+        comparators.forEach((k, v) -> indexes.put(k, new Index<>(v, idResolver)));
+        this.indexes = indexes;
+    }
+
+    /**
+     * Adds new elements, or re-positions the existing ones (matched by id) in all indexes.
+     */
+    public void update(Collection<T> updated) {
+        if (updated.isEmpty()) {
+            return;
+        }
+        List<T> previous = new ArrayList<>(updated.size());
+        for (T element : updated) {
+            T old = elementsById.put(idResolver.apply(element), element);
+            if (old != null && old != element) {
+                previous.add(old);
+            }
+        }
+        indexes.values().forEach(index -> index.apply(previous, updated));
+    }
+
+    /**
+     * Removes the given elements from all indexes. An element is removed only if it is the latest version known
+     * for its id, so a stale instance does not evict a newer element with the same id.
+     */
+    public void remove(Collection<T> elements) {
+        if (elements.isEmpty()) {
+            return;
+        }
+        List<T> removed = new ArrayList<>(elements.size());
+        for (T element : elements) {
+            if (elementsById.remove(idResolver.apply(element), element)) {
+                removed.add(element);
+            }
+        }
+        if (!removed.isEmpty()) {
+            indexes.values().forEach(index -> index.apply(removed, Collections.emptyList()));
+        }
+    }
+
+    public List<T> getOrdered(Object indexId) {
+        Index<T> result = indexes.get(indexId);
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown index id " + indexId);
+        }
+        return result.getOrdered();
+    }
+
+    public int size() {
+        return elementsById.size();
+    }
+
+    public static <T> IncrementalIndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators, Function<T, String> idResolver) {
+        return new IncrementalIndexSet<>(comparators, idResolver);
+    }
+
+    static class Index<T> {
+
+        private final TreeSet<T> ordered;
+
+        private volatile List<T> orderedView = Collections.emptyList();
+        private volatile boolean stale;
+
+        private Index(Comparator<T> comparator, Function<T, String> idResolver) {
+            // Id is used as a tie breaker, so elements equal according to the user provided comparator are not collapsed.
+            this.ordered = new TreeSet<>(comparator.thenComparing(idResolver));
+        }
+
+        synchronized void apply(Collection<T> removed, Collection<T> added) {
+            removed.forEach(ordered::remove);
+            ordered.addAll(added);
+            stale = true;
+        }
+
+        List<T> getOrdered() {
+            if (!stale) {
+                return orderedView;
+            }
+            synchronized (this) {
+                if (stale) {
+                    orderedView = Collections.unmodifiableList(new ArrayList<>(ordered));
+                    stale = false;
+                }
+                return orderedView;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.common.framework.reconciler.MultiEngineChangeAction;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import rx.Emitter;
+import rx.Observable;
+import rx.Subscription;
+
+/**
+ * Multi-engine change action execution logic shared by the reconciliation framework implementations. The frameworks
+ * differ only in how they protect the subscription step against interleaving with other multi-engine change actions.
+ */
+final class MultiEngineChangeActions {
+
+    private MultiEngineChangeActions() {
+    }
+
+    /**
+     * @param subscriptionGuard executes the provided action (which enqueues the change actions in all engines) in a
+     *                          critical section guarding against concurrent enqueues for an overlapping engine set
+     */
+    static <EVENT> Observable<Void> changeReferenceModel(Function<String, Optional<ReconciliationEngine<EVENT>>> engineResolver,
+                                                         String[] rootEntityHolderIds,
+                                                         MultiEngineChangeAction multiEngineChangeAction,
+                                                         BiFunction<String, Observable<List<ModelActionHolder>>, ChangeAction> engineChangeActionFactory,
+                                                         Consumer<Runnable> subscriptionGuard) {
+        return Observable.create(emitter -> {
+
+            List<ReconciliationEngine<EVENT>> engines = new ArrayList<>();
+            for (String id : rootEntityHolderIds) {
+                ReconciliationEngine<EVENT> engine = engineResolver.apply(id).orElseThrow(() -> new IllegalArgumentException("Reconciliation engine not found: rootId=" + id));
+                engines.add(engine);
+            }
+
+            List<Observable<Map<String, List<ModelActionHolder>>>> outputs = ObservableExt.propagate(multiEngineChangeAction.apply(), engines.size());
+            List<Observable<Void>> engineActions = new ArrayList<>();
+            for (int i = 0; i < engines.size(); i++) {
+                ReconciliationEngine<EVENT> engine = engines.get(i);
+                String rootId = engine.getReferenceView().getId();
+                ChangeAction engineAction = engineChangeActionFactory.apply(rootId, outputs.get(i).map(r -> r.get(rootId)));
+                engineActions.add(engine.changeReferenceModel(engineAction));
+            }
+
+            Subscription[] subscriptionHolder = new Subscription[1];
+            subscriptionGuard.accept(() -> subscriptionHolder[0] = Observable.mergeDelayError(engineActions).subscribe(
+                    emitter::onNext,
+                    emitter::onError,
+                    emitter::onCompleted
+            ));
+            emitter.setSubscription(subscriptionHolder[0]);
+        }, Emitter.BackpressureMode.NONE);
+    }
+}
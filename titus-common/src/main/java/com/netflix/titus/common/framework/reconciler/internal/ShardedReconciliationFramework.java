@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.common.framework.reconciler.MultiEngineChangeAction;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Completable;
+import rx.Observable;
+import rx.Scheduler;
+
+/**
+ * {@link ReconciliationFramework} implementation that partitions the reconciliation engines (by root id hash) across
+ * multiple {@link DefaultReconciliationFramework} shards. Each shard runs its own reconciliation loop on its own
+ * thread, so a slow engine stalls only the engines in the same shard.
+ * <p>
+ * Multi-engine change actions are coordinated with per-engine locks instead of a single global lock. The locks for all
+ * engines involved in an action are acquired in a consistent order, so enqueueing of change actions for overlapping
+ * engine sets is never interleaved (see {@link DefaultReconciliationFramework#changeReferenceModel} for the deadlock
+ * scenario this prevents), while actions for disjoint engine sets proceed concurrently.
+ */
+public class ShardedReconciliationFramework<EVENT> implements ReconciliationFramework<EVENT> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedReconciliationFramework.class);
+
+    private static final int ENGINE_LOCK_STRIPES = 1024;
+
+    private final List<DefaultReconciliationFramework<EVENT>> shards;
+    private final Map<Object, Comparator<EntityHolder>> indexComparators;
+    private final Striped<Lock> engineLocks = Striped.lock(ENGINE_LOCK_STRIPES);
+    private final Observable<EVENT> eventsObservable;
+
+    public ShardedReconciliationFramework(int shardCount,
+                                          List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Registry registry,
+                                          Optional<Scheduler> optionalScheduler) {
+        Preconditions.checkArgument(shardCount > 0, "shardCount <= 0 (%s)", shardCount);
+
+        this.indexComparators = indexComparators;
+
+        List<List<InternalReconciliationEngine<EVENT>>> bootstrapEnginesByShard = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            bootstrapEnginesByShard.add(new ArrayList<>());
+        }
+        bootstrapEngines.forEach(engine -> bootstrapEnginesByShard.get(shardOf(engine.getReferenceView().getId(), shardCount)).add(engine));
+
+        List<DefaultReconciliationFramework<EVENT>> shards = new ArrayList<>();
+        List<Observable<EVENT>> shardEvents = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            DefaultReconciliationFramework<EVENT> shard = new DefaultReconciliationFramework<>(
+                    bootstrapEnginesByShard.get(i),
+                    engineFactory,
+                    idleTimeoutMs,
+                    activeTimeoutMs,
+                    indexComparators,
+                    registry,
+                    optionalScheduler,
+                    Optional.of(Integer.toString(i))
+            );
+            shards.add(shard);
+            shardEvents.add(shard.events());
+        }
+        this.shards = Collections.unmodifiableList(shards);
+        this.eventsObservable = Observable.merge(shardEvents).share();
+
+        logger.info("Created sharded reconciliation framework: shards={}, bootstrapEngines={}", shardCount, bootstrapEngines.size());
+    }
+
+    @Override
+    public void start() {
+        shards.forEach(DefaultReconciliationFramework::start);
+    }
+
+    @Override
+    public boolean stop(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        boolean allStopped = true;
+        for (DefaultReconciliationFramework<EVENT> shard : shards) {
+            allStopped = shard.stop(Math.max(0, deadline - System.currentTimeMillis())) && allStopped;
+        }
+        return allStopped;
+    }
+
+    @Override
+    public Observable<EVENT> events() {
+        return eventsObservable;
+    }
+
+    @Override
+    public Optional<ReconciliationEngine<EVENT>> findEngineByRootId(String id) {
+        return shardFor(id).findEngineByRootId(id);
+    }
+
+    @Override
+    public Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> findEngineByChildId(String childId) {
+        for (DefaultReconciliationFramework<EVENT> shard : shards) {
+            Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> result = shard.findEngineByChildId(childId);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Merges the ordered views of all shards. Each shard view is already sorted, so this is a k-way merge.
+     */
+    @Override
+    public <ORDER_BY> List<EntityHolder> orderedView(ORDER_BY orderingCriteria) {
+        Comparator<EntityHolder> comparator = indexComparators.get(orderingCriteria);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Unknown index id " + orderingCriteria);
+        }
+        if (shards.size() == 1) {
+            return shards.get(0).orderedView(orderingCriteria);
+        }
+
+        List<List<EntityHolder>> shardViews = new ArrayList<>(shards.size());
+        int total = 0;
+        for (DefaultReconciliationFramework<EVENT> shard : shards) {
+            List<EntityHolder> view = shard.orderedView(orderingCriteria);
+            shardViews.add(view);
+            total += view.size();
+        }
+
+        // Each queue element is a pair of (shard index, position in the shard view).
+        PriorityQueue<int[]> heads = new PriorityQueue<>(shards.size(),
+                (first, second) -> comparator.compare(shardViews.get(first[0]).get(first[1]), shardViews.get(second[0]).get(second[1]))
+        );
+        for (int i = 0; i < shardViews.size(); i++) {
+            if (!shardViews.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<EntityHolder> result = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<EntityHolder> view = shardViews.get(head[0]);
+            result.add(view.get(head[1]));
+            if (head[1] + 1 < view.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public Observable<ReconciliationEngine<EVENT>> newEngine(EntityHolder bootstrapModel) {
+        return shardFor(bootstrapModel.getId()).newEngine(bootstrapModel);
+    }
+
+    @Override
+    public Completable removeEngine(ReconciliationEngine<EVENT> engine) {
+        return shardFor(engine.getReferenceView().getId()).removeEngine(engine);
+    }
+
+    @Override
+    public Observable<Void> changeReferenceModel(MultiEngineChangeAction multiEngineChangeAction,
+                                                 BiFunction<String, Observable<List<ModelActionHolder>>, ChangeAction> engineChangeActionFactory,
+                                                 String... rootEntityHolderIds) {
+        Preconditions.checkArgument(rootEntityHolderIds.length > 1,
+                "Change action for multiple engines requested, but %s root id holders provided", rootEntityHolderIds.length
+        );
+
+        return MultiEngineChangeActions.changeReferenceModel(
+                this::findEngineByRootId,
+                rootEntityHolderIds,
+                multiEngineChangeAction,
+                engineChangeActionFactory,
+                subscribeAction -> {
+                    // Striped#bulkGet returns the locks in a consistent order, which rules out lock ordering deadlocks.
+                    Iterable<Lock> locks = engineLocks.bulkGet(Arrays.asList(rootEntityHolderIds));
+                    List<Lock> acquired = new ArrayList<>();
+                    try {
+                        for (Lock lock : locks) {
+                            lock.lock();
+                            acquired.add(lock);
+                        }
+                        subscribeAction.run();
+                    } finally {
+                        for (int i = acquired.size() - 1; i >= 0; i--) {
+                            acquired.get(i).unlock();
+                        }
+                    }
+                }
+        );
+    }
+
+    private DefaultReconciliationFramework<EVENT> shardFor(String rootId) {
+        return shards.get(shardOf(rootId, shards.size()));
+    }
+
+    private static int shardOf(String rootId, int shardCount) {
+        return Math.floorMod(rootId.hashCode(), shardCount);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * A field selection (see {@link ProtobufExt#copy(Message, Set)}) compiled for a given message type. The field names
+ * are resolved to field descriptors once, so applying a projection to a message only reads the selected fields,
+ * and writes them into an empty builder. Compiled projections are cached, as the same few field sets are requested
+ * over and over again.
+ */
+public final class ProtobufProjection<T extends Message> {
+
+    private static final int CACHE_SIZE = 1_000;
+
+    private static final Cache<Pair<Descriptors.Descriptor, Set<String>>, ProtobufProjection<?>> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
+    private final List<FieldProjection> fieldProjections;
+
+    private ProtobufProjection(List<FieldProjection> fieldProjections) {
+        this.fieldProjections = fieldProjections;
+    }
+
+    public T apply(T entity) {
+        Message.Builder builder = entity.newBuilderForType();
+        for (FieldProjection fieldProjection : fieldProjections) {
+            fieldProjection.copy(entity, builder);
+        }
+        return (T) builder.build();
+    }
+
+    public static <T extends Message> ProtobufProjection<T> compile(Descriptors.Descriptor descriptor, Set<String> fields) {
+        Set<String> fieldsCopy = ImmutableSet.copyOf(fields);
+        try {
+            return (ProtobufProjection<T>) CACHE.get(Pair.of(descriptor, fieldsCopy), () -> newProjection(descriptor, fieldsCopy));
+        } catch (ExecutionException e) {
+            throw new IllegalArgumentException("Cannot compile field selection " + fields + " for " + descriptor.getFullName(), e.getCause());
+        }
+    }
+
+    private static <T extends Message> ProtobufProjection<T> newProjection(Descriptors.Descriptor descriptor, Set<String> fields) {
+        Map<String, Set<String>> topNames = PropertiesExt.splitNames(fields, 1);
+
+        List<FieldProjection> fieldProjections = new ArrayList<>();
+        for (FieldDescriptor field : descriptor.getFields()) {
+            if (!topNames.containsKey(field.getName())) {
+                continue;
+            }
+            // A field selected both as a whole and by its nested fields is copied as a whole.
+            Set<String> nested = fields.contains(field.getName()) ? null : topNames.get(field.getName());
+            fieldProjections.add(newFieldProjection(field, nested));
+        }
+        return new ProtobufProjection<>(fieldProjections);
+    }
+
+    private static FieldProjection newFieldProjection(FieldDescriptor field, Set<String> nested) {
+        if (nested == null || field.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+            return new WholeFieldProjection(field);
+        }
+        if (field.isMapField()) {
+            FieldDescriptor keyField = field.getMessageType().findFieldByNumber(1);
+            return keyField.getJavaType() == FieldDescriptor.JavaType.STRING
+                    ? new MapKeysProjection(field, keyField, ImmutableSet.copyOf(nested))
+                    : new WholeFieldProjection(field);
+        }
+        ProtobufProjection<Message> nestedProjection = newProjection(field.getMessageType(), nested);
+        return field.isRepeated()
+                ? new RepeatedMessageProjection(field, nestedProjection)
+                : new MessageProjection(field, nestedProjection);
+    }
+
+    private static abstract class FieldProjection {
+
+        protected final FieldDescriptor field;
+
+        private FieldProjection(FieldDescriptor field) {
+            this.field = field;
+        }
+
+        abstract void copy(Message source, Message.Builder target);
+    }
+
+    private static class WholeFieldProjection extends FieldProjection {
+
+        private WholeFieldProjection(FieldDescriptor field) {
+            super(field);
+        }
+
+        @Override
+        void copy(Message source, Message.Builder target) {
+            boolean present = field.isRepeated() ? source.getRepeatedFieldCount(field) > 0 : source.hasField(field);
+            if (present) {
+                target.setField(field, source.getField(field));
+            }
+        }
+    }
+
+    private static class MessageProjection extends FieldProjection {
+
+        private final ProtobufProjection<Message> nestedProjection;
+
+        private MessageProjection(FieldDescriptor field, ProtobufProjection<Message> nestedProjection) {
+            super(field);
+            this.nestedProjection = nestedProjection;
+        }
+
+        @Override
+        void copy(Message source, Message.Builder target) {
+            if (source.hasField(field)) {
+                target.setField(field, nestedProjection.apply((Message) source.getField(field)));
+            }
+        }
+    }
+
+    private static class RepeatedMessageProjection extends FieldProjection {
+
+        private final ProtobufProjection<Message> nestedProjection;
+
+        private RepeatedMessageProjection(FieldDescriptor field, ProtobufProjection<Message> nestedProjection) {
+            super(field);
+            this.nestedProjection = nestedProjection;
+        }
+
+        @Override
+        void copy(Message source, Message.Builder target) {
+            int count = source.getRepeatedFieldCount(field);
+            for (int i = 0; i < count; i++) {
+                target.addRepeatedField(field, nestedProjection.apply((Message) source.getRepeatedField(field, i)));
+            }
+        }
+    }
+
+    /**
+     * For maps with string keys, nested names select the map entries to keep.
+     */
+    private static class MapKeysProjection extends FieldProjection {
+
+        private final FieldDescriptor keyField;
+        private final Set<String> keys;
+
+        private MapKeysProjection(FieldDescriptor field, FieldDescriptor keyField, Set<String> keys) {
+            super(field);
+            this.keyField = keyField;
+            this.keys = keys;
+        }
+
+        @Override
+        void copy(Message source, Message.Builder target) {
+            int count = source.getRepeatedFieldCount(field);
+            for (int i = 0; i < count; i++) {
+                Message entry = (Message) source.getRepeatedField(field, i);
+                if (keys.contains(entry.getField(keyField))) {
+                    target.addRepeatedField(field, entry);
+                }
+            }
+        }
+    }
+}
@@ -39,4 +39,17 @@ public class Caches {
                 .build();
         return new InstrumentedCache<>(metricNameRoot, cache, registry);
     }
+
+    /**
+     * Cache with weakly referenced keys, compared by identity. An entry is removed as soon as its key is no longer
+     * referenced elsewhere, so it may be used to attach derived data to immutable objects.
+     */
+    public static <K, V> Cache<K, V> instrumentedCacheWithWeakKeys(long maxSize, String metricNameRoot, Registry registry) {
+        com.github.benmanes.caffeine.cache.Cache<K, V> cache = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        return new InstrumentedCache<>(metricNameRoot, cache, registry);
+    }
 }
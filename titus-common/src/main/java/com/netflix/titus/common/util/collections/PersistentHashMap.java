@@ -0,0 +1,460 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An immutable hash map implemented as a hash array mapped trie (HAMT). Each modification returns a new map instance,
+ * which shares all unchanged trie nodes with the original one, so its cost is O(log32(n)) in time and memory, instead
+ * of O(n) for a copy of a regular hash map.
+ * <p>
+ * Null keys and values are not allowed.
+ *
+ * @param <K> type of keys. They must have a correct implementations of <tt>equals()</tt> and <tt>hashCode()</tt>
+ * @param <V> type of values
+ */
+public final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(new BitmapNode<>(0, new Object[0]), 0);
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentHashMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public static <K, V> PersistentHashMap<K, V> from(Map<K, V> map) {
+        PersistentHashMap<K, V> result = empty();
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            result = result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Nullable
+    public V get(Object key) {
+        return root.get(0, hash(key), key);
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the given key mapped to the value. If the key is already mapped to the same value instance,
+     * returns this map.
+     */
+    public PersistentHashMap<K, V> put(K key, V value) {
+        Preconditions.checkNotNull(key, "Null key");
+        Preconditions.checkNotNull(value, "Null value");
+
+        int hash = hash(key);
+        V previous = root.get(0, hash, key);
+        if (previous == value) {
+            return this;
+        }
+        return new PersistentHashMap<>(root.put(0, hash, key, value), previous == null ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the given key. If the key is not present, returns this map.
+     */
+    public PersistentHashMap<K, V> remove(Object key) {
+        int hash = hash(key);
+        if (root.get(0, hash, key) == null) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+        return new PersistentHashMap<>(root.remove(0, hash, key), size - 1);
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach(action);
+    }
+
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        root.forEach((key, value) -> result.add(value));
+        return result;
+    }
+
+    public Map<K, V> toMap() {
+        Map<K, V> result = new HashMap<>();
+        root.forEach(result::put);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns a read-only {@link Map} view of this map. Key lookups are served by the trie directly, and the entries
+     * are materialized only if the view is iterated.
+     */
+    public Map<K, V> asMap() {
+        return new MapView<>(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PersistentHashMap{");
+        root.forEach((key, value) -> sb.append(key).append('=').append(value).append(", "));
+        if (size > 0) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class MapView<K, V> extends AbstractMap<K, V> {
+
+        private final PersistentHashMap<K, V> map;
+        private volatile Set<Map.Entry<K, V>> entrySet;
+
+        private MapView(PersistentHashMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public V get(Object key) {
+            return key == null ? null : map.get(key);
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            return key == null ? defaultValue : map.getOrDefault(key, defaultValue);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && map.containsKey(key);
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            map.forEach(action);
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            if (entrySet == null) {
+                entrySet = map.toMap().entrySet();
+            }
+            return entrySet;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Creates a sub-trie holding two entries with different keys.
+     */
+    private static <K, V> Node<K, V> newNode(int shift, Entry<K, V> first, Entry<K, V> second) {
+        if (first.hash == second.hash) {
+            return new CollisionNode<>(first.hash, new Object[]{first, second});
+        }
+        int firstBit = bitFor(first.hash, shift);
+        int secondBit = bitFor(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new BitmapNode<>(firstBit, new Object[]{newNode(shift + BITS, first, second)});
+        }
+        Object[] slots = Integer.compareUnsigned(firstBit, secondBit) < 0
+                ? new Object[]{first, second}
+                : new Object[]{second, first};
+        return new BitmapNode<>(firstBit | secondBit, slots);
+    }
+
+    private static abstract class Node<K, V> {
+
+        abstract V get(int shift, int hash, Object key);
+
+        abstract Node<K, V> put(int shift, int hash, K key, V value);
+
+        /**
+         * Returns null if the node becomes empty.
+         */
+        abstract Node<K, V> remove(int shift, int hash, Object key);
+
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+    }
+
+    private static final class Entry<K, V> {
+
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        private Entry(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Trie node with up to 32 slots. Each slot holds either an {@link Entry} or a child {@link Node}, and only the
+     * occupied slots are allocated, as indicated by the bitmap.
+     */
+    private static final class BitmapNode<K, V> extends Node<K, V> {
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(int shift, int hash, Object key) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[indexOf(bit)];
+            if (slot instanceof Node) {
+                return ((Node<K, V>) slot).get(shift + BITS, hash, key);
+            }
+            Entry<K, V> entry = (Entry<K, V>) slot;
+            return entry.key.equals(key) ? entry.value : null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(int shift, int hash, K key, V value) {
+            int bit = bitFor(hash, shift);
+            int index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = new Entry<>(hash, key, value);
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode<>(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[index];
+            if (slot instanceof Node) {
+                Node<K, V> child = (Node<K, V>) slot;
+                Node<K, V> newChild = child.put(shift + BITS, hash, key, value);
+                return newChild == child ? this : withSlot(index, newChild);
+            }
+            Entry<K, V> entry = (Entry<K, V>) slot;
+            if (entry.key.equals(key)) {
+                return entry.value == value ? this : withSlot(index, new Entry<>(hash, key, value));
+            }
+            return withSlot(index, newNode(shift + BITS, entry, new Entry<>(hash, key, value)));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(int shift, int hash, Object key) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = indexOf(bit);
+            Object slot = slots[index];
+            if (slot instanceof Node) {
+                Node<K, V> child = (Node<K, V>) slot;
+                Node<K, V> newChild = child.remove(shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                return newChild == null ? withoutSlot(index, bit) : withSlot(index, newChild);
+            }
+            Entry<K, V> entry = (Entry<K, V>) slot;
+            return entry.key.equals(key) ? withoutSlot(index, bit) : this;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Node) {
+                    ((Node<K, V>) slot).forEach(action);
+                } else {
+                    Entry<K, V> entry = (Entry<K, V>) slot;
+                    action.accept(entry.key, entry.value);
+                }
+            }
+        }
+
+        private int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private BitmapNode<K, V> withSlot(int index, Object slot) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new BitmapNode<>(bitmap, newSlots);
+        }
+
+        private BitmapNode<K, V> withoutSlot(int index, int bit) {
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode<>(bitmap & ~bit, newSlots);
+        }
+    }
+
+    /**
+     * Holds entries with different keys, but the same (full) hash code.
+     */
+    private static final class CollisionNode<K, V> extends Node<K, V> {
+
+        private final int hash;
+        private final Object[] entries;
+
+        private CollisionNode(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        V get(int shift, int hash, Object key) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index < 0 ? null : entryAt(index).value;
+        }
+
+        @Override
+        Node<K, V> put(int shift, int hash, K key, V value) {
+            if (hash != this.hash) {
+                // Push this node one level down, next to the new entry.
+                int thisBit = bitFor(this.hash, shift);
+                int entryBit = bitFor(hash, shift);
+                if (thisBit == entryBit) {
+                    return new BitmapNode<>(thisBit, new Object[]{put(shift + BITS, hash, key, value)});
+                }
+                Entry<K, V> entry = new Entry<>(hash, key, value);
+                Object[] slots = Integer.compareUnsigned(thisBit, entryBit) < 0
+                        ? new Object[]{this, entry}
+                        : new Object[]{entry, this};
+                return new BitmapNode<>(thisBit | entryBit, slots);
+            }
+
+            int index = indexOf(key);
+            if (index < 0) {
+                Object[] newEntries = new Object[entries.length + 1];
+                System.arraycopy(entries, 0, newEntries, 0, entries.length);
+                newEntries[entries.length] = new Entry<>(hash, key, value);
+                return new CollisionNode<>(hash, newEntries);
+            }
+            if (entryAt(index).value == value) {
+                return this;
+            }
+            Object[] newEntries = entries.clone();
+            newEntries[index] = new Entry<>(hash, key, value);
+            return new CollisionNode<>(hash, newEntries);
+        }
+
+        @Override
+        Node<K, V> remove(int shift, int hash, Object key) {
+            if (hash != this.hash) {
+                return this;
+            }
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (entries.length == 1) {
+                return null;
+            }
+            Object[] newEntries = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+            return new CollisionNode<>(hash, newEntries);
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < entries.length; i++) {
+                Entry<K, V> entry = entryAt(i);
+                action.accept(entry.key, entry.value);
+            }
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entryAt(i).key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry<K, V> entryAt(int index) {
+            return (Entry<K, V>) entries[index];
+        }
+    }
+}
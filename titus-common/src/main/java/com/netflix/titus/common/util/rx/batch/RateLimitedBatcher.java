@@ -37,9 +37,11 @@ import com.netflix.titus.common.util.time.Clocks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.Producer;
 import rx.Scheduler;
 import rx.Subscriber;
 import rx.exceptions.Exceptions;
+import rx.internal.operators.BackpressureUtils;
 import rx.plugins.RxJavaHooks;
 
 
@@ -98,6 +100,7 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
     private final String metricsRoot;
     private final Registry registry;
     private final Counter rateLimitCounter;
+    private final Counter noDemandCounter;
     private final Clock clock;
 
     /**
@@ -134,6 +137,7 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
         this.metricsRoot = metricsRoot;
         this.registry = registry;
         this.rateLimitCounter = registry.counter(metricsRoot + ".rateLimit");
+        this.noDemandCounter = registry.counter(metricsRoot + ".noDemand");
         this.clock = Clocks.scheduler(scheduler);
         this.worker = new InstrumentedEventLoop(metricsRoot, registry, scheduler);
     }
@@ -141,6 +145,7 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
     @Override
     public Subscriber<? super T> call(final Subscriber<? super Batch<T, I>> downstream) {
         Flusher flusher = new Flusher(downstream);
+        downstream.setProducer(flusher);
         flusher.run();
         return new BatchUpstreamSubscriber(flusher);
     }
@@ -180,7 +185,7 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
     /**
      * Continually flushes pending batches to downstream subscribers
      */
-    private final class Flusher implements EventQueue<T> {
+    private final class Flusher implements EventQueue<T>, Producer {
         /**
          * each batch is an immutable Map (indexed by <tt>Batchable#getIdentifier()</tt>), and modifications are applied
          * with copy-on-write
@@ -199,6 +204,10 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
          * limited by the {@link TokenBucket}.
          */
         private final AtomicLong currentDelayMs = new AtomicLong(initialDelayMs);
+        /**
+         * number of batches requested by downstream subscribers, that were not emitted yet
+         */
+        private final AtomicLong requested = new AtomicLong();
         /**
          * tracks when upstream has completed emitting, so we can terminate after flushing what is currently pending
          */
@@ -220,6 +229,13 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
             this.downstream = downstream;
         }
 
+        @Override
+        public void request(long n) {
+            if (n > 0) {
+                BackpressureUtils.getAndAddRequest(requested, n);
+            }
+        }
+
         /**
          * On a conflict, replace the existing value if the new one has higher priority, or the same priority but is
          * different (as per {@link Batchable#isEquivalent(Batchable)}) and a more recent timestamp. That way, older
@@ -261,6 +277,10 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                 logger.info("Ending the flush loop, onError will be called and onNext can not be called anymore");
                 return;
             }
+            if (requested.get() == 0) {
+                scheduleNextWhenNoDemand();
+                return;
+            }
 
             Queue<Batch<T, I>> ordered = emissionStrategy.compute(readyBatchesStream());
             if (ordered.isEmpty()) {
@@ -274,6 +294,11 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                     return;
                 }
 
+                if (requested.get() == 0) {
+                    scheduleNextWhenNoDemand();
+                    return;
+                }
+
                 final Batch<T, I> next = ordered.poll();
                 if (next == null) {
                     break;
@@ -286,6 +311,7 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                 resetCurrentDelay();
 
                 onNextSafe(next);
+                BackpressureUtils.produced(requested, 1);
                 /*
                  * Only remove sent items if they have not been modified in the pending data structure to avoid losing
                  * items that were replaced while being emitted.
@@ -322,6 +348,19 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
             worker.schedule(ACTION_FLUSH, this::flushPending, delayForNext, TimeUnit.MILLISECONDS);
         }
 
+        /**
+         * items are kept (and coalesced) in the pending buffer until downstream subscribers request more
+         */
+        private void scheduleNextWhenNoDemand() {
+            if (done && pending.isEmpty()) {
+                scheduleNextIfNotDone();
+                return;
+            }
+            logger.debug("No demand from downstream. Next iteration in {} ms", currentDelayMs);
+            noDemandCounter.increment();
+            worker.schedule(ACTION_FLUSH, this::flushPending, currentDelayMs.get(), TimeUnit.MILLISECONDS);
+        }
+
         private void scheduleNextIfNotDone() {
             if (done && pending.isEmpty()) {
                 logger.info("Ending the flush loop, all pending items were flushed after onComplete from upstream");
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.time;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hierarchical timer wheel with one deadline per key. Each level has {@link #SLOTS} slots. A slot at level N covers
+ * SLOTS^N ticks, and its entries are moved to the lower levels when the wheel time reaches the slot. Deadlines beyond
+ * the highest level are kept in an overflow set, which is checked each time the highest level completes a full
+ * rotation. Scheduling and cancellation are O(1), and the cost of {@link #advance()} depends on the number of elapsed
+ * ticks and expired entries, not on the total number of entries.
+ * <p>
+ * Deadlines are rounded up to the tick resolution. The wheel time follows the provided clock. This class is not
+ * thread safe.
+ */
+public class HierarchicalTimerWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+    private final Clock clock;
+
+    private final List<List<Set<Entry<K>>>> levels = new ArrayList<>();
+    private final Set<Entry<K>> overflow = new LinkedHashSet<>();
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+
+    /**
+     * Entries with the deadline not later than the current tick, that were not returned by {@link #advance()} yet.
+     */
+    private final Set<Entry<K>> expired = new LinkedHashSet<>();
+
+    private long currentTick;
+
+    public HierarchicalTimerWheel(long tickMs, Clock clock) {
+        Preconditions.checkArgument(tickMs > 0, "Tick must be > 0: %s", tickMs);
+        this.tickMs = tickMs;
+        this.clock = clock;
+        this.currentTick = clock.wallTime() / tickMs;
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<Entry<K>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new LinkedHashSet<>());
+            }
+            levels.add(slots);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Sets the deadline for the given key, replacing the previous one if set.
+     */
+    public void schedule(K key, long deadlineMs) {
+        cancel(key);
+        // Round up, so a key never expires before its deadline.
+        long deadlineTick = (deadlineMs + tickMs - 1) / tickMs;
+        Entry<K> entry = new Entry<>(key, deadlineTick);
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    public void cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry != null && entry.container != null) {
+            entry.container.remove(entry);
+            entry.container = null;
+        }
+    }
+
+    /**
+     * Moves the wheel time to the current clock time, and returns keys with the deadlines that passed. The returned
+     * keys are removed from the wheel.
+     */
+    public List<K> advance() {
+        long targetTick = clock.wallTime() / tickMs;
+        while (currentTick < targetTick) {
+            if (entries.size() == expired.size()) {
+                // Nothing pending in the wheel, so the elapsed ticks can be skipped.
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            expireAll(levels.get(0).get((int) (currentTick & SLOT_MASK)));
+        }
+
+        if (expired.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<K> result = new ArrayList<>(expired.size());
+        for (Entry<K> entry : expired) {
+            entries.remove(entry.key);
+            entry.container = null;
+            result.add(entry.key);
+        }
+        expired.clear();
+        return result;
+    }
+
+    private void place(Entry<K> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        Set<Entry<K>> container;
+        if (delta <= 0) {
+            container = expired;
+        } else {
+            container = overflow;
+            for (int level = 0; level < LEVELS; level++) {
+                if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                    container = levels.get(level).get((int) ((entry.deadlineTick >> (SLOT_BITS * level)) & SLOT_MASK));
+                    break;
+                }
+            }
+        }
+        container.add(entry);
+        entry.container = container;
+    }
+
+    /**
+     * Moves entries from the higher level slots that start at the current tick to the lower levels.
+     */
+    private void cascade() {
+        if ((currentTick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+            replaceAll(overflow);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                replaceAll(levels.get(level).get((int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK)));
+            }
+        }
+    }
+
+    private void replaceAll(Set<Entry<K>> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Entry<K>> toMove = new ArrayList<>(slot);
+        slot.clear();
+        toMove.forEach(this::place);
+    }
+
+    private void expireAll(Set<Entry<K>> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        for (Entry<K> entry : slot) {
+            entry.container = expired;
+            expired.add(entry);
+        }
+        slot.clear();
+    }
+
+    private static class Entry<K> {
+
+        private final K key;
+        private final long deadlineTick;
+        private Set<Entry<K>> container;
+
+        private Entry(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures the cost of a single task update in a job holder with many tasks. Each update replaces one child in
+ * the reference, running and store models, which is what a task state change in a large job triggers.
+ */
+public class EntityHolderPerf {
+
+    private static final int[] TASK_COUNTS = {10, 1_000, 10_000};
+    private static final int MODELS = 3;
+    private static final int ITERATIONS = 100_000;
+
+    private final Random random = new Random(123);
+
+    private void doRun() {
+        for (int taskCount : TASK_COUNTS) {
+            EntityHolder[] models = new EntityHolder[MODELS];
+            for (int m = 0; m < MODELS; m++) {
+                models[m] = newJob(taskCount);
+            }
+
+            // Warm up first, and measure next.
+            runUpdates(models, taskCount);
+
+            long allocatedBefore = allocatedBytes();
+            long startTime = System.nanoTime();
+            runUpdates(models, taskCount);
+            long elapsedNs = System.nanoTime() - startTime;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            long updates = (long) ITERATIONS * MODELS;
+            System.out.println(String.format("tasks=%6s, updates=%8s, updates/sec=%10.0f, allocated bytes/update=%s",
+                    taskCount, updates, updates * 1_000_000_000.0 / elapsedNs, allocated / updates
+            ));
+        }
+    }
+
+    private void runUpdates(EntityHolder[] models, int taskCount) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            String taskId = "task#" + random.nextInt(taskCount);
+            for (int m = 0; m < MODELS; m++) {
+                EntityHolder task = models[m].findChildById(taskId).get();
+                models[m] = models[m].addChild(task.setEntity(i).addTag("version", i));
+            }
+        }
+    }
+
+    private EntityHolder newJob(int taskCount) {
+        EntityHolder job = EntityHolder.newRoot("job", 0);
+        for (int t = 0; t < taskCount; t++) {
+            job = job.addChild(EntityHolder.newRoot("task#" + t, t).addTag("version", 0));
+        }
+        return job;
+    }
+
+    /**
+     * Total number of bytes allocated by all live threads.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    public static void main(String[] args) {
+        new EntityHolderPerf().doRun();
+    }
+}
@@ -65,4 +65,32 @@ public class EntityHolderTest {
         assertThat(first(rootV2.getChildren()).getId()).isEqualTo("myChild2");
         assertThat(child1.getId()).isEqualTo("myChild1");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTags() {
+        EntityHolder rootV1 = newRoot("myRoot", "as").addTag("tag1", "value1").addTag("tag2", 2);
+        EntityHolder rootV2 = rootV1.addTag("tag1", "value1_v2").removeTag("tag2");
+
+        assertThat(rootV1.getAttributes()).containsEntry("tag1", "value1").containsEntry("tag2", 2).hasSize(2);
+        assertThat(rootV2.getAttributes()).containsEntry("tag1", "value1_v2").doesNotContainKey("tag2").hasSize(1);
+        assertThat(rootV2.getAttributes().getOrDefault("tag2", 0)).isEqualTo(0);
+        assertThat(rootV2.removeTag("tag2")).isSameAs(rootV2);
+        assertThat(rootV2.addTag("tag1", null).getAttributes()).isEmpty();
+    }
+
+    @Test
+    public void testManyChildren() {
+        EntityHolder rootV1 = newRoot("myRoot", "as");
+        for (int i = 0; i < 1_000; i++) {
+            rootV1 = rootV1.addChild(newRoot("myChild" + i, "a" + i));
+        }
+        EntityHolder rootV2 = rootV1.addChild(newRoot("myChild500", "a500_v2")).removeChild("myChild0").getLeft();
+
+        assertThat(rootV1.getChildren()).hasSize(1_000);
+        assertThat((String) rootV1.findChildById("myChild500").get().getEntity()).isEqualTo("a500");
+        assertThat(rootV2.getChildren()).hasSize(999);
+        assertThat((String) rootV2.findChildById("myChild500").get().getEntity()).isEqualTo("a500_v2");
+        assertThat(rootV2.findChildById("myChild0")).isEmpty();
+        assertThat(rootV2.findChildById("myChild1").get()).isSameAs(rootV1.findChildById("myChild1").get());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import org.junit.Test;
+
+import static com.netflix.titus.common.framework.reconciler.EntityHolder.newRoot;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalIndexSetTest {
+
+    private final Map<Object, Comparator<EntityHolder>> indexComparators = ImmutableMap.<Object, Comparator<EntityHolder>>builder()
+            .put("ascending", Comparator.comparing(EntityHolder::getEntity))
+            .put("descending", Comparator.<EntityHolder, String>comparing(EntityHolder::getEntity).reversed())
+            .build();
+
+    private final IncrementalIndexSet<EntityHolder> indexSet = IncrementalIndexSet.newIndexSet(indexComparators, EntityHolder::getId);
+
+    @Test
+    public void testAdd() {
+        indexSet.update(Arrays.asList(newRoot("id2", "b"), newRoot("id1", "a"), newRoot("id3", "c")));
+
+        assertThat(entities("ascending")).containsExactly("a", "b", "c");
+        assertThat(entities("descending")).containsExactly("c", "b", "a");
+    }
+
+    @Test
+    public void testUpdateRepositionsElement() {
+        indexSet.update(Arrays.asList(newRoot("id1", "a"), newRoot("id2", "b"), newRoot("id3", "c")));
+        assertThat(entities("ascending")).containsExactly("a", "b", "c");
+
+        indexSet.update(Collections.singletonList(newRoot("id1", "d")));
+
+        assertThat(entities("ascending")).containsExactly("b", "c", "d");
+        assertThat(entities("descending")).containsExactly("d", "c", "b");
+        assertThat(indexSet.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testElementsEqualByComparatorAreNotCollapsed() {
+        indexSet.update(Arrays.asList(newRoot("id1", "a"), newRoot("id2", "a")));
+
+        assertThat(indexSet.getOrdered("ascending")).extracting(EntityHolder::getId).containsExactly("id1", "id2");
+    }
+
+    @Test
+    public void testRemove() {
+        EntityHolder holder1 = newRoot("id1", "a");
+        indexSet.update(Arrays.asList(holder1, newRoot("id2", "b")));
+
+        indexSet.remove(Collections.singletonList(holder1));
+
+        assertThat(entities("ascending")).containsExactly("b");
+        assertThat(indexSet.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRemoveOfStaleElementIsIgnored() {
+        EntityHolder holderV1 = newRoot("id1", "a");
+        indexSet.update(Collections.singletonList(holderV1));
+        indexSet.update(Collections.singletonList(newRoot("id1", "b")));
+
+        indexSet.remove(Collections.singletonList(holderV1));
+
+        assertThat(entities("ascending")).containsExactly("b");
+    }
+
+    @Test
+    public void testOrderedViewIsSnapshot() {
+        indexSet.update(Collections.singletonList(newRoot("id1", "a")));
+        List<EntityHolder> snapshot = indexSet.getOrdered("ascending");
+
+        indexSet.update(Collections.singletonList(newRoot("id2", "b")));
+
+        assertThat(snapshot).hasSize(1);
+        assertThat(indexSet.getOrdered("ascending")).hasSize(2);
+    }
+
+    private List<String> entities(Object indexId) {
+        return indexSet.getOrdered(indexId).stream().map(h -> (String) h.getEntity()).collect(Collectors.toList());
+    }
+}
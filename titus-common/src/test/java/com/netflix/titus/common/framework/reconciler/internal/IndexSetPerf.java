@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+
+/**
+ * Compares the per reconciliation loop index update cost of {@link IndexSet} (full copy and re-sort) with
+ * {@link IncrementalIndexSet} (re-position of the changed elements only). Each iteration updates a small number of
+ * root holders (jobs), rebuilds the id to holder map, and reads the ordered view once, which is what
+ * {@link DefaultReconciliationFramework} does when there are model updates.
+ */
+public class IndexSetPerf {
+
+    private static final String INDEX_ID = "byCreationTime";
+
+    private static final int[] JOB_COUNTS = {10_000, 50_000, 100_000};
+    private static final int TASKS_PER_JOB = 5;
+    private static final int CHANGED_JOBS_PER_ITERATION = 10;
+    private static final int ITERATIONS = 200;
+
+    private static final Map<Object, Comparator<EntityHolder>> COMPARATORS = Collections.singletonMap(
+            INDEX_ID, Comparator.comparing(h -> (Long) h.getEntity())
+    );
+
+    private final Random random = new Random(123);
+
+    private void doRun() {
+        for (int jobCount : JOB_COUNTS) {
+            List<EntityHolder> jobs = newJobs(jobCount);
+
+            // Warm up first, and measure next.
+            runFullIndex(jobs);
+            runIncrementalIndex(jobs);
+
+            long fullTimeMs = runFullIndex(jobs);
+            long incrementalTimeMs = runIncrementalIndex(jobs);
+
+            System.out.println(String.format("jobs=%8s, iterations=%5s, changedPerIteration=%3s, IndexSet=%8.3fms/loop, IncrementalIndexSet=%8.3fms/loop",
+                    jobCount, ITERATIONS, CHANGED_JOBS_PER_ITERATION,
+                    ((double) fullTimeMs) / ITERATIONS, ((double) incrementalTimeMs) / ITERATIONS
+            ));
+        }
+    }
+
+    private long runFullIndex(List<EntityHolder> initialJobs) {
+        List<EntityHolder> jobs = new ArrayList<>(initialJobs);
+        IndexSet<EntityHolder> indexSet = IndexSet.newIndexSet(COMPARATORS).apply(jobs);
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int c = 0; c < CHANGED_JOBS_PER_ITERATION; c++) {
+                int idx = random.nextInt(jobs.size());
+                jobs.set(idx, updateJob(jobs.get(idx)));
+            }
+            Map<String, EntityHolder> idToJob = new HashMap<>();
+            jobs.forEach(job -> job.visit(h -> idToJob.put(h.getId(), job)));
+            indexSet = indexSet.apply(jobs);
+            indexSet.getOrdered(INDEX_ID);
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private long runIncrementalIndex(List<EntityHolder> initialJobs) {
+        List<EntityHolder> jobs = new ArrayList<>(initialJobs);
+        IncrementalIndexSet<EntityHolder> indexSet = IncrementalIndexSet.newIndexSet(COMPARATORS, EntityHolder::getId);
+        indexSet.update(jobs);
+        Map<String, EntityHolder> idToJob = new HashMap<>();
+        jobs.forEach(job -> job.visit(h -> idToJob.put(h.getId(), job)));
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<EntityHolder> changed = new ArrayList<>(CHANGED_JOBS_PER_ITERATION);
+            for (int c = 0; c < CHANGED_JOBS_PER_ITERATION; c++) {
+                int idx = random.nextInt(jobs.size());
+                EntityHolder updated = updateJob(jobs.get(idx));
+                jobs.set(idx, updated);
+                changed.add(updated);
+            }
+            changed.forEach(job -> job.visit(h -> idToJob.put(h.getId(), job)));
+            indexSet.update(changed);
+            indexSet.getOrdered(INDEX_ID);
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private List<EntityHolder> newJobs(int jobCount) {
+        List<EntityHolder> jobs = new ArrayList<>(jobCount);
+        for (int j = 0; j < jobCount; j++) {
+            EntityHolder job = EntityHolder.newRoot("job#" + j, (long) random.nextInt(Integer.MAX_VALUE));
+            for (int t = 0; t < TASKS_PER_JOB; t++) {
+                job = job.addChild(EntityHolder.newRoot("job#" + j + "-task#" + t, (long) t));
+            }
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    private EntityHolder updateJob(EntityHolder job) {
+        return job.setEntity((long) random.nextInt(Integer.MAX_VALUE));
+    }
+
+    public static void main(String[] args) {
+        new IndexSetPerf().doRun();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.common.framework.reconciler.MultiEngineChangeAction;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.testkit.rx.ExtTestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShardedReconciliationFrameworkTest {
+
+    private static final int SHARD_COUNT = 4;
+    private static final int ENGINE_COUNT = 20;
+
+    private static final long IDLE_TIMEOUT_MS = 100;
+    private static final long ACTIVE_TIMEOUT_MS = 20;
+    private static final int STOP_TIMEOUT_MS = 1_000;
+
+    private final TestScheduler testScheduler = Schedulers.test();
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final Function<EntityHolder, InternalReconciliationEngine<SimpleReconcilerEvent>> engineFactory = mock(Function.class);
+
+    private final Map<String, InternalReconciliationEngine<SimpleReconcilerEvent>> enginesById = new HashMap<>();
+
+    private final Map<Object, Comparator<EntityHolder>> indexComparators = ImmutableMap.<Object, Comparator<EntityHolder>>builder()
+            .put("ascending", Comparator.comparing(EntityHolder::getEntity))
+            .put("descending", Comparator.<EntityHolder, String>comparing(EntityHolder::getEntity).reversed())
+            .build();
+
+    private final ShardedReconciliationFramework<SimpleReconcilerEvent> framework = new ShardedReconciliationFramework<>(
+            SHARD_COUNT,
+            Collections.emptyList(),
+            engineFactory,
+            IDLE_TIMEOUT_MS,
+            ACTIVE_TIMEOUT_MS,
+            indexComparators,
+            registry,
+            Optional.of(testScheduler)
+    );
+
+    @Before
+    public void setUp() {
+        when(engineFactory.apply(any())).thenAnswer(invocation -> newEngineMock(invocation.getArgument(0)));
+        framework.start();
+    }
+
+    @After
+    public void tearDown() {
+        framework.stop(STOP_TIMEOUT_MS);
+    }
+
+    @Test
+    public void testEnginesArePartitionedAcrossShards() {
+        addEngines();
+
+        for (int i = 0; i < ENGINE_COUNT; i++) {
+            assertThat(framework.findEngineByRootId(rootId(i))).isPresent();
+        }
+        assertThat(framework.findEngineByRootId("unknownRoot")).isNotPresent();
+
+        // Each shard reports its own loop execution time.
+        long shardTimers = registry.stream().filter(m -> m.id().name().equals("titus.reconciliation.framework.executionTime")).count();
+        assertThat(shardTimers).isEqualTo(SHARD_COUNT);
+    }
+
+    @Test
+    public void testOrderedViewMergesShards() {
+        addEngines();
+
+        List<EntityHolder> ascending = framework.orderedView("ascending");
+        assertThat(ascending).hasSize(ENGINE_COUNT);
+        assertThat(ascending).isSortedAccordingTo(indexComparators.get("ascending"));
+
+        List<EntityHolder> descending = framework.orderedView("descending");
+        assertThat(descending).hasSize(ENGINE_COUNT);
+        assertThat(descending).isSortedAccordingTo(indexComparators.get("descending"));
+    }
+
+    @Test
+    public void testEngineRemove() {
+        addEngines();
+
+        ReconciliationEngine<SimpleReconcilerEvent> engine = framework.findEngineByRootId(rootId(0)).get();
+        framework.removeEngine(engine).subscribe();
+        testScheduler.triggerActions();
+
+        assertThat(framework.findEngineByRootId(rootId(0))).isNotPresent();
+        assertThat(framework.orderedView("ascending")).hasSize(ENGINE_COUNT - 1);
+    }
+
+    @Test
+    public void testMultiEngineChangeActionAcrossShards() {
+        addEngines();
+
+        MultiEngineChangeAction multiEngineChangeAction = () -> Observable.just(ImmutableMap.of(
+                rootId(0), ModelActionHolder.allModels(new SimpleModelUpdateAction(EntityHolder.newRoot(rootId(0), "entity#v2"), true)),
+                rootId(1), ModelActionHolder.allModels(new SimpleModelUpdateAction(EntityHolder.newRoot(rootId(1), "entity#v2"), true))
+        ));
+        Map<String, List<ModelActionHolder>> holders = new HashMap<>();
+        Observable<Void> multiChangeObservable = framework.changeReferenceModel(
+                multiEngineChangeAction,
+                (id, modelUpdates) -> {
+                    ChangeAction changeAction = () -> modelUpdates.doOnNext(next -> holders.put(id, next));
+                    return changeAction;
+                },
+                rootId(0), rootId(1)
+        );
+
+        ExtTestSubscriber<Void> multiChangeSubscriber = new ExtTestSubscriber<>();
+        multiChangeObservable.subscribe(multiChangeSubscriber);
+        assertThat(multiChangeSubscriber.isUnsubscribed()).isTrue();
+
+        verify(enginesById.get(rootId(0)), times(1)).changeReferenceModel(any());
+        verify(enginesById.get(rootId(1)), times(1)).changeReferenceModel(any());
+        assertThat(holders.get(rootId(0))).hasSize(3);
+        assertThat(holders.get(rootId(1))).hasSize(3);
+    }
+
+    private void addEngines() {
+        for (int i = 0; i < ENGINE_COUNT; i++) {
+            framework.newEngine(EntityHolder.newRoot(rootId(i), "entity#" + i)).subscribe();
+        }
+        testScheduler.triggerActions();
+    }
+
+    private String rootId(int index) {
+        return "myRoot" + index;
+    }
+
+    private InternalReconciliationEngine<SimpleReconcilerEvent> newEngineMock(EntityHolder bootstrapModel) {
+        InternalReconciliationEngine<SimpleReconcilerEvent> engine = mock(InternalReconciliationEngine.class);
+        when(engine.triggerActions()).thenReturn(true);
+        when(engine.getReferenceView()).thenReturn(bootstrapModel);
+        when(engine.events()).thenReturn(PublishSubject.<SimpleReconcilerEvent>create().asObservable());
+        when(engine.changeReferenceModel(any())).thenAnswer(invocation -> {
+            ChangeAction changeAction = invocation.getArgument(0);
+            return changeAction.apply().ignoreElements().cast(Void.class);
+        });
+        enginesById.put(bootstrapModel.getId(), engine);
+        return engine;
+    }
+}
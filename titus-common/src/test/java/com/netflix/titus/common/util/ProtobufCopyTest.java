@@ -110,6 +110,22 @@ public class ProtobufCopyTest {
         }
     }
 
+    @Test
+    public void testCompiledProjectionIsCached() throws Exception {
+        ProtobufProjection<Message> projection = ProtobufProjection.compile(OUTER_VALUE.getDescriptorForType(), asSet("objectArrayField.stringField1"));
+        assertThat(ProtobufProjection.<Message>compile(OUTER_VALUE.getDescriptorForType(), asSet("objectArrayField.stringField1"))).isSameAs(projection);
+        assertThat(projection.apply(OUTER_VALUE)).isEqualTo(ProtobufExt.copy(OUTER_VALUE, asSet("objectArrayField.stringField1")));
+    }
+
+    @Test
+    public void testFieldSelectedAsWholeAndNested() throws Exception {
+        Message filtered = ProtobufExt.copy(OUTER_VALUE, asSet("objectField", "objectField.stringField1"));
+        FieldDescriptor objectField = ProtoMessageBuilder.getAndAssertField(OUTER_VALUE, "objectField");
+        FieldDescriptor stringField2 = ProtoMessageBuilder.getAndAssertField(objectField.getMessageType(), "stringField2");
+
+        assertFieldHasValue((Message) filtered.getField(objectField), stringField2);
+    }
+
     private void assertFieldHasValue(Message entity, FieldDescriptor field) {
         Object value = entity.getField(field);
         assertThat(value).isNotNull();
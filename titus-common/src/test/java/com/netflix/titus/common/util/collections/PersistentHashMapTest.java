@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        PersistentHashMap<String, String> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, String> map = empty.put("a", "1").put("b", "2");
+
+        assertThat(empty.isEmpty()).isTrue();
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get("a")).isEqualTo("1");
+        assertThat(map.get("c")).isNull();
+
+        PersistentHashMap<String, String> updated = map.put("a", "3");
+        assertThat(updated.get("a")).isEqualTo("3");
+        assertThat(map.get("a")).isEqualTo("1");
+        assertThat(updated.size()).isEqualTo(2);
+
+        PersistentHashMap<String, String> removed = updated.remove("a");
+        assertThat(removed.containsKey("a")).isFalse();
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(updated.containsKey("a")).isTrue();
+    }
+
+    @Test
+    public void testNoChangeReturnsSameInstance() {
+        String value = "1";
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().put("a", value);
+        assertThat(map.put("a", value)).isSameAs(map);
+        assertThat(map.remove("b")).isSameAs(map);
+    }
+
+    @Test
+    public void testHashCollisions() {
+        PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.put(new CollidingKey(i % 2, i), i);
+        }
+        assertThat(map.size()).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(map.get(new CollidingKey(i % 2, i))).isEqualTo(i);
+        }
+        for (int i = 0; i < 10; i += 2) {
+            map = map.remove(new CollidingKey(0, i));
+        }
+        assertThat(map.size()).isEqualTo(5);
+        assertThat(map.toMap()).hasSize(5);
+        assertThat(map.get(new CollidingKey(1, 1))).isEqualTo(1);
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        Random random = new Random(123);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> actual = PersistentHashMap.empty();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000) * (random.nextBoolean() ? 1 : -65_536);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.remove(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.put(key, i);
+            }
+        }
+        assertThat(actual.size()).isEqualTo(expected.size());
+        assertThat(actual.toMap()).isEqualTo(expected);
+        assertThat(actual.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+
+    private static class CollidingKey {
+
+        private final int hash;
+        private final int id;
+
+        private CollidingKey(int hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CollidingKey that = (CollidingKey) o;
+            return hash == that.hash && id == that.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -281,6 +281,38 @@ public class RateLimitedBatcherTest {
                 .assertValue(Batch.of(expected.getResourceId(), Collections.singletonList(expected)));
     }
 
+    @Test
+    public void itemsAreKeptPendingWithoutDownstreamDemand() {
+        final RateLimitedBatcher<BatchableOperationMock, String> batcher = buildBatcher(minimumTimeInQueueMs);
+        final Subject<BatchableOperationMock, BatchableOperationMock> updates = PublishSubject.<BatchableOperationMock>create().toSerialized();
+
+        final AssertableSubscriber<Batch<BatchableOperationMock, String>> subscriber = updates.lift(batcher).test(0);
+        final Instant now = Instant.ofEpochMilli(testScheduler.now());
+        final BatchableOperationMock first = new BatchableOperationMock(LOW, now, "resource1", "sub1", "create");
+        final BatchableOperationMock other = new BatchableOperationMock(LOW, now, "resource2", "sub1", "create");
+        final BatchableOperationMock replacement = new BatchableOperationMock(LOW, now.plus(ofMillis(1)), "resource1", "sub1", "remove");
+        updates.onNext(first);
+        updates.onNext(other);
+
+        testScheduler.advanceTimeBy(10 * minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        subscriber.assertNoTerminalEvent().assertNoValues();
+
+        // newer items replace the ones that could not be emitted
+        updates.onNext(replacement);
+        subscriber.requestMore(1);
+        testScheduler.advanceTimeBy(2 * minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        subscriber.assertNoErrors().assertValueCount(1);
+
+        subscriber.requestMore(1);
+        testScheduler.advanceTimeBy(2 * minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        subscriber.assertNoErrors().assertValueCount(2);
+        //noinspection unchecked
+        assertThat(subscriber.getOnNextEvents()).containsExactlyInAnyOrder(
+                Batch.of("resource1", Collections.singletonList(replacement)),
+                Batch.of("resource2", Collections.singletonList(other))
+        );
+    }
+
     @Test
     public void onCompletedIsNotSentAfterOnError() {
         final RateLimitedBatcher<BatchableOperationMock, String> batcher = buildBatcher(minimumTimeInQueueMs);
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.time;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HierarchicalTimerWheelTest {
+
+    private static final long TICK_MS = 10;
+
+    private final TestClock clock = Clocks.test();
+
+    private final HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK_MS, clock);
+
+    @Test
+    public void testDeadlinesAtAllLevels() {
+        long now = clock.wallTime();
+        wheel.schedule("level0", now + 5 * TICK_MS);
+        wheel.schedule("level1", now + 100 * TICK_MS);
+        wheel.schedule("level2", now + 5_000 * TICK_MS);
+        wheel.schedule("overflow", now + 20_000_000 * TICK_MS);
+        assertThat(wheel.size()).isEqualTo(4);
+
+        clock.advanceTime(5 * TICK_MS - 1, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).isEmpty();
+        clock.advanceTime(1, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).containsExactly("level0");
+
+        clock.advanceTime(95 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).containsExactly("level1");
+
+        clock.advanceTime(4_899 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).isEmpty();
+        clock.advanceTime(TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).containsExactly("level2");
+
+        clock.advanceTime(20_000_000 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).containsExactly("overflow");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void testDeadlineIsRoundedUpToTick() {
+        wheel.schedule("a", clock.wallTime() + TICK_MS + 1);
+
+        clock.advanceTime(TICK_MS + 1, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).isEmpty();
+        clock.advanceTime(TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).containsExactly("a");
+    }
+
+    @Test
+    public void testPastDeadlineExpiresImmediately() {
+        clock.advanceTime(1_000, TimeUnit.MILLISECONDS);
+        wheel.schedule("a", clock.wallTime() - 500);
+        assertThat(wheel.advance()).containsExactly("a");
+    }
+
+    @Test
+    public void testCancelAndReschedule() {
+        long now = clock.wallTime();
+        wheel.schedule("cancelled", now + 3 * TICK_MS);
+        wheel.schedule("rescheduled", now + 3 * TICK_MS);
+        wheel.cancel("cancelled");
+        wheel.schedule("rescheduled", now + 200 * TICK_MS);
+        assertThat(wheel.contains("cancelled")).isFalse();
+
+        clock.advanceTime(3 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).isEmpty();
+
+        clock.advanceTime(197 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(wheel.advance()).containsExactly("rescheduled");
+    }
+}
@@ -165,11 +165,20 @@ public class AwsInstanceCloudConnector implements InstanceCloudConnector {
             return Observable.just(Collections.emptyList());
         }
 
-        DescribeAutoScalingGroupsRequest request = new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(instanceGroupIds);
-        Observable<DescribeAutoScalingGroupsResult> observable = toObservable(request, autoScalingClient::describeAutoScalingGroupsAsync);
-        return observable.map(
-                response -> toInstanceGroups(response.getAutoScalingGroups())
-        ).timeout(configuration.getAwsRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+        // Without explicit paging only the first page (50 items by default) would be returned.
+        PageCollector<DescribeAutoScalingGroupsRequest, AutoScalingGroup> pageCollector = new PageCollector<>(
+                token -> new DescribeAutoScalingGroupsRequest()
+                        .withAutoScalingGroupNames(instanceGroupIds)
+                        .withMaxRecords(AWS_PAGE_MAX)
+                        .withNextToken(token),
+                request -> {
+                    Observable<DescribeAutoScalingGroupsResult> observable = toObservable(request, autoScalingClient::describeAutoScalingGroupsAsync);
+                    return observable.map(result -> Pair.of(result.getAutoScalingGroups(), result.getNextToken()));
+                }
+        );
+        return pageCollector.getAll()
+                .map(this::toInstanceGroups)
+                .timeout(configuration.getAwsRequestTimeoutMs(), TimeUnit.MILLISECONDS);
     }
 
     @Override
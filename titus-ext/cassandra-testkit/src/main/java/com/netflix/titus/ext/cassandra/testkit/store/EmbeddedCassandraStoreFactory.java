@@ -90,6 +90,11 @@ public class EmbeddedCassandraStoreFactory {
         public boolean isTracingEnabled() {
             return false;
         }
+
+        @Override
+        public boolean isBinaryRecordFormatEnabled() {
+            return false;
+        }
     };
 
     private final Session session;
@@ -150,7 +155,7 @@ public class EmbeddedCassandraStoreFactory {
         }
 
         private void loadJobStore(Session session) {
-            new JobSnapshotLoader(session, jobInputFolder).load();
+            new JobSnapshotLoader(session, jobInputFolder, CONFIGURATION.isBinaryRecordFormatEnabled()).load();
         }
 
         private Session createEmbeddedCassandra() {
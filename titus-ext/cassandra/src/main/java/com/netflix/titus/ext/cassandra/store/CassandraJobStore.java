@@ -16,11 +16,14 @@
 
 package com.netflix.titus.ext.cassandra.store;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
@@ -42,6 +45,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -81,15 +85,17 @@ public class CassandraJobStore implements JobStore {
     private static final int MAX_BUCKET_SIZE = 2_000;
     private static final String METRIC_NAME_ROOT = "titusMaster.jobManager.cassandra";
 
+    private static final String METRIC_DECODE_TIME = "titus.cassandra.jobStore.decodeTimeMs";
+
     // SELECT Queries
     private static final String RETRIEVE_ACTIVE_JOB_ID_BUCKETS_STRING = "SELECT distinct bucket FROM active_job_ids";
     private static final String RETRIEVE_ACTIVE_JOB_IDS_STRING = "SELECT job_id FROM active_job_ids WHERE bucket = ?;";
-    private static final String RETRIEVE_ACTIVE_JOB_STRING = "SELECT value FROM active_jobs WHERE job_id = ?;";
-    private static final String RETRIEVE_ARCHIVED_JOB_STRING = "SELECT value FROM archived_jobs WHERE job_id = ?;";
+    private static final String RETRIEVE_ACTIVE_JOB_STRING = "SELECT value, binary_value FROM active_jobs WHERE job_id = ?;";
+    private static final String RETRIEVE_ARCHIVED_JOB_STRING = "SELECT value, binary_value FROM archived_jobs WHERE job_id = ?;";
     private static final String RETRIEVE_ACTIVE_TASK_IDS_FOR_JOB_STRING = "SELECT task_id FROM active_task_ids WHERE job_id = ?;";
     private static final String RETRIEVE_ARCHIVED_TASK_IDS_FOR_JOB_STRING = "SELECT task_id FROM archived_task_ids WHERE job_id = ?;";
-    private static final String RETRIEVE_ACTIVE_TASK_STRING = "SELECT value FROM active_tasks WHERE task_id = ?;";
-    private static final String RETRIEVE_ARCHIVED_TASK_STRING = "SELECT value FROM archived_tasks WHERE task_id = ?;";
+    private static final String RETRIEVE_ACTIVE_TASK_STRING = "SELECT value, binary_value FROM active_tasks WHERE task_id = ?;";
+    private static final String RETRIEVE_ARCHIVED_TASK_STRING = "SELECT value, binary_value FROM archived_tasks WHERE task_id = ?;";
 
     private final PreparedStatement retrieveActiveJobIdBucketsStatement;
     private final PreparedStatement retrieveActiveJobIdsStatement;
@@ -102,12 +108,12 @@ public class CassandraJobStore implements JobStore {
 
     // INSERT Queries
     private static final String INSERT_ACTIVE_JOB_ID_STRING = "INSERT INTO active_job_ids (bucket, job_id) VALUES (?, ?);";
-    private static final String INSERT_ACTIVE_JOB_STRING = "INSERT INTO active_jobs (job_id, value) VALUES (?, ?);";
-    private static final String INSERT_ARCHIVED_JOB_STRING = "INSERT INTO archived_jobs (job_id, value) VALUES (?, ?);";
+    private static final String INSERT_ACTIVE_JOB_STRING = "INSERT INTO active_jobs (job_id, value, binary_value) VALUES (?, ?, ?);";
+    private static final String INSERT_ARCHIVED_JOB_STRING = "INSERT INTO archived_jobs (job_id, value, binary_value) VALUES (?, ?, ?);";
     private static final String INSERT_ACTIVE_TASK_ID_STRING = "INSERT INTO active_task_ids (job_id, task_id) VALUES (?, ?);";
-    private static final String INSERT_ACTIVE_TASK_STRING = "INSERT INTO active_tasks (task_id, value) VALUES (?, ?);";
+    private static final String INSERT_ACTIVE_TASK_STRING = "INSERT INTO active_tasks (task_id, value, binary_value) VALUES (?, ?, ?);";
     private static final String INSERT_ARCHIVED_TASK_ID_STRING = "INSERT INTO archived_task_ids (job_id, task_id) VALUES (?, ?);";
-    private static final String INSERT_ARCHIVED_TASK_STRING = "INSERT INTO archived_tasks (task_id, value) VALUES (?, ?);";
+    private static final String INSERT_ARCHIVED_TASK_STRING = "INSERT INTO archived_tasks (task_id, value, binary_value) VALUES (?, ?, ?);";
 
     private final PreparedStatement insertActiveJobStatement;
     private final PreparedStatement insertActiveJobIdStatement;
@@ -130,12 +136,17 @@ public class CassandraJobStore implements JobStore {
 
     private final TitusRuntime titusRuntime;
     private final Session session;
-    private final ObjectMapper mapper;
+    private final JobStoreRecordCodec codec;
     private final BalancedBucketManager<String> activeJobIdsBucketManager;
     private final CassandraStoreConfiguration configuration;
     private final Optional<FitInjection> fitDriverInjection;
     private final Optional<FitInjection> fitBadDataInjection;
 
+    /**
+     * Total time spent decoding job and task records since the last {@link #init()} call.
+     */
+    private final AtomicLong decodeTimeNs = new AtomicLong();
+
     @Inject
     public CassandraJobStore(CassandraStoreConfiguration configuration,
                              Session session,
@@ -173,7 +184,10 @@ public class CassandraJobStore implements JobStore {
             this.fitBadDataInjection = Optional.empty();
         }
 
-        this.mapper = mapper;
+        this.codec = new JobStoreRecordCodec(mapper, ObjectMappers.binaryStoreMapper());
+        PolledMeter.using(titusRuntime.getRegistry())
+                .withId(titusRuntime.getRegistry().createId(METRIC_DECODE_TIME))
+                .monitorValue(decodeTimeNs, value -> TimeUnit.NANOSECONDS.toMillis(value.get()));
         this.activeJobIdsBucketManager = new BalancedBucketManager<>(initialBucketCount, maxBucketSize, METRIC_NAME_ROOT, titusRuntime.getRegistry());
 
         retrieveActiveJobIdBucketsStatement = session.prepare(RETRIEVE_ACTIVE_JOB_ID_BUCKETS_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
@@ -201,7 +215,10 @@ public class CassandraJobStore implements JobStore {
 
     @Override
     public Completable init() {
-        return Observable.fromCallable(() -> retrieveActiveJobIdBucketsStatement.bind().setFetchSize(Integer.MAX_VALUE))
+        return Observable.fromCallable(() -> {
+            decodeTimeNs.set(0);
+            return retrieveActiveJobIdBucketsStatement.bind().setFetchSize(Integer.MAX_VALUE);
+        })
                 .flatMap(statement -> execute(statement).flatMap(resultSet -> {
                     List<Completable> completables = new ArrayList<>();
                     for (Row row : resultSet.all()) {
@@ -247,21 +264,25 @@ public class CassandraJobStore implements JobStore {
                 return Collections.emptyList();
             }
             return allRows.stream()
-                    .map(row -> row.getString(0))
-                    .map(value -> {
+                    .map(row -> {
+                        String value = row.getString(0);
+                        ByteBuffer binaryValue = row.getBytes(1);
                         String effectiveValue;
-                        if (fitBadDataInjection.isPresent()) {
+                        if (fitBadDataInjection.isPresent() && value != null) {
                             effectiveValue = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedRawJobRecords.name(), value);
                         } else {
                             effectiveValue = value;
                         }
 
                         Job<?> job;
+                        long decodeStartTimeNs = System.nanoTime();
                         try {
-                            job = ObjectMappers.readValue(mapper, effectiveValue, Job.class);
+                            job = codec.decode(effectiveValue, binaryValue, Job.class);
                         } catch (Exception e) {
-                            logger.error("Cannot map serialized job data to Job class: {}", effectiveValue, e);
+                            logger.error("Cannot map serialized job data to Job class: {}", describeRecord(effectiveValue, binaryValue), e);
                             return Either.ofError(e);
+                        } finally {
+                            decodeTimeNs.addAndGet(System.nanoTime() - decodeStartTimeNs);
                         }
 
                         if (job.getJobDescriptor().getDisruptionBudget() == null) {
@@ -310,8 +331,7 @@ public class CassandraJobStore implements JobStore {
             if (row == null) {
                 throw JobStoreException.jobDoesNotExist(jobId);
             }
-            String value = row.getString(0);
-            return (Job<?>) ObjectMappers.readValue(mapper, value, Job.class);
+            return (Job<?>) decodeRecord(row, Job.class);
         }));
     }
 
@@ -322,11 +342,10 @@ public class CassandraJobStore implements JobStore {
                     String jobId = job.getId();
                     checkIfJobAlreadyExists(jobId);
 
-                    String jobJsonString = writeJobToString(job);
+                    Statement jobStatement = bindRecord(insertActiveJobStatement, jobId, job);
 
                     int bucket = activeJobIdsBucketManager.getNextBucket();
                     activeJobIdsBucketManager.addItem(bucket, jobId);
-                    Statement jobStatement = insertActiveJobStatement.bind(jobId, jobJsonString);
                     Statement jobIdStatement = insertActiveJobIdStatement.bind(bucket, jobId);
 
                     BatchStatement batchStatement = new BatchStatement();
@@ -344,8 +363,9 @@ public class CassandraJobStore implements JobStore {
                 .toCompletable();
     }
 
-    private String writeJobToString(Job job) {
-        return ObjectMappers.writeValueAsString(mapper, job);
+    private Statement bindRecord(PreparedStatement statement, String id, Object jobOrTask) {
+        Pair<String, ByteBuffer> encoded = codec.encode(jobOrTask, configuration.isBinaryRecordFormatEnabled());
+        return statement.bind(id, encoded.getLeft(), encoded.getRight());
     }
 
     @Override
@@ -354,10 +374,10 @@ public class CassandraJobStore implements JobStore {
                 .fromCallable((Callable<Statement>) () -> {
                     String jobId = job.getId();
                     checkIfJobIsActive(jobId);
-                    String jobJsonString = writeJobToString(job);
+                    Statement jobStatement = bindRecord(insertActiveJobStatement, jobId, job);
 
                     transactionLogger().logBeforeUpdate(insertActiveJobStatement, "updateJob", job);
-                    return insertActiveJobStatement.bind(jobId, jobJsonString);
+                    return jobStatement;
                 })
                 .flatMap(statement ->
                         execute(statement).doOnNext(rs -> transactionLogger().logAfterUpdate(insertActiveJobStatement, "updateJob", job))
@@ -411,8 +431,14 @@ public class CassandraJobStore implements JobStore {
 
     @Override
     public Observable<Pair<List<Task>, Integer>> retrieveTasksForJob(String jobId) {
+        return retrieveTasksForJob(jobId, true);
+    }
+
+    private Observable<Pair<List<Task>, Integer>> retrieveTasksForJob(String jobId, boolean checkIfActive) {
         return Observable.fromCallable(() -> {
-            checkIfJobIsActive(jobId);
+            if (checkIfActive) {
+                checkIfJobIsActive(jobId);
+            }
             return retrieveActiveTaskIdsForJobStatement.bind(jobId).setFetchSize(Integer.MAX_VALUE);
         }).flatMap(retrieveActiveTaskIdsForJob -> execute(retrieveActiveTaskIdsForJob).flatMap(taskIdsResultSet -> {
             List<String> taskIds = taskIdsResultSet.all().stream()
@@ -440,18 +466,28 @@ public class CassandraJobStore implements JobStore {
                 List<Either<Task, Throwable>> tasks = new ArrayList<>();
                 for (Row row : tasksResultSet.all()) {
                     String value = row.getString(0);
+                    ByteBuffer binaryValue = row.getBytes(1);
 
                     String effectiveValue;
-                    if (fitBadDataInjection.isPresent()) {
+                    if (fitBadDataInjection.isPresent() && value != null) {
                         effectiveValue = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedRawTaskRecords.name(), value);
                     } else {
                         effectiveValue = value;
                     }
 
                     Task task;
+                    long decodeStartTimeNs = System.nanoTime();
                     try {
-                        task = deserializeTask(effectiveValue);
+                        task = deserializeTask(effectiveValue, binaryValue);
+                    } catch (Exception e) {
+                        logger.error("Cannot map serialized task data to Task class: {}", describeRecord(effectiveValue, binaryValue), e);
+                        tasks.add(Either.ofError(e));
+                        continue;
+                    } finally {
+                        decodeTimeNs.addAndGet(System.nanoTime() - decodeStartTimeNs);
+                    }
 
+                    try {
                         if (!fitBadDataInjection.isPresent()) {
                             tasks.add(Either.ofValue(task));
                         } else {
@@ -463,7 +499,7 @@ public class CassandraJobStore implements JobStore {
 
                         transactionLogger().logAfterRead(retrieveActiveTaskStatement, "retrieveTasksForJob", task);
                     } catch (Exception e) {
-                        logger.error("Cannot map serialized task data to Task class: {}", effectiveValue, e);
+                        logger.error("Cannot map serialized task data to Task class: {}", describeRecord(effectiveValue, binaryValue), e);
                         tasks.add(Either.ofError(e));
                     }
                 }
@@ -486,8 +522,7 @@ public class CassandraJobStore implements JobStore {
                 .flatMap(statement -> execute(statement).flatMap(resultSet -> {
                     Row row = resultSet.one();
                     if (row != null) {
-                        String value = row.getString(0);
-                        Task task = deserializeTask(value);
+                        Task task = deserializeTask(row);
 
                         transactionLogger().logAfterRead(retrieveActiveTaskStatement, "retrieveTask", task);
 
@@ -504,8 +539,7 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
-            Statement taskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
+            Statement taskStatement = bindRecord(insertActiveTaskStatement, taskId, task);
             Statement taskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
             BatchStatement batchStatement = new BatchStatement();
@@ -526,11 +560,11 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+            Statement taskStatement = bindRecord(insertActiveTaskStatement, taskId, task);
 
             transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "updateTask", task);
 
-            return insertActiveTaskStatement.bind(taskId, taskJsonString);
+            return taskStatement;
         }).flatMap(statement -> {
                     transactionLogger().logAfterUpdate(insertActiveTaskStatement, "updateTask", task);
                     return execute(statement);
@@ -538,17 +572,41 @@ public class CassandraJobStore implements JobStore {
         ).toCompletable();
     }
 
+    /**
+     * Tasks are written in a single unlogged batch. Each task record is a separate partition, so the batch only saves
+     * the client to coordinator round trips, and gives no atomicity guarantees.
+     */
+    @Override
+    public Completable updateTasks(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return Completable.complete();
+        }
+        if (tasks.size() == 1) {
+            return updateTask(tasks.get(0));
+        }
+        return Observable.fromCallable((Callable<Statement>) () -> {
+            BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+            for (Task task : tasks) {
+                checkIfJobIsActive(task.getJobId());
+                batchStatement.add(bindRecord(insertActiveTaskStatement, task.getId(), task));
+                transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "updateTasks", task);
+            }
+            return batchStatement;
+        }).flatMap(statement -> execute(statement).doOnNext(rs ->
+                tasks.forEach(task -> transactionLogger().logAfterUpdate(insertActiveTaskStatement, "updateTasks", task))
+        )).toCompletable();
+    }
+
     @Override
     public Completable replaceTask(Task oldTask, Task newTask) {
         return Observable.fromCallable((Callable<Statement>) () -> {
             String jobId = newTask.getJobId();
             checkIfJobIsActive(jobId);
             String taskId = newTask.getId();
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, newTask);
 
             BatchStatement batchStatement = getArchiveTaskBatchStatement(oldTask);
 
-            Statement insertTaskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
+            Statement insertTaskStatement = bindRecord(insertActiveTaskStatement, taskId, newTask);
             Statement insertTaskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
             batchStatement.add(insertTaskStatement);
@@ -574,13 +632,12 @@ public class CassandraJobStore implements JobStore {
             checkIfJobIsActive(jobFrom.getId());
             checkIfJobIsActive(jobTo.getId());
 
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, taskAfter);
-            transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "moveTask", taskJsonString);
+            transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "moveTask", taskAfter);
 
             BatchStatement batchStatement = new BatchStatement();
-            batchStatement.add(insertActiveJobStatement.bind(jobFrom.getId(), ObjectMappers.writeValueAsString(mapper, jobFrom)));
-            batchStatement.add(insertActiveJobStatement.bind(jobTo.getId(), ObjectMappers.writeValueAsString(mapper, jobTo)));
-            batchStatement.add(insertActiveTaskStatement.bind(taskAfter.getId(), taskJsonString));
+            batchStatement.add(bindRecord(insertActiveJobStatement, jobFrom.getId(), jobFrom));
+            batchStatement.add(bindRecord(insertActiveJobStatement, jobTo.getId(), jobTo));
+            batchStatement.add(bindRecord(insertActiveTaskStatement, taskAfter.getId(), taskAfter));
             batchStatement.add(deleteActiveTaskIdStatement.bind(jobFrom.getId(), taskAfter.getId()));
             batchStatement.add(insertActiveTaskIdStatement.bind(jobTo.getId(), taskAfter.getId()));
 
@@ -612,8 +669,7 @@ public class CassandraJobStore implements JobStore {
                     if (row == null) {
                         throw JobStoreException.jobDoesNotExist(jobId);
                     }
-                    String value = row.getString(0);
-                    return (Job<?>) ObjectMappers.readValue(mapper, value, Job.class);
+                    return (Job<?>) decodeRecord(row, Job.class);
                 }));
     }
 
@@ -624,8 +680,7 @@ public class CassandraJobStore implements JobStore {
                     List<String> taskIds = taskIdsResultSet.all().stream().map(row -> row.getString(0)).collect(Collectors.toList());
                     List<Observable<ResultSet>> observables = taskIds.stream().map(retrieveArchivedTaskStatement::bind).map(this::execute).collect(Collectors.toList());
                     return Observable.merge(observables, getConcurrencyLimit()).flatMapIterable(tasksResultSet -> tasksResultSet.all().stream()
-                            .map(row -> row.getString(0))
-                            .map(value -> deserializeTask(value))
+                            .map(this::deserializeTask)
                             .collect(Collectors.toList()));
                 }));
     }
@@ -636,8 +691,7 @@ public class CassandraJobStore implements JobStore {
                 .flatMap(statement -> execute(statement).flatMap(resultSet -> {
                     Row row = resultSet.one();
                     if (row != null) {
-                        String value = row.getString(0);
-                        Task task = deserializeTask(value);
+                        Task task = deserializeTask(row);
                         return Observable.just(task);
                     } else {
                         return Observable.error(JobStoreException.taskDoesNotExist(taskId));
@@ -645,8 +699,16 @@ public class CassandraJobStore implements JobStore {
                 }));
     }
 
-    private Task deserializeTask(String value) {
-        Task task = ObjectMappers.readValue(mapper, value, Task.class);
+    private <T> T decodeRecord(Row row, Class<T> type) {
+        return codec.decode(row.getString(0), row.getBytes(1), type);
+    }
+
+    private Task deserializeTask(Row row) {
+        return deserializeTask(row.getString(0), row.getBytes(1));
+    }
+
+    private Task deserializeTask(String value, ByteBuffer binaryValue) {
+        Task task = codec.decode(value, binaryValue, Task.class);
 
         // Task attributes field check
         if (task.getAttributes() == null) {
@@ -656,6 +718,10 @@ public class CassandraJobStore implements JobStore {
         return task;
     }
 
+    private static String describeRecord(String value, ByteBuffer binaryValue) {
+        return binaryValue == null ? value : String.format("<binary record of %s bytes>", binaryValue.remaining());
+    }
+
     private boolean isJobActive(String jobId) {
         return activeJobIdsBucketManager.itemExists(jobId);
     }
@@ -663,11 +729,10 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveJobBatchStatement(Job job) {
         String jobId = job.getId();
         int bucket = activeJobIdsBucketManager.getItemBucket(jobId);
-        String jobJsonString = writeJobToString(job);
 
         Statement deleteJobStatement = deleteActiveJobStatement.bind(jobId);
         Statement deleteJobIdStatement = deleteActiveJobIdStatement.bind(bucket, jobId);
-        Statement insertJobStatement = insertArchivedJobStatement.bind(jobId, jobJsonString);
+        Statement insertJobStatement = bindRecord(insertArchivedJobStatement, jobId, job);
 
         BatchStatement statement = new BatchStatement();
         statement.add(deleteJobStatement);
@@ -680,11 +745,10 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveTaskBatchStatement(Task task) {
         String jobId = task.getJobId();
         String taskId = task.getId();
-        String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
 
         Statement deleteTaskStatement = deleteActiveTaskStatement.bind(taskId);
         Statement deleteTaskIdStatement = deleteActiveTaskIdStatement.bind(jobId, taskId);
-        Statement insertTaskStatement = insertArchivedTaskStatement.bind(taskId, taskJsonString);
+        Statement insertTaskStatement = bindRecord(insertArchivedTaskStatement, taskId, task);
         Statement insertTaskIdStatement = insertArchivedTaskIdStatement.bind(jobId, taskId);
 
         BatchStatement batchStatement = new BatchStatement();
@@ -80,4 +80,12 @@ public interface CassandraStoreConfiguration {
     @DefaultValue("false")
     boolean isTracingEnabled();
 
+    /**
+     * If set, job and task records are written in the binary format to the binary_value blob column (see
+     * {@link JobStoreRecordCodec}). Records in both formats are always readable, so this should be enabled only after
+     * all TitusMaster instances are upgraded to a version supporting the binary format.
+     */
+    @DefaultValue("false")
+    boolean isBinaryRecordFormatEnabled();
+
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.common.util.tuple.Pair;
+import rx.exceptions.Exceptions;
+
+/**
+ * Encodes job and task records stored in the job tables. A record is either plain JSON kept in the text
+ * {@link #JSON_COLUMN} column (the original format), or a Smile encoded value kept in the blob {@link #BINARY_COLUMN}
+ * column. A record is always written to one column and the other one is cleared, so both formats can be read side
+ * by side.
+ */
+public class JobStoreRecordCodec {
+
+    public static final String JSON_COLUMN = "value";
+    public static final String BINARY_COLUMN = "binary_value";
+
+    private static final JobStoreRecordCodec DEFAULT = new JobStoreRecordCodec(ObjectMappers.storeMapper(), ObjectMappers.binaryStoreMapper());
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper binaryMapper;
+
+    public JobStoreRecordCodec(ObjectMapper jsonMapper, ObjectMapper binaryMapper) {
+        this.jsonMapper = jsonMapper;
+        this.binaryMapper = binaryMapper;
+    }
+
+    /**
+     * Returns a pair of {@link #JSON_COLUMN} and {@link #BINARY_COLUMN} values, with exactly one of them set.
+     */
+    public Pair<String, ByteBuffer> encode(Object value, boolean binary) {
+        if (!binary) {
+            return Pair.of(ObjectMappers.writeValueAsString(jsonMapper, value), null);
+        }
+        try {
+            return Pair.of(null, ByteBuffer.wrap(binaryMapper.writeValueAsBytes(value)));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * Decodes a record from its {@link #JSON_COLUMN} and {@link #BINARY_COLUMN} values. The binary value takes
+     * precedence, if set.
+     */
+    public <T> T decode(String jsonValue, ByteBuffer binaryValue, Class<T> type) {
+        if (binaryValue == null) {
+            return ObjectMappers.readValue(jsonMapper, jsonValue, type);
+        }
+        byte[] bytes = new byte[binaryValue.remaining()];
+        binaryValue.duplicate().get(bytes);
+        try {
+            return binaryMapper.readValue(bytes, type);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    public static JobStoreRecordCodec getDefault() {
+        return DEFAULT;
+    }
+}
@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableMap;
 import com.netflix.titus.ext.cassandra.tool.command.CreateKeyspaceCommand;
 import com.netflix.titus.ext.cassandra.tool.command.DeleteKeyspaceCommand;
 import com.netflix.titus.ext.cassandra.tool.command.JobCopyCommand;
+import com.netflix.titus.ext.cassandra.tool.command.JobRecordFormatMigrateCommand;
 import com.netflix.titus.ext.cassandra.tool.command.JobReconcilerCommand;
 import com.netflix.titus.ext.cassandra.tool.command.JobSnapshotDownloadCommand;
 import com.netflix.titus.ext.cassandra.tool.command.JobSnapshotUploadCommand;
@@ -43,6 +44,7 @@ public class CassTool extends AbstractCassTool {
             .put("jobTruncate", new JobTruncateCommand())
             .put("jobSnapshotDownload", new JobSnapshotDownloadCommand())
             .put("jobSnapshotUpload", new JobSnapshotUploadCommand())
+            .put("jobRecordFormatMigrate", new JobRecordFormatMigrateCommand())
             .put("createKeyspace", new CreateKeyspaceCommand())
             .put("deleteKeyspace", new DeleteKeyspaceCommand())
             .put("testStoreLoad", new TestStoreLoadCommand())
@@ -42,4 +42,11 @@ public class CassandraSchemas {
     );
 
     public static final List<String> JOB_TABLES = CollectionsExt.merge(JOB_ACTIVE_TABLES, JOB_ARCHIVE_TABLES);
+
+    /**
+     * Tables holding job and task records, encoded with {@link com.netflix.titus.ext.cassandra.store.JobStoreRecordCodec}.
+     */
+    public static final List<String> JOB_RECORD_TABLES = asList(
+            ACTIVE_JOBS_TABLE, ACTIVE_TASKS_TABLE, ARCHIVED_JOBS_TABLE, ARCHIVED_TASKS_TABLE
+    );
 }
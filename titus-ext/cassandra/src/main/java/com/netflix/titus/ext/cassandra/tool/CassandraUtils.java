@@ -16,6 +16,7 @@
 
 package com.netflix.titus.ext.cassandra.tool;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -27,7 +28,9 @@ import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.exceptions.TruncateException;
 import com.google.common.base.Preconditions;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.common.util.tuple.Triple;
 import com.netflix.titus.ext.cassandra.executor.AsyncCassandraExecutor;
+import com.netflix.titus.ext.cassandra.store.JobStoreRecordCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
@@ -58,8 +61,8 @@ public class CassandraUtils {
         } catch (TruncateException e) {
             // Check if the table is empty
             logger.info("Couldn't complete the truncate operation. Checking if the table is empty: {}", table);
-            Pair<Object, Object> value = readTwoColumnTable(context.getTargetSession(), table).take(1).toBlocking().firstOrDefault(null);
-            if (value == null) {
+            boolean empty = context.getTargetSession().execute("SELECT * FROM \"" + table + "\" LIMIT 1").one() == null;
+            if (empty) {
                 // Truncate failed, but the table is empty. It is ok to move on.
                 logger.info("Truncate deemed as successful, as the table is empty: {}", table);
                 return true;
@@ -78,9 +81,7 @@ public class CassandraUtils {
     }
 
     public static Pair<String, String> resolveColumnNamesInTwoColumnTable(Session sourceSession, String table) {
-        TableMetadata tableMetadata = sourceSession.getCluster().getMetadata()
-                .getKeyspace(sourceSession.getLoggedKeyspace())
-                .getTable(table);
+        TableMetadata tableMetadata = getTableMetadata(sourceSession, table);
         String primaryKey = tableMetadata.getPartitionKey().get(0).getName();
         List<String> valueColumns = tableMetadata.getColumns().stream()
                 .map(ColumnMetadata::getName)
@@ -129,15 +130,58 @@ public class CassandraUtils {
         return recordCount;
     }
 
+    /**
+     * Reads { primary_key, JSON value, binary value } entries from a job or task record table (see
+     * {@link CassandraSchemas#JOB_RECORD_TABLES}). The values are not decoded.
+     */
+    public static Observable<Triple<String, String, ByteBuffer>> readRecordTable(Session sourceSession, String table) {
+        String primaryKey = getTableMetadata(sourceSession, table).getPartitionKey().get(0).getName();
+
+        PreparedStatement queryAllStatement = sourceSession.prepare(String.format(
+                "SELECT %s, %s, %s FROM %s WHERE token(%s) > :min AND token(%s) <= :max",
+                primaryKey, JobStoreRecordCodec.JSON_COLUMN, JobStoreRecordCodec.BINARY_COLUMN, table, primaryKey, primaryKey
+        ));
+        AsyncCassandraExecutor executor = new AsyncCassandraExecutor(sourceSession, PAGE_SIZE, SPLIT);
+        return executor.rawRowRangeQuery(queryAllStatement, row -> Triple.of(row.getString(0), row.getString(1), row.getBytes(2)));
+    }
+
+    /**
+     * Writes { primary_key, JSON value, binary value } entries into a job or task record table. Both value columns are
+     * always written, so a record previously stored in the other format is cleared.
+     */
+    public static long writeIntoRecordTable(Session targetSession, String table, Observable<Triple<String, String, ByteBuffer>> sourceData) {
+        String primaryKey = getTableMetadata(targetSession, table).getPartitionKey().get(0).getName();
+
+        PreparedStatement insertStatement = targetSession.prepare(String.format(
+                "INSERT INTO %s (%s, %s, %s) VALUES (?, ?, ?)",
+                table, primaryKey, JobStoreRecordCodec.JSON_COLUMN, JobStoreRecordCodec.BINARY_COLUMN
+        ));
+
+        AsyncCassandraExecutor executor = new AsyncCassandraExecutor(targetSession, PAGE_SIZE, SPLIT);
+
+        return sourceData
+                .flatMap(record -> executor
+                        .executeUpdate(insertStatement.bind(record.getFirst(), record.getSecond(), record.getThird()))
+                        .cast(Long.class)
+                        .concatWith(Observable.just(1L)), MAX_CONCURRENCY
+                )
+                .reduce(0L, (acc, v) -> acc + v)
+                .toBlocking().firstOrDefault(null);
+    }
+
     public static void copyTable(CommandContext context, String table) {
-        long recordCount = writeIntoTwoColumnTable(
-                context.getTargetSession(),
-                table,
-                readTwoColumnTable(context.getSourceSession(), table)
-        );
+        long recordCount = CassandraSchemas.JOB_RECORD_TABLES.contains(table)
+                ? writeIntoRecordTable(context.getTargetSession(), table, readRecordTable(context.getSourceSession(), table))
+                : writeIntoTwoColumnTable(context.getTargetSession(), table, readTwoColumnTable(context.getSourceSession(), table));
         logger.info("Copied {} records from table {}.{} to {}.{}", recordCount,
                 context.getSourceKeySpace(), table,
                 context.getTargetKeySpace(), table
         );
     }
+
+    private static TableMetadata getTableMetadata(Session session, String table) {
+        return session.getCluster().getMetadata()
+                .getKeyspace(session.getLoggedKeyspace())
+                .getTable(table);
+    }
 }
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.ext.cassandra.tool.command;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,9 +28,10 @@ import java.util.stream.Collectors;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
-import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.common.util.tuple.Triple;
+import com.netflix.titus.ext.cassandra.store.JobStoreRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import com.netflix.titus.ext.cassandra.tool.Command;
 import com.netflix.titus.ext.cassandra.tool.CommandContext;
@@ -59,13 +61,17 @@ public class JobReconcilerCommand implements Command {
 
     @Override
     public void execute(CommandContext context) {
+        reconcile(context).printReport();
+    }
+
+    Reconciler reconcile(CommandContext context) {
         Reconciler reconciler = new Reconciler(context);
         reconciler.loadAllTables();
         reconciler.checkDataConsistency();
-        reconciler.printReport();
+        return reconciler;
     }
 
-    private class Reconciler {
+    class Reconciler {
 
         private final CommandContext context;
         private final Map<String, Integer> tableSizes = new HashMap<>();
@@ -81,6 +87,18 @@ public class JobReconcilerCommand implements Command {
             this.context = context;
         }
 
+        List<Job<?>> getJobs() {
+            return jobs;
+        }
+
+        List<Task> getTasks() {
+            return tasks;
+        }
+
+        List<Pair<String, String>> getViolations() {
+            return violations;
+        }
+
         private void loadAllTables() {
             jobIds = loadJobIds();
             System.out.println("Loaded jobIds: " + jobIds.size());
@@ -122,15 +140,14 @@ public class JobReconcilerCommand implements Command {
         }
 
         private List<Job<?>> loadJobs() {
-            List<Pair<Object, Object>> jobIdToJobList = CassandraUtils.readTwoColumnTable(context.getTargetSession(), ACTIVE_JOBS_TABLE).toList().toBlocking().first();
+            List<Triple<String, String, ByteBuffer>> jobIdToJobList = CassandraUtils.readRecordTable(context.getTargetSession(), ACTIVE_JOBS_TABLE).toList().toBlocking().first();
             tableSizes.put(ACTIVE_JOBS_TABLE, jobIdToJobList.size());
 
             return jobIdToJobList.stream()
-                    .map(pair -> {
-                        String jobId = (String) pair.getLeft();
-                        String value = (String) pair.getRight();
+                    .map(record -> {
+                        String jobId = record.getFirst();
                         try {
-                            return (Job<?>) ObjectMappers.storeMapper().readValue(value, Job.class);
+                            return (Job<?>) JobStoreRecordCodec.getDefault().decode(record.getSecond(), record.getThird(), Job.class);
                         } catch (Exception e) {
                             recordViolation("badJobRecord", String.format("Job %s cannot be mapped to Job object: %s", jobId, e.getMessage()), 1);
                             return null;
@@ -161,15 +178,14 @@ public class JobReconcilerCommand implements Command {
         }
 
         private List<Task> loadTasks() {
-            List<Pair<Object, Object>> taskIdToTaskList = CassandraUtils.readTwoColumnTable(context.getTargetSession(), ACTIVE_TASKS_TABLE).toList().toBlocking().first();
+            List<Triple<String, String, ByteBuffer>> taskIdToTaskList = CassandraUtils.readRecordTable(context.getTargetSession(), ACTIVE_TASKS_TABLE).toList().toBlocking().first();
             tableSizes.put(ACTIVE_TASKS_TABLE, taskIdToTaskList.size());
 
             return taskIdToTaskList.stream()
-                    .map(pair -> {
-                        String taskId = (String) pair.getLeft();
-                        String value = (String) pair.getRight();
+                    .map(record -> {
+                        String taskId = record.getFirst();
                         try {
-                            return ObjectMappers.storeMapper().readValue(value, Task.class);
+                            return JobStoreRecordCodec.getDefault().decode(record.getSecond(), record.getThird(), Task.class);
                         } catch (Exception e) {
                             recordViolation("badTaskRecord", String.format("Task %s cannot be mapped to Task object: %s", taskId, e.getMessage()), 1);
                             return null;
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.tool.command;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.datastax.driver.core.Session;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.common.util.tuple.Triple;
+import com.netflix.titus.ext.cassandra.store.JobStoreRecordCodec;
+import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
+import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
+import com.netflix.titus.ext.cassandra.tool.Command;
+import com.netflix.titus.ext.cassandra.tool.CommandContext;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+/**
+ * Command to rewrite the job and task records in the binary format (or back in JSON). Records are read and written
+ * back with plain writes, so a record updated by TitusMaster in between would be overwritten with its older value.
+ * TitusMaster must be stopped, while this command runs.
+ */
+public class JobRecordFormatMigrateCommand implements Command {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRecordFormatMigrateCommand.class);
+
+    @Override
+    public String getDescription() {
+        return "Migrate job and task records to the binary format (TitusMaster must be stopped)";
+    }
+
+    @Override
+    public CommandType getCommandType() {
+        return CommandType.TargetKeySpace;
+    }
+
+    @Override
+    public Options getOptions() {
+        Options options = new Options();
+        options.addOption(Option.builder("a").longOpt("archive").desc("Migrate archive tables").build());
+        options.addOption(Option.builder("j").longOpt("json").desc("Migrate back to the JSON format").build());
+        return options;
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+        boolean includeArchive = context.getCommandLine().hasOption('a');
+        boolean binary = !context.getCommandLine().hasOption('j');
+
+        List<Pair<String, Class<?>>> tables = new ArrayList<>();
+        tables.add(Pair.of(CassandraSchemas.ACTIVE_JOBS_TABLE, Job.class));
+        tables.add(Pair.of(CassandraSchemas.ACTIVE_TASKS_TABLE, Task.class));
+        if (includeArchive) {
+            tables.add(Pair.of(CassandraSchemas.ARCHIVED_JOBS_TABLE, Job.class));
+            tables.add(Pair.of(CassandraSchemas.ARCHIVED_TASKS_TABLE, Task.class));
+        }
+        tables.forEach(table -> migrateTable(context.getTargetSession(), table.getLeft(), table.getRight(), binary));
+    }
+
+    private void migrateTable(Session session, String table, Class<?> recordType, boolean binary) {
+        JobStoreRecordCodec codec = JobStoreRecordCodec.getDefault();
+        AtomicLong unchanged = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        Observable<Triple<String, String, ByteBuffer>> converted = CassandraUtils.readRecordTable(session, table)
+                .flatMap(record -> {
+                    boolean isBinary = record.getThird() != null;
+                    if (isBinary == binary) {
+                        unchanged.incrementAndGet();
+                        return Observable.<Triple<String, String, ByteBuffer>>empty();
+                    }
+                    try {
+                        Object value = codec.decode(record.getSecond(), record.getThird(), recordType);
+                        Pair<String, ByteBuffer> encoded = codec.encode(value, binary);
+                        return Observable.just(Triple.of(record.getFirst(), encoded.getLeft(), encoded.getRight()));
+                    } catch (Exception e) {
+                        logger.warn("Cannot decode record {} in table {}: {}", record.getFirst(), table, e.getMessage());
+                        failed.incrementAndGet();
+                        return Observable.<Triple<String, String, ByteBuffer>>empty();
+                    }
+                });
+        long migrated = CassandraUtils.writeIntoRecordTable(session, table, converted);
+
+        logger.info("Migrated records in table {}.{} to the {} format: migrated={}, alreadyInFormat={}, failed={}",
+                session.getLoggedKeyspace(), table, binary ? "binary" : "JSON", migrated, unchanged.get(), failed.get()
+        );
+    }
+}
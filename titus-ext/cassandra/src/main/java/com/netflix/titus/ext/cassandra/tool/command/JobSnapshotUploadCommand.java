@@ -46,13 +46,14 @@ public class JobSnapshotUploadCommand implements Command {
                 .desc("Input folder containing snapshot files")
                 .build()
         );
+        options.addOption(Option.builder("b").longOpt("binary").desc("Write job and task records in the binary format").build());
         return options;
     }
 
     @Override
     public void execute(CommandContext context) {
         File output = new File(context.getCommandLine().getOptionValue('i'));
-        JobSnapshotLoader downloader = new JobSnapshotLoader(context.getTargetSession(), output);
+        JobSnapshotLoader downloader = new JobSnapshotLoader(context.getTargetSession(), output, context.getCommandLine().hasOption('b'));
         downloader.load();
     }
 }
@@ -29,10 +29,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Preconditions;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobStoreRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
-import rx.Observable;
 
 /**
  * Downloads jobs active data from Cassandra database into set of files. A snapshot can be loaded back into
@@ -63,27 +66,28 @@ public class JobSnapshotDownloader {
             Preconditions.checkState(outputFolder.mkdirs(), "Cannot create output folder: %s", outputFolder.getAbsolutePath());
         }
         writeIdBuckets(CassandraSchemas.ACTIVE_JOB_IDS_TABLE);
-        writeDataTable(CassandraSchemas.ACTIVE_JOBS_TABLE);
+        writeDataTable(CassandraSchemas.ACTIVE_JOBS_TABLE, Job.class);
         writeIdMappingTable(CassandraSchemas.ACTIVE_TASK_IDS_TABLE);
-        writeDataTable(CassandraSchemas.ACTIVE_TASKS_TABLE);
+        writeDataTable(CassandraSchemas.ACTIVE_TASKS_TABLE, Task.class);
 
         if (includeArchived) {
-            writeDataTable(CassandraSchemas.ARCHIVED_JOBS_TABLE);
+            writeDataTable(CassandraSchemas.ARCHIVED_JOBS_TABLE, Job.class);
             writeIdMappingTable(CassandraSchemas.ARCHIVED_TASK_IDS_TABLE);
-            writeDataTable(CassandraSchemas.ARCHIVED_TASKS_TABLE);
+            writeDataTable(CassandraSchemas.ARCHIVED_TASKS_TABLE, Task.class);
         }
     }
 
-    private void writeDataTable(String table) {
+    /**
+     * Records are stored either in the JSON or in the binary format. They are always written to the snapshot file as
+     * JSON documents.
+     */
+    private void writeDataTable(String table, Class<?> recordType) {
         File output = new File(outputFolder, table + ".json");
 
-        List<JsonNode> allItems = CassandraUtils.readTwoColumnTable(session, table)
-                .flatMap(p -> {
-                    try {
-                        return Observable.just(MAPPER.readTree((String) p.getRight()));
-                    } catch (IOException e) {
-                        return Observable.error(e);
-                    }
+        List<JsonNode> allItems = CassandraUtils.readRecordTable(session, table)
+                .map(record -> {
+                    Object value = JobStoreRecordCodec.getDefault().decode(record.getSecond(), record.getThird(), recordType);
+                    return (JsonNode) ObjectMappers.storeMapper().valueToTree(value);
                 })
                 .toList()
                 .toBlocking().first();
@@ -17,6 +17,7 @@
 package com.netflix.titus.ext.cassandra.tool.snapshot;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,7 +29,12 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Preconditions;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.common.util.tuple.Triple;
+import com.netflix.titus.ext.cassandra.store.JobStoreRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import rx.Observable;
@@ -47,11 +53,16 @@ public class JobSnapshotLoader {
 
     private final Session session;
     private final File inputFolder;
+    private final boolean binary;
 
-    public JobSnapshotLoader(Session session, File inputFolder) {
+    /**
+     * @param binary if set, job and task records are written in the binary format (see {@link JobStoreRecordCodec})
+     */
+    public JobSnapshotLoader(Session session, File inputFolder, boolean binary) {
         checkAllFilesExist(inputFolder);
         this.session = session;
         this.inputFolder = inputFolder;
+        this.binary = binary;
     }
 
     private void checkAllFilesExist(File inputFolder) {
@@ -63,22 +74,25 @@ public class JobSnapshotLoader {
 
     public void load() {
         readIdBuckets(CassandraSchemas.ACTIVE_JOB_IDS_TABLE);
-        readDataTable(CassandraSchemas.ACTIVE_JOBS_TABLE);
+        readDataTable(CassandraSchemas.ACTIVE_JOBS_TABLE, Job.class);
         readIdMappingTable(CassandraSchemas.ACTIVE_TASK_IDS_TABLE);
-        readDataTable(CassandraSchemas.ACTIVE_TASKS_TABLE);
+        readDataTable(CassandraSchemas.ACTIVE_TASKS_TABLE, Task.class);
     }
 
-    private void readDataTable(String table) {
+    private void readDataTable(String table, Class<?> recordType) {
         ArrayNode jsonTree = (ArrayNode) readJsonTree(table);
-        List<Pair<Object, Object>> items = new ArrayList<>();
+        List<Triple<String, String, ByteBuffer>> items = new ArrayList<>();
         jsonTree.forEach(item -> {
+            Object value;
             try {
-                items.add(Pair.of(item.get("id").textValue(), MAPPER.writeValueAsString(item)));
+                value = ObjectMappers.storeMapper().treeToValue(item, recordType);
             } catch (JsonProcessingException e) {
                 throw new IllegalStateException(e);
             }
+            Pair<String, ByteBuffer> encoded = JobStoreRecordCodec.getDefault().encode(value, binary);
+            items.add(Triple.of(item.get("id").textValue(), encoded.getLeft(), encoded.getRight()));
         });
-        long written = CassandraUtils.writeIntoTwoColumnTable(session, table, Observable.from(items));
+        long written = CassandraUtils.writeIntoRecordTable(session, table, Observable.from(items));
         System.out.println(String.format("Successfully writen %s entries into table %s", written, table));
     }
 
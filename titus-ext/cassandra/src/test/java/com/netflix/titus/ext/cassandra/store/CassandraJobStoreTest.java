@@ -17,6 +17,7 @@
 package com.netflix.titus.ext.cassandra.store;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -76,6 +77,13 @@ public class CassandraJobStoreTest {
 
     private static final CassandraStoreConfiguration CONFIGURATION = new TestCassandraStoreConfiguration();
 
+    private static final CassandraStoreConfiguration BINARY_FORMAT_CONFIGURATION = new TestCassandraStoreConfiguration() {
+        @Override
+        public boolean isBinaryRecordFormatEnabled() {
+            return true;
+        }
+    };
+
     @Test
     public void testRetrieveJobs() {
         Session session = cassandraCqlUnit.getSession();
@@ -118,6 +126,29 @@ public class CassandraJobStoreTest {
         assertThat(jobsAndErrors.getLeft().get(0)).isEqualTo(job);
     }
 
+    @Test
+    public void testRecordsInBothFormatsAreReadable() {
+        Session session = cassandraCqlUnit.getSession();
+        JobStore jsonStore = getJobStore(session);
+        JobStore binaryStore = getJobStore(session, BINARY_FORMAT_CONFIGURATION);
+        jsonStore.init().await();
+        binaryStore.init().await();
+
+        Job<ServiceJobExt> jsonJob = createServiceJobObject();
+        jsonStore.storeJob(jsonJob).await();
+        Job<BatchJobExt> binaryJob = createBatchJobObject();
+        binaryStore.storeJob(binaryJob).await();
+        Task binaryTask = createTaskObject(binaryJob);
+        binaryStore.storeTask(binaryTask).await();
+
+        JobStore store = getJobStore(session);
+        store.init().await();
+        Pair<List<Job<?>>, Integer> jobsAndErrors = store.retrieveJobs().toBlocking().first();
+        assertThat(jobsAndErrors.getLeft()).containsExactlyInAnyOrder(jsonJob, binaryJob);
+        assertThat(jobsAndErrors.getRight()).isZero();
+        assertThat(store.retrieveTasksForJob(binaryJob.getId()).toBlocking().first().getLeft()).containsExactly(binaryTask);
+    }
+
     /**
      * Create enough jobs to evenly be bucketed across multiple rows. Delete 1 job per bucket. Add back enough jobs to fill
      * in the deleted jobs plus an extra bucket worth as a new bucket was created when reaching the max of all the original buckets.
@@ -263,6 +294,30 @@ public class CassandraJobStoreTest {
         assertThat(newTask).isEqualTo(newRetrievedTask);
     }
 
+    @Test
+    public void testUpdateTasks() {
+        JobStore store = getJobStore();
+        Job<BatchJobExt> job = createBatchJobObject();
+        store.init().await();
+        store.storeJob(job).await();
+        Task firstTask = createTaskObject(job);
+        Task secondTask = createTaskObject(job);
+        store.storeTask(firstTask).await();
+        store.storeTask(secondTask).await();
+
+        List<Task> newTasks = new ArrayList<>();
+        for (Task task : Arrays.asList(firstTask, secondTask)) {
+            newTasks.add(BatchJobTask.newBuilder((BatchJobTask) task)
+                    .withStatus(TaskStatus.newBuilder().withState(TaskState.Finished).build())
+                    .build()
+            );
+        }
+        store.updateTasks(newTasks).await();
+        for (Task newTask : newTasks) {
+            assertThat(store.retrieveTask(newTask.getId()).toBlocking().first()).isEqualTo(newTask);
+        }
+    }
+
     @Test
     public void testReplaceTask() {
         JobStore store = getJobStore();
@@ -381,10 +436,14 @@ public class CassandraJobStoreTest {
     }
 
     private JobStore getJobStore(Session session) {
+        return getJobStore(session, CONFIGURATION);
+    }
+
+    private JobStore getJobStore(Session session, CassandraStoreConfiguration configuration) {
         if (session == null) {
             session = cassandraCqlUnit.getSession();
         }
-        return new CassandraJobStore(CONFIGURATION, session, TitusRuntimes.internal(),
+        return new CassandraJobStore(configuration, session, TitusRuntimes.internal(),
                 ObjectMappers.storeMapper(), INITIAL_BUCKET_COUNT, MAX_BUCKET_SIZE);
     }
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.nio.ByteBuffer;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobStoreRecordCodecTest {
+
+    private final JobStoreRecordCodec codec = JobStoreRecordCodec.getDefault();
+
+    @Test
+    public void testJobRecordInBothFormats() {
+        Job<ServiceJobExt> job = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+
+        Pair<String, ByteBuffer> json = codec.encode(job, false);
+        assertThat(json.getLeft()).isEqualTo(ObjectMappers.writeValueAsString(ObjectMappers.storeMapper(), job));
+        assertThat(json.getRight()).isNull();
+
+        Pair<String, ByteBuffer> binary = codec.encode(job, true);
+        assertThat(binary.getLeft()).isNull();
+        assertThat(binary.getRight().remaining()).isLessThan(json.getLeft().length());
+
+        assertThat(codec.decode(json.getLeft(), json.getRight(), Job.class)).isEqualTo(job);
+        assertThat(codec.decode(binary.getLeft(), binary.getRight(), Job.class)).isEqualTo(job);
+    }
+
+    @Test
+    public void testTaskRecordInBothFormats() {
+        BatchJobTask task = JobGenerator.oneBatchTask();
+
+        Pair<String, ByteBuffer> json = codec.encode(task, false);
+        assertThat(codec.decode(json.getLeft(), json.getRight(), Task.class)).isEqualTo(task);
+
+        Pair<String, ByteBuffer> binary = codec.encode(task, true);
+        assertThat(codec.decode(binary.getLeft(), binary.getRight(), Task.class)).isEqualTo(task);
+        // Decoding does not consume the buffer.
+        assertThat(codec.decode(binary.getLeft(), binary.getRight(), Task.class)).isEqualTo(task);
+    }
+}
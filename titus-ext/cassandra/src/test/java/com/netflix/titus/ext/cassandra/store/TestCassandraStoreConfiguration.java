@@ -61,4 +61,9 @@ public class TestCassandraStoreConfiguration implements CassandraStoreConfigurat
     public boolean isTracingEnabled() {
         return false;
     }
+
+    @Override
+    public boolean isBinaryRecordFormatEnabled() {
+        return false;
+    }
 }
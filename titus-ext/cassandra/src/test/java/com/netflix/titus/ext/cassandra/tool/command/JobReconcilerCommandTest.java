@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.tool.command;
+
+import com.datastax.driver.core.Session;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.ext.cassandra.store.CassandraJobStore;
+import com.netflix.titus.ext.cassandra.store.CassandraStoreConfiguration;
+import com.netflix.titus.ext.cassandra.store.TestCassandraStoreConfiguration;
+import com.netflix.titus.ext.cassandra.tool.CommandContext;
+import com.netflix.titus.testkit.junit.category.IntegrationNotParallelizableTest;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.cassandraunit.CassandraCQLUnit;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(IntegrationNotParallelizableTest.class)
+public class JobReconcilerCommandTest {
+
+    private static final long STARTUP_TIMEOUT_MS = 30_000L;
+    private static final String CONFIGURATION_FILE_NAME = "relocated-cassandra.yaml";
+
+    @Rule
+    public CassandraCQLUnit cassandraCqlUnit = new CassandraCQLUnit(
+            new ClassPathCQLDataSet("tables.cql", "titus_integration_tests"),
+            CONFIGURATION_FILE_NAME,
+            STARTUP_TIMEOUT_MS
+    );
+
+    private static final CassandraStoreConfiguration BINARY_FORMAT_CONFIGURATION = new TestCassandraStoreConfiguration() {
+        @Override
+        public boolean isBinaryRecordFormatEnabled() {
+            return true;
+        }
+    };
+
+    @Test
+    public void testRecordsInBothFormatsAreReconciled() {
+        Session session = cassandraCqlUnit.getSession();
+        JobStore jsonStore = newJobStore(session, new TestCassandraStoreConfiguration());
+        JobStore binaryStore = newJobStore(session, BINARY_FORMAT_CONFIGURATION);
+        jsonStore.init().await();
+        binaryStore.init().await();
+
+        Job<ServiceJobExt> jsonJob = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+        jsonStore.storeJob(jsonJob).await();
+        Job<BatchJobExt> binaryJob = JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor()).getValue();
+        binaryStore.storeJob(binaryJob).await();
+        Task binaryTask = JobGenerator.batchTasks(binaryJob).getValue();
+        binaryStore.storeTask(binaryTask).await();
+
+        CommandContext context = mock(CommandContext.class);
+        when(context.getTargetSession()).thenReturn(session);
+
+        JobReconcilerCommand.Reconciler reconciler = new JobReconcilerCommand().reconcile(context);
+        assertThat(reconciler.getJobs()).containsExactlyInAnyOrder(jsonJob, binaryJob);
+        assertThat(reconciler.getTasks()).containsExactly(binaryTask);
+        assertThat(reconciler.getViolations()).isEmpty();
+    }
+
+    private JobStore newJobStore(Session session, CassandraStoreConfiguration configuration) {
+        return new CassandraJobStore(configuration, session, TitusRuntimes.internal());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.tool.command;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.ext.cassandra.store.CassandraJobStore;
+import com.netflix.titus.ext.cassandra.store.TestCassandraStoreConfiguration;
+import com.netflix.titus.ext.cassandra.tool.CommandContext;
+import com.netflix.titus.testkit.junit.category.IntegrationNotParallelizableTest;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.apache.commons.cli.DefaultParser;
+import org.cassandraunit.CassandraCQLUnit;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(IntegrationNotParallelizableTest.class)
+public class JobRecordFormatMigrateCommandTest {
+
+    private static final long STARTUP_TIMEOUT_MS = 30_000L;
+    private static final String CONFIGURATION_FILE_NAME = "relocated-cassandra.yaml";
+
+    @Rule
+    public CassandraCQLUnit cassandraCqlUnit = new CassandraCQLUnit(
+            new ClassPathCQLDataSet("tables.cql", "titus_integration_tests"),
+            CONFIGURATION_FILE_NAME,
+            STARTUP_TIMEOUT_MS
+    );
+
+    @Test
+    public void testMigrationToBinaryAndBack() throws Exception {
+        Session session = cassandraCqlUnit.getSession();
+        JobStore store = new CassandraJobStore(new TestCassandraStoreConfiguration(), session, TitusRuntimes.internal());
+        store.init().await();
+
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor()).getValue();
+        store.storeJob(job).await();
+        Task task = JobGenerator.batchTasks(job).getValue();
+        store.storeTask(task).await();
+
+        migrate(session);
+        assertThat(readRecord(session, "active_jobs", "job_id", job.getId()).getString(0)).isNull();
+        assertThat(readRecord(session, "active_tasks", "task_id", task.getId()).getBytes(1)).isNotNull();
+        assertThat(store.retrieveJob(job.getId()).toBlocking().first()).isEqualTo(job);
+        assertThat(store.retrieveTask(task.getId()).toBlocking().first()).isEqualTo(task);
+
+        migrate(session, "-j");
+        assertThat(readRecord(session, "active_jobs", "job_id", job.getId()).getBytes(1)).isNull();
+        assertThat(readRecord(session, "active_tasks", "task_id", task.getId()).getString(0)).isNotNull();
+        assertThat(store.retrieveTask(task.getId()).toBlocking().first()).isEqualTo(task);
+    }
+
+    private void migrate(Session session, String... args) throws Exception {
+        JobRecordFormatMigrateCommand command = new JobRecordFormatMigrateCommand();
+
+        CommandContext context = mock(CommandContext.class);
+        when(context.getTargetSession()).thenReturn(session);
+        when(context.getCommandLine()).thenReturn(new DefaultParser().parse(command.getOptions(), args));
+
+        command.execute(context);
+    }
+
+    private Row readRecord(Session session, String table, String primaryKey, String id) {
+        return session.execute(String.format("SELECT value, binary_value FROM %s WHERE %s = ?", table, primaryKey), id).one();
+    }
+}
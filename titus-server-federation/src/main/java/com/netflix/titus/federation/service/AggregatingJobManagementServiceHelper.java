@@ -15,16 +15,20 @@
  */
 package com.netflix.titus.federation.service;
 
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
 import com.netflix.titus.grpc.protogen.Job;
 import com.netflix.titus.grpc.protogen.JobId;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskId;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.StreamObserver;
@@ -42,28 +46,43 @@ public class AggregatingJobManagementServiceHelper {
     private AggregatingCellClient aggregatingCellClient;
     private final GrpcConfiguration grpcConfiguration;
     private final CallMetadataResolver callMetadataResolver;
+    private final CellLocationCache cellLocationCache;
 
     @Inject
     public AggregatingJobManagementServiceHelper(AggregatingCellClient aggregatingCellClient,
                                                  GrpcConfiguration grpcConfiguration,
-                                                 CallMetadataResolver callMetadataResolver) {
+                                                 CallMetadataResolver callMetadataResolver,
+                                                 CellLocationCache cellLocationCache) {
         this.aggregatingCellClient = aggregatingCellClient;
         this.grpcConfiguration = grpcConfiguration;
         this.callMetadataResolver = callMetadataResolver;
-
+        this.cellLocationCache = cellLocationCache;
     }
 
     private <STUB extends AbstractStub<STUB>> STUB wrap(STUB stub) {
         return createWrappedStub(stub, callMetadataResolver, grpcConfiguration.getRequestTimeoutMs());
     }
 
+    /**
+     * Finds the cell owning the job. If the job location is cached, only that cell is queried. Otherwise, or if the
+     * cached cell does not know the job, all cells are queried.
+     */
     public Observable<CellResponse<JobManagementServiceStub, Job>> findJobInAllCells(String jobId) {
-        return aggregatingCellClient.callExpectingErrors(JobManagementServiceGrpc::newStub, findJobInCell(jobId))
-                .reduce(ResponseMerger.singleValue())
-                .flatMap(response -> response.getResult()
-                        .map(v -> Observable.just(CellResponse.ofValue(response)))
-                        .onErrorGet(Observable::error)
-                );
+        Observable<CellResponse<JobManagementServiceStub, Job>> broadcast = Observable.defer(() ->
+                broadcastSingleValue(findJobInCell(jobId))
+                        .doOnNext(response -> cellLocationCache.putJob(jobId, response.getCell()))
+        );
+
+        Optional<Cell> cachedCell = cellLocationCache.findJobCell(jobId);
+        if (!cachedCell.isPresent()) {
+            return broadcast;
+        }
+        return aggregatingCellClient.callCell(cachedCell.get(), JobManagementServiceGrpc::newStub, findJobInCell(jobId))
+                .onErrorResumeNext(error -> {
+                    logger.debug("Job {} lookup in cached cell {} failed, querying all cells: {}", jobId, cachedCell.get().getName(), error.getMessage());
+                    cellLocationCache.invalidateJob(jobId);
+                    return broadcast;
+                });
     }
 
     public Mono<CellResponse<JobManagementServiceStub, Job>> findJobInAllCellsReact(String jobId) {
@@ -75,6 +94,41 @@ public class AggregatingJobManagementServiceHelper {
         return (client, streamObserver) -> wrap(client).findJob(id, streamObserver);
     }
 
+    /**
+     * Task counterpart of {@link #findJobInAllCells(String)}.
+     */
+    public Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId) {
+        Observable<CellResponse<JobManagementServiceStub, Task>> broadcast = Observable.defer(() ->
+                broadcastSingleValue(findTaskInCell(taskId))
+                        .doOnNext(response -> cellLocationCache.putTask(taskId, response.getResult().getJobId(), response.getCell()))
+        );
+
+        Optional<Cell> cachedCell = cellLocationCache.findTaskCell(taskId);
+        if (!cachedCell.isPresent()) {
+            return broadcast;
+        }
+        return aggregatingCellClient.callCell(cachedCell.get(), JobManagementServiceGrpc::newStub, findTaskInCell(taskId))
+                .onErrorResumeNext(error -> {
+                    logger.debug("Task {} lookup in cached cell {} failed, querying all cells: {}", taskId, cachedCell.get().getName(), error.getMessage());
+                    cellLocationCache.invalidateTask(taskId);
+                    return broadcast;
+                });
+    }
+
+    public ClientCall<Task> findTaskInCell(String taskId) {
+        TaskId id = TaskId.newBuilder().setId(taskId).build();
+        return (client, streamObserver) -> wrap(client).findTask(id, streamObserver);
+    }
+
+    private <T> Observable<CellResponse<JobManagementServiceStub, T>> broadcastSingleValue(ClientCall<T> clientCall) {
+        return aggregatingCellClient.callExpectingErrors(JobManagementServiceGrpc::newStub, clientCall)
+                .reduce(ResponseMerger.<JobManagementServiceStub, T>singleValue())
+                .flatMap(response -> response.getResult()
+                        .map(v -> Observable.just(CellResponse.ofValue(response)))
+                        .onErrorGet(Observable::error)
+                );
+    }
+
     public interface ClientCall<T> extends BiConsumer<JobManagementServiceStub, StreamObserver<T>> {
         // generics sanity
     }
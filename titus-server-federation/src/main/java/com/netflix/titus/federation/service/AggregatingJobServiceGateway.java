@@ -32,7 +32,7 @@ import com.google.protobuf.Empty;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.service.TitusServiceException;
 import com.netflix.titus.common.util.CollectionsExt;
-import com.netflix.titus.common.util.ProtobufExt;
+import com.netflix.titus.common.util.ProtobufProjection;
 import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.concurrency.CallbackCountDownLatch;
 import com.netflix.titus.common.util.rx.EmitterWithMultipleSubscriptions;
@@ -62,7 +62,6 @@ import com.netflix.titus.grpc.protogen.Pagination;
 import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskAttributesDeleteRequest;
 import com.netflix.titus.grpc.protogen.TaskAttributesUpdate;
-import com.netflix.titus.grpc.protogen.TaskId;
 import com.netflix.titus.grpc.protogen.TaskKillRequest;
 import com.netflix.titus.grpc.protogen.TaskMoveRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
@@ -105,6 +104,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     private AggregatingJobManagementServiceHelper jobManagementServiceHelper;
     private final CellRouter router;
     private final CallMetadataResolver callMetadataResolver;
+    private final CellLocationCache cellLocationCache;
 
     @Inject
     public AggregatingJobServiceGateway(GrpcConfiguration grpcConfiguration,
@@ -113,7 +113,8 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                                         CellRouter router,
                                         CallMetadataResolver callMetadataResolver,
                                         AggregatingCellClient aggregatingClient,
-                                        AggregatingJobManagementServiceHelper jobManagementServiceHelper) {
+                                        AggregatingJobManagementServiceHelper jobManagementServiceHelper,
+                                        CellLocationCache cellLocationCache) {
 
         this.grpcConfiguration = grpcConfiguration;
         this.federationConfiguration = federationConfiguration;
@@ -122,6 +123,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         this.callMetadataResolver = callMetadataResolver;
         this.aggregatingClient = aggregatingClient;
         this.jobManagementServiceHelper = jobManagementServiceHelper;
+        this.cellLocationCache = cellLocationCache;
     }
 
     @Override
@@ -139,7 +141,10 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         return createRequestObservable(emitter -> {
             StreamObserver<JobId> streamObserver = GrpcUtil.createClientResponseObserver(
                     emitter,
-                    jobId -> emitter.onNext(jobId.getId()),
+                    jobId -> {
+                        cellLocationCache.putJob(jobId.getId(), cell);
+                        emitter.onNext(jobId.getId());
+                    },
                     emitter::onError,
                     emitter::onCompleted
             );
@@ -270,8 +275,9 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                     );
 
                     if (!CollectionsExt.isNullOrEmpty(fields)) {
+                        ProtobufProjection<Job> projection = ProtobufProjection.compile(Job.getDescriptor(), fields);
                         combinedPage = combinedPage.mapLeft(jobs -> jobs.stream()
-                                .map(job -> ProtobufExt.copy(job, fields))
+                                .map(projection::apply)
                                 .collect(Collectors.toList())
                         );
                     }
@@ -335,21 +341,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     @Override
     public Observable<Task> findTask(String taskId) {
-        return findTaskInAllCells(taskId).map(CellResponse::getResult).map(this::addStackName);
-    }
-
-    private Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId) {
-        return aggregatingClient.callExpectingErrors(JobManagementServiceGrpc::newStub, findTaskInCell(taskId))
-                .reduce(ResponseMerger.singleValue())
-                .flatMap(response -> response.getResult()
-                        .map(v -> Observable.just(CellResponse.ofValue(response)))
-                        .onErrorGet(Observable::error)
-                );
-    }
-
-    private ClientCall<Task> findTaskInCell(String taskId) {
-        TaskId id = TaskId.newBuilder().setId(taskId).build();
-        return (client, streamObserver) -> wrap(client).findTask(id, streamObserver);
+        return jobManagementServiceHelper.findTaskInAllCells(taskId).map(CellResponse::getResult).map(this::addStackName);
     }
 
     @Override
@@ -392,8 +384,9 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                     );
 
                     if (!CollectionsExt.isNullOrEmpty(fields)) {
+                        ProtobufProjection<Task> projection = ProtobufProjection.compile(Task.getDescriptor(), fields);
                         combinedPage = combinedPage.mapLeft(tasks -> tasks.stream()
-                                .map(task -> ProtobufExt.copy(task, fields))
+                                .map(projection::apply)
                                 .collect(Collectors.toList())
                         );
                     }
@@ -422,7 +415,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     public Completable killTask(TaskKillRequest request) {
         Optional<CallMetadata> context = callMetadataResolver.resolve();
 
-        Observable<Empty> result = findTaskInAllCells(request.getTaskId())
+        Observable<Empty> result = jobManagementServiceHelper.findTaskInAllCells(request.getTaskId())
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, streamObserver) -> wrap(context, client).killTask(request, streamObserver))
                 );
@@ -431,7 +424,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     @Override
     public Completable updateTaskAttributes(TaskAttributesUpdate attributesUpdate) {
-        Observable<Empty> result = findTaskInAllCells(attributesUpdate.getTaskId())
+        Observable<Empty> result = jobManagementServiceHelper.findTaskInAllCells(attributesUpdate.getTaskId())
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, streamObserver) -> client.updateTaskAttributes(attributesUpdate, streamObserver)));
         return result.toCompletable();
@@ -439,7 +432,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     @Override
     public Completable deleteTaskAttributes(TaskAttributesDeleteRequest deleteRequest) {
-        Observable<Empty> result = findTaskInAllCells(deleteRequest.getTaskId())
+        Observable<Empty> result = jobManagementServiceHelper.findTaskInAllCells(deleteRequest.getTaskId())
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, streamObserver) -> client.deleteTaskAttributes(deleteRequest, streamObserver)));
         return result.toCompletable();
@@ -447,7 +440,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     @Override
     public Completable moveTask(TaskMoveRequest taskMoveRequest) {
-        Observable<Empty> result = findTaskInAllCells(taskMoveRequest.getTaskId())
+        Observable<Empty> result = jobManagementServiceHelper.findTaskInAllCells(taskMoveRequest.getTaskId())
                 .flatMap(response -> singleCellCall(response.getCell(),
                         (client, streamObserver) -> client.moveTask(taskMoveRequest, streamObserver)));
         return result.toCompletable();
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
+
+/**
+ * Bounded, time limited mapping of job and task ids to the cells that own them. Jobs never move between cells, so
+ * a cached entry can only become stale when the entity is removed. Callers that get a NOT_FOUND (or any other error)
+ * from the cached cell invalidate the entry, and fall back to querying all cells.
+ */
+@Singleton
+public class CellLocationCache {
+
+    private final boolean enabled;
+    private final Cache<String, Cell> jobCells;
+    private final Cache<String, Cell> taskCells;
+
+    @Inject
+    public CellLocationCache(TitusFederationConfiguration configuration) {
+        this.enabled = configuration.isCellLocationCacheEnabled();
+        this.jobCells = newCache(configuration);
+        this.taskCells = newCache(configuration);
+    }
+
+    public Optional<Cell> findJobCell(String jobId) {
+        return enabled ? Optional.ofNullable(jobCells.getIfPresent(jobId)) : Optional.empty();
+    }
+
+    public Optional<Cell> findTaskCell(String taskId) {
+        return enabled ? Optional.ofNullable(taskCells.getIfPresent(taskId)) : Optional.empty();
+    }
+
+    public void putJob(String jobId, Cell cell) {
+        if (enabled) {
+            jobCells.put(jobId, cell);
+        }
+    }
+
+    /**
+     * Tasks live in the same cell as their jobs, so the job location is recorded as well.
+     */
+    public void putTask(String taskId, String jobId, Cell cell) {
+        if (enabled) {
+            taskCells.put(taskId, cell);
+            jobCells.put(jobId, cell);
+        }
+    }
+
+    public void invalidateJob(String jobId) {
+        jobCells.invalidate(jobId);
+    }
+
+    public void invalidateTask(String taskId) {
+        taskCells.invalidate(taskId);
+    }
+
+    private static Cache<String, Cell> newCache(TitusFederationConfiguration configuration) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(Math.max(0, configuration.getCellLocationCacheSize()))
+                .expireAfterWrite(Math.max(0, configuration.getCellLocationCacheTtlMs()), TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -23,6 +23,7 @@ import org.springframework.context.annotation.Import;
 @Import({
         AggregatingCellClient.class,
         AggregatingHealthService.class,
+        CellLocationCache.class,
 
         AggregatingJobServiceGateway.class,
         AggregatingJobManagementServiceHelper.class,
@@ -30,4 +30,19 @@ public interface TitusFederationConfiguration {
 
     @DefaultValue("cell1=(app1.*|app2.*);cell2=(.*)")
     String getRoutingRules();
+
+    /**
+     * If enabled, job and task lookups are sent to the cell that owns the entity, if known, instead of all cells.
+     */
+    @DefaultValue("true")
+    boolean isCellLocationCacheEnabled();
+
+    /**
+     * Maximum number of job and task entries (each) in the cell location cache.
+     */
+    @DefaultValue("100000")
+    long getCellLocationCacheSize();
+
+    @DefaultValue("3600000")
+    long getCellLocationCacheTtlMs();
 }
@@ -22,6 +22,7 @@ import java.util.Optional;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.runtime.endpoint.metadata.AnonymousCallMetadataResolver;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
 import io.grpc.ManagedChannel;
 import io.grpc.testing.GrpcServerRule;
 import org.junit.Before;
@@ -63,7 +64,8 @@ public class AggregatingAutoScalingTestBase {
         final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
 
         service = new AggregatingAutoScalingService(connector, anonymousCallMetadataResolver, grpcConfiguration,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration, anonymousCallMetadataResolver),
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration, anonymousCallMetadataResolver,
+                        new CellLocationCache(mock(TitusFederationConfiguration.class))),
                 aggregatingCellClient);
     }
 
@@ -105,6 +105,7 @@ public class AggregatingJobServiceGatewayTest {
 
     private String stackName;
     private AggregatingJobServiceGateway service;
+    private CellLocationCache cellLocationCache;
     private List<Cell> cells;
     private Map<Cell, GrpcServerRule> cellToServiceMap;
     private TestClock clock;
@@ -121,6 +122,9 @@ public class AggregatingJobServiceGatewayTest {
         when(titusFederationConfiguration.getStack()).thenReturn(stackName);
         when(titusFederationConfiguration.getCells()).thenReturn("one=1;two=2");
         when(titusFederationConfiguration.getRoutingRules()).thenReturn("one=(app1.*|app2.*);two=(app3.*)");
+        when(titusFederationConfiguration.isCellLocationCacheEnabled()).thenReturn(true);
+        when(titusFederationConfiguration.getCellLocationCacheSize()).thenReturn(1_000L);
+        when(titusFederationConfiguration.getCellLocationCacheTtlMs()).thenReturn(60_000L);
 
         CellInfoResolver cellInfoResolver = new DefaultCellInfoResolver(titusFederationConfiguration);
         DefaultCellRouter cellRouter = new DefaultCellRouter(cellInfoResolver, titusFederationConfiguration);
@@ -141,6 +145,7 @@ public class AggregatingJobServiceGatewayTest {
 
         final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
         final AnonymousCallMetadataResolver anonymousCallMetadataResolver = new AnonymousCallMetadataResolver();
+        cellLocationCache = new CellLocationCache(titusFederationConfiguration);
         service = new AggregatingJobServiceGateway(
                 grpcConfiguration,
                 titusFederationConfiguration,
@@ -148,7 +153,8 @@ public class AggregatingJobServiceGatewayTest {
                 cellRouter,
                 anonymousCallMetadataResolver,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration, anonymousCallMetadataResolver)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration, anonymousCallMetadataResolver, cellLocationCache),
+                cellLocationCache
         );
 
         clock = Clocks.test();
@@ -404,6 +410,45 @@ public class AggregatingJobServiceGatewayTest {
         assertThat(Status.fromThrowable(testSubscriber.getOnErrorEvents().get(0))).isEqualTo(UNAVAILABLE);
     }
 
+    @Test
+    public void findJobRecordsJobLocation() {
+        List<Job> cellTwoSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(3, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(cellTwoSnapshot, cellTwoUpdates.serialize()));
+
+        Job expected = withStackName(cellTwoSnapshot.get(0));
+        assertThat(cellLocationCache.findJobCell(expected.getId())).isEmpty();
+
+        AssertableSubscriber<Job> testSubscriber = service.findJob(expected.getId()).test();
+        testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertValue(expected);
+        assertThat(cellLocationCache.findJobCell(expected.getId())).contains(cells.get(1));
+
+        // Served from the cached cell only, so a failure of the other cell does not matter.
+        cellOne.getServiceRegistry().addService(new CellWithFailingJobManagementService(INTERNAL));
+        AssertableSubscriber<Job> cachedSubscriber = service.findJob(expected.getId()).test();
+        cachedSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        cachedSubscriber.assertNoErrors();
+        cachedSubscriber.assertValue(expected);
+    }
+
+    @Test
+    public void findJobWithStaleJobLocation() {
+        List<Job> cellOneSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(3, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(cellOneSnapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = withStackName(cellOneSnapshot.get(0));
+        cellLocationCache.putJob(expected.getId(), cells.get(1));
+
+        AssertableSubscriber<Job> testSubscriber = service.findJob(expected.getId()).test();
+        testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertValue(expected);
+        assertThat(cellLocationCache.findJobCell(expected.getId())).contains(cells.get(0));
+    }
+
     @Test
     public void killJob() {
         Random random = new Random();
@@ -560,6 +605,21 @@ public class AggregatingJobServiceGatewayTest {
         testSubscriber.assertValue(expected);
     }
 
+    @Test
+    public void findTaskRecordsTaskAndJobLocation() {
+        List<Task> cellTwoSnapshot = new ArrayList<>(dataGenerator.newServiceJobWithTasks());
+        cellOne.getServiceRegistry().addService(new CellWithFixedTasksService(Collections.emptyList()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedTasksService(cellTwoSnapshot));
+
+        Task expected = withStackName(cellTwoSnapshot.get(0));
+        AssertableSubscriber<Task> testSubscriber = service.findTask(expected.getId()).test();
+        testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertValue(expected);
+        assertThat(cellLocationCache.findTaskCell(expected.getId())).contains(cells.get(1));
+        assertThat(cellLocationCache.findJobCell(expected.getJobId())).contains(cells.get(1));
+    }
+
     @Test
     public void findTaskErrors() {
         cellOne.getServiceRegistry().addService(new CellWithFailingJobManagementService(INTERNAL));
@@ -805,6 +865,7 @@ public class AggregatingJobServiceGatewayTest {
             // TODO(Andrew L): This can use findJob() instead once AggregatingService implements it
             Cell expectedCell = getCellWithName(expectedCellName)
                     .orElseThrow(() -> TitusServiceException.cellNotFound(expectedCellName));
+            assertThat(cellLocationCache.findJobCell(jobId)).contains(expectedCell);
             JobManagementServiceStub expectedCellClient = JobManagementServiceGrpc.newStub(cellToServiceMap.get(expectedCell).getChannel());
 
             // Check that the cell has it with the correct attribute
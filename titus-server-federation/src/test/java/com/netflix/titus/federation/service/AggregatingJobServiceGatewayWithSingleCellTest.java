@@ -95,6 +95,7 @@ public class AggregatingJobServiceGatewayWithSingleCellTest {
         );
 
         final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
+        final CellLocationCache cellLocationCache = new CellLocationCache(titusFederationConfiguration);
         final AnonymousCallMetadataResolver anonymousCallMetadataResolver = new AnonymousCallMetadataResolver();
         service = new AggregatingJobServiceGateway(
                 grpcClientConfiguration,
@@ -103,7 +104,8 @@ public class AggregatingJobServiceGatewayWithSingleCellTest {
                 cellRouter,
                 anonymousCallMetadataResolver,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, anonymousCallMetadataResolver)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, anonymousCallMetadataResolver, cellLocationCache),
+                cellLocationCache
         );
 
         clock = Clocks.test();
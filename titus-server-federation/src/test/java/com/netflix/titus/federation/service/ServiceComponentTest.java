@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import com.netflix.titus.federation.startup.GrpcConfiguration;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = ServiceComponent.class)
+public class ServiceComponentTest {
+
+    @MockBean
+    private GrpcConfiguration grpcConfiguration;
+
+    @MockBean
+    private TitusFederationConfiguration federationConfiguration;
+
+    @MockBean
+    private CellConnector cellConnector;
+
+    @MockBean
+    private CellRouter cellRouter;
+
+    @MockBean
+    private CallMetadataResolver callMetadataResolver;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    public void testServicesAreWired() {
+        assertThat(context.getBean(AggregatingJobServiceGateway.class)).isNotNull();
+        assertThat(context.getBean(AggregatingJobManagementServiceHelper.class)).isNotNull();
+        assertThat(context.getBean(AggregatingAutoScalingService.class)).isNotNull();
+        assertThat(context.getBean(AggregatingLoadbalancerService.class)).isNotNull();
+        assertThat(context.getBean(CellLocationCache.class)).isNotNull();
+    }
+}
@@ -27,4 +27,30 @@ public interface GatewayConfiguration {
      */
     @DefaultValue("5000")
     int getMaxTaskPageSize();
+
+    /**
+     * If true, observeJobs subscriptions are served from the gateway job cache, instead of being proxied to TitusMaster.
+     */
+    @DefaultValue("false")
+    boolean isObserveJobsFromCacheEnabled();
+
+    /**
+     * Maximum number of job events buffered for a single observeJobs subscriber. A subscriber that falls behind
+     * more than this is terminated.
+     */
+    @DefaultValue("10000")
+    int getObserveJobsSubscriberBufferSize();
+
+    /**
+     * If true, active job and task queries are answered from the gateway job cache, if its staleness is below
+     * {@link #getLocalCacheQueryMaxStalenessMs()}.
+     */
+    @DefaultValue("false")
+    boolean isLocalCacheQueryEnabled();
+
+    /**
+     * Maximum staleness of the gateway job cache, for which queries are still answered from it.
+     */
+    @DefaultValue("1000")
+    long getLocalCacheQueryMaxStalenessMs();
 }
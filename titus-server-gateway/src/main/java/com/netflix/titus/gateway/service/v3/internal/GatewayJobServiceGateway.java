@@ -20,6 +20,7 @@ package com.netflix.titus.gateway.service.v3.internal;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -48,9 +49,13 @@ import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
 import com.netflix.titus.grpc.protogen.JobDescriptor;
 import com.netflix.titus.grpc.protogen.JobId;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.ObserveJobsQuery;
 import com.netflix.titus.grpc.protogen.Page;
 import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskId;
@@ -105,6 +110,8 @@ public class GatewayJobServiceGateway extends JobServiceGatewayDelegate {
     private final LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo;
     private final TaskRelocationDataInjector taskRelocationDataInjector;
     private final NeedsMigrationQueryHandler needsMigrationQueryHandler;
+    private final ObserveJobsMultiplexer observeJobsMultiplexer;
+    private final LocalCacheQueryProcessor localCacheQueryProcessor;
     private final Clock clock;
 
     @Inject
@@ -117,6 +124,8 @@ public class GatewayJobServiceGateway extends JobServiceGatewayDelegate {
                                     LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
                                     TaskRelocationDataInjector taskRelocationDataInjector,
                                     NeedsMigrationQueryHandler needsMigrationQueryHandler,
+                                    ObserveJobsMultiplexer observeJobsMultiplexer,
+                                    LocalCacheQueryProcessor localCacheQueryProcessor,
                                     @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
                                     DisruptionBudgetSanitizer disruptionBudgetSanitizer,
                                     @Named(SECURITY_GROUPS_REQUIRED_FEATURE) Predicate<com.netflix.titus.api.jobmanager.model.job.JobDescriptor> securityGroupsRequiredPredicate,
@@ -145,11 +154,28 @@ public class GatewayJobServiceGateway extends JobServiceGatewayDelegate {
         this.logStorageInfo = logStorageInfo;
         this.taskRelocationDataInjector = taskRelocationDataInjector;
         this.needsMigrationQueryHandler = needsMigrationQueryHandler;
+        this.observeJobsMultiplexer = observeJobsMultiplexer;
+        this.localCacheQueryProcessor = localCacheQueryProcessor;
         this.clock = titusRuntime.getClock();
     }
 
+    @Override
+    public Observable<JobQueryResult> findJobs(JobQuery jobQuery) {
+        if (localCacheQueryProcessor.canUseCache(jobQuery)) {
+            return Observable.fromCallable(() -> localCacheQueryProcessor.findJobs(jobQuery));
+        }
+        return super.findJobs(jobQuery);
+    }
+
     @Override
     public Observable<Job> findJob(String jobId) {
+        if (localCacheQueryProcessor.canUseCache("findJob")) {
+            Optional<Job> cachedJob = localCacheQueryProcessor.findJob(jobId);
+            if (cachedJob.isPresent()) {
+                return Observable.just(cachedJob.get());
+            }
+        }
+
         Observable<Job> observable = createRequestObservable(emitter -> {
             StreamObserver<Job> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, tunablesConfiguration.getRequestTimeoutMs()).findJob(JobId.newBuilder().setId(jobId).build(), streamObserver);
@@ -167,6 +193,13 @@ public class GatewayJobServiceGateway extends JobServiceGatewayDelegate {
 
     @Override
     public Observable<Task> findTask(String taskId) {
+        if (localCacheQueryProcessor.canUseCache("findTask")) {
+            Optional<Task> cachedTask = localCacheQueryProcessor.findTask(taskId);
+            if (cachedTask.isPresent()) {
+                return taskRelocationDataInjector.injectIntoTask(taskId, Observable.just(cachedTask.get()));
+            }
+        }
+
         Observable<Task> observable = createRequestObservable(
                 emitter -> {
                     StreamObserver<Task> streamObserver = createSimpleClientResponseObserver(emitter);
@@ -237,7 +270,18 @@ public class GatewayJobServiceGateway extends JobServiceGatewayDelegate {
         return taskRelocationDataInjector.injectIntoTaskQueryResult(observable.timeout(tunablesConfiguration.getRequestTimeoutMs(), TimeUnit.MILLISECONDS));
     }
 
+    @Override
+    public Observable<JobChangeNotification> observeJobs(ObserveJobsQuery query) {
+        if (gatewayConfiguration.isObserveJobsFromCacheEnabled()) {
+            return observeJobsMultiplexer.observeJobs(query);
+        }
+        return super.observeJobs(query);
+    }
+
     private Observable<TaskQueryResult> newActiveTaskQueryAction(TaskQuery taskQuery) {
+        if (localCacheQueryProcessor.canUseCache(taskQuery)) {
+            return Observable.fromCallable(() -> localCacheQueryProcessor.findTasks(taskQuery));
+        }
         return createRequestObservable(emitter -> {
             StreamObserver<TaskQueryResult> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, tunablesConfiguration.getRequestTimeoutMs()).findTasks(taskQuery, streamObserver);
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ProtobufProjection;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.MetricConstants;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobDescriptor;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import com.netflix.titus.grpc.protogen.JobStatus;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.grpc.protogen.TaskQueryResult;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.connector.jobmanager.CachedReadOnlyJobOperations;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.metadata.V3HeaderInterceptor;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelCache;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
+
+import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.toGrpcPagination;
+import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.toJobQueryCriteria;
+import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.toPage;
+import static com.netflix.titus.runtime.jobmanager.gateway.JobServiceGateway.JOB_MINIMUM_FIELD_SET;
+import static com.netflix.titus.runtime.jobmanager.gateway.JobServiceGateway.TASK_MINIMUM_FIELD_SET;
+
+/**
+ * Answers active job and task queries from the gateway job cache, if the cache staleness is within the configured
+ * bound. The cache holds active jobs and tasks only, so queries for finished entities, and lookups of entities not
+ * found in the cache (possibly not replicated yet) are left to TitusMaster. A client may also force a TitusMaster
+ * read with the {@link com.netflix.titus.runtime.endpoint.metadata.CallMetadataHeaders#READ_FROM_MASTER_HEADER} header.
+ */
+@Singleton
+class LocalCacheQueryProcessor {
+
+    private static final String ROOT = MetricConstants.METRIC_JOB_MANAGEMENT + "localCacheQuery.";
+
+    private final GatewayConfiguration configuration;
+    private final JobDataReplicator jobDataReplicator;
+    private final CachedReadOnlyJobOperations jobOperations;
+    private final GrpcJobManagementModelCache grpcModelCache;
+    private final TitusRuntime titusRuntime;
+    private final Registry registry;
+
+    @Inject
+    LocalCacheQueryProcessor(GatewayConfiguration configuration,
+                             JobDataReplicator jobDataReplicator,
+                             CachedReadOnlyJobOperations jobOperations,
+                             GrpcJobManagementModelCache grpcModelCache,
+                             TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.jobDataReplicator = jobDataReplicator;
+        this.jobOperations = jobOperations;
+        this.grpcModelCache = grpcModelCache;
+        this.titusRuntime = titusRuntime;
+        this.registry = titusRuntime.getRegistry();
+    }
+
+    boolean canUseCache(String queryName) {
+        String rejectReason = findCacheRejectReason();
+        recordDecision(queryName, rejectReason);
+        return rejectReason == null;
+    }
+
+    boolean canUseCache(JobQuery jobQuery) {
+        String rejectReason = findCacheRejectReason();
+        if (rejectReason == null) {
+            JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria = toJobQueryCriteria(jobQuery);
+            if (criteria.getJobState().map(state -> state == JobStatus.JobState.Finished).orElse(false)) {
+                rejectReason = "finishedJobs";
+            } else if (criteria.getTaskStates().contains(TaskStatus.TaskState.Finished)) {
+                rejectReason = "finishedTasks";
+            }
+        }
+        recordDecision("findJobs", rejectReason);
+        return rejectReason == null;
+    }
+
+    /**
+     * The cache does not include finished tasks, while TitusMaster returns finished tasks that are not archived yet.
+     * To return the same result, only queries that explicitly exclude the finished tasks are served from the cache.
+     */
+    boolean canUseCache(TaskQuery taskQuery) {
+        String rejectReason = findCacheRejectReason();
+        if (rejectReason == null) {
+            Set<TaskStatus.TaskState> taskStates = toJobQueryCriteria(taskQuery).getTaskStates();
+            if (taskStates.isEmpty() || taskStates.contains(TaskStatus.TaskState.Finished)) {
+                rejectReason = "finishedTasks";
+            }
+        }
+        recordDecision("findTasks", rejectReason);
+        return rejectReason == null;
+    }
+
+    Optional<Job> findJob(String jobId) {
+        return jobOperations.getJob(jobId).map(grpcModelCache::toGrpcJob);
+    }
+
+    Optional<Task> findTask(String taskId) {
+        return jobOperations.findTaskById(taskId).map(jobTaskPair -> grpcModelCache.toGrpcTask(jobTaskPair.getRight()));
+    }
+
+    JobQueryResult findJobs(JobQuery jobQuery) {
+        List<com.netflix.titus.api.jobmanager.model.job.Job<?>> allFilteredJobs = jobOperations.findJobs(
+                new V3JobQueryCriteriaEvaluator(toJobQueryCriteria(jobQuery), titusRuntime),
+                0,
+                Integer.MAX_VALUE / 2
+        );
+        Pair<List<com.netflix.titus.api.jobmanager.model.job.Job<?>>, Pagination> queryResult = PaginationUtil.takePageWithCursor(
+                toPage(jobQuery.getPage()),
+                allFilteredJobs,
+                JobManagerCursors.coreJobCursorOrderComparator(),
+                JobManagerCursors::coreJobIndexOf,
+                JobManagerCursors::newCoreCursorFrom
+        );
+
+        List<Job> grpcJobs = queryResult.getLeft().stream().map(grpcModelCache::toGrpcJob).collect(Collectors.toList());
+        if (!jobQuery.getFieldsList().isEmpty()) {
+            Set<String> fields = new HashSet<>(jobQuery.getFieldsList());
+            fields.addAll(JOB_MINIMUM_FIELD_SET);
+            ProtobufProjection<Job> projection = ProtobufProjection.compile(Job.getDescriptor(), fields);
+            grpcJobs = grpcJobs.stream().map(projection::apply).collect(Collectors.toList());
+        }
+        return JobQueryResult.newBuilder()
+                .addAllItems(grpcJobs)
+                .setPagination(toGrpcPagination(queryResult.getRight()))
+                .build();
+    }
+
+    TaskQueryResult findTasks(TaskQuery taskQuery) {
+        List<com.netflix.titus.api.jobmanager.model.job.Task> allFilteredTasks = jobOperations.findTasks(
+                new V3TaskQueryCriteriaEvaluator(toJobQueryCriteria(taskQuery), titusRuntime),
+                0,
+                Integer.MAX_VALUE / 2
+        ).stream().map(Pair::getRight).collect(Collectors.toList());
+        Pair<List<com.netflix.titus.api.jobmanager.model.job.Task>, Pagination> queryResult = PaginationUtil.takePageWithCursor(
+                toPage(taskQuery.getPage()),
+                allFilteredTasks,
+                JobManagerCursors.coreTaskCursorOrderComparator(),
+                JobManagerCursors::coreTaskIndexOf,
+                JobManagerCursors::newCoreCursorFrom
+        );
+
+        List<Task> grpcTasks = queryResult.getLeft().stream()
+                .map(grpcModelCache::toGrpcTask)
+                .collect(Collectors.toList());
+        if (!taskQuery.getFieldsList().isEmpty()) {
+            Set<String> fields = new HashSet<>(taskQuery.getFieldsList());
+            fields.addAll(TASK_MINIMUM_FIELD_SET);
+            ProtobufProjection<Task> projection = ProtobufProjection.compile(Task.getDescriptor(), fields);
+            grpcTasks = grpcTasks.stream().map(projection::apply).collect(Collectors.toList());
+        }
+        return TaskQueryResult.newBuilder()
+                .addAllItems(grpcTasks)
+                .setPagination(toGrpcPagination(queryResult.getRight()))
+                .build();
+    }
+
+    private String findCacheRejectReason() {
+        if (!configuration.isLocalCacheQueryEnabled()) {
+            return "disabled";
+        }
+        if ("true".equals(V3HeaderInterceptor.READ_FROM_MASTER_CONTEXT_KEY.get())) {
+            return "readFromMasterRequested";
+        }
+        if (jobDataReplicator.getStalenessMs() > configuration.getLocalCacheQueryMaxStalenessMs()) {
+            return "stale";
+        }
+        return null;
+    }
+
+    private void recordDecision(String queryName, String rejectReason) {
+        registry.counter(ROOT + "requests",
+                "query", queryName,
+                "source", rejectReason == null ? "cache" : "master",
+                "reason", rejectReason == null ? "fresh" : rejectReason
+        ).increment();
+    }
+}
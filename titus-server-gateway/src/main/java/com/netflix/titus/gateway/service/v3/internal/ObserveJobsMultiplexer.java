@@ -0,0 +1,380 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ExecutorsExt;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.MetricConstants;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobDescriptor;
+import com.netflix.titus.grpc.protogen.ObserveJobsQuery;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelCache;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import rx.Emitter;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.toJobQueryCriteria;
+
+/**
+ * Serves observeJobs subscriptions from the gateway job cache. All subscriptions share a single event stream from
+ * {@link JobDataReplicator}, so the number of streams opened to TitusMaster does not depend on the number of
+ * gateway clients. Each subscriber gets a snapshot of the cached data, followed by the changes matching its query.
+ * Events are buffered per subscriber, and a subscriber that falls too far behind is terminated, so it cannot
+ * slow down the others.
+ */
+@Singleton
+class ObserveJobsMultiplexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObserveJobsMultiplexer.class);
+
+    private static final String ROOT = MetricConstants.METRIC_JOB_MANAGEMENT + "observeJobsMultiplexer.";
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+
+    private static final JobChangeNotification SNAPSHOT_END_MARKER = JobChangeNotification.newBuilder()
+            .setSnapshotEnd(JobChangeNotification.SnapshotEnd.newBuilder())
+            .build();
+
+    private final GatewayConfiguration configuration;
+    private final JobDataReplicator jobDataReplicator;
+    private final GrpcJobManagementModelCache grpcModelCache;
+    private final TitusRuntime titusRuntime;
+    private final Registry registry;
+
+    private final ExecutorService notificationExecutor;
+    private final Scheduler notificationScheduler;
+
+    private final Object lock = new Object();
+    private final Set<LocalSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private Disposable upstreamSubscription;
+    private JobSnapshot lastSnapshot;
+
+    private final Id subscribersGaugeId;
+    private final Id maxLagGaugeId;
+    private final Counter upstreamEventsCounter;
+    private final Counter droppedSubscribersCounter;
+    private final Counter disconnectedSubscribersCounter;
+
+    @Inject
+    ObserveJobsMultiplexer(GatewayConfiguration configuration,
+                           JobDataReplicator jobDataReplicator,
+                           GrpcJobManagementModelCache grpcModelCache,
+                           TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.jobDataReplicator = jobDataReplicator;
+        this.grpcModelCache = grpcModelCache;
+        this.titusRuntime = titusRuntime;
+        this.registry = titusRuntime.getRegistry();
+
+        this.notificationExecutor = ExecutorsExt.instrumentedFixedSizeThreadPool(
+                registry, "observeJobsMultiplexer", Math.max(1, Runtime.getRuntime().availableProcessors())
+        );
+        this.notificationScheduler = Schedulers.from(notificationExecutor);
+
+        this.subscribersGaugeId = registry.createId(ROOT + "subscribers");
+        this.maxLagGaugeId = registry.createId(ROOT + "maxLag");
+        this.upstreamEventsCounter = registry.counter(ROOT + "upstreamEvents");
+        this.droppedSubscribersCounter = registry.counter(ROOT + "droppedSubscribers");
+        this.disconnectedSubscribersCounter = registry.counter(ROOT + "disconnectedSubscribers");
+        PolledMeter.using(registry).withId(subscribersGaugeId).monitorValue(subscribers, Set::size);
+        PolledMeter.using(registry).withId(maxLagGaugeId).monitorValue(this, ObserveJobsMultiplexer::getMaxLag);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (lock) {
+            if (upstreamSubscription != null) {
+                upstreamSubscription.dispose();
+            }
+            subscribers.forEach(subscriber -> subscriber.fail(Status.UNAVAILABLE.withDescription("Gateway shutdown").asRuntimeException()));
+            subscribers.clear();
+        }
+        PolledMeter.remove(registry, subscribersGaugeId);
+        PolledMeter.remove(registry, maxLagGaugeId);
+
+        // Let the subscribers drain, so they receive the terminal error.
+        notificationExecutor.shutdown();
+        try {
+            notificationExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ignore) {
+        }
+        if (!notificationExecutor.isTerminated()) {
+            logger.warn("Not all observeJobs subscribers drained within {}ms", SHUTDOWN_TIMEOUT_MS);
+            notificationExecutor.shutdownNow();
+        }
+    }
+
+    Observable<JobChangeNotification> observeJobs(ObserveJobsQuery query) {
+        JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria = toJobQueryCriteria(query);
+        V3JobQueryCriteriaEvaluator jobsPredicate = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
+        V3TaskQueryCriteriaEvaluator tasksPredicate = new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime);
+
+        return Observable.create(emitter -> {
+            LocalSubscriber subscriber = new LocalSubscriber(emitter, jobsPredicate, tasksPredicate);
+            emitter.setCancellation(subscriber::cancel);
+            synchronized (lock) {
+                ensureUpstreamSubscription();
+                subscriber.start(lastSnapshot);
+                subscribers.add(subscriber);
+            }
+        }, Emitter.BackpressureMode.NONE);
+    }
+
+    @VisibleForTesting
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @VisibleForTesting
+    int getMaxLag() {
+        int maxLag = 0;
+        for (LocalSubscriber subscriber : subscribers) {
+            maxLag = Math.max(maxLag, subscriber.getLag());
+        }
+        return maxLag;
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void ensureUpstreamSubscription() {
+        if (upstreamSubscription != null && !upstreamSubscription.isDisposed()) {
+            return;
+        }
+        // Subscribe first, so no event is missed between reading the current snapshot and the subscription.
+        // An event already included in the snapshot may be delivered once more, which is safe for the clients.
+        this.upstreamSubscription = jobDataReplicator.events().subscribe(
+                this::onUpstreamEvent,
+                e -> {
+                    logger.warn("Job replicator event stream terminated with an error", e);
+                    terminateAll(Status.UNAVAILABLE.withDescription("Job event stream terminated").withCause(e).asRuntimeException());
+                },
+                () -> {
+                    logger.info("Job replicator event stream completed");
+                    terminateAll(Status.UNAVAILABLE.withDescription("Job event stream completed").asRuntimeException());
+                }
+        );
+        this.lastSnapshot = jobDataReplicator.getCurrent();
+    }
+
+    private void onUpstreamEvent(Pair<JobSnapshot, JobManagerEvent<?>> next) {
+        JobSnapshot snapshot = next.getLeft();
+        JobManagerEvent<?> event = next.getRight();
+
+        synchronized (lock) {
+            // The replicator periodically re-emits its last event with an unchanged snapshot, as a keep alive signal.
+            if (snapshot == lastSnapshot) {
+                return;
+            }
+            boolean reconnected = lastSnapshot != null && !snapshot.getSnapshotId().equals(lastSnapshot.getSnapshotId());
+            this.lastSnapshot = snapshot;
+
+            // After the replicator reconnects to TitusMaster, changes between the two snapshots are not known, so
+            // the clients must re-subscribe to get a fresh snapshot.
+            if (reconnected) {
+                logger.info("Job replicator reconnected (new snapshot id={}); terminating {} observeJobs subscriptions",
+                        snapshot.getSnapshotId(), subscribers.size());
+                terminateAll(Status.UNAVAILABLE.withDescription("Job event stream reconnected").asRuntimeException());
+                return;
+            }
+            if (!(event instanceof JobUpdateEvent || event instanceof TaskUpdateEvent)) {
+                return;
+            }
+            upstreamEventsCounter.increment();
+            subscribers.forEach(subscriber -> subscriber.onEvent(snapshot, event));
+        }
+    }
+
+    private void terminateAll(Throwable error) {
+        synchronized (lock) {
+            subscribers.forEach(subscriber -> subscriber.fail(error));
+            subscribers.clear();
+        }
+    }
+
+    private class LocalSubscriber {
+
+        private final Emitter<JobChangeNotification> emitter;
+        private final V3JobQueryCriteriaEvaluator jobsPredicate;
+        private final V3TaskQueryCriteriaEvaluator tasksPredicate;
+        private final Scheduler.Worker worker;
+
+        private final Queue<JobManagerEvent<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queueSize = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile JobSnapshot initialSnapshot;
+        private volatile Throwable error;
+        private volatile boolean terminated;
+
+        private LocalSubscriber(Emitter<JobChangeNotification> emitter,
+                                V3JobQueryCriteriaEvaluator jobsPredicate,
+                                V3TaskQueryCriteriaEvaluator tasksPredicate) {
+            this.emitter = emitter;
+            this.jobsPredicate = jobsPredicate;
+            this.tasksPredicate = tasksPredicate;
+            this.worker = notificationScheduler.createWorker();
+        }
+
+        private int getLag() {
+            return queueSize.get();
+        }
+
+        private void start(JobSnapshot snapshot) {
+            this.initialSnapshot = snapshot;
+            scheduleDrain();
+        }
+
+        private void onEvent(JobSnapshot snapshot, JobManagerEvent<?> event) {
+            if (terminated || !matches(snapshot, event)) {
+                return;
+            }
+            if (queueSize.incrementAndGet() > Math.max(1, configuration.getObserveJobsSubscriberBufferSize())) {
+                droppedSubscribersCounter.increment();
+                subscribers.remove(this);
+                fail(Status.RESOURCE_EXHAUSTED.withDescription("Subscriber too slow to consume job events").asRuntimeException());
+                return;
+            }
+            queue.add(event);
+            scheduleDrain();
+        }
+
+        private void fail(Throwable error) {
+            if (terminated) {
+                return;
+            }
+            this.error = error;
+            this.terminated = true;
+            scheduleDrain();
+        }
+
+        private void cancel() {
+            this.terminated = true;
+            subscribers.remove(this);
+            worker.unsubscribe();
+        }
+
+        private boolean matches(JobSnapshot snapshot, JobManagerEvent<?> event) {
+            if (event instanceof JobUpdateEvent) {
+                Job<?> job = ((JobUpdateEvent) event).getCurrent();
+                return jobsPredicate.test(Pair.of(job, snapshot.getTasks(job.getId())));
+            }
+            TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
+            return tasksPredicate.test(Pair.of(taskUpdateEvent.getCurrentJob(), taskUpdateEvent.getCurrentTask()));
+        }
+
+        private void scheduleDrain() {
+            if (wip.getAndIncrement() == 0) {
+                worker.schedule(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    if (error != null) {
+                        queue.clear();
+                        queueSize.set(0);
+                        disconnectedSubscribersCounter.increment();
+                        emitter.onError(error);
+                        worker.unsubscribe();
+                        return;
+                    }
+                    JobSnapshot snapshot = initialSnapshot;
+                    if (snapshot != null) {
+                        this.initialSnapshot = null;
+                        emitSnapshot(snapshot);
+                    }
+                    JobManagerEvent<?> event;
+                    while (!terminated && (event = queue.poll()) != null) {
+                        queueSize.decrementAndGet();
+                        emitter.onNext(grpcModelCache.toGrpcJobChangeNotification(event));
+                    }
+                } catch (Exception e) {
+                    logger.warn("Unexpected error in the observeJobs subscription", e);
+                    subscribers.remove(this);
+                    this.terminated = true;
+                    emitter.onError(Status.INTERNAL.withDescription("All jobs monitoring stream terminated with an error").withCause(e).asRuntimeException());
+                    worker.unsubscribe();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emitSnapshot(JobSnapshot snapshot) {
+            List<Pair<Job<?>, List<Task>>> jobsAndTasks = snapshot.getJobsAndTasks();
+            for (Pair<Job<?>, List<Task>> jobAndTasks : jobsAndTasks) {
+                if (jobsPredicate.test(jobAndTasks)) {
+                    emitter.onNext(JobChangeNotification.newBuilder()
+                            .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder()
+                                    .setJob(grpcModelCache.toGrpcJob(jobAndTasks.getLeft()))
+                            ).build()
+                    );
+                }
+            }
+            for (Pair<Job<?>, List<Task>> jobAndTasks : jobsAndTasks) {
+                Job<?> job = jobAndTasks.getLeft();
+                for (Task task : jobAndTasks.getRight()) {
+                    if (tasksPredicate.test(Pair.of(job, task))) {
+                        emitter.onNext(JobChangeNotification.newBuilder()
+                                .setTaskUpdate(JobChangeNotification.TaskUpdate.newBuilder()
+                                        .setTask(grpcModelCache.toGrpcTask(task))
+                                ).build()
+                        );
+                    }
+                }
+            }
+            emitter.onNext(SNAPSHOT_END_MARKER);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.grpc.protogen.TaskQueryResult;
+import com.netflix.titus.runtime.connector.jobmanager.CachedReadOnlyJobOperations;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelCache;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalCacheQueryProcessorTest {
+
+    private static final long MAX_STALENESS_MS = 1_000;
+
+    private final GatewayConfiguration configuration = mock(GatewayConfiguration.class);
+    private final JobDataReplicator jobDataReplicator = mock(JobDataReplicator.class);
+
+    private final Job<?> job1 = JobGenerator.oneBatchJob().toBuilder().withId("job1").build();
+    private final Job<?> job2 = JobGenerator.oneBatchJob().toBuilder().withId("job2").build();
+    private final Task task1 = JobGenerator.oneBatchTask().toBuilder().withId("task1").withJobId("job1").build();
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    private final LocalCacheQueryProcessor processor = new LocalCacheQueryProcessor(
+            configuration,
+            jobDataReplicator,
+            new CachedReadOnlyJobOperations(jobDataReplicator),
+            new GrpcJobManagementModelCache(EmptyLogStorageInfo.empty(), titusRuntime),
+            titusRuntime
+    );
+
+    @Before
+    public void setUp() {
+        Map<String, Job<?>> jobsById = new HashMap<>();
+        jobsById.put(job1.getId(), job1);
+        jobsById.put(job2.getId(), job2);
+        Map<String, List<Task>> tasksByJobId = new HashMap<>();
+        tasksByJobId.put(job1.getId(), singletonList(task1));
+
+        when(jobDataReplicator.getCurrent()).thenReturn(JobSnapshot.newInstance("snapshot1", jobsById, tasksByJobId));
+        when(configuration.isLocalCacheQueryEnabled()).thenReturn(true);
+        when(configuration.getLocalCacheQueryMaxStalenessMs()).thenReturn(MAX_STALENESS_MS);
+    }
+
+    @Test
+    public void testCacheIsNotUsedWhenStale() {
+        when(jobDataReplicator.getStalenessMs()).thenReturn(0L);
+        assertThat(processor.canUseCache("findJob")).isTrue();
+
+        when(jobDataReplicator.getStalenessMs()).thenReturn(MAX_STALENESS_MS + 1);
+        assertThat(processor.canUseCache("findJob")).isFalse();
+    }
+
+    @Test
+    public void testFinishedEntityQueriesAreNotServedFromCache() {
+        assertThat(processor.canUseCache(JobQuery.newBuilder().putFilteringCriteria("jobState", "Finished").build())).isFalse();
+        assertThat(processor.canUseCache(TaskQuery.getDefaultInstance())).isFalse();
+        assertThat(processor.canUseCache(TaskQuery.newBuilder().putFilteringCriteria("taskStates", "Started,Finished").build())).isFalse();
+        assertThat(processor.canUseCache(TaskQuery.newBuilder().putFilteringCriteria("taskStates", "Accepted,Started").build())).isTrue();
+    }
+
+    @Test
+    public void testFindJobsWithPagination() {
+        JobQueryResult firstPage = processor.findJobs(JobQuery.newBuilder().setPage(Page.newBuilder().setPageSize(1)).build());
+        assertThat(firstPage.getItemsCount()).isEqualTo(1);
+        assertThat(firstPage.getPagination().getHasMore()).isTrue();
+        assertThat(firstPage.getPagination().getTotalItems()).isEqualTo(2);
+
+        JobQueryResult secondPage = processor.findJobs(JobQuery.newBuilder()
+                .setPage(Page.newBuilder().setPageSize(1).setCursor(firstPage.getPagination().getCursor()))
+                .build()
+        );
+        assertThat(secondPage.getItemsCount()).isEqualTo(1);
+        assertThat(secondPage.getPagination().getHasMore()).isFalse();
+        assertThat(Arrays.asList(firstPage.getItems(0).getId(), secondPage.getItems(0).getId())).containsExactlyInAnyOrder("job1", "job2");
+    }
+
+    @Test
+    public void testFindTasks() {
+        TaskQueryResult result = processor.findTasks(TaskQuery.newBuilder()
+                .putFilteringCriteria("jobIds", "job1")
+                .setPage(Page.newBuilder().setPageSize(10))
+                .build()
+        );
+        assertThat(result.getItemsCount()).isEqualTo(1);
+        assertThat(result.getItems(0).getId()).isEqualTo("task1");
+        assertThat(processor.findTask("task1")).isPresent();
+        assertThat(processor.findTask("missing")).isEmpty();
+    }
+}
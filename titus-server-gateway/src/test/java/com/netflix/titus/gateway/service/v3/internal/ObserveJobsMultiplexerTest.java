@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.ObserveJobsQuery;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelCache;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import com.netflix.titus.testkit.rx.ExtTestSubscriber;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.DirectProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ObserveJobsMultiplexerTest {
+
+    private static final long TIMEOUT_MS = 5_000;
+
+    private static final CallMetadata CALL_METADATA = CallMetadata.newBuilder().withCallerId("test").build();
+
+    private final GatewayConfiguration configuration = mock(GatewayConfiguration.class);
+    private final JobDataReplicator jobDataReplicator = mock(JobDataReplicator.class);
+
+    private final DirectProcessor<Pair<JobSnapshot, JobManagerEvent<?>>> upstream = DirectProcessor.create();
+
+    private final Job<?> job = JobGenerator.oneBatchJob();
+    private final Task task1 = JobGenerator.oneBatchTask().toBuilder().withId("task1").withJobId(job.getId()).build();
+    private final Task task2 = JobGenerator.oneBatchTask().toBuilder().withId("task2").withJobId(job.getId()).build();
+
+    private final JobSnapshot snapshot = JobSnapshot.newInstance(
+            "snapshot1",
+            Collections.singletonMap(job.getId(), job),
+            Collections.singletonMap(job.getId(), Collections.singletonList(task1))
+    );
+
+    private ObserveJobsMultiplexer multiplexer;
+
+    @Before
+    public void setUp() {
+        when(configuration.getObserveJobsSubscriberBufferSize()).thenReturn(100);
+        when(jobDataReplicator.getCurrent()).thenReturn(snapshot);
+        when(jobDataReplicator.events()).thenReturn(upstream);
+        TitusRuntime titusRuntime = TitusRuntimes.internal();
+        multiplexer = new ObserveJobsMultiplexer(configuration, jobDataReplicator, new GrpcJobManagementModelCache(EmptyLogStorageInfo.empty(), titusRuntime), titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        multiplexer.shutdown();
+    }
+
+    @Test
+    public void testSnapshotFollowedByUpdates() throws Exception {
+        ExtTestSubscriber<JobChangeNotification> subscriber = new ExtTestSubscriber<>();
+        multiplexer.observeJobs(ObserveJobsQuery.getDefaultInstance()).subscribe(subscriber);
+        expectSnapshot(subscriber);
+
+        JobSnapshot nextSnapshot = snapshot.updateTask(task2, false).get();
+        upstream.onNext(Pair.of(nextSnapshot, TaskUpdateEvent.newTask(job, task2, CALL_METADATA)));
+        JobChangeNotification taskUpdate = subscriber.takeNext(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(taskUpdate.getTaskUpdate().getTask().getId()).isEqualTo("task2");
+
+        // Keep alive re-emits of the same snapshot are not forwarded.
+        upstream.onNext(Pair.of(nextSnapshot, TaskUpdateEvent.newTask(job, task2, CALL_METADATA)));
+        assertThat(subscriber.takeNext(100, TimeUnit.MILLISECONDS)).isNull();
+
+        subscriber.unsubscribe();
+        assertThat(multiplexer.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void testSubscribersShareUpstreamStream() throws Exception {
+        ExtTestSubscriber<JobChangeNotification> subscriber1 = new ExtTestSubscriber<>();
+        ExtTestSubscriber<JobChangeNotification> subscriber2 = new ExtTestSubscriber<>();
+        multiplexer.observeJobs(ObserveJobsQuery.getDefaultInstance()).subscribe(subscriber1);
+        multiplexer.observeJobs(ObserveJobsQuery.getDefaultInstance()).subscribe(subscriber2);
+        expectSnapshot(subscriber1);
+        expectSnapshot(subscriber2);
+
+        assertThat(multiplexer.getSubscriberCount()).isEqualTo(2);
+        assertThat(upstream.downstreamCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSubscribersAreTerminatedWhenReplicatorReconnects() throws Exception {
+        ExtTestSubscriber<JobChangeNotification> subscriber = new ExtTestSubscriber<>();
+        multiplexer.observeJobs(ObserveJobsQuery.getDefaultInstance()).subscribe(subscriber);
+        expectSnapshot(subscriber);
+
+        JobSnapshot newSnapshot = JobSnapshot.newInstance("snapshot2", Collections.emptyMap(), Collections.emptyMap());
+        upstream.onNext(Pair.of(newSnapshot, JobManagerEvent.snapshotMarker()));
+
+        subscriber.assertOnError(StatusRuntimeException.class, (int) TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(((StatusRuntimeException) subscriber.getError()).getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+        assertThat(multiplexer.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void testSlowSubscriberIsTerminated() throws Exception {
+        when(configuration.getObserveJobsSubscriberBufferSize()).thenReturn(2);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch unblocked = new CountDownLatch(1);
+        ExtTestSubscriber<JobChangeNotification> subscriber = new ExtTestSubscriber<>();
+        multiplexer.observeJobs(ObserveJobsQuery.getDefaultInstance())
+                .doOnNext(next -> {
+                    if (next.hasSnapshotEnd()) {
+                        blocked.countDown();
+                        Uninterruptibles.awaitUninterruptibly(unblocked);
+                    }
+                })
+                .subscribe(subscriber);
+        assertThat(blocked.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+
+        // The subscriber is blocked, so the events accumulate in its buffer until it overflows.
+        JobSnapshot nextSnapshot = snapshot;
+        for (int i = 0; i < 3; i++) {
+            nextSnapshot = nextSnapshot.updateTask(task2, false).get();
+            upstream.onNext(Pair.of(nextSnapshot, TaskUpdateEvent.newTask(job, task2, CALL_METADATA)));
+        }
+        assertThat(multiplexer.getSubscriberCount()).isZero();
+
+        unblocked.countDown();
+        subscriber.assertOnError(StatusRuntimeException.class, (int) TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(((StatusRuntimeException) subscriber.getError()).getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+    }
+
+    @Test
+    public void testSubscribersAreTerminatedOnShutdown() throws Exception {
+        ExtTestSubscriber<JobChangeNotification> subscriber = new ExtTestSubscriber<>();
+        multiplexer.observeJobs(ObserveJobsQuery.getDefaultInstance()).subscribe(subscriber);
+        expectSnapshot(subscriber);
+
+        // The terminal error is delivered before shutdown returns.
+        multiplexer.shutdown();
+        assertThat(subscriber.getError()).isInstanceOf(StatusRuntimeException.class);
+        assertThat(((StatusRuntimeException) subscriber.getError()).getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+    }
+
+    private void expectSnapshot(ExtTestSubscriber<JobChangeNotification> subscriber) throws InterruptedException {
+        JobChangeNotification jobUpdate = subscriber.takeNext(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(jobUpdate.getJobUpdate().getJob().getId()).isEqualTo(job.getId());
+        JobChangeNotification taskUpdate = subscriber.takeNext(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(taskUpdate.getTaskUpdate().getTask().getId()).isEqualTo("task1");
+        JobChangeNotification snapshotEnd = subscriber.takeNext(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(snapshotEnd.hasSnapshotEnd()).isTrue();
+    }
+}
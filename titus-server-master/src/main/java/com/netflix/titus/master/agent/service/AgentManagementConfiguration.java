@@ -28,6 +28,28 @@ public interface AgentManagementConfiguration {
     @DefaultValue("120000")
     long getFullCacheRefreshIntervalMs();
 
+    /**
+     * If set to true, the known instance groups are fetched from the cloud provider in batches of
+     * {@link #getCacheRefreshBatchSize()}, and instances are fetched only for the instance groups that changed, or
+     * which adaptive refresh interval passed.
+     */
+    @DefaultValue("false")
+    boolean isBatchedCacheRefreshEnabled();
+
+    /**
+     * Maximum number of instance groups fetched in a single request. Values above 50 (the default AWS page size for
+     * auto scaling groups) are capped at 50.
+     */
+    @DefaultValue("50")
+    int getCacheRefreshBatchSize();
+
+    /**
+     * Upper bound of the instance refresh interval of an instance group with no changes. The interval starts at
+     * {@link #getCacheRefreshIntervalMs()}, is doubled after each refresh with no changes, and is reset after a change.
+     */
+    @DefaultValue("600000")
+    long getCacheRefreshMaxIntervalMs();
+
     @DefaultValue("60000")
     long getSynchronizeWithInstanceCacheIntervalMs();
 
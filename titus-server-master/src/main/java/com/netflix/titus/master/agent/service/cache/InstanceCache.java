@@ -18,6 +18,7 @@ package com.netflix.titus.master.agent.service.cache;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -29,8 +30,10 @@ import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.netflix.spectator.api.BasicTag;
+import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
 import com.netflix.titus.api.agent.service.AgentManagementException;
@@ -68,6 +71,14 @@ import static java.util.Collections.singletonList;
  * <li>Each known instance group (including instances) is refreshed every {@link AgentManagementConfiguration#getCacheRefreshIntervalMs()}</li>
  * <li>List of known instance groups is refreshed every {@link AgentManagementConfiguration#getFullCacheRefreshIntervalMs()} ()}</li>
  * </ul>
+ * <h1>Batched data refresh strategy</h1>
+ * If {@link AgentManagementConfiguration#isBatchedCacheRefreshEnabled()} is set, the known instance groups are fetched
+ * every {@link AgentManagementConfiguration#getCacheRefreshIntervalMs()} in batches, instead of one request per
+ * instance group. The last connector response for each instance group and its instances is kept. Instances of an
+ * instance group are fetched only if the instance group data changed, or its instance refresh interval passed. The
+ * interval doubles with each refresh that returns the same data (up to
+ * {@link AgentManagementConfiguration#getCacheRefreshMaxIntervalMs()}), and is reset after a change. The cache is
+ * not updated, and no events are emitted, if the responses did not change.
  */
 class InstanceCache {
 
@@ -78,11 +89,22 @@ class InstanceCache {
     private static final long BOOT_RETRY_DELAYS_MS = 1_000;
     private static final long MAX_REFRESH_TIMEOUT = 600_000;
 
+    /**
+     * Instance groups missing in a batch response are removed, so a batch must fit into a single cloud provider page,
+     * even if the connector does not follow the pagination.
+     */
+    private static final int MAX_REFRESH_BATCH_SIZE = 50;
+
     private final AgentManagementConfiguration configuration;
     private final InstanceCloudConnector connector;
     private final Registry registry;
     private final InstrumentedEventLoop eventLoop;
 
+    private final Map<String, InstanceGroupRefreshState> refreshStates = new ConcurrentHashMap<>();
+    private final Counter instancesFetchedCounter;
+    private final Counter instancesFetchSkippedCounter;
+    private final Counter unchangedResponseCounter;
+
     private volatile InstanceCacheDataSnapshot cacheSnapshot;
 
     private final Subscription findNewInstanceGroupSubscription;
@@ -108,6 +130,9 @@ class InstanceCache {
 
         List<Tag> tags = Collections.singletonList(new BasicTag("class", InstanceCache.class.getSimpleName()));
         fullInstanceGroupRefreshMetricsTransformer = continuousSubscriptionMetrics(METRIC_AGENT_CACHE + "fullInstanceGroupRefresh", tags, registry);
+        this.instancesFetchedCounter = registry.counter(METRIC_AGENT_CACHE + "batchedRefresh.instancesFetched");
+        this.instancesFetchSkippedCounter = registry.counter(METRIC_AGENT_CACHE + "batchedRefresh.instancesFetchSkipped");
+        this.unchangedResponseCounter = registry.counter(METRIC_AGENT_CACHE + "batchedRefresh.unchangedResponses");
 
         // Synchronously refresh information about the known instance groups
         List<Completable> initialRefresh = knownInstanceGroups.stream().map(this::doInstanceGroupRefresh).collect(Collectors.toList());
@@ -132,7 +157,8 @@ class InstanceCache {
         );
 
         this.instanceGroupRefreshSubscription = ObservableExt.schedule(
-                METRIC_AGENT_CACHE, registry, "doInstanceGroupRefresh", doInstanceGroupRefresh(),
+                METRIC_AGENT_CACHE, registry, "doInstanceGroupRefresh",
+                Completable.defer(() -> configuration.isBatchedCacheRefreshEnabled() ? doBatchedInstanceGroupRefresh() : doInstanceGroupRefresh()),
                 0, configuration.getCacheRefreshIntervalMs(), TimeUnit.MILLISECONDS, scheduler
         ).subscribe(
                 next -> next.ifPresent(throwable -> logger.warn("Instance group refresh cycle failed with an error", throwable)),
@@ -160,6 +186,11 @@ class InstanceCache {
         return cacheSnapshot.getAgentInstance(id);
     }
 
+    @VisibleForTesting
+    boolean hasRefreshState(String instanceGroupId) {
+        return refreshStates.containsKey(instanceGroupId);
+    }
+
     /**
      * Trigger refresh request, but without returning {@link Completable} to the caller. Instead subscribe eagerly.
      * If refresh fails, it will eventually succeed on its regular update cycle.
@@ -307,6 +338,97 @@ class InstanceCache {
                 .toCompletable();
     }
 
+    private Completable doBatchedInstanceGroupRefresh() {
+        return Observable.defer(() -> {
+            List<String> instanceGroupIds = cacheSnapshot.getInstanceGroups().stream().map(InstanceGroup::getId).collect(Collectors.toList());
+            if (instanceGroupIds.isEmpty()) {
+                return Observable.empty();
+            }
+            return Observable.from(CollectionsExt.chop(instanceGroupIds, getRefreshBatchSize()));
+        }).flatMap(batch ->
+                doInstanceGroupBatchRefresh(batch)
+                        .onErrorComplete() // We do logging in doInstanceGroupBatchRefresh, and we do not want to break parallel streams
+                        .toObservable()
+        ).toCompletable();
+    }
+
+    private int getRefreshBatchSize() {
+        return Math.max(1, Math.min(MAX_REFRESH_BATCH_SIZE, configuration.getCacheRefreshBatchSize()));
+    }
+
+    /**
+     * Refreshes a batch of instance groups with a single connector request. Instance groups not returned by the
+     * connector are removed. Instances are fetched only for the instance groups that changed, or which instance refresh
+     * interval passed. Never emits error, which is instead logged.
+     */
+    private Completable doInstanceGroupBatchRefresh(List<String> instanceGroupIds) {
+        Observable<Void> updateAction = connector.getInstanceGroups(instanceGroupIds)
+                .take(1)
+                .flatMap(result -> {
+                    Set<String> foundIds = result.stream().map(InstanceGroup::getId).collect(Collectors.toSet());
+                    instanceGroupIds.stream()
+                            .filter(id -> !foundIds.contains(id))
+                            .forEach(instanceGroupId -> onEventLoop("removeInstanceGroup", () -> removeInstanceGroup(instanceGroupId)));
+
+                    List<Observable<Void>> instanceRefreshes = new ArrayList<>();
+                    for (InstanceGroup instanceGroup : result) {
+                        InstanceGroupRefreshState state = refreshStates.get(instanceGroup.getId());
+                        boolean instanceGroupChanged = state == null || !state.isSameInstanceGroup(instanceGroup);
+                        if (instanceGroupChanged || state.nextCycle()) {
+                            instanceRefreshes.add(doInstanceRefresh(instanceGroup, instanceGroupChanged));
+                        } else {
+                            instancesFetchSkippedCounter.increment();
+                        }
+                    }
+                    return Observable.merge(instanceRefreshes);
+                });
+
+        return updateAction
+                .timeout(MAX_REFRESH_TIMEOUT, TimeUnit.MILLISECONDS)
+                .doOnError(error -> logger.warn("Instance group batch: {} refresh error", instanceGroupIds, error))
+                .toCompletable();
+    }
+
+    private Observable<Void> doInstanceRefresh(InstanceGroup instanceGroup, boolean instanceGroupChanged) {
+        String instanceGroupId = instanceGroup.getId();
+        instancesFetchedCounter.increment();
+
+        return connector.getInstancesByInstanceGroupId(instanceGroupId)
+                .take(1)
+                .doOnNext(updatedInstances -> {
+                    InstanceGroupRefreshState previous = refreshStates.get(instanceGroupId);
+                    Set<Instance> instances = new HashSet<>(updatedInstances);
+                    boolean instancesChanged = previous == null || !previous.isSameInstances(instances);
+                    int refreshIntervalCycles = instanceGroupChanged || instancesChanged
+                            ? 1
+                            : (int) Math.min(2L * previous.getRefreshIntervalCycles(), getMaxRefreshIntervalCycles());
+                    InstanceGroupRefreshState refreshState = new InstanceGroupRefreshState(instanceGroup, instances, refreshIntervalCycles);
+
+                    if (!instanceGroupChanged && !instancesChanged) {
+                        refreshStates.put(instanceGroupId, refreshState);
+                        unchangedResponseCounter.increment();
+                        return;
+                    }
+                    // The response is recorded only after the cache is updated, so it is fetched again if the update fails.
+                    onEventLoop("updateInstances", () -> {
+                        List<String> instanceIds = updatedInstances.stream().map(Instance::getId).sorted().collect(Collectors.toList());
+                        InstanceGroup updatedInstanceGroup = instanceGroup.toBuilder().withInstanceIds(instanceIds).build();
+                        updateCache(updatedInstanceGroup, updatedInstances);
+                        refreshStates.put(instanceGroupId, refreshState);
+                    });
+                })
+                .ignoreElements()
+                .cast(Void.class)
+                .compose(getInstanceGroupRefreshMetricsTransform(instanceGroupId))
+                .doOnError(error -> logger.warn("Instance group: {} instances refresh error", instanceGroupId, error))
+                .onErrorResumeNext(Observable.empty());
+    }
+
+    private long getMaxRefreshIntervalCycles() {
+        long refreshIntervalMs = Math.max(1, configuration.getCacheRefreshIntervalMs());
+        return Math.max(1, configuration.getCacheRefreshMaxIntervalMs() / refreshIntervalMs);
+    }
+
     private void updateCache(InstanceGroup updatedInstanceGroup, List<Instance> updatedInstances) {
         String instanceGroupId = updatedInstanceGroup.getId();
         InstanceGroup oldInstanceGroup = cacheSnapshot.getInstanceGroup(instanceGroupId);
@@ -361,6 +483,7 @@ class InstanceCache {
 
     private void removeInstanceGroup(String instanceGroupId) {
         this.cacheSnapshot = cacheSnapshot.removeInstanceGroup(instanceGroupId);
+        refreshStates.remove(instanceGroupId);
         eventSubject.onNext(new InstanceCacheEvent(InstanceCacheEventType.InstanceGroupRemoved, instanceGroupId));
         ContinuousSubscriptionMetrics transformer = instanceGroupRefreshMetricsTransformers.remove(instanceGroupId);
         if (transformer != null) {
@@ -380,6 +503,46 @@ class InstanceCache {
         });
     }
 
+    /**
+     * The last connector response for an instance group and its instances, and the number of batched refresh cycles
+     * until the instances are fetched again.
+     */
+    private static class InstanceGroupRefreshState {
+
+        private final InstanceGroup instanceGroup;
+        private final Set<Instance> instances;
+        private final int refreshIntervalCycles;
+
+        private int remainingCycles;
+
+        private InstanceGroupRefreshState(InstanceGroup instanceGroup, Set<Instance> instances, int refreshIntervalCycles) {
+            this.instanceGroup = instanceGroup;
+            this.instances = instances;
+            this.refreshIntervalCycles = refreshIntervalCycles;
+            this.remainingCycles = refreshIntervalCycles;
+        }
+
+        private boolean isSameInstanceGroup(InstanceGroup other) {
+            return instanceGroup.hashCode() == other.hashCode() && instanceGroup.equals(other);
+        }
+
+        private boolean isSameInstances(Set<Instance> other) {
+            return instances.hashCode() == other.hashCode() && instances.equals(other);
+        }
+
+        private int getRefreshIntervalCycles() {
+            return refreshIntervalCycles;
+        }
+
+        /**
+         * Called once per batched refresh cycle. Returns true, if the instances should be fetched in this cycle.
+         */
+        private boolean nextCycle() {
+            remainingCycles--;
+            return remainingCycles <= 0;
+        }
+    }
+
     static InstanceCache newInstance(AgentManagementConfiguration configuration,
                                      InstanceCloudConnector connector,
                                      Set<String> knownInstanceGroups,
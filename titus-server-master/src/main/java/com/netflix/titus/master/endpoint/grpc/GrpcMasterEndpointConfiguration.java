@@ -48,4 +48,11 @@ public interface GrpcMasterEndpointConfiguration {
      */
     @DefaultValue("256")
     int getServerStreamsThreadPoolSize();
+
+    /**
+     * If enabled, findJobs/findTasks queries are evaluated using the job query index, instead of a full scan and sort
+     * of all jobs and tasks.
+     */
+    @DefaultValue("true")
+    boolean isJobQueryIndexEnabled();
 }
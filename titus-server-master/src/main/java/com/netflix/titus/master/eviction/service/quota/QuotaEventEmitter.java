@@ -19,10 +19,11 @@ package com.netflix.titus.master.eviction.service.quota;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -30,6 +31,9 @@ import javax.inject.Singleton;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Sets;
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
 import com.netflix.titus.api.eviction.model.EvictionQuota;
 import com.netflix.titus.api.eviction.model.event.EvictionEvent;
 import com.netflix.titus.api.eviction.model.event.EvictionQuotaEvent;
@@ -40,17 +44,22 @@ import com.netflix.titus.common.framework.scheduler.ScheduleReference;
 import com.netflix.titus.common.framework.scheduler.model.ScheduleDescriptor;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.retry.Retryers;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.eviction.service.EvictionServiceConfiguration;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 
 /**
  * {@link QuotaEventEmitter} emits quota updates at a regular interval. It is accomplished by polling periodically
- * all quota providers and computing the difference between the last and current state.
+ * all quota providers and computing the difference between the last and current state. The quota snapshot and
+ * its difference from the previous one are computed once per interval, and shared by all subscribers.
  */
 @Singleton
 public class QuotaEventEmitter {
 
+    private static final String ROOT_NAME = MetricConstants.METRIC_SCHEDULING_EVICTION + "quotaEventEmitter.";
+
     private static final ScheduleDescriptor SCHEDULE_DESCRIPTOR = ScheduleDescriptor.newBuilder()
             .withName(QuotaEventEmitter.class.getSimpleName())
             .withDescription("Quota update events")
@@ -61,11 +70,20 @@ public class QuotaEventEmitter {
 
     private final V3JobOperations jobOperations;
     private final TitusQuotasManager quotasManager;
+    private final Clock clock;
     private final ScheduleReference scheduleReference;
 
+    private final Timer refreshTimer;
+    private final DistributionSummary changedReferencesSummary;
+
     @VisibleForTesting
     final Set<SinkHolder> eventSubscriberSinks = Sets.newConcurrentHashSet();
 
+    /**
+     * Quotas emitted to the subscribers in the last refresh cycle. Accessed by the scheduler thread only.
+     */
+    private Map<Reference, EvictionQuota> emittedQuotas = Collections.emptyMap();
+
     @Inject
     public QuotaEventEmitter(EvictionServiceConfiguration configuration,
                              V3JobOperations jobOperations,
@@ -73,6 +91,12 @@ public class QuotaEventEmitter {
                              TitusRuntime titusRuntime) {
         this.jobOperations = jobOperations;
         this.quotasManager = quotasManager;
+        this.clock = titusRuntime.getClock();
+
+        Registry registry = titusRuntime.getRegistry();
+        this.refreshTimer = registry.timer(ROOT_NAME + "refreshTime");
+        this.changedReferencesSummary = registry.distributionSummary(ROOT_NAME + "changedReferences");
+
         this.scheduleReference = titusRuntime.getLocalScheduler().schedule(
                 SCHEDULE_DESCRIPTOR.toBuilder()
                         .withInterval(Duration.ofMillis(configuration.getEventStreamQuotaUpdateIntervalMs()))
@@ -90,26 +114,58 @@ public class QuotaEventEmitter {
     public Flux<EvictionEvent> events(boolean includeSnapshot) {
         return Flux.create(sink -> {
             Preconditions.checkState(scheduleReference != null && !scheduleReference.isClosed());
-            eventSubscriberSinks.add(new SinkHolder(sink, includeSnapshot));
-            sink.onDispose(() -> eventSubscriberSinks.remove(sink));
+            SinkHolder sinkHolder = new SinkHolder(sink, includeSnapshot);
+            eventSubscriberSinks.add(sinkHolder);
+            sink.onDispose(() -> eventSubscriberSinks.remove(sinkHolder));
         });
     }
 
     private void refresh(ExecutionContext context) {
-        eventSubscriberSinks.forEach(sinkHolder -> {
-            if (sinkHolder.getSink().isCancelled()) {
-                eventSubscriberSinks.remove(sinkHolder);
-            } else {
-                sinkHolder.refresh();
+        eventSubscriberSinks.removeIf(sinkHolder -> sinkHolder.getSink().isCancelled());
+        if (eventSubscriberSinks.isEmpty()) {
+            // Nobody to notify. The next subscriber gets the full snapshot anyway.
+            this.emittedQuotas = Collections.emptyMap();
+            return;
+        }
+
+        long startTime = clock.wallTime();
+
+        Map<Reference, EvictionQuota> currentQuotas = buildSnapshot();
+        List<EvictionQuotaEvent> snapshot = new ArrayList<>(currentQuotas.size());
+        List<EvictionQuotaEvent> changes = new ArrayList<>();
+        currentQuotas.forEach((reference, quota) -> {
+            EvictionQuotaEvent event = EvictionEvent.newQuotaEvent(quota);
+            snapshot.add(event);
+            EvictionQuota previous = emittedQuotas.get(reference);
+            if (previous == null || quota.getQuota() != previous.getQuota()) {
+                changes.add(event);
             }
         });
+        this.emittedQuotas = currentQuotas;
+
+        eventSubscriberSinks.forEach(sinkHolder -> sinkHolder.refresh(snapshot, changes));
+
+        refreshTimer.record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
+        changedReferencesSummary.record(changes.size());
+    }
+
+    private Map<Reference, EvictionQuota> buildSnapshot() {
+        Map<Reference, EvictionQuota> snapshot = new LinkedHashMap<>();
+
+        snapshot.put(Reference.system(), quotasManager.findEvictionQuota(Reference.system()).get());
+        jobOperations.getJobs().forEach(job -> {
+            Reference reference = Reference.job(job.getId());
+            quotasManager.findEvictionQuota(reference).ifPresent(quota -> snapshot.put(reference, quota));
+        });
+
+        return snapshot;
     }
 
     private class SinkHolder {
 
         private final FluxSink<EvictionEvent> sink;
-        private Map<Reference, EvictionQuota> emittedQuotas = Collections.emptyMap();
-        private boolean includeSnapshot;
+        private final boolean includeSnapshot;
+        private boolean initialized;
 
         private SinkHolder(FluxSink<EvictionEvent> sink, boolean includeSnapshot) {
             this.sink = sink;
@@ -120,65 +176,25 @@ public class QuotaEventEmitter {
             return sink;
         }
 
-        public void refresh() {
+        /**
+         * A new subscriber gets the full snapshot, and the existing ones only the quotas that changed since
+         * the previous refresh cycle.
+         */
+        private void refresh(List<EvictionQuotaEvent> snapshot, List<EvictionQuotaEvent> changes) {
             try {
-                if (includeSnapshot) {
-                    firstRefreshWithSnapshot();
-                } else if (emittedQuotas.isEmpty()) {
-                    refreshIfNoPreviousEmits();
+                if (!initialized) {
+                    snapshot.forEach(sink::next);
+                    if (includeSnapshot) {
+                        sink.next(EvictionEvent.newSnapshotEndEvent());
+                    }
+                    this.initialized = true;
                 } else {
-                    refreshWithPreviousEmits();
+                    changes.forEach(sink::next);
                 }
             } catch (Exception e) {
                 sink.error(e);
                 eventSubscriberSinks.remove(this);
             }
         }
-
-        private void firstRefreshWithSnapshot() {
-            HashMap<Reference, EvictionQuota> newlyEmittedQuotas = new HashMap<>();
-            buildSnapshot().forEach(event -> {
-                sink.next(event);
-                newlyEmittedQuotas.put(event.getQuota().getReference(), event.getQuota());
-            });
-            sink.next(EvictionEvent.newSnapshotEndEvent());
-            this.includeSnapshot = false;
-            this.emittedQuotas = newlyEmittedQuotas;
-        }
-
-        private void refreshIfNoPreviousEmits() {
-            HashMap<Reference, EvictionQuota> newlyEmittedQuotas = new HashMap<>();
-            buildSnapshot().forEach(event -> {
-                sink.next(event);
-                newlyEmittedQuotas.put(event.getQuota().getReference(), event.getQuota());
-            });
-            this.emittedQuotas = newlyEmittedQuotas;
-        }
-
-        private void refreshWithPreviousEmits() {
-            HashMap<Reference, EvictionQuota> newlyEmittedQuotas = new HashMap<>();
-            buildSnapshot().forEach(event -> {
-                EvictionQuota quota = event.getQuota();
-                EvictionQuota previous = emittedQuotas.get(quota.getReference());
-                if (previous == null || quota.getQuota() != previous.getQuota()) {
-                    sink.next(event);
-                }
-                newlyEmittedQuotas.put(quota.getReference(), quota);
-            });
-            this.emittedQuotas = newlyEmittedQuotas;
-        }
-
-        private List<EvictionQuotaEvent> buildSnapshot() {
-            List<EvictionQuotaEvent> snapshot = new ArrayList<>();
-
-            snapshot.add(EvictionEvent.newQuotaEvent(quotasManager.findEvictionQuota(Reference.system()).get()));
-            jobOperations.getJobs()
-                    .forEach(job -> quotasManager
-                            .findEvictionQuota(Reference.job(job.getId()))
-                            .ifPresent(quota -> snapshot.add(EvictionEvent.newQuotaEvent(quota)))
-                    );
-
-            return snapshot;
-        }
     }
 }
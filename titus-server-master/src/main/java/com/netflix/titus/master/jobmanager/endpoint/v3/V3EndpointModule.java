@@ -22,6 +22,7 @@ import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceImplBase;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.DefaultJobManagementServiceGrpc;
 import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.JobQueryIndex;
 
 public class V3EndpointModule extends AbstractModule {
 
@@ -32,5 +33,6 @@ public class V3EndpointModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(JobManagementServiceImplBase.class).to(DefaultJobManagementServiceGrpc.class);
+        bind(JobQueryIndex.class).asEagerSingleton();
     }
 }
@@ -37,7 +37,6 @@ import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.CapacityAttributes;
 import com.netflix.titus.api.jobmanager.model.job.ContainerResources;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
-import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo;
 import com.netflix.titus.api.jobmanager.model.job.ServiceJobProcesses;
 import com.netflix.titus.api.jobmanager.model.job.disruptionbudget.DisruptionBudget;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
@@ -57,7 +56,7 @@ import com.netflix.titus.common.model.sanitizer.ValidationError;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.ExecutorsExt;
-import com.netflix.titus.common.util.ProtobufExt;
+import com.netflix.titus.common.util.ProtobufProjection;
 import com.netflix.titus.common.util.archaius2.ObjectConfigurationResolver;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -100,7 +99,9 @@ import com.netflix.titus.runtime.endpoint.authorization.AuthorizationService;
 import com.netflix.titus.runtime.endpoint.authorization.AuthorizationStatus;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataUtils;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelCache;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.JobQueryIndex;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
@@ -139,7 +140,6 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
     private final AgentManagementService agentManagementService;
     private final ApplicationSlaManagementService capacityGroupService;
     private final V3JobOperations jobOperations;
-    private final LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo;
     private final EntitySanitizer entitySanitizer;
     private final ObjectConfigurationResolver<com.netflix.titus.api.jobmanager.model.job.JobDescriptor, CustomJobConfiguration> customJobConfigurationResolver;
     private final CallMetadataResolver callMetadataResolver;
@@ -147,6 +147,8 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
     private final AuthorizationService authorizationService;
     private final TitusRuntime titusRuntime;
     private final SchedulingService<? extends TaskRequest> schedulingService;
+    private final JobQueryIndex jobQueryIndex;
+    private final GrpcJobManagementModelCache grpcModelCache;
     private final Scheduler observeJobsScheduler;
 
     @Inject
@@ -154,19 +156,19 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
                                            AgentManagementService agentManagementService,
                                            ApplicationSlaManagementService capacityGroupService,
                                            V3JobOperations jobOperations,
-                                           LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
                                            @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
                                            ObjectConfigurationResolver<com.netflix.titus.api.jobmanager.model.job.JobDescriptor, CustomJobConfiguration> customJobConfigurationResolver,
                                            CallMetadataResolver callMetadataResolver,
                                            CellInfoResolver cellInfoResolver,
                                            AuthorizationService authorizationService,
                                            TitusRuntime titusRuntime,
-                                           SchedulingService<? extends TaskRequest> schedulingService) {
+                                           SchedulingService<? extends TaskRequest> schedulingService,
+                                           JobQueryIndex jobQueryIndex,
+                                           GrpcJobManagementModelCache grpcModelCache) {
         this.configuration = configuration;
         this.agentManagementService = agentManagementService;
         this.capacityGroupService = capacityGroupService;
         this.jobOperations = jobOperations;
-        this.logStorageInfo = logStorageInfo;
         this.entitySanitizer = entitySanitizer;
         this.customJobConfigurationResolver = customJobConfigurationResolver;
         this.callMetadataResolver = callMetadataResolver;
@@ -174,6 +176,8 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         this.authorizationService = authorizationService;
         this.titusRuntime = titusRuntime;
         this.schedulingService = schedulingService;
+        this.jobQueryIndex = jobQueryIndex;
+        this.grpcModelCache = grpcModelCache;
         this.observeJobsScheduler = Schedulers.from(ExecutorsExt.instrumentedFixedSizeThreadPool(
                 titusRuntime.getRegistry(), "observeJobs", configuration.getServerStreamsThreadPoolSize()));
     }
@@ -236,21 +240,26 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         }
 
         try {
-            // We need to find all jobs to get the total number of them.
-            List<com.netflix.titus.api.jobmanager.model.job.Job<?>> allFilteredJobs = jobOperations.findJobs(
-                    new V3JobQueryCriteriaEvaluator(toJobQueryCriteria(jobQuery), titusRuntime),
-                    0,
-                    Integer.MAX_VALUE / 2
-            );
+            Pair<List<com.netflix.titus.api.jobmanager.model.job.Job<?>>, Pagination> queryResult;
+            if (isJobQueryIndexActive()) {
+                queryResult = jobQueryIndex.findJobs(toJobQueryCriteria(jobQuery), toPage(jobQuery.getPage()));
+            } else {
+                // We need to find all jobs to get the total number of them.
+                List<com.netflix.titus.api.jobmanager.model.job.Job<?>> allFilteredJobs = jobOperations.findJobs(
+                        new V3JobQueryCriteriaEvaluator(toJobQueryCriteria(jobQuery), titusRuntime),
+                        0,
+                        Integer.MAX_VALUE / 2
+                );
 
-            Pair<List<com.netflix.titus.api.jobmanager.model.job.Job<?>>, Pagination> queryResult = PaginationUtil.takePageWithCursor(
-                    toPage(jobQuery.getPage()),
-                    allFilteredJobs,
-                    JobManagerCursors.coreJobCursorOrderComparator(),
-                    JobManagerCursors::coreJobIndexOf,
-                    JobManagerCursors::newCoreCursorFrom
-            );
-            List<Job> grpcJobs = queryResult.getLeft().stream().map(GrpcJobManagementModelConverters::toGrpcJob).collect(Collectors.toList());
+                queryResult = PaginationUtil.takePageWithCursor(
+                        toPage(jobQuery.getPage()),
+                        allFilteredJobs,
+                        JobManagerCursors.coreJobCursorOrderComparator(),
+                        JobManagerCursors::coreJobIndexOf,
+                        JobManagerCursors::newCoreCursorFrom
+                );
+            }
+            List<Job> grpcJobs = queryResult.getLeft().stream().map(grpcModelCache::toGrpcJob).collect(Collectors.toList());
 
             JobQueryResult grpcQueryResult;
             if (jobQuery.getFieldsList().isEmpty()) {
@@ -258,7 +267,8 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
             } else {
                 Set<String> fields = new HashSet<>(jobQuery.getFieldsList());
                 fields.addAll(JOB_MINIMUM_FIELD_SET);
-                grpcQueryResult = toJobQueryResult(grpcJobs.stream().map(j -> ProtobufExt.copy(j, fields)).collect(Collectors.toList()), queryResult.getRight());
+                ProtobufProjection<Job> projection = ProtobufProjection.compile(Job.getDescriptor(), fields);
+                grpcQueryResult = toJobQueryResult(grpcJobs.stream().map(projection::apply).collect(Collectors.toList()), queryResult.getRight());
             }
 
             responseObserver.onNext(grpcQueryResult);
@@ -274,7 +284,7 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
         try {
             jobOperations.getJob(id)
-                    .map(j -> Observable.just(GrpcJobManagementModelConverters.toGrpcJob(j)))
+                    .map(j -> Observable.just(grpcModelCache.toGrpcJob(j)))
                     .orElseGet(() -> Observable.error(JobManagerException.jobNotFound(id)))
                     .subscribe(
                             responseObserver::onNext,
@@ -293,23 +303,28 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         }
 
         try {
-            // We need to find all tasks to get the total number of them.
-            List<com.netflix.titus.api.jobmanager.model.job.Task> allFilteredTasks = jobOperations.findTasks(
-                    new V3TaskQueryCriteriaEvaluator(toJobQueryCriteria(taskQuery), titusRuntime),
-                    0,
-                    Integer.MAX_VALUE / 2
-            ).stream().map(Pair::getRight).collect(Collectors.toList());
-
-            Pair<List<com.netflix.titus.api.jobmanager.model.job.Task>, Pagination> queryResult = PaginationUtil.takePageWithCursor(
-                    toPage(taskQuery.getPage()),
-                    allFilteredTasks,
-                    JobManagerCursors.coreTaskCursorOrderComparator(),
-                    JobManagerCursors::coreTaskIndexOf,
-                    JobManagerCursors::newCoreCursorFrom
-            );
+            Pair<List<com.netflix.titus.api.jobmanager.model.job.Task>, Pagination> queryResult;
+            if (isJobQueryIndexActive()) {
+                queryResult = jobQueryIndex.findTasks(toJobQueryCriteria(taskQuery), toPage(taskQuery.getPage()));
+            } else {
+                // We need to find all tasks to get the total number of them.
+                List<com.netflix.titus.api.jobmanager.model.job.Task> allFilteredTasks = jobOperations.findTasks(
+                        new V3TaskQueryCriteriaEvaluator(toJobQueryCriteria(taskQuery), titusRuntime),
+                        0,
+                        Integer.MAX_VALUE / 2
+                ).stream().map(Pair::getRight).collect(Collectors.toList());
+
+                queryResult = PaginationUtil.takePageWithCursor(
+                        toPage(taskQuery.getPage()),
+                        allFilteredTasks,
+                        JobManagerCursors.coreTaskCursorOrderComparator(),
+                        JobManagerCursors::coreTaskIndexOf,
+                        JobManagerCursors::newCoreCursorFrom
+                );
+            }
 
             List<Task> grpcTasks = queryResult.getLeft().stream()
-                    .map(t -> GrpcJobManagementModelConverters.toGrpcTask(t, logStorageInfo))
+                    .map(grpcModelCache::toGrpcTask)
                     .map(this::addTaskContextToTask)
                     .collect(Collectors.toList());
 
@@ -319,7 +334,8 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
             } else {
                 Set<String> fields = new HashSet<>(taskQuery.getFieldsList());
                 fields.addAll(TASK_MINIMUM_FIELD_SET);
-                grpcQueryResult = toTaskQueryResult(grpcTasks.stream().map(t -> ProtobufExt.copy(t, fields)).collect(Collectors.toList()), queryResult.getRight());
+                ProtobufProjection<Task> projection = ProtobufProjection.compile(Task.getDescriptor(), fields);
+                grpcQueryResult = toTaskQueryResult(grpcTasks.stream().map(projection::apply).collect(Collectors.toList()), queryResult.getRight());
             }
 
             responseObserver.onNext(grpcQueryResult);
@@ -337,7 +353,7 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
             jobOperations.findTaskById(id)
                     .map(p -> {
                         com.netflix.titus.api.jobmanager.model.job.Task task = p.getRight();
-                        return Observable.just(GrpcJobManagementModelConverters.toGrpcTask(task, logStorageInfo));
+                        return Observable.just(grpcModelCache.toGrpcTask(task));
                     })
                     .orElseGet(() -> Observable.error(JobManagerException.taskNotFound(id)))
                     .map(this::addTaskContextToTask)
@@ -604,7 +620,7 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
                 // avoid clogging the computation scheduler
                 .observeOn(observeJobsScheduler)
                 .subscribeOn(observeJobsScheduler, false)
-                .map(event -> GrpcJobManagementModelConverters.toGrpcJobChangeNotification(event, logStorageInfo))
+                .map(grpcModelCache::toGrpcJobChangeNotification)
                 .compose(ObservableExt.head(() -> {
                     List<JobChangeNotification> snapshot = createJobsSnapshot(jobsPredicate, tasksPredicate);
                     snapshot.add(SNAPSHOT_END_MARKER);
@@ -634,7 +650,7 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
                 // avoid clogging the computation scheduler
                 .observeOn(observeJobsScheduler)
                 .subscribeOn(observeJobsScheduler, false)
-                .map(event -> GrpcJobManagementModelConverters.toGrpcJobChangeNotification(event, logStorageInfo))
+                .map(grpcModelCache::toGrpcJobChangeNotification)
                 .compose(ObservableExt.head(() -> {
                     List<JobChangeNotification> snapshot = createJobSnapshot(jobId);
                     snapshot.add(SNAPSHOT_END_MARKER);
@@ -720,6 +736,10 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         return Collections.emptySet();
     }
 
+    private boolean isJobQueryIndexActive() {
+        return configuration.isJobQueryIndexEnabled() && jobQueryIndex.isReady();
+    }
+
     private JobQueryResult toJobQueryResult(List<Job> jobs, Pagination runtimePagination) {
         return JobQueryResult.newBuilder()
                 .addAllItems(jobs)
@@ -790,14 +810,14 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
     }
 
     private JobChangeNotification toJobChangeNotification(com.netflix.titus.api.jobmanager.model.job.Job<?> coreJob) {
-        Job grpcJob = GrpcJobManagementModelConverters.toGrpcJob(coreJob);
+        Job grpcJob = grpcModelCache.toGrpcJob(coreJob);
         return JobChangeNotification.newBuilder()
                 .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder().setJob(grpcJob))
                 .build();
     }
 
     private JobChangeNotification toJobChangeNotification(com.netflix.titus.api.jobmanager.model.job.Task coreTask) {
-        com.netflix.titus.grpc.protogen.Task grpcTask = GrpcJobManagementModelConverters.toGrpcTask(coreTask, logStorageInfo);
+        com.netflix.titus.grpc.protogen.Task grpcTask = grpcModelCache.toGrpcTask(coreTask);
         return JobChangeNotification.newBuilder()
                 .setTaskUpdate(JobChangeNotification.TaskUpdate.newBuilder().setTask(grpcTask))
                 .build();
@@ -328,6 +328,20 @@ public class DefaultV3JobOperations implements V3JobOperations {
         return engine.changeReferenceModel(changeAction, taskId).toCompletable();
     }
 
+    @Override
+    public Completable updateTasks(String jobId, Map<String, Function<Task, Optional<Task>>> changeFunctions, Trigger trigger, String reason, CallMetadata callMetadata) {
+        if (changeFunctions.isEmpty()) {
+            return Completable.complete();
+        }
+        Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByRootId(jobId);
+        if (!engineOpt.isPresent()) {
+            return Completable.error(JobManagerException.jobNotFound(jobId));
+        }
+        ReconciliationEngine<JobManagerReconcilerEvent> engine = engineOpt.get();
+        TitusChangeAction changeAction = BasicTaskActions.updateTasksInRunningModel(jobId, changeFunctions, trigger, jobManagerConfiguration, engine, reason, titusRuntime, callMetadata);
+        return engine.changeReferenceModel(changeAction).toCompletable();
+    }
+
     @Override
     public Completable recordTaskPlacement(String taskId, Function<Task, Task> changeFunction, CallMetadata callMetadata) {
         Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByChildId(taskId).map(Pair::getLeft);
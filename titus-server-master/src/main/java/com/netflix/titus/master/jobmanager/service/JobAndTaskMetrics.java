@@ -17,12 +17,11 @@
 package com.netflix.titus.master.jobmanager.service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -37,18 +36,19 @@ import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
-import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.ApplicationSLA;
 import com.netflix.titus.api.model.Tier;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.DateTimeExt;
-import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.guice.annotation.Activator;
 import com.netflix.titus.common.util.histogram.Histogram;
 import com.netflix.titus.common.util.histogram.HistogramDescriptor;
 import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.rx.RetryHandlerBuilder;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
@@ -60,7 +60,8 @@ import rx.schedulers.Schedulers;
 
 /**
  * Supplementary metrics based on both job/task state, and elapsed time. These metrics cannot be computed only
- * in response to system state change events. Instead, they are recomputed at regular interval.
+ * in response to system state change events. Instead, they are recomputed at regular interval from
+ * {@link JobAndTaskMetricsState}, which is updated incrementally from the job manager event stream.
  * <p>
  */
 @Singleton
@@ -74,14 +75,19 @@ public class JobAndTaskMetrics {
     private static final String TASK_IN_STATE_METRIC_NAME = TASK_IN_STATE_ROOT_METRIC_NAME + "duration";
     private static final String TASK_STATE_CHANGE_METRIC_NAME = MetricConstants.METRIC_ROOT + "jobManager.taskStateUpdates";
 
-    private static final List<String> TRACKED_STATES = Arrays.asList(
-            TaskState.Accepted.name(),
-            TaskState.Launched.name(),
-            TaskState.StartInitiated.name(),
-            TaskState.Started.name(),
-            TaskState.KillInitiated.name()
+    private static final Set<TaskState> TRACKED_TASK_STATES = EnumSet.of(
+            TaskState.Accepted,
+            TaskState.Launched,
+            TaskState.StartInitiated,
+            TaskState.Started,
+            TaskState.KillInitiated
     );
 
+    private static final List<String> TRACKED_STATES = TRACKED_TASK_STATES.stream().map(TaskState::name).collect(Collectors.toList());
+
+    private static final long RETRY_DELAY_MS = 1_000;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
     private static final HistogramDescriptor HISTOGRAM_DESCRIPTOR = HistogramDescriptor.histogramOf(
             TimeUnit.MINUTES.toMillis(1),
             TimeUnit.MINUTES.toMillis(15),
@@ -101,6 +107,8 @@ public class JobAndTaskMetrics {
     private final JobManagerConfiguration configuration;
     private final Registry registry;
 
+    private final JobAndTaskMetricsState state = new JobAndTaskMetricsState(TRACKED_TASK_STATES, HISTOGRAM_DESCRIPTOR);
+
     private final Map<String, Map<String, List<Gauge>>> capacityGroupsMetrics = new HashMap<>();
     private final Id jobCountId;
     private final Id taskCountId;
@@ -126,15 +134,21 @@ public class JobAndTaskMetrics {
     public void enterActiveMode() {
         long intervalMs = Math.max(1_000, configuration.getTaskLivenessPollerIntervalMs());
 
-        this.taskStateUpdateSubscription = v3JobOperations.observeJobs().subscribe(
-                event -> {
-                    if (event instanceof TaskUpdateEvent) {
-                        updateTaskMetrics((TaskUpdateEvent) event);
-                    }
-                },
-                e -> logger.error("Event stream terminated with an error", e),
-                () -> logger.info("Event stream completed")
-        );
+        // The snapshot marker is emitted after the subscription to the event stream is established, and triggers
+        // the state initialization. Events buffered in the meantime are applied on top of it.
+        this.taskStateUpdateSubscription = v3JobOperations.observeJobs()
+                .compose(ObservableExt.head(() -> Collections.<JobManagerEvent<?>>singletonList(JobManagerEvent.snapshotMarker())))
+                .retryWhen(RetryHandlerBuilder.retryHandler()
+                        .withUnlimitedRetries()
+                        .withDelay(RETRY_DELAY_MS, MAX_RETRY_DELAY_MS, TimeUnit.MILLISECONDS)
+                        .withTitle("Job and task metrics event stream")
+                        .buildExponentialBackoff()
+                )
+                .subscribe(
+                        this::handleEvent,
+                        e -> logger.error("Event stream terminated with an error", e),
+                        () -> logger.info("Event stream completed")
+                );
 
         this.taskLivenessRefreshSubscription = ObservableExt.schedule(
                 TASK_IN_STATE_ROOT_METRIC_NAME + "scheduler", registry, "TaskLivenessRefreshAction",
@@ -149,6 +163,30 @@ public class JobAndTaskMetrics {
         ObservableExt.safeUnsubscribe(taskStateUpdateSubscription, taskLivenessRefreshSubscription);
     }
 
+    private void handleEvent(JobManagerEvent<?> event) {
+        if (event == JobManagerEvent.snapshotMarker()) {
+            List<Pair<Job, List<Task>>> jobsAndTasks = v3JobOperations.getJobsAndTasks();
+            synchronized (state) {
+                state.clear();
+                jobsAndTasks.forEach(jobAndTasks -> {
+                    Job<?> job = jobAndTasks.getLeft();
+                    state.updateJob(job);
+                    jobAndTasks.getRight().forEach(task -> state.updateTask(job, task));
+                });
+            }
+        } else if (event instanceof JobUpdateEvent) {
+            synchronized (state) {
+                state.updateJob(((JobUpdateEvent) event).getCurrent());
+            }
+        } else if (event instanceof TaskUpdateEvent) {
+            TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
+            synchronized (state) {
+                state.updateTask(taskUpdateEvent.getCurrentJob(), taskUpdateEvent.getCurrentTask());
+            }
+            updateTaskMetrics(taskUpdateEvent);
+        }
+    }
+
     private void updateTaskMetrics(TaskUpdateEvent event) {
         Pair<Tier, String> assignment = JobManagerUtil.getTierAssignment(event.getCurrentJob(), applicationSlaManagementService);
         Task task = event.getCurrentTask();
@@ -164,14 +202,13 @@ public class JobAndTaskMetrics {
     private void refresh() {
         Map<String, Tier> tierMap = buildTierMap();
 
-        List<Pair<Job, List<Task>>> jobsAndTasks = v3JobOperations.getJobsAndTasks();
-        List<Job> jobs = v3JobOperations.getJobs();
-        List<Task> tasks = v3JobOperations.getTasks();
-
-        updateJobCounts(jobsAndTasks);
-        updateTaskCounts(tasks);
+        Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms;
+        synchronized (state) {
+            updateJobCounts();
+            updateTaskCounts();
+            capacityGroupsHistograms = state.buildCapacityGroupsHistograms(tierMap.keySet(), System.currentTimeMillis());
+        }
 
-        Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = buildCapacityGroupsHistograms(tierMap.keySet(), jobs);
         resetDroppedCapacityGroups(capacityGroupsHistograms.keySet());
         updateCapacityGroupCounters(capacityGroupsHistograms, tierMap);
     }
@@ -240,41 +277,12 @@ public class JobAndTaskMetrics {
         return gauges;
     }
 
-    /**
-     * Traverse all active jobs and update the count metrics
-     */
-    private void updateJobCounts(List<Pair<Job, List<Task>>> jobsAndTasks) {
-        int emptyJobs = 0;
-        int serviceJobsOwnedByKubeScheduler = 0;
-        int serviceJobsOwnedByFenzo = 0;
-        int batchJobsOwnedByKubeScheduler = 0;
-        int batchJobsOwnedByFenzo = 0;
-
-        for (Pair<Job, List<Task>> jobAndTasks : jobsAndTasks) {
-            Job job = jobAndTasks.getLeft();
-            List<Task> tasks = jobAndTasks.getRight();
-
-            if (JobFunctions.getJobDesiredSize(job) == 0) {
-                emptyJobs++;
-            } else {
-                boolean ownedByKubeScheduler = tasks.stream().anyMatch(JobFunctions::isOwnedByKubeScheduler);
-                boolean serviceJob = JobFunctions.isServiceJob(job);
-
-                if (ownedByKubeScheduler) {
-                    if (serviceJob) {
-                        serviceJobsOwnedByKubeScheduler++;
-                    } else {
-                        batchJobsOwnedByKubeScheduler++;
-                    }
-                } else {
-                    if (serviceJob) {
-                        serviceJobsOwnedByFenzo++;
-                    } else {
-                        batchJobsOwnedByFenzo++;
-                    }
-                }
-            }
-        }
+    private void updateJobCounts() {
+        int emptyJobs = state.getJobCount(JobAndTaskMetricsState.JobCategory.Empty);
+        int serviceJobsOwnedByKubeScheduler = state.getJobCount(JobAndTaskMetricsState.JobCategory.ServiceKubeScheduler);
+        int serviceJobsOwnedByFenzo = state.getJobCount(JobAndTaskMetricsState.JobCategory.ServiceFenzo);
+        int batchJobsOwnedByKubeScheduler = state.getJobCount(JobAndTaskMetricsState.JobCategory.BatchKubeScheduler);
+        int batchJobsOwnedByFenzo = state.getJobCount(JobAndTaskMetricsState.JobCategory.BatchFenzo);
 
         registry.gauge(jobCountId.withTag("emptyJobs", "true")).set(emptyJobs);
 
@@ -297,20 +305,9 @@ public class JobAndTaskMetrics {
         )).set(batchJobsOwnedByFenzo);
     }
 
-    /**
-     * Traverse all tasks and update the count metrics
-     */
-    private void updateTaskCounts(List<Task> tasks) {
-        int tasksOwnedByKubeScheduler = 0;
-        int tasksWithPodCreated = 0;
-        for (Task task : tasks) {
-            if (JobFunctions.isOwnedByKubeScheduler(task)) {
-                tasksOwnedByKubeScheduler++;
-                if (TaskStatus.hasPod(task)) {
-                    tasksWithPodCreated++;
-                }
-            }
-        }
+    private void updateTaskCounts() {
+        int tasksOwnedByKubeScheduler = state.getTasksOwnedByKubeScheduler();
+        int tasksWithPodCreated = state.getTasksWithPodCreated();
         registry.gauge(taskCountId.withTags(
                 "kubeScheduler", "true",
                 "podCreated", "true"
@@ -320,61 +317,11 @@ public class JobAndTaskMetrics {
                 "podCreated", "false"
         )).set(tasksOwnedByKubeScheduler - tasksWithPodCreated);
 
-        registry.gauge(taskCountId.withTag("kubeScheduler", "false")).set(tasks.size() - tasksOwnedByKubeScheduler);
-    }
-
-    /**
-     * Traverse all active tasks and collect their state and the time they stayed in this state (the latter in form of histogram).
-     *
-     * @return mapOf(capacityGroupName - > mapOf ( taskState, histogram))
-     */
-    private Map<String, Map<String, Histogram.Builder>> buildCapacityGroupsHistograms(Set<String> capacityGroups, List<Job> jobs) {
-        Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = newCapacityHistograms(capacityGroups);
-        jobs.forEach(job -> resolveCapacityGroup(job, capacityGroupsHistograms).ifPresent(capacityGroup ->
-                buildCapacityGroupHistogram(job, capacityGroup, capacityGroupsHistograms)
-        ));
-        return capacityGroupsHistograms;
-    }
-
-    private void buildCapacityGroupHistogram(Job<?> job, String capacityGroup, Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms) {
-        // 'capacityGroupsHistograms' is pre-initialized, but to avoid race condition we make extra check here.
-        Map<String, Histogram.Builder> capacityGroupHistograms = capacityGroupsHistograms.computeIfAbsent(capacityGroup, k -> new HashMap<>());
-        List<Task> tasks;
-        try {
-            tasks = v3JobOperations.getTasks(job.getId());
-        } catch (Exception e) {
-            // We work on live data, which may be removed at any point in time.
-            return;
-        }
-        tasks.forEach(task -> {
-            long timestamp = task.getStatus().getTimestamp();
-            if (timestamp > 0) {
-                long durationMs = System.currentTimeMillis() - timestamp;
-                capacityGroupHistograms.computeIfAbsent(
-                        task.getStatus().getState().name(),
-                        name -> Histogram.newBuilder(HISTOGRAM_DESCRIPTOR)
-                ).increment(durationMs);
-            }
-        });
-    }
-
-    private Optional<String> resolveCapacityGroup(Job<?> job, Map<String, Map<String, Histogram.Builder>> capacityHistograms) {
-        String capacityGroup = job.getJobDescriptor().getCapacityGroup();
-        if (StringExt.isEmpty(capacityGroup)) {
-            capacityGroup = job.getJobDescriptor().getApplicationName();
-        }
-        if (StringExt.isEmpty(capacityGroup)) {
-            return Optional.of(ApplicationSlaManagementService.DEFAULT_APPLICATION);
-        }
-        return Optional.of(capacityHistograms.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION);
+        registry.gauge(taskCountId.withTag("kubeScheduler", "false")).set(state.getTaskCount() - tasksOwnedByKubeScheduler);
     }
 
     private Map<String, Tier> buildTierMap() {
         return applicationSlaManagementService.getApplicationSLAs().stream()
                 .collect(Collectors.toMap(ApplicationSLA::getAppName, ApplicationSLA::getTier));
     }
-
-    private Map<String, Map<String, Histogram.Builder>> newCapacityHistograms(Set<String> capacityGroups) {
-        return capacityGroups.stream().collect(Collectors.toMap(name -> name, name -> new HashMap<>()));
-    }
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+
+/**
+ * Job and task counters used by {@link JobAndTaskMetrics}, updated incrementally with each job or task change.
+ * The time at which a task entered its current state is kept in one second buckets per capacity group and task
+ * state, so the task liveness histograms are computed without visiting each task. A task is removed when
+ * it finishes, and a job together with its tasks when the job finishes.
+ * <p>
+ * This class is not thread safe.
+ */
+class JobAndTaskMetricsState {
+
+    enum JobCategory {
+        Empty,
+        ServiceKubeScheduler,
+        ServiceFenzo,
+        BatchKubeScheduler,
+        BatchFenzo
+    }
+
+    private static final long BUCKET_MS = 1_000;
+
+    private final Set<TaskState> trackedStates;
+    private final HistogramDescriptor histogramDescriptor;
+
+    private final Map<String, JobEntry> jobs = new HashMap<>();
+    private final Map<String, TaskEntry> tasks = new HashMap<>();
+
+    private final int[] jobCounts = new int[JobCategory.values().length];
+    private int tasksOwnedByKubeScheduler;
+    private int tasksWithPodCreated;
+
+    /**
+     * Capacity group -> task state -> (state entry time bucket -> number of tasks).
+     */
+    private final Map<String, Map<TaskState, NavigableMap<Long, Integer>>> stateEntryTimes = new HashMap<>();
+
+    JobAndTaskMetricsState(Set<TaskState> trackedStates, HistogramDescriptor histogramDescriptor) {
+        this.trackedStates = trackedStates;
+        this.histogramDescriptor = histogramDescriptor;
+    }
+
+    void clear() {
+        jobs.clear();
+        tasks.clear();
+        for (int i = 0; i < jobCounts.length; i++) {
+            jobCounts[i] = 0;
+        }
+        tasksOwnedByKubeScheduler = 0;
+        tasksWithPodCreated = 0;
+        stateEntryTimes.clear();
+    }
+
+    int getJobCount(JobCategory category) {
+        return jobCounts[category.ordinal()];
+    }
+
+    int getTaskCount() {
+        return tasks.size();
+    }
+
+    int getTasksOwnedByKubeScheduler() {
+        return tasksOwnedByKubeScheduler;
+    }
+
+    int getTasksWithPodCreated() {
+        return tasksWithPodCreated;
+    }
+
+    void updateJob(Job<?> job) {
+        if (job.getStatus().getState() == JobState.Finished) {
+            removeJob(job.getId());
+            return;
+        }
+
+        JobEntry jobEntry = jobs.get(job.getId());
+        if (jobEntry == null) {
+            jobEntry = new JobEntry(job);
+            jobs.put(job.getId(), jobEntry);
+            jobCounts[jobEntry.getCategory().ordinal()]++;
+            return;
+        }
+
+        String previousCapacityGroup = jobEntry.capacityGroup;
+        jobCounts[jobEntry.getCategory().ordinal()]--;
+        jobEntry.update(job);
+        jobCounts[jobEntry.getCategory().ordinal()]++;
+
+        if (!previousCapacityGroup.equals(jobEntry.capacityGroup)) {
+            for (String taskId : jobEntry.taskIds) {
+                TaskEntry taskEntry = tasks.get(taskId);
+                removeStateEntryTime(taskEntry);
+                taskEntry.capacityGroup = jobEntry.capacityGroup;
+                addStateEntryTime(taskEntry);
+            }
+        }
+    }
+
+    void updateTask(Job<?> job, Task task) {
+        TaskEntry previous = tasks.remove(task.getId());
+        if (previous != null) {
+            removeTask(previous);
+        }
+        if (task.getStatus().getState() == TaskState.Finished) {
+            return;
+        }
+
+        JobEntry jobEntry = jobs.get(job.getId());
+        if (jobEntry == null) {
+            updateJob(job);
+            jobEntry = jobs.get(job.getId());
+            if (jobEntry == null) {
+                return;
+            }
+        }
+
+        TaskEntry taskEntry = new TaskEntry(task, job.getId(), jobEntry.capacityGroup);
+        tasks.put(task.getId(), taskEntry);
+
+        jobCounts[jobEntry.getCategory().ordinal()]--;
+        jobEntry.taskIds.add(task.getId());
+        if (taskEntry.ownedByKubeScheduler) {
+            jobEntry.kubeSchedulerTasks++;
+        }
+        jobCounts[jobEntry.getCategory().ordinal()]++;
+
+        if (taskEntry.ownedByKubeScheduler) {
+            tasksOwnedByKubeScheduler++;
+            if (taskEntry.podCreated) {
+                tasksWithPodCreated++;
+            }
+        }
+        addStateEntryTime(taskEntry);
+    }
+
+    /**
+     * Builds the task liveness histograms. Capacity groups not included in the known set are reported as
+     * {@link ApplicationSlaManagementService#DEFAULT_APPLICATION}.
+     *
+     * @return mapOf(capacityGroupName - > mapOf ( taskState, histogram))
+     */
+    Map<String, Map<String, Histogram.Builder>> buildCapacityGroupsHistograms(Set<String> knownCapacityGroups, long now) {
+        Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = new HashMap<>();
+        knownCapacityGroups.forEach(capacityGroup -> capacityGroupsHistograms.put(capacityGroup, new HashMap<>()));
+
+        stateEntryTimes.forEach((capacityGroup, byState) -> {
+            String effectiveCapacityGroup = knownCapacityGroups.contains(capacityGroup)
+                    ? capacityGroup
+                    : ApplicationSlaManagementService.DEFAULT_APPLICATION;
+            Map<String, Histogram.Builder> histograms = capacityGroupsHistograms.computeIfAbsent(effectiveCapacityGroup, k -> new HashMap<>());
+            byState.forEach((state, buckets) -> {
+                Histogram.Builder builder = histograms.computeIfAbsent(state.name(), name -> Histogram.newBuilder(histogramDescriptor));
+                buckets.forEach((bucket, count) -> builder.add(now - bucket * BUCKET_MS, count));
+            });
+        });
+
+        return capacityGroupsHistograms;
+    }
+
+    private void removeJob(String jobId) {
+        JobEntry jobEntry = jobs.remove(jobId);
+        if (jobEntry == null) {
+            return;
+        }
+        jobCounts[jobEntry.getCategory().ordinal()]--;
+        for (String taskId : jobEntry.taskIds) {
+            TaskEntry taskEntry = tasks.remove(taskId);
+            if (taskEntry != null) {
+                removeTaskCounts(taskEntry);
+            }
+        }
+    }
+
+    private void removeTask(TaskEntry taskEntry) {
+        JobEntry jobEntry = jobs.get(taskEntry.jobId);
+        if (jobEntry != null) {
+            jobCounts[jobEntry.getCategory().ordinal()]--;
+            jobEntry.taskIds.remove(taskEntry.taskId);
+            if (taskEntry.ownedByKubeScheduler) {
+                jobEntry.kubeSchedulerTasks--;
+            }
+            jobCounts[jobEntry.getCategory().ordinal()]++;
+        }
+        removeTaskCounts(taskEntry);
+    }
+
+    private void removeTaskCounts(TaskEntry taskEntry) {
+        if (taskEntry.ownedByKubeScheduler) {
+            tasksOwnedByKubeScheduler--;
+            if (taskEntry.podCreated) {
+                tasksWithPodCreated--;
+            }
+        }
+        removeStateEntryTime(taskEntry);
+    }
+
+    private void addStateEntryTime(TaskEntry taskEntry) {
+        if (!taskEntry.hasStateEntryTime()) {
+            return;
+        }
+        stateEntryTimes
+                .computeIfAbsent(taskEntry.capacityGroup, k -> new EnumMap<>(TaskState.class))
+                .computeIfAbsent(taskEntry.state, k -> new TreeMap<>())
+                .merge(taskEntry.stateEntryBucket, 1, Integer::sum);
+    }
+
+    private void removeStateEntryTime(TaskEntry taskEntry) {
+        if (!taskEntry.hasStateEntryTime()) {
+            return;
+        }
+        Map<TaskState, NavigableMap<Long, Integer>> byState = stateEntryTimes.get(taskEntry.capacityGroup);
+        if (byState == null) {
+            return;
+        }
+        NavigableMap<Long, Integer> buckets = byState.get(taskEntry.state);
+        if (buckets == null) {
+            return;
+        }
+        buckets.computeIfPresent(taskEntry.stateEntryBucket, (bucket, count) -> count > 1 ? count - 1 : null);
+        if (buckets.isEmpty()) {
+            byState.remove(taskEntry.state);
+            if (byState.isEmpty()) {
+                stateEntryTimes.remove(taskEntry.capacityGroup);
+            }
+        }
+    }
+
+    private static String resolveCapacityGroup(Job<?> job) {
+        String capacityGroup = job.getJobDescriptor().getCapacityGroup();
+        if (StringExt.isEmpty(capacityGroup)) {
+            capacityGroup = job.getJobDescriptor().getApplicationName();
+        }
+        return StringExt.isEmpty(capacityGroup) ? ApplicationSlaManagementService.DEFAULT_APPLICATION : capacityGroup;
+    }
+
+    private static class JobEntry {
+
+        private final boolean serviceJob;
+        private final Set<String> taskIds = new HashSet<>();
+
+        private boolean empty;
+        private String capacityGroup;
+        private int kubeSchedulerTasks;
+
+        private JobEntry(Job<?> job) {
+            this.serviceJob = JobFunctions.isServiceJob(job);
+            update(job);
+        }
+
+        private void update(Job<?> job) {
+            this.empty = JobFunctions.getJobDesiredSize(job) == 0;
+            this.capacityGroup = resolveCapacityGroup(job);
+        }
+
+        private JobCategory getCategory() {
+            if (empty) {
+                return JobCategory.Empty;
+            }
+            boolean ownedByKubeScheduler = kubeSchedulerTasks > 0;
+            if (serviceJob) {
+                return ownedByKubeScheduler ? JobCategory.ServiceKubeScheduler : JobCategory.ServiceFenzo;
+            }
+            return ownedByKubeScheduler ? JobCategory.BatchKubeScheduler : JobCategory.BatchFenzo;
+        }
+    }
+
+    private class TaskEntry {
+
+        private final String taskId;
+        private final String jobId;
+        private final TaskState state;
+        private final long stateEntryBucket;
+        private final boolean ownedByKubeScheduler;
+        private final boolean podCreated;
+
+        private String capacityGroup;
+
+        private TaskEntry(Task task, String jobId, String capacityGroup) {
+            this.taskId = task.getId();
+            this.jobId = jobId;
+            this.state = task.getStatus().getState();
+            this.stateEntryBucket = task.getStatus().getTimestamp() / BUCKET_MS;
+            this.ownedByKubeScheduler = JobFunctions.isOwnedByKubeScheduler(task);
+            this.podCreated = TaskStatus.hasPod(task);
+            this.capacityGroup = capacityGroup;
+        }
+
+        private boolean hasStateEntryTime() {
+            return stateEntryBucket > 0 && trackedStates.contains(state);
+        }
+    }
+}
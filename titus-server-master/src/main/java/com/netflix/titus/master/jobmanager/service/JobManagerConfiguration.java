@@ -32,6 +32,13 @@ public interface JobManagerConfiguration {
     @DefaultValue("1")
     long getReconcilerActiveTimeoutMs();
 
+    /**
+     * Number of reconciliation loop shards. Jobs are partitioned across the shards by their id, and each shard runs
+     * its own reconciliation loop. Set to 1 (default) to run all jobs in a single loop.
+     */
+    @DefaultValue("1")
+    int getReconcilerShardCount();
+
     /**
      * How many active tasks in the transient state (in other words not Started and not Finished) are allowed in a job.
      * If the number of active tasks in the transient state goes above this limit, no new tasks are created.
@@ -46,6 +53,13 @@ public interface JobManagerConfiguration {
     @DefaultValue("300")
     int getConcurrentReconcilerStoreUpdateLimit();
 
+    /**
+     * Maximum number of tasks of a job written to the store in a single batch by the reconciliation loop. Set to 1 to
+     * write each task separately.
+     */
+    @DefaultValue("50")
+    int getTaskStoreWriteBatchSize();
+
     @DefaultValue("60000")
     long getTaskInLaunchedStateTimeoutMs();
 
@@ -98,6 +112,20 @@ public interface JobManagerConfiguration {
     @DefaultValue("false")
     boolean isFailOnDataValidation();
 
+    /**
+     * Set to true to resolve the differences of a job only if its reference, running or store model changed since
+     * the last resolution, or if one of its task deadlines passed.
+     */
+    @DefaultValue("false")
+    boolean isDirtyTrackedReconciliationEnabled();
+
+    /**
+     * Maximum amount of time a job with no changes is not re-evaluated, when the dirty tracked reconciliation
+     * is enabled. It bounds the delay of configuration changes, which are not tracked.
+     */
+    @DefaultValue("30000")
+    long getDirtyTrackedReconciliationMaxIdleMs();
+
     /**
      * Maximum number of Kube events processed at the same time.
      */
@@ -25,6 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -58,6 +61,7 @@ import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
 import com.netflix.titus.common.framework.reconciler.internal.DefaultReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.internal.DefaultReconciliationFramework;
 import com.netflix.titus.common.framework.reconciler.internal.InternalReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.internal.ShardedReconciliationFramework;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizerUtil;
 import com.netflix.titus.common.model.sanitizer.ValidationError;
@@ -66,6 +70,7 @@ import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations.IndexKind;
+import com.netflix.titus.master.jobmanager.service.common.DirtyTrackingDifferenceResolver;
 import com.netflix.titus.master.jobmanager.service.common.SecurityGroupUtils;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
@@ -81,6 +86,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
 import rx.Scheduler;
+import rx.schedulers.Schedulers;
 
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_PERMISSIVE_SANITIZER;
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_STRICT_SANITIZER;
@@ -130,6 +136,13 @@ public class JobReconciliationFrameworkFactory {
     private final Gauge loadedJobs;
     private final Gauge loadedTasks;
     private final Gauge storeLoadTimeMs;
+    private final Gauge storeFetchTimeMs;
+    private final Gauge storeValidateTimeMs;
+    private final Gauge fenzoAddTimeMs;
+    private final Gauge bootstrapTimeMs;
+
+    // Reset on each newInstance call. Records are validated concurrently.
+    private final AtomicLong validateTimeNs = new AtomicLong();
 
     @Inject
     public JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
@@ -184,8 +197,12 @@ public class JobReconciliationFrameworkFactory {
         this.loadedJobs = registry.gauge(ROOT_METRIC_NAME + "loadedJobs");
         this.loadedTasks = registry.gauge(ROOT_METRIC_NAME + "loadedTasks");
         this.storeLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs");
+        this.storeFetchTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs", "phase", "fetch");
+        this.storeValidateTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs", "phase", "validate");
+        this.fenzoAddTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs", "phase", "fenzoAdd");
+        this.bootstrapTimeMs = registry.gauge(ROOT_METRIC_NAME + "bootstrapTimeMs");
 
-        this.dispatchingResolver = DifferenceResolvers.dispatcher(rootModel -> {
+        this.dispatchingResolver = new DirtyTrackingDifferenceResolver(DifferenceResolvers.dispatcher(rootModel -> {
             Job<?> job = rootModel.getEntity();
             JobDescriptor.JobDescriptorExt extensions = job.getJobDescriptor().getExtensions();
             if (extensions instanceof BatchJobExt) {
@@ -195,13 +212,18 @@ public class JobReconciliationFrameworkFactory {
             } else {
                 throw new IllegalStateException("Unsupported job type " + extensions.getClass());
             }
-        });
+        }), jobManagerConfiguration, titusRuntime);
     }
 
     ReconciliationFramework<JobManagerReconcilerEvent> newInstance() {
-        List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loadJobsAndTasksFromStore(errorCollector));
+        long startTime = clock.wallTime();
+        validateTimeNs.set(0);
+
+        Set<String> invalidTaskIds = ConcurrentHashMap.newKeySet();
+        List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loadJobsAndTasksFromStore(errorCollector, invalidTaskIds));
 
         // initialize fenzo with running tasks
+        long fenzoAddStartTime = clock.wallTime();
         List<InternalReconciliationEngine<JobManagerReconcilerEvent>> engines = new ArrayList<>();
         for (Pair<Job, List<Task>> pair : jobsAndTasks) {
             Job job = pair.getLeft();
@@ -209,24 +231,37 @@ public class JobReconciliationFrameworkFactory {
             InternalReconciliationEngine<JobManagerReconcilerEvent> engine = newRestoredEngine(job, tasks);
             engines.add(engine);
             for (Task task : tasks) {
-                Optional<Task> validatedTask = validateTask(task);
-                if (validatedTask.isPresent()) {
-                    if (!JobFunctions.isOwnedByKubeScheduler(task)) {
-                        TaskFenzoCheck check = addTaskToFenzo(engine, job, task);
-                        if (check == TaskFenzoCheck.FenzoAddError) {
-                            errorCollector.taskAddToFenzoError(task.getId());
-                        } else if (check == TaskFenzoCheck.Inconsistent) {
-                            errorCollector.inconsistentTask(task.getId());
-                        }
-                    }
-                } else {
+                if (invalidTaskIds.contains(task.getId())) {
                     errorCollector.invalidTaskRecord(task.getId());
+                } else if (!JobFunctions.isOwnedByKubeScheduler(task)) {
+                    TaskFenzoCheck check = addTaskToFenzo(engine, job, task);
+                    if (check == TaskFenzoCheck.FenzoAddError) {
+                        errorCollector.taskAddToFenzoError(task.getId());
+                    } else if (check == TaskFenzoCheck.Inconsistent) {
+                        errorCollector.inconsistentTask(task.getId());
+                    }
                 }
             }
         }
+        fenzoAddTimeMs.set(clock.wallTime() - fenzoAddStartTime);
 
         errorCollector.failIfTooManyBadRecords();
 
+        bootstrapTimeMs.set(clock.wallTime() - startTime);
+
+        int shardCount = jobManagerConfiguration.getReconcilerShardCount();
+        if (shardCount > 1) {
+            return new ShardedReconciliationFramework<>(
+                    shardCount,
+                    engines,
+                    bootstrapModel -> newEngine(bootstrapModel, true),
+                    jobManagerConfiguration.getReconcilerIdleTimeoutMs(),
+                    jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
+                    INDEX_COMPARATORS,
+                    registry,
+                    optionalScheduler
+            );
+        }
         return new DefaultReconciliationFramework<>(
                 engines,
                 bootstrapModel -> newEngine(bootstrapModel, true),
@@ -357,8 +392,13 @@ public class JobReconciliationFrameworkFactory {
         return true;
     }
 
-    private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector) {
+    /**
+     * Tasks of a job are validated on the computation scheduler as soon as they are fetched, so the validation runs in
+     * parallel with the remaining store queries. Invalid task ids are added to the provided set.
+     */
+    private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector, Set<String> invalidTaskIds) {
         long startTime = clock.wallTime();
+        AtomicLong lastFetchTime = new AtomicLong(startTime);
 
         // load all job/task pairs
         List<Pair<Job, Pair<List<Task>, Integer>>> jobTasksPairs;
@@ -378,7 +418,12 @@ public class JobReconciliationFrameworkFactory {
                     Optional<Job> validatedJob = validateJob(job);
                     if (validatedJob.isPresent()) {
                         Observable<Pair<Job, Pair<List<Task>, Integer>>> retrieveTasksObservable = store.retrieveTasksForJob(job.getId())
-                                .map(taskList -> new Pair<>(validatedJob.get(), taskList));
+                                .doOnNext(taskList -> lastFetchTime.set(clock.wallTime()))
+                                .observeOn(Schedulers.computation())
+                                .map(taskList -> {
+                                    validateTasks(taskList.getLeft(), invalidTaskIds);
+                                    return new Pair<>(validatedJob.get(), taskList);
+                                });
                         retrieveTasksObservables.add(retrieveTasksObservable);
                     } else {
                         errorCollector.invalidJob(job.getId());
@@ -409,12 +454,23 @@ public class JobReconciliationFrameworkFactory {
             throw new IllegalStateException("Failed to load jobs from the store during initialization", e);
         } finally {
             storeLoadTimeMs.set(clock.wallTime() - startTime);
+            storeFetchTimeMs.set(lastFetchTime.get() - startTime);
+            storeValidateTimeMs.set(TimeUnit.NANOSECONDS.toMillis(validateTimeNs.get()));
         }
 
         return jobTasksPairs.stream().map(p -> Pair.of(p.getLeft(), p.getRight().getLeft())).collect(Collectors.toList());
     }
 
     private Optional<Job> validateJob(Job job) {
+        long startTimeNs = System.nanoTime();
+        try {
+            return doValidateJob(job);
+        } finally {
+            validateTimeNs.addAndGet(System.nanoTime() - startTimeNs);
+        }
+    }
+
+    private Optional<Job> doValidateJob(Job job) {
         // Perform strict validation for reporting purposes
         Set<ValidationError> strictViolations = strictEntitySanitizer.validate(job);
         if (!strictViolations.isEmpty()) {
@@ -435,6 +491,16 @@ public class JobReconciliationFrameworkFactory {
         return Optional.of(job);
     }
 
+    private void validateTasks(List<Task> tasks, Set<String> invalidTaskIds) {
+        long startTimeNs = System.nanoTime();
+        for (Task task : tasks) {
+            if (!validateTask(task).isPresent()) {
+                invalidTaskIds.add(task.getId());
+            }
+        }
+        validateTimeNs.addAndGet(System.nanoTime() - startTimeNs);
+    }
+
     private Optional<Task> validateTask(Task task) {
         // Perform strict validation for reporting purposes
         Set<ValidationError> strictViolations = strictEntitySanitizer.validate(task);
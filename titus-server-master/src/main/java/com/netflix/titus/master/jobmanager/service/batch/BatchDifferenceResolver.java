@@ -39,7 +39,6 @@ import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
-import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
@@ -233,10 +232,8 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
     }
 
     private Optional<TitusChangeAction> createNewTaskAction(BatchJobView refJobView, int taskIndex, Optional<EntityHolder> previousTask, Set<String> unassignedIpAllocations) {
-        // Safety check
-        long numberOfNotFinishedTasks = refJobView.getJobHolder().getChildren().stream()
-                .filter(holder -> TaskState.isRunning(((Task) holder.getEntity()).getStatus().getState()))
-                .count();
+        // Safety check. Tasks created earlier in the same resolution pass are included.
+        int numberOfNotFinishedTasks = refJobView.getNotFinishedTaskCount();
         if (numberOfNotFinishedTasks >= refJobView.getRequiredSize()) {
             titusRuntime.getCodeInvariants().inconsistent(
                     "Batch job reconciler attempts to create too many tasks: jobId=%s, requiredSize=%s, current=%s",
@@ -255,8 +252,9 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
         }
 
         TitusChangeAction storeAction = storeWriteRetryInterceptor.apply(
-                createOrReplaceTaskAction(configuration, jobStore, refJobView.getJobHolder(), taskIndex, clock, taskContext)
+                createOrReplaceTaskAction(configuration, jobStore, refJobView.getJobHolder(), taskIndex, previousTask, clock, taskContext)
         );
+        refJobView.addNotFinishedTask();
         return Optional.of(storeAction);
     }
 
@@ -309,6 +307,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
             actions.add(storeWriteRetryInterceptor.apply(BasicJobActions.updateJobInStore(engine, jobStore)));
         }
         boolean isJobTerminating = refJob.getStatus().getState() == JobState.KillInitiated;
+        List<String> outOfSyncTaskIds = new ArrayList<>();
         for (EntityHolder referenceTask : refJobHolder.getChildren()) {
 
             Optional<EntityHolder> storeHolder = storeJob.findById(referenceTask.getId());
@@ -323,14 +322,16 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
                     createNewTaskAction(refJobView, storeTask.getIndex(), Optional.of(referenceTask), Collections.emptySet()).ifPresent(actions::add);
                 }
             } else {
-                Task task = referenceTask.getEntity();
-                actions.add(storeWriteRetryInterceptor.apply(BasicTaskActions.writeReferenceTaskToStore(jobStore, schedulingService, engine, task.getId(), titusRuntime)));
+                outOfSyncTaskIds.add(referenceTask.getId());
             }
             // Both current and delayed retries are counted
             if (shouldRetry) {
                 allowedNewTasks.decrementAndGet();
             }
         }
+        actions.addAll(DifferenceResolverUtils.writeReferenceTasksToStore(
+                engine, outOfSyncTaskIds, configuration, jobStore, schedulingService, storeWriteRetryInterceptor, titusRuntime
+        ));
         return actions;
     }
 
@@ -347,25 +348,40 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
         return Collections.emptyList();
     }
 
+    /**
+     * Job view with a summary of its tasks, computed in a single pass over the job children. The summary is used
+     * when creating many tasks at once, so each created task costs O(1), and not O(job size).
+     */
     static class BatchJobView extends DifferenceResolverUtils.JobView<BatchJobExt, BatchJobTask> {
 
-        private final Set<Integer> indexes;
+        private final Set<Integer> indexes = new HashSet<>();
+
+        /**
+         * Number of tasks not in the Finished state, including the tasks for which a create action was returned in
+         * the current resolution pass.
+         */
+        private int notFinishedTaskCount;
 
         BatchJobView(EntityHolder jobHolder) {
             super(jobHolder);
-            this.indexes = collectIndexes();
+            for (BatchJobTask task : getTasks()) {
+                indexes.add(task.getIndex());
+                if (TaskState.isRunning(task.getStatus().getState())) {
+                    notFinishedTaskCount++;
+                }
+            }
         }
 
         Set<Integer> getIndexes() {
             return indexes;
         }
 
-        private Set<Integer> collectIndexes() {
-            Set<Integer> indexes = new HashSet<>();
-            for (BatchJobTask task : getTasks()) {
-                indexes.add(task.getIndex());
-            }
-            return indexes;
+        int getNotFinishedTaskCount() {
+            return notFinishedTaskCount;
+        }
+
+        void addNotFinishedTask() {
+            notFinishedTaskCount++;
         }
     }
 }
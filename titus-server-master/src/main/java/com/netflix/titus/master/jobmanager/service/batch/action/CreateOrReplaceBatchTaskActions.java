@@ -19,6 +19,7 @@ package com.netflix.titus.master.jobmanager.service.batch.action;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
@@ -51,14 +52,10 @@ public class CreateOrReplaceBatchTaskActions {
                                                               JobStore jobStore,
                                                               EntityHolder jobHolder,
                                                               int index,
+                                                              Optional<EntityHolder> previousTaskHolder,
                                                               Clock clock,
                                                               Map<String, String> taskContext) {
-        return jobHolder.getChildren().stream()
-                .filter(taskHolder -> {
-                    BatchJobTask task = taskHolder.getEntity();
-                    return task.getIndex() == index;
-                })
-                .findFirst()
+        return previousTaskHolder
                 .map(taskHolder -> createResubmittedTaskChangeAction(jobHolder, taskHolder, configuration, jobStore, clock, taskContext))
                 .orElseGet(() -> createOriginalTaskChangeAction(jobHolder.getEntity(), index, jobStore, clock, taskContext));
     }
@@ -27,6 +27,8 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.Lists;
+import com.netflix.fenzo.TaskRequest;
 import com.netflix.titus.api.jobmanager.model.job.ExecutableStatus;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
@@ -46,12 +48,16 @@ import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.common.action.TaskRetryers;
+import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.task.BasicTaskActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.KillInitiatedActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
+import com.netflix.titus.master.jobmanager.service.common.interceptor.RetryActionInterceptor;
 import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
 import com.netflix.titus.master.mesos.VirtualMachineMasterService;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.DirectKubeApiServerIntegrator;
+import com.netflix.titus.master.scheduler.SchedulingService;
 
 import static com.netflix.titus.api.jobmanager.TaskAttributes.TASK_ATTRIBUTES_IP_ALLOCATION_ID;
 
@@ -222,6 +228,69 @@ public class DifferenceResolverUtils {
         return actions;
     }
 
+    /**
+     * Finds the earliest future time at which the difference resolution result may change, while the job models
+     * stay the same. These are the task state timeouts, the batch task runtime limits, the task resubmit delays and
+     * the store write retry pauses.
+     */
+    public static Optional<Long> findNextDeadline(EntityHolder referenceModel,
+                                                  EntityHolder runningModel,
+                                                  EntityHolder storeModel,
+                                                  Clock clock) {
+        List<Long> deadlines = new ArrayList<>();
+
+        Job<?> job = runningModel.getEntity();
+        for (EntityHolder taskHolder : runningModel.getChildren()) {
+            Task task = taskHolder.getEntity();
+            if (isBatch(job) && task.getStatus().getState() == TaskState.Started) {
+                BatchJobExt batchExt = (BatchJobExt) job.getJobDescriptor().getExtensions();
+                long runtimeLimitMs = Math.max(BatchJobExt.RUNTIME_LIMIT_MIN, batchExt.getRuntimeLimitMs());
+                // The runtime limit is exceeded only after the deadline passes.
+                deadlines.add(task.getStatus().getTimestamp() + runtimeLimitMs + 1);
+            } else {
+                TaskTimeoutChangeActions.getTimeoutDeadline(taskHolder).ifPresent(deadlines::add);
+            }
+        }
+        for (EntityHolder taskHolder : referenceModel.getChildren()) {
+            TaskRetryers.getRetryDeadline(taskHolder).ifPresent(deadlines::add);
+        }
+        RetryActionInterceptor.findPauseDeadline(storeModel).ifPresent(deadlines::add);
+
+        long now = clock.wallTime();
+        return deadlines.stream().filter(deadline -> deadline > now).min(Long::compare);
+    }
+
+    /**
+     * Creates actions writing the given reference tasks to the store. Tasks are written in batches of up to
+     * {@link JobManagerConfiguration#getTaskStoreWriteBatchSize()} tasks, each batch with a single store call.
+     */
+    public static List<ChangeAction> writeReferenceTasksToStore(ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                                List<String> taskIds,
+                                                                JobManagerConfiguration configuration,
+                                                                JobStore jobStore,
+                                                                SchedulingService<? extends TaskRequest> schedulingService,
+                                                                Function<TitusChangeAction, TitusChangeAction> storeWriteInterceptor,
+                                                                TitusRuntime titusRuntime) {
+        if (taskIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int batchSize = configuration.getTaskStoreWriteBatchSize();
+        if (batchSize <= 1) {
+            return taskIds.stream()
+                    .map(taskId -> storeWriteInterceptor.apply(BasicTaskActions.writeReferenceTaskToStore(jobStore, schedulingService, engine, taskId, titusRuntime)))
+                    .collect(Collectors.toList());
+        }
+
+        List<ChangeAction> actions = new ArrayList<>();
+        for (List<String> batch : Lists.partition(taskIds, batchSize)) {
+            TitusChangeAction action = batch.size() == 1
+                    ? BasicTaskActions.writeReferenceTaskToStore(jobStore, schedulingService, engine, batch.get(0), titusRuntime)
+                    : BasicTaskActions.writeReferenceTasksToStore(jobStore, schedulingService, engine, batch, titusRuntime);
+            actions.add(storeWriteInterceptor.apply(action));
+        }
+        return actions;
+    }
+
     public static int countActiveNotStartedTasks(EntityHolder refJobHolder, EntityHolder runningJobHolder) {
         Set<String> pendingTaskIds = new HashSet<>();
 
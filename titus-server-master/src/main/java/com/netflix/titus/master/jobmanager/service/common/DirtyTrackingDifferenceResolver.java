@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine.DifferenceResolver;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.time.HierarchicalTimerWheel;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+
+/**
+ * {@link DifferenceResolver} decorator, which calls the delegate only if the engine models changed since the last
+ * resolution. Model entities are immutable, so a change is detected by comparing the model root references. If the
+ * last resolution produced no actions, the earliest time-based deadline of the job (task state timeouts, runtime
+ * limits, retry delays) is registered in a timer wheel, and the job is re-evaluated when it passes. Configuration
+ * changes are not tracked, so each job is re-evaluated at least every
+ * {@link JobManagerConfiguration#getDirtyTrackedReconciliationMaxIdleMs()}.
+ */
+public class DirtyTrackingDifferenceResolver implements DifferenceResolver<JobManagerReconcilerEvent> {
+
+    private static final String ROOT_METRIC_NAME = MetricConstants.METRIC_ROOT + "jobManager.reconciler.dirtyTracking.";
+
+    private static final long TIMER_WHEEL_TICK_MS = 10;
+
+    private final DifferenceResolver<JobManagerReconcilerEvent> delegate;
+    private final JobManagerConfiguration configuration;
+    private final Clock clock;
+
+    /**
+     * Engines are never referenced by {@link Resolution} instances, so the entries of removed engines are
+     * garbage collected.
+     */
+    private final Map<ReconciliationEngine<JobManagerReconcilerEvent>, Resolution> resolutions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Guarded by itself, as engines from different shards are resolved concurrently.
+     */
+    private final HierarchicalTimerWheel<Resolution> deadlines;
+
+    private final Counter evaluatedCounter;
+    private final Counter skippedCounter;
+
+    public DirtyTrackingDifferenceResolver(DifferenceResolver<JobManagerReconcilerEvent> delegate,
+                                           JobManagerConfiguration configuration,
+                                           TitusRuntime titusRuntime) {
+        this.delegate = delegate;
+        this.configuration = configuration;
+        this.clock = titusRuntime.getClock();
+        this.deadlines = new HierarchicalTimerWheel<>(TIMER_WHEEL_TICK_MS, clock);
+
+        Registry registry = titusRuntime.getRegistry();
+        this.evaluatedCounter = registry.counter(ROOT_METRIC_NAME + "evaluated");
+        this.skippedCounter = registry.counter(ROOT_METRIC_NAME + "skipped");
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "deadlines").monitorValue(this, self -> {
+            synchronized (self.deadlines) {
+                return self.deadlines.size();
+            }
+        });
+    }
+
+    @Override
+    public List<ChangeAction> apply(ReconciliationEngine<JobManagerReconcilerEvent> engine) {
+        if (!configuration.isDirtyTrackedReconciliationEnabled()) {
+            return delegate.apply(engine);
+        }
+
+        EntityHolder referenceModel = engine.getReferenceView();
+        EntityHolder runningModel = engine.getRunningView();
+        EntityHolder storeModel = engine.getStoreView();
+        long now = clock.wallTime();
+
+        markDueResolutions();
+        Resolution previous = resolutions.get(engine);
+        if (previous != null
+                && !previous.isDue()
+                && previous.isSameModel(referenceModel, runningModel, storeModel)
+                && now - previous.getTimestamp() < configuration.getDirtyTrackedReconciliationMaxIdleMs()) {
+            skippedCounter.increment();
+            return Collections.emptyList();
+        }
+        if (previous != null) {
+            synchronized (deadlines) {
+                deadlines.cancel(previous);
+            }
+        }
+
+        evaluatedCounter.increment();
+        List<ChangeAction> actions = delegate.apply(engine);
+
+        // Only a resolution with no actions is remembered. Pending actions always change the models, or are
+        // retried by the delegate.
+        if (!actions.isEmpty()) {
+            resolutions.remove(engine);
+            return actions;
+        }
+        Resolution resolution = new Resolution(referenceModel, runningModel, storeModel, now);
+        resolutions.put(engine, resolution);
+
+        Optional<Long> nextDeadline = DifferenceResolverUtils.findNextDeadline(referenceModel, runningModel, storeModel, clock);
+        if (nextDeadline.isPresent()) {
+            synchronized (deadlines) {
+                deadlines.schedule(resolution, nextDeadline.get());
+            }
+        }
+        return actions;
+    }
+
+    private void markDueResolutions() {
+        List<Resolution> expired;
+        synchronized (deadlines) {
+            expired = deadlines.advance();
+        }
+        expired.forEach(Resolution::markDue);
+    }
+
+    private static class Resolution {
+
+        private final EntityHolder referenceModel;
+        private final EntityHolder runningModel;
+        private final EntityHolder storeModel;
+        private final long timestamp;
+
+        private volatile boolean due;
+
+        private Resolution(EntityHolder referenceModel, EntityHolder runningModel, EntityHolder storeModel, long timestamp) {
+            this.referenceModel = referenceModel;
+            this.runningModel = runningModel;
+            this.storeModel = storeModel;
+            this.timestamp = timestamp;
+        }
+
+        private boolean isSameModel(EntityHolder referenceModel, EntityHolder runningModel, EntityHolder storeModel) {
+            return this.referenceModel == referenceModel && this.runningModel == runningModel && this.storeModel == storeModel;
+        }
+
+        private long getTimestamp() {
+            return timestamp;
+        }
+
+        private boolean isDue() {
+            return due;
+        }
+
+        private void markDue() {
+            this.due = true;
+        }
+    }
+}
@@ -65,4 +65,16 @@ public class TaskRetryers {
         long delayUntil = task.getStatus().getTimestamp() + delayMs;
         return delayUntil <= clock.wallTime();
     }
+
+    /**
+     * Returns the time after which a finished task with a resubmit delay can be retried.
+     */
+    public static Optional<Long> getRetryDeadline(EntityHolder taskHolder) {
+        long delayMs = (long) taskHolder.getAttributes().getOrDefault(ATTR_TASK_RETRY_DELAY_MS, 0L);
+        Task task = taskHolder.getEntity();
+        if (delayMs == 0 || task.getStatus().getState() != TaskState.Finished) {
+            return Optional.empty();
+        }
+        return Optional.of(task.getStatus().getTimestamp() + delayMs);
+    }
 }
@@ -19,6 +19,7 @@ package com.netflix.titus.master.jobmanager.service.common.action.task;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -130,6 +131,54 @@ public class BasicTaskActions {
                 });
     }
 
+    /**
+     * Batch version of {@link #writeReferenceTaskToStore(JobStore, SchedulingService, ReconciliationEngine, String, TitusRuntime)},
+     * which writes all tasks with a single {@link JobStore#updateTasks(List)} call.
+     */
+    public static TitusChangeAction writeReferenceTasksToStore(JobStore titusStore,
+                                                               SchedulingService<? extends TaskRequest> schedulingService,
+                                                               ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                               List<String> taskIds,
+                                                               TitusRuntime titusRuntime) {
+        return TitusChangeAction.newAction("writeReferenceTasksToStore")
+                .trigger(V3JobOperations.Trigger.Reconciler)
+                .id(engine.getReferenceView().getId())
+                .summary("Persisting %s tasks to the store", taskIds.size())
+                .changeWithModelUpdates(self -> {
+                    List<Task> referenceTasks = new ArrayList<>(taskIds.size());
+                    for (String taskId : taskIds) {
+                        Optional<EntityHolder> taskHolder = engine.getReferenceView().findById(taskId);
+                        if (taskHolder.isPresent()) {
+                            referenceTasks.add(taskHolder.get().getEntity());
+                        } else {
+                            // Should never happen
+                            titusRuntime.getCodeInvariants().inconsistent("Reference task with id %s not found.", taskId);
+                        }
+                    }
+                    if (referenceTasks.isEmpty()) {
+                        return Observable.empty();
+                    }
+
+                    return titusStore.updateTasks(referenceTasks)
+                            .andThen(Observable.fromCallable(() -> {
+                                List<ModelActionHolder> modelActionHolders = new ArrayList<>(referenceTasks.size());
+                                for (Task referenceTask : referenceTasks) {
+                                    if (referenceTask.getStatus().getState() == TaskState.Finished) {
+                                        schedulingService.removeTask(referenceTask.getId());
+                                    }
+                                    TitusModelAction modelUpdateAction = TitusModelAction.newModelUpdate(self)
+                                            .taskUpdate(storeRoot -> {
+                                                        EntityHolder storedHolder = EntityHolder.newRoot(referenceTask.getId(), referenceTask);
+                                                        return Pair.of(storeRoot.addChild(storedHolder), storedHolder);
+                                                    }
+                                            );
+                                    modelActionHolders.add(ModelActionHolder.store(modelUpdateAction));
+                                }
+                                return modelActionHolders;
+                            }));
+                });
+    }
+
     /**
      * Update a task in the reference and running models. If a task moves to Finished state, add retry delay information
      * to the task, and to task entity holder (see {@link TaskRetryers}).
@@ -146,52 +195,85 @@ public class BasicTaskActions {
                 .id(taskId)
                 .trigger(trigger)
                 .summary(reason)
+                .applyModelUpdates(self -> newTaskUpdateModelActions(self, taskId, configuration, engine, changeFunction, titusRuntime, callMetadata));
+    }
+
+    /**
+     * Update multiple tasks of a job in the reference and running models within a single change action. Each task is
+     * updated the same way as in {@link #updateTaskInRunningModel(String, Trigger, JobManagerConfiguration, ReconciliationEngine, Function, String, TitusRuntime, CallMetadata)}.
+     * Tasks that are not found, or for which the change function returns an empty result are skipped.
+     */
+    public static TitusChangeAction updateTasksInRunningModel(String jobId,
+                                                              Map<String, Function<Task, Optional<Task>>> changeFunctions,
+                                                              Trigger trigger,
+                                                              JobManagerConfiguration configuration,
+                                                              ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                              String reason,
+                                                              TitusRuntime titusRuntime,
+                                                              CallMetadata callMetadata) {
+        return TitusChangeAction.newAction("updateTasksInRunningModel")
+                .id(jobId)
+                .trigger(trigger)
+                .summary(reason)
                 .applyModelUpdates(self -> {
-                            Optional<EntityHolder> taskOptional = JobEntityHolders.expectTaskHolder(engine, taskId, titusRuntime);
-                            if (!taskOptional.isPresent()) {
-                                return Collections.emptyList();
-                            }
-                            EntityHolder taskHolder = taskOptional.get();
-                            Task oldTask = taskHolder.getEntity();
-                            Optional<Task> maybeNewTask = changeFunction.apply(oldTask);
-                            if (!maybeNewTask.isPresent()) {
-                                return Collections.emptyList();
-                            }
-                            Task newTask = maybeNewTask.get();
+                    List<ModelActionHolder> modelActionHolders = new ArrayList<>();
+                    changeFunctions.forEach((taskId, changeFunction) -> modelActionHolders.addAll(
+                            newTaskUpdateModelActions(self, taskId, configuration, engine, changeFunction, titusRuntime, callMetadata)
+                    ));
+                    return modelActionHolders;
+                });
+    }
 
-                            // Handle separately reference and runtime models, as only reference model gets retry attributes.
-                            List<ModelActionHolder> modelActionHolders = new ArrayList<>();
+    private static List<ModelActionHolder> newTaskUpdateModelActions(TitusChangeAction.Builder self,
+                                                                     String taskId,
+                                                                     JobManagerConfiguration configuration,
+                                                                     ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                                     Function<Task, Optional<Task>> changeFunction,
+                                                                     TitusRuntime titusRuntime,
+                                                                     CallMetadata callMetadata) {
+        Optional<EntityHolder> taskOptional = JobEntityHolders.expectTaskHolder(engine, taskId, titusRuntime);
+        if (!taskOptional.isPresent()) {
+            return Collections.emptyList();
+        }
+        EntityHolder taskHolder = taskOptional.get();
+        Task oldTask = taskHolder.getEntity();
+        Optional<Task> maybeNewTask = changeFunction.apply(oldTask);
+        if (!maybeNewTask.isPresent()) {
+            return Collections.emptyList();
+        }
+        Task newTask = maybeNewTask.get();
 
-                            // Add retryer data to task context.
-                            EntityHolder newTaskHolder;
-                            if (newTask.getStatus().getState() == TaskState.Finished) {
-                                long retryDelayMs = TaskRetryers.getCurrentRetryerDelayMs(
-                                        taskHolder, configuration.getMinRetryIntervalMs(), configuration.getTaskRetryerResetTimeMs(), titusRuntime.getClock()
-                                );
-                                String retryDelayString = DateTimeExt.toTimeUnitString(retryDelayMs);
+        // Handle separately reference and runtime models, as only reference model gets retry attributes.
+        List<ModelActionHolder> modelActionHolders = new ArrayList<>();
 
-                                newTask = newTask.toBuilder()
-                                        .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_RETRY_DELAY, retryDelayString)
-                                        .build();
-                                newTaskHolder = taskHolder.
-                                        setEntity(newTask)
-                                        .addTag(JobManagerConstants.JOB_MANAGER_ATTRIBUTE_CALLMETADATA, callMetadata)
-                                        .addTag(TaskRetryers.ATTR_TASK_RETRY_DELAY_MS, retryDelayMs);
+        // Add retryer data to task context.
+        EntityHolder newTaskHolder;
+        if (newTask.getStatus().getState() == TaskState.Finished) {
+            long retryDelayMs = TaskRetryers.getCurrentRetryerDelayMs(
+                    taskHolder, configuration.getMinRetryIntervalMs(), configuration.getTaskRetryerResetTimeMs(), titusRuntime.getClock()
+            );
+            String retryDelayString = DateTimeExt.toTimeUnitString(retryDelayMs);
 
-                                modelActionHolders.add(
-                                        ModelActionHolder.reference(TitusModelAction.newModelUpdate(self)
-                                                .summary("Setting retry delay on task in Finished state: %s", retryDelayString)
-                                                .addTaskHolder(newTaskHolder))
-                                );
-                            } else {
-                                modelActionHolders.add(ModelActionHolder.reference(TitusModelAction.newModelUpdate(self).taskUpdate(newTask, callMetadata)));
-                            }
+            newTask = newTask.toBuilder()
+                    .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_RETRY_DELAY, retryDelayString)
+                    .build();
+            newTaskHolder = taskHolder.
+                    setEntity(newTask)
+                    .addTag(JobManagerConstants.JOB_MANAGER_ATTRIBUTE_CALLMETADATA, callMetadata)
+                    .addTag(TaskRetryers.ATTR_TASK_RETRY_DELAY_MS, retryDelayMs);
 
-                            modelActionHolders.add(ModelActionHolder.running(TitusModelAction.newModelUpdate(self).taskUpdate(newTask, callMetadata)));
+            modelActionHolders.add(
+                    ModelActionHolder.reference(TitusModelAction.newModelUpdate(self)
+                            .summary("Setting retry delay on task in Finished state: %s", retryDelayString)
+                            .addTaskHolder(newTaskHolder))
+            );
+        } else {
+            modelActionHolders.add(ModelActionHolder.reference(TitusModelAction.newModelUpdate(self).taskUpdate(newTask, callMetadata)));
+        }
 
-                            return modelActionHolders;
-                        }
-                );
+        modelActionHolders.add(ModelActionHolder.running(TitusModelAction.newModelUpdate(self).taskUpdate(newTask, callMetadata)));
+
+        return modelActionHolders;
     }
 
     /**
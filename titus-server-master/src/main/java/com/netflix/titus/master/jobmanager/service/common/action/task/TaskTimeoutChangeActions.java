@@ -17,6 +17,7 @@
 package com.netflix.titus.master.jobmanager.service.common.action.task;
 
 import java.util.Map;
+import java.util.Optional;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -132,6 +133,17 @@ public class TaskTimeoutChangeActions {
         return clock.wallTime() < deadline ? TimeoutStatus.Pending : TimeoutStatus.TimedOut;
     }
 
+    /**
+     * Returns the timeout deadline of a task in one of the tracked states, if it was set.
+     */
+    public static Optional<Long> getTimeoutDeadline(EntityHolder taskHolder) {
+        String tagName = STATE_TAGS.get(taskHolder.<Task>getEntity().getStatus().getState());
+        if (tagName == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((Long) taskHolder.getAttributes().get(tagName));
+    }
+
     public static int getKillInitiatedAttempts(EntityHolder taskHolder) {
         return (int) taskHolder.getAttributes().getOrDefault(KILL_INITIATED_ATTEMPT_TAG, 0);
     }
@@ -18,6 +18,7 @@ package com.netflix.titus.master.jobmanager.service.common.interceptor;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
@@ -74,6 +75,27 @@ public class RetryActionInterceptor implements TitusChangeActionInterceptor<Bool
         return scheduler.now() >= pauseTime;
     }
 
+    /**
+     * Returns the earliest time at which an action paused by any {@link RetryActionInterceptor} instance can be
+     * executed again.
+     */
+    public static Optional<Long> findPauseDeadline(EntityHolder rootHolder) {
+        Optional<Long> deadline = Optional.empty();
+        for (Map.Entry<String, Object> entry : rootHolder.getAttributes().entrySet()) {
+            if (entry.getKey().startsWith(ATTR_RETRY_RECORD_PREFIX)) {
+                RetryRecord retryRecord = (RetryRecord) entry.getValue();
+                Optional<Long> delayMs = retryRecord.getRetryPolicy().getDelayMs();
+                if (delayMs.isPresent() && delayMs.get() >= 0) {
+                    long pauseTime = retryRecord.getLastFailureTime() + delayMs.get();
+                    if (!deadline.isPresent() || pauseTime < deadline.get()) {
+                        deadline = Optional.of(pauseTime);
+                    }
+                }
+            }
+        }
+        return deadline;
+    }
+
     class RetryChangeAction extends TitusChangeAction {
 
         private final TitusChangeAction delegate;
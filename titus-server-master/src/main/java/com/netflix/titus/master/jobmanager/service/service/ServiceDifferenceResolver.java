@@ -335,6 +335,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
             actions.add(storeWriteRetryInterceptor.apply(BasicJobActions.updateJobInStore(engine, jobStore)));
         }
         boolean isJobTerminating = refJob.getStatus().getState() == JobState.KillInitiated;
+        List<String> outOfSyncTaskIds = new ArrayList<>();
         for (EntityHolder referenceTaskHolder : refJobHolder.getChildren()) {
 
             ServiceJobTask refTask = referenceTaskHolder.getEntity();
@@ -357,8 +358,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
                     }
                 }
             } else {
-                Task task = referenceTaskHolder.getEntity();
-                actions.add(storeWriteRetryInterceptor.apply(BasicTaskActions.writeReferenceTaskToStore(jobStore, schedulingService, engine, task.getId(), titusRuntime)));
+                outOfSyncTaskIds.add(referenceTaskHolder.getId());
             }
 
             // Both current and delayed retries are counted
@@ -366,6 +366,9 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
                 allowedNewTasks.decrementAndGet();
             }
         }
+        actions.addAll(DifferenceResolverUtils.writeReferenceTasksToStore(
+                engine, outOfSyncTaskIds, configuration, jobStore, schedulingService, storeWriteRetryInterceptor, titusRuntime
+        ));
         return actions;
     }
 
@@ -72,6 +72,13 @@ public interface LoadBalancerConfiguration {
     @DefaultValue("5000")
     long getBucketSizeMs();
 
+    /**
+     * Max number of batches being applied to load balancers at the same time. When reached, new updates are kept
+     * (and coalesced) in the batching buffer until in-flight batches complete.
+     */
+    @DefaultValue("10")
+    int getMaxConcurrentBatches();
+
     /**
      * Since state for load balancer targets has not always been stored, backfill needs to run at least once on every
      * deployment that managed one or more load balancers. Backfill should be disabled after being executed once (e.g.:
@@ -23,9 +23,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.netflix.spectator.api.Gauge;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.connector.cloud.LoadBalancerConnector;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -43,6 +48,7 @@ import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.rx.batch.Batch;
+import com.netflix.titus.common.util.rx.batch.Batchable;
 import com.netflix.titus.common.util.rx.batch.LargestPerTimeBucket;
 import com.netflix.titus.common.util.rx.batch.Priority;
 import com.netflix.titus.common.util.rx.batch.RateLimitedBatcher;
@@ -61,6 +67,8 @@ class LoadBalancerEngine {
 
     private static final String METRIC_BATCHES = METRIC_LOADBALANCER + "batches";
     private static final String METRIC_BATCHER = METRIC_LOADBALANCER + "batcher";
+    static final String METRIC_PENDING_TARGETS = METRIC_LOADBALANCER + "pendingTargets";
+    private static final String METRIC_TARGET_UPDATE_LATENCY = METRIC_LOADBALANCER + "targetUpdateLatency";
 
     private final Subject<JobLoadBalancer, JobLoadBalancer> pendingAssociations = PublishSubject.<JobLoadBalancer>create().toSerialized();
     private final Subject<JobLoadBalancer, JobLoadBalancer> pendingDissociations = PublishSubject.<JobLoadBalancer>create().toSerialized();
@@ -75,6 +83,17 @@ class LoadBalancerEngine {
     private final LoadBalancerReconciler reconciler;
     private final Scheduler scheduler;
 
+    private final Registry registry;
+    private final Id targetUpdateLatencyId;
+    private final Id pendingTargetsId;
+
+    /**
+     * Updates that were not applied yet, by load balancer id and target. For each target the update held by the
+     * batcher is kept, so an update the batcher drops as equivalent or of lower priority does not replace it.
+     * The per load balancer gauge is updated within the same map operation, so it is consistent with the map content.
+     */
+    private final ConcurrentMap<String, Map<LoadBalancerTarget, TargetStateBatchable>> pendingTargets = new ConcurrentHashMap<>();
+
     LoadBalancerEngine(TitusRuntime titusRuntime,
                        LoadBalancerConfiguration configuration,
                        LoadBalancerJobOperations loadBalancerJobOperations,
@@ -92,6 +111,9 @@ class LoadBalancerEngine {
         this.connectorTokenBucket = connectorTokenBucket;
         this.reconciler = reconciler;
         this.scheduler = scheduler;
+        this.registry = titusRuntime.getRegistry();
+        this.targetUpdateLatencyId = registry.createId(METRIC_TARGET_UPDATE_LATENCY);
+        this.pendingTargetsId = registry.createId(METRIC_PENDING_TARGETS);
     }
 
     public void add(JobLoadBalancer jobLoadBalancer) {
@@ -121,17 +143,27 @@ class LoadBalancerEngine {
                 registerFromEvents(stateTransitions),
                 deregisterFromEvents(stateTransitions),
                 moveFromEvents(tasksMoved)
-        ).compose(disableReconciliationTemporarily());
-
-        return updates
+        ).compose(disableReconciliationTemporarily()).doOnNext(this::addPending);
+
+        // The batcher only emits when requested, so updates accumulate (coalesced by target) in its buffer while
+        // the max number of batches are being applied, instead of being dropped. The batcher buffer and the in-flight
+        // batches are lost on error, so the pending targets are cleared on each (re)subscription.
+        return Observable.defer(() -> {
+            clearPending();
+            return updates;
+        })
                 .compose(ObservableExt.batchWithRateLimit(buildBatcher(), METRIC_BATCHES, titusRuntime.getRegistry()))
                 .filter(batch -> !batch.getItems().isEmpty())
-                .onBackpressureDrop(batch -> logger.warn("Backpressure! Dropping batch for {} size {}", batch.getIndex(), batch.size()))
                 .doOnNext(batch -> logger.debug("Processing batch for {} size {}", batch.getIndex(), batch.size()))
-                .flatMap(batch -> applyUpdates(batch).onErrorResumeNext(e -> {
-                    logger.error("Could not apply batch for load balancer " + batch.getIndex(), e);
-                    return Observable.empty();
-                }))
+                .flatMap(batch -> applyUpdates(batch)
+                                .doOnNext(applied -> removePending(applied, true))
+                                .onErrorResumeNext(e -> {
+                                    logger.error("Could not apply batch for load balancer " + batch.getIndex(), e);
+                                    removePending(batch, false);
+                                    return Observable.empty();
+                                }),
+                        Math.max(1, configuration.getMaxConcurrentBatches())
+                )
                 .doOnNext(batch -> logger.info("Processed {} load balancer updates for {}", batch.size(), batch.getIndex()))
                 .doOnError(e -> logger.error("Error batching load balancer calls", e))
                 .retry();
@@ -147,6 +179,57 @@ class LoadBalancerEngine {
         );
     }
 
+    private void addPending(TargetStateBatchable update) {
+        pendingTargets.compute(update.getLoadBalancerId(), (loadBalancerId, targets) -> {
+            Map<LoadBalancerTarget, TargetStateBatchable> result = targets == null ? new ConcurrentHashMap<>() : targets;
+            result.merge(update.getIdentifier(), update, (previous, next) -> isReplacedBy(previous, next) ? next : previous);
+            getPendingTargetsGauge(loadBalancerId).set(result.size());
+            return result;
+        });
+    }
+
+    /**
+     * Same conflict resolution as in {@link RateLimitedBatcher}: an update is replaced by one with a higher priority,
+     * or by a newer one with the same priority that changes the target state.
+     */
+    private static boolean isReplacedBy(TargetStateBatchable existing, TargetStateBatchable replacement) {
+        int priorityComparison = Batchable.byPriority().compare(replacement, existing);
+        if (priorityComparison != 0) {
+            return priorityComparison > 0;
+        }
+        return !replacement.getTimestamp().isBefore(existing.getTimestamp()) && !replacement.isEquivalent(existing);
+    }
+
+    /**
+     * Targets updated to a different state after the batch was emitted stay pending, until that update is applied.
+     */
+    private void removePending(Batch<TargetStateBatchable, String> batch, boolean applied) {
+        long now = scheduler.now();
+        if (applied) {
+            batch.getItems().forEach(item -> registry.timer(targetUpdateLatencyId.withTag("state", item.getState().name()))
+                    .record(Math.max(0, now - item.getTimestamp().toEpochMilli()), TimeUnit.MILLISECONDS)
+            );
+        }
+        pendingTargets.computeIfPresent(batch.getIndex(), (loadBalancerId, targets) -> {
+            batch.getItems().forEach(item -> targets.computeIfPresent(item.getIdentifier(),
+                    (target, pending) -> pending.isEquivalent(item) ? null : pending
+            ));
+            getPendingTargetsGauge(loadBalancerId).set(targets.size());
+            return targets.isEmpty() ? null : targets;
+        });
+    }
+
+    private void clearPending() {
+        pendingTargets.keySet().forEach(loadBalancerId -> pendingTargets.computeIfPresent(loadBalancerId, (id, targets) -> {
+            getPendingTargetsGauge(id).set(0);
+            return null;
+        }));
+    }
+
+    private Gauge getPendingTargetsGauge(String loadBalancerId) {
+        return registry.gauge(pendingTargetsId.withTag("loadBalancerId", loadBalancerId));
+    }
+
     public void shutdown() {
         this.pendingAssociations.onCompleted();
         this.pendingDissociations.onCompleted();
@@ -140,4 +140,37 @@ public interface MesosConfiguration {
      * {@link KubeConstants#TAINT_SCHEDULER} which is checked explicitly.
      */
     Set<String> getFenzoTaintTolerations();
+
+    /**
+     * @return maximum number of pod create requests executed concurrently by the kube api server integration.
+     */
+    @DefaultValue("20")
+    int getKubePodLaunchConcurrency();
+
+    /**
+     * @return maximum number of pod create requests in progress, including those waiting for execution or a retry.
+     * When the limit is reached, the task launch call from the scheduler blocks until some requests complete.
+     */
+    @DefaultValue("500")
+    int getKubePodLaunchMaxInFlight();
+
+    /**
+     * @return timeout of a single pod create request.
+     */
+    @DefaultValue("5000")
+    long getKubePodLaunchTimeoutMs();
+
+    /**
+     * @return number of retries of a failed pod create request. Only timeouts, connection errors, throttling and
+     * server errors are retried.
+     */
+    @DefaultValue("3")
+    int getKubePodLaunchRetryCount();
+
+    /**
+     * @return whether or not to coalesce task status updates. If enabled, status updates of tasks belonging to the
+     * same job, which arrive while a previous update of the job is in progress, are merged and applied together.
+     */
+    @DefaultValue("true")
+    boolean isTaskStatusUpdateCoalescingEnabled();
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.mesos;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
+import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.master.MetricConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges task status updates, so each job has at most one update in progress. Updates arriving while a job update
+ * is in progress are queued, and applied together once it completes. If there is more than one pending update for
+ * the same task, their change functions are chained, so the task goes through all the intermediate states, and its
+ * status history is complete.
+ */
+class TaskStatusUpdateCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusUpdateCoalescer.class);
+
+    private static final String ROOT = MetricConstants.METRIC_MESOS + "taskStatusUpdateCoalescer.";
+
+    private final V3JobOperations v3JobOperations;
+    private final CallMetadata callMetadata;
+    private final Registry registry;
+
+    private final Object lock = new Object();
+    private final Map<String, JobUpdates> updatesByJobId = new HashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Id pendingGaugeId;
+    private final Counter receivedCounter;
+    private final Counter coalescedCounter;
+    private final Counter appliedCounter;
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    TaskStatusUpdateCoalescer(V3JobOperations v3JobOperations, CallMetadata callMetadata, Registry registry) {
+        this.v3JobOperations = v3JobOperations;
+        this.callMetadata = callMetadata;
+        this.registry = registry;
+
+        this.pendingGaugeId = registry.createId(ROOT + "pending");
+        this.receivedCounter = registry.counter(ROOT + "received");
+        this.coalescedCounter = registry.counter(ROOT + "coalesced");
+        this.appliedCounter = registry.counter(ROOT + "applied");
+        this.failedCounter = registry.counter(ROOT + "failed");
+        this.batchSizeSummary = registry.distributionSummary(ROOT + "batchSize");
+        PolledMeter.using(registry).withId(pendingGaugeId).monitorValue(pendingCount);
+    }
+
+    void shutdown() {
+        PolledMeter.remove(registry, pendingGaugeId);
+    }
+
+    int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    void update(String jobId, String taskId, Function<Task, Optional<Task>> changeFunction, String reason) {
+        receivedCounter.increment();
+
+        boolean startUpdate;
+        synchronized (lock) {
+            JobUpdates jobUpdates = updatesByJobId.computeIfAbsent(jobId, id -> new JobUpdates());
+            PendingTaskUpdate previous = jobUpdates.pending.get(taskId);
+            if (previous == null) {
+                jobUpdates.pending.put(taskId, new PendingTaskUpdate(changeFunction, reason));
+                pendingCount.incrementAndGet();
+            } else {
+                jobUpdates.pending.put(taskId, previous.andThen(changeFunction, reason));
+                coalescedCounter.increment();
+            }
+            startUpdate = !jobUpdates.inProgress;
+            jobUpdates.inProgress = true;
+        }
+
+        if (startUpdate) {
+            applyNext(jobId);
+        }
+    }
+
+    private void applyNext(String jobId) {
+        Map<String, PendingTaskUpdate> batch;
+        synchronized (lock) {
+            JobUpdates jobUpdates = updatesByJobId.get(jobId);
+            if (jobUpdates.pending.isEmpty()) {
+                updatesByJobId.remove(jobId);
+                return;
+            }
+            batch = jobUpdates.pending;
+            jobUpdates.pending = new LinkedHashMap<>();
+            pendingCount.addAndGet(-batch.size());
+        }
+        batchSizeSummary.record(batch.size());
+
+        Map<String, Function<Task, Optional<Task>>> changeFunctions = new LinkedHashMap<>();
+        batch.forEach((taskId, update) -> changeFunctions.put(taskId, update.changeFunction));
+        String reason = batch.size() == 1
+                ? batch.values().iterator().next().reason
+                : "Mesos -> status updates of " + batch.size() + " tasks";
+
+        try {
+            v3JobOperations.updateTasks(jobId, changeFunctions, Trigger.Mesos, reason, callMetadata).subscribe(
+                    () -> {
+                        appliedCounter.increment(batch.size());
+                        batch.forEach((taskId, update) -> logger.info("Changed task {} status: {}", taskId, update.reason));
+                        applyNext(jobId);
+                    },
+                    e -> {
+                        failedCounter.increment(batch.size());
+                        logger.warn("Could not update task states of job {} ({}): {}", jobId, e.toString(), batch.keySet());
+                        applyNext(jobId);
+                    }
+            );
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            logger.warn("Could not update task states of job {}", jobId, e);
+            applyNext(jobId);
+        }
+    }
+
+    private static class JobUpdates {
+
+        private Map<String, PendingTaskUpdate> pending = new LinkedHashMap<>();
+        private boolean inProgress;
+    }
+
+    private static class PendingTaskUpdate {
+
+        private final Function<Task, Optional<Task>> changeFunction;
+        private final String reason;
+
+        private PendingTaskUpdate(Function<Task, Optional<Task>> changeFunction, String reason) {
+            this.changeFunction = changeFunction;
+            this.reason = reason;
+        }
+
+        /**
+         * Empty result of a change function means that the task was not changed, so the next function is applied to
+         * the original task.
+         */
+        private PendingTaskUpdate andThen(Function<Task, Optional<Task>> next, String nextReason) {
+            Function<Task, Optional<Task>> combined = task -> {
+                Optional<Task> first = changeFunction.apply(task);
+                Optional<Task> second = next.apply(first.orElse(task));
+                return second.isPresent() ? second : first;
+            };
+            return new PendingTaskUpdate(combined, nextReason);
+        }
+    }
+}
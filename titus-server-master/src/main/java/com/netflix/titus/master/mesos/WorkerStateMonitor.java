@@ -53,12 +53,20 @@ public class WorkerStateMonitor {
 
     private static CallMetadata MESOS_CALL_METADATA = CallMetadata.newBuilder().withCallerId("Mesos").build();
 
+    private final TaskStatusUpdateCoalescer updateCoalescer;
+
     @Inject
-    public WorkerStateMonitor(VirtualMachineMasterService vmService,
+    public WorkerStateMonitor(MesosConfiguration configuration,
+                              VirtualMachineMasterService vmService,
                               KubeJobManagementReconciler kubeJobManagementReconciler,
                               V3JobOperations v3JobOperations,
                               TitusRuntime titusRuntime) {
         this.vmService = vmService;
+        this.updateCoalescer = new TaskStatusUpdateCoalescer(
+                v3JobOperations,
+                MESOS_CALL_METADATA.toBuilder().withCallReason("Mesos task change").build(),
+                titusRuntime.getRegistry()
+        );
         Observable
                 .merge(
                         vmService.getTaskStatusObservable(),
@@ -118,10 +126,14 @@ public class WorkerStateMonitor {
 
                                         // Failures are logged only, as the reconciler will take care of it if needed.
                                         final Function<Task, Optional<Task>> updater = JobManagerUtil.newMesosTaskStateUpdater(taskStatus, args.getTitusExecutorDetails(), titusRuntime);
-                                        v3JobOperations.updateTask(task.getId(), updater, Trigger.Mesos, "Mesos -> " + taskStatus, MESOS_CALL_METADATA.toBuilder().withCallReason("Mesos task change").build()).subscribe(
-                                                () -> logger.info("Changed task {} status state to {}", task.getId(), taskStatus),
-                                                e -> logger.warn("Could not update task state of {} to {} ({})", args.getTaskId(), taskStatus, e.toString())
-                                        );
+                                        if (configuration.isTaskStatusUpdateCoalescingEnabled()) {
+                                            updateCoalescer.update(task.getJobId(), task.getId(), updater, "Mesos -> " + taskStatus);
+                                        } else {
+                                            v3JobOperations.updateTask(task.getId(), updater, Trigger.Mesos, "Mesos -> " + taskStatus, MESOS_CALL_METADATA.toBuilder().withCallReason("Mesos task change").build()).subscribe(
+                                                    () -> logger.info("Changed task {} status state to {}", task.getId(), taskStatus),
+                                                    e -> logger.warn("Could not update task state of {} to {} ({})", args.getTaskId(), taskStatus, e.toString())
+                                            );
+                                        }
                                     }
                                     return;
                                 }
@@ -176,5 +188,6 @@ public class WorkerStateMonitor {
     @PreDestroy
     public void shutdown() {
         shutdownFlag.set(true);
+        updateCoalescer.shutdown();
     }
 }
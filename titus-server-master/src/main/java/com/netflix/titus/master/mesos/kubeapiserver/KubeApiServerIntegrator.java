@@ -27,6 +27,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -92,6 +93,7 @@ import static com.netflix.titus.api.jobmanager.model.job.TaskState.Started;
 import static com.netflix.titus.api.jobmanager.model.job.TaskStatus.REASON_FAILED;
 import static com.netflix.titus.api.jobmanager.model.job.TaskStatus.REASON_NORMAL;
 import static com.netflix.titus.api.jobmanager.model.job.TaskStatus.REASON_TASK_KILLED;
+import static com.netflix.titus.api.jobmanager.model.job.TaskStatus.REASON_TRANSIENT_SYSTEM_ERROR;
 
 /**
  * Responsible for integrating Kubernetes API Server concepts into Titus's Mesos based approaches.
@@ -133,6 +135,7 @@ public class KubeApiServerIntegrator implements VirtualMachineMasterService {
     private final Injector injector;
     private final KubeApiFacade kubeApiFacade;
     private final ContainerResultCodeResolver containerResultCodeResolver;
+    private final KubePodLauncher podLauncher;
 
     private final Counter launchTaskCounter;
     private final Counter rejectLeaseCounter;
@@ -173,6 +176,7 @@ public class KubeApiServerIntegrator implements VirtualMachineMasterService {
         this.injector = injector;
         this.kubeApiFacade = kubeApiFacade;
         this.containerResultCodeResolver = containerResultCodeResolver;
+        this.podLauncher = new KubePodLauncher(mesosConfiguration, kubeApiFacade, titusRuntime);
 
         this.vmTaskStatusObserver = PublishSubject.create();
 
@@ -221,20 +225,34 @@ public class KubeApiServerIntegrator implements VirtualMachineMasterService {
         scheduler.schedule(reconcileSchedulerDescriptor, e -> reconcileNodesAndPods(), ExecutorsExt.namedSingleThreadExecutor("kube-api-server-integrator-gc"));
     }
 
+    @PreDestroy
+    public void shutdown() {
+        podLauncher.shutdown();
+    }
+
     @Override
     public void launchTasks(List<TaskInfoRequest> requests, List<VirtualMachineLease> leases) {
         launchTaskCounter.increment();
-        for (TaskInfoRequest request : requests) {
-            try {
-                V1Pod v1Pod = taskInfoToPod(request);
-                logger.info("creating pod: {}", v1Pod);
-                kubeApiFacade.getCoreV1Api().createNamespacedPod(KUBERNETES_NAMESPACE, v1Pod, null, null, null);
-            } catch (ApiException e) {
-                logger.error("Unable to create pod with error:", e);
+        for (int i = 0; i < requests.size(); i++) {
+            if (!podLauncher.launch(taskInfoToPod(requests.get(i)))) {
+                failNotLaunchedTasks(requests.subList(i, requests.size()));
+                return;
             }
         }
     }
 
+    /**
+     * Called when the launch loop is interrupted. Pods for the remaining tasks were not created, so the tasks are
+     * moved to the finished state, instead of waiting in the accepted state for the stuck task timeout.
+     */
+    private void failNotLaunchedTasks(List<TaskInfoRequest> requests) {
+        List<String> taskIds = requests.stream().map(request -> request.getTaskInfo().getName()).collect(Collectors.toList());
+        logger.warn("Interrupted while launching tasks. Failing {} tasks without pods: {}", taskIds.size(), taskIds);
+        Thread.currentThread().interrupt();
+        taskIds.forEach(taskId -> publishContainerEvent(taskId, Finished, REASON_TRANSIENT_SYSTEM_ERROR,
+                "Pod not created: task launch interrupted", Optional.empty()));
+    }
+
     @Override
     public void rejectLease(VirtualMachineLease lease) {
         rejectLeaseCounter.increment();
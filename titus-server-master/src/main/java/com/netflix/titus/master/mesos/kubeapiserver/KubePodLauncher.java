@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.mesos.kubeapiserver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Stopwatch;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ExecutorsExt;
+import com.netflix.titus.common.util.rx.RetryHandlerBuilder;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.mesos.MesosConfiguration;
+import com.netflix.titus.master.mesos.kubeapiserver.direct.KubeApiFacade;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1Pod;
+import okhttp3.Call;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Creates pods in the kube api server asynchronously, so the scheduling loop is not blocked by the api server
+ * latency. The number of concurrently executed requests is bounded by the size of the api client thread pool.
+ * Each request is bounded by an OkHttp call timeout, so a slow api server call releases its thread, and is retried.
+ * The total number of requests in progress (executed, waiting for a thread or for a retry) is bounded as well.
+ * If the limit is reached, {@link #launch(V1Pod)} blocks until some of the pending requests complete, which slows
+ * down the scheduler instead of queueing an unbounded number of requests.
+ */
+class KubePodLauncher {
+
+    private static final Logger logger = LoggerFactory.getLogger(KubePodLauncher.class);
+
+    private static final String ROOT = MetricConstants.METRIC_KUBERNETES + "podLauncher.";
+
+    private static final String KUBERNETES_NAMESPACE = "default";
+
+    private static final long RETRY_DELAY_MS = 100;
+    private static final long MAX_RETRY_DELAY_MS = 1_000;
+
+    private static final int HTTP_CONFLICT = 409;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    private final MesosConfiguration configuration;
+    private final KubeApiFacade kubeApiFacade;
+    private final Registry registry;
+
+    private final ExecutorService apiClientExecutor;
+    private final Scheduler apiClientScheduler;
+
+    private final Semaphore inFlightPermits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Id inFlightGaugeId;
+    private final Id launchLatencyId;
+    private final Id backPressureLatencyId;
+
+    KubePodLauncher(MesosConfiguration configuration, KubeApiFacade kubeApiFacade, TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.kubeApiFacade = kubeApiFacade;
+        this.registry = titusRuntime.getRegistry();
+
+        this.apiClientExecutor = ExecutorsExt.instrumentedFixedSizeThreadPool(registry, "kube-pod-launcher", configuration.getKubePodLaunchConcurrency());
+        this.apiClientScheduler = Schedulers.fromExecutorService(apiClientExecutor);
+        this.inFlightPermits = new Semaphore(configuration.getKubePodLaunchMaxInFlight());
+
+        this.inFlightGaugeId = registry.createId(ROOT + "inFlight");
+        this.launchLatencyId = registry.createId(ROOT + "launchLatency");
+        this.backPressureLatencyId = registry.createId(ROOT + "backPressureLatency");
+        PolledMeter.using(registry).withId(inFlightGaugeId).monitorValue(inFlight);
+    }
+
+    void shutdown() {
+        PolledMeter.remove(registry, inFlightGaugeId);
+        apiClientScheduler.dispose();
+        apiClientExecutor.shutdown();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Schedules creation of the given pod. Returns immediately, unless the in-flight limit is reached.
+     *
+     * @return false if the calling thread was interrupted while waiting for an in-flight slot, and the pod was not
+     * scheduled for creation
+     */
+    boolean launch(V1Pod pod) {
+        Stopwatch waitTimer = Stopwatch.createStarted();
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for an in-flight slot to create pod: {}", pod.getMetadata().getName());
+            return false;
+        }
+        PercentileTimer.get(registry, backPressureLatencyId).record(waitTimer.elapsed(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        inFlight.incrementAndGet();
+
+        Stopwatch timer = Stopwatch.createStarted();
+        newCreatePodAction(pod)
+                .doFinally(signal -> {
+                    inFlight.decrementAndGet();
+                    inFlightPermits.release();
+                })
+                .subscribe(
+                        next -> {
+                        },
+                        error -> {
+                            logger.error("Unable to create pod: {}", pod.getMetadata().getName(), error);
+                            recordLatency(timer, "error", error.getClass().getSimpleName());
+                        },
+                        () -> recordLatency(timer, "success", "none")
+                );
+        return true;
+    }
+
+    private Mono<Void> newCreatePodAction(V1Pod pod) {
+        String podName = pod.getMetadata().getName();
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<Void> action = Mono.<Void>fromRunnable(() -> {
+            boolean retry = attempts.incrementAndGet() > 1;
+            try {
+                logger.info("creating pod: {}", pod);
+                createPod(pod);
+            } catch (ApiException e) {
+                if (retry && e.getCode() == HTTP_CONFLICT) {
+                    // Possible if a previous attempt timed out, but the pod was created.
+                    logger.info("Pod already exists: {}", podName);
+                    return;
+                }
+                throw new KubePodLaunchException(podName, e);
+            }
+        }).subscribeOn(apiClientScheduler);
+
+        int retryCount = configuration.getKubePodLaunchRetryCount();
+        if (retryCount <= 0) {
+            return action;
+        }
+        return action.retryWhen(RetryHandlerBuilder.retryHandler()
+                .withTitle("create pod " + podName)
+                .withRetryCount(retryCount)
+                .withDelay(RETRY_DELAY_MS, MAX_RETRY_DELAY_MS, TimeUnit.MILLISECONDS)
+                .withRetryOnThrowable(KubePodLauncher::isRetryable)
+                .withReactorScheduler(apiClientScheduler)
+                .buildReactorExponentialBackoff()
+        );
+    }
+
+    /**
+     * The shared api client has no read timeout, as it is also used by the informers to watch resources. The timeout
+     * is set on the call instead. A timed out call fails with {@link ApiException} with code 0 (no HTTP response).
+     */
+    private void createPod(V1Pod pod) throws ApiException {
+        Call call = kubeApiFacade.getCoreV1Api().createNamespacedPodCall(KUBERNETES_NAMESPACE, pod, null, null, null, null);
+        call.timeout().timeout(configuration.getKubePodLaunchTimeoutMs(), TimeUnit.MILLISECONDS);
+        kubeApiFacade.getApiClient().execute(call, V1Pod.class);
+    }
+
+    private void recordLatency(Stopwatch timer, String status, String error) {
+        PercentileTimer.get(registry, launchLatencyId.withTags("status", status, "error", error))
+                .record(timer.elapsed(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof KubePodLaunchException) {
+            int code = ((ApiException) error.getCause()).getCode();
+            // Code 0 means no HTTP response (connection error or call timeout).
+            return code == 0 || code == HTTP_TOO_MANY_REQUESTS || code >= HTTP_SERVER_ERROR;
+        }
+        return false;
+    }
+
+    private static class KubePodLaunchException extends RuntimeException {
+
+        private KubePodLaunchException(String podName, ApiException cause) {
+            super("Unable to create pod " + podName + ": code=" + cause.getCode() + ", body=" + cause.getResponseBody(), cause);
+        }
+    }
+}
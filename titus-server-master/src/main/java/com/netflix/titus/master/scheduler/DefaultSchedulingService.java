@@ -85,6 +85,7 @@ import com.netflix.titus.master.scheduler.TaskPlacementFailure.FailureKind;
 import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
 import com.netflix.titus.master.scheduler.constraint.TaskCacheEventListener;
 import com.netflix.titus.master.scheduler.fitness.AgentManagementFitnessCalculator;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 import com.netflix.titus.master.scheduler.fitness.TitusFitnessCalculator;
 import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCache;
 import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheUpdater;
@@ -186,6 +187,7 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
                                     SchedulerConfiguration schedulerConfiguration,
                                     SystemHardConstraint systemHardConstraint,
                                     TaskCache taskCache,
+                                    AgentTaskIndex agentTaskIndex,
                                     OpportunisticCpuCache opportunisticCpuCache,
                                     TierSlaUpdater tierSlaUpdater,
                                     Registry registry,
@@ -198,7 +200,7 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
                                     ApplicationSlaManagementService capacityGroupService,
                                     SchedulingMachinesFilter schedulingMachinesFilter) {
         this(v3JobOperations, agentManagementService, v3TaskInfoRequestFactory, vmOps, virtualMachineService,
-                masterConfiguration, schedulerConfiguration, systemHardConstraint, taskCache, opportunisticCpuCache,
+                masterConfiguration, schedulerConfiguration, systemHardConstraint, taskCache, agentTaskIndex, opportunisticCpuCache,
                 Schedulers.computation(), tierSlaUpdater, registry, preferentialNamedConsumableResourceEvaluator,
                 agentManagementFitnessCalculator, titusRuntime, agentResourceCache, config,
                 mesosConfiguration, capacityGroupService, schedulingMachinesFilter);
@@ -213,6 +215,7 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
                                     SchedulerConfiguration schedulerConfiguration,
                                     SystemHardConstraint systemHardConstraint,
                                     TaskCache taskCache,
+                                    AgentTaskIndex agentTaskIndex,
                                     OpportunisticCpuCache opportunisticCpuCache,
                                     Scheduler threadScheduler,
                                     TierSlaUpdater tierSlaUpdater,
@@ -256,13 +259,13 @@ public class DefaultSchedulingService implements SchedulingService<V3QueueableTa
         TaskScheduler.Builder schedulerBuilder = new TaskScheduler.Builder()
                 .withLeaseRejectAction(virtualMachineService::rejectLease)
                 .withLeaseOfferExpirySecs(masterConfiguration.getMesosLeaseOfferExpirySecs())
-                .withFitnessCalculator(new TitusFitnessCalculator(schedulerConfiguration, agentManagementFitnessCalculator, agentResourceCache))
+                .withFitnessCalculator(new TitusFitnessCalculator(schedulerConfiguration, agentManagementFitnessCalculator, agentResourceCache, agentTaskIndex))
                 .withFitnessGoodEnoughFunction(TitusFitnessCalculator.fitnessGoodEnoughFunction)
                 .withPreferentialNamedConsumableResourceEvaluator(preferentialNamedConsumableResourceEvaluator)
                 .withMaxConcurrent(schedulerConfiguration.getSchedulerMaxConcurrent())
                 .withTaskBatchSizeSupplier(schedulerConfiguration::getTaskBatchSize)
                 .withAssignableVMsEvaluator(schedulingMachinesFilter::filter)
-                .withSchedulingEventListener(new TaskCacheEventListener(taskCache, opportunisticCpuCache, titusRuntime));
+                .withSchedulingEventListener(new TaskCacheEventListener(taskCache, opportunisticCpuCache, agentTaskIndex, titusRuntime));
 
         taskScheduler = setupTaskScheduler(virtualMachineService.getLeaseRescindedObservable(), schedulerBuilder);
         taskQueue = TaskQueues.createTieredQueue(2);
@@ -171,4 +171,18 @@ public interface SchedulerConfiguration {
      */
     @DefaultValue("15000")
     long getStateDumpTimeoutMs();
+
+    /**
+     * @return interval at which the task cache, which is otherwise updated incrementally from job events, is rebuilt
+     * from scratch and checked for consistency.
+     */
+    @DefaultValue("60000")
+    long getTaskCacheFullRebuildIntervalMs();
+
+    /**
+     * @return true if the fitness calculators and the constraint evaluators should use task counters aggregated once
+     * per scheduling iteration, instead of scanning all tasks of an agent in each evaluation.
+     */
+    @DefaultValue("true")
+    boolean isAgentTaskIndexEnabled();
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import com.netflix.fenzo.TaskAssignmentResult;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.code.CodeInvariants;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 import com.netflix.titus.master.scheduler.opportunistic.OpportunisticCpuAvailability;
 import com.netflix.titus.master.scheduler.resourcecache.OpportunisticCpuAllocation;
 import com.netflix.titus.master.scheduler.resourcecache.OpportunisticCpuCache;
@@ -37,11 +38,16 @@ public class TaskCacheEventListener implements SchedulingEventListener {
 
     private final TaskCache taskCache;
     private final OpportunisticCpuCache opportunisticCpuCache;
+    private final AgentTaskIndex agentTaskIndex;
     private final TitusRuntime titusRuntime;
 
-    public TaskCacheEventListener(TaskCache taskCache, OpportunisticCpuCache opportunisticCpuCache, TitusRuntime titusRuntime) {
+    public TaskCacheEventListener(TaskCache taskCache,
+                                  OpportunisticCpuCache opportunisticCpuCache,
+                                  AgentTaskIndex agentTaskIndex,
+                                  TitusRuntime titusRuntime) {
         this.taskCache = taskCache;
         this.opportunisticCpuCache = opportunisticCpuCache;
+        this.agentTaskIndex = agentTaskIndex;
         this.titusRuntime = titusRuntime;
     }
 
@@ -49,10 +55,13 @@ public class TaskCacheEventListener implements SchedulingEventListener {
     public void onScheduleStart() {
         taskCache.prepare();
         opportunisticCpuCache.prepare();
+        agentTaskIndex.prepare();
     }
 
     @Override
     public void onAssignment(TaskAssignmentResult taskAssignmentResult) {
+        agentTaskIndex.onAssignment(taskAssignmentResult);
+
         V3QueueableTask request = (V3QueueableTask) taskAssignmentResult.getRequest();
         Map<String, String> taskContext = request.getTask().getTaskContext();
         if (taskContext.containsKey(TASK_ATTRIBUTES_IP_ALLOCATION_ID)) {
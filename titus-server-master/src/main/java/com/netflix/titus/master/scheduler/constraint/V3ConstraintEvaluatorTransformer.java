@@ -31,6 +31,7 @@ import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.config.MasterConfiguration;
 import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 import com.netflix.titus.master.scheduler.resourcecache.TaskCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,16 +77,19 @@ public class V3ConstraintEvaluatorTransformer implements ConstraintEvaluatorTran
     private final MasterConfiguration config;
     private final SchedulerConfiguration schedulerConfiguration;
     private final TaskCache taskCache;
+    private final AgentTaskIndex agentTaskIndex;
     private final AgentManagementService agentManagementService;
 
     @Inject
     public V3ConstraintEvaluatorTransformer(MasterConfiguration config,
                                             SchedulerConfiguration schedulerConfiguration,
                                             TaskCache taskCache,
+                                            AgentTaskIndex agentTaskIndex,
                                             AgentManagementService agentManagementService) {
         this.config = config;
         this.schedulerConfiguration = schedulerConfiguration;
         this.taskCache = taskCache;
+        this.agentTaskIndex = agentTaskIndex;
         this.agentManagementService = agentManagementService;
     }
 
@@ -97,10 +101,10 @@ public class V3ConstraintEvaluatorTransformer implements ConstraintEvaluatorTran
             case EXCLUSIVE_HOST:
                 return "true".equals(value) ? Optional.of(EXCLUSIVE_HOST_CONSTRAINT) : Optional.empty();
             case UNIQUE_HOST:
-                return "true".equals(value) ? Optional.of(new V3UniqueHostConstraint()) : Optional.empty();
+                return "true".equals(value) ? Optional.of(new V3UniqueHostConstraint(agentTaskIndex)) : Optional.empty();
             case ZONE_BALANCE:
                 return "true".equals(value)
-                        ? Optional.of(new V3ZoneBalancedHardConstraintEvaluator(taskCache, EXPECTED_NUM_ZONES, config.getHostZoneAttributeName()))
+                        ? Optional.of(new V3ZoneBalancedHardConstraintEvaluator(taskCache, agentTaskIndex, EXPECTED_NUM_ZONES, config.getHostZoneAttributeName()))
                         : Optional.empty();
             case ACTIVE_HOST:
                 return "true".equals(value)
@@ -139,10 +143,10 @@ public class V3ConstraintEvaluatorTransformer implements ConstraintEvaluatorTran
             case EXCLUSIVE_HOST:
                 return "true".equals(value) ? Optional.of(AsSoftConstraint.get(EXCLUSIVE_HOST_CONSTRAINT)) : Optional.empty();
             case UNIQUE_HOST:
-                return "true".equals(value) ? Optional.of(AsSoftConstraint.get(new V3UniqueHostConstraint())) : Optional.empty();
+                return "true".equals(value) ? Optional.of(AsSoftConstraint.get(new V3UniqueHostConstraint(agentTaskIndex))) : Optional.empty();
             case ZONE_BALANCE:
                 return "true".equals(value)
-                        ? Optional.of(new V3ZoneBalancedFitnessCalculator(taskCache, EXPECTED_NUM_ZONES, config.getHostZoneAttributeName()))
+                        ? Optional.of(new V3ZoneBalancedFitnessCalculator(taskCache, agentTaskIndex, EXPECTED_NUM_ZONES, config.getHostZoneAttributeName()))
                         : Optional.empty();
             case ACTIVE_HOST:
                 return "true".equals(value)
@@ -17,11 +17,11 @@
 package com.netflix.titus.master.scheduler.constraint;
 
 import com.netflix.fenzo.ConstraintEvaluator;
-import com.netflix.fenzo.TaskAssignmentResult;
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VirtualMachineCurrentState;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 
 public class V3UniqueHostConstraint implements ConstraintEvaluator {
 
@@ -30,6 +30,12 @@ public class V3UniqueHostConstraint implements ConstraintEvaluator {
     private static final Result VALID = new Result(true, null);
     private static final Result INVALID = new Result(false, "Task from the same job already running on the agent");
 
+    private final AgentTaskIndex agentTaskIndex;
+
+    public V3UniqueHostConstraint(AgentTaskIndex agentTaskIndex) {
+        this.agentTaskIndex = agentTaskIndex;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -39,24 +45,6 @@ public class V3UniqueHostConstraint implements ConstraintEvaluator {
     public Result evaluate(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
         V3QueueableTask v3FenzoTask = (V3QueueableTask) taskRequest;
         String jobId = v3FenzoTask.getJob().getId();
-
-        for (TaskRequest running : targetVM.getRunningTasks()) {
-            if (check(jobId, running)) {
-                return INVALID;
-            }
-        }
-
-        for (TaskAssignmentResult assigned : targetVM.getTasksCurrentlyAssigned()) {
-            if (check(jobId, assigned.getRequest())) {
-                return INVALID;
-            }
-        }
-
-        return VALID;
-    }
-
-    private boolean check(String jobId, TaskRequest running) {
-        V3QueueableTask v3FenzoRunningTask = (V3QueueableTask) running;
-        return v3FenzoRunningTask.getJob().getId().equals(jobId);
+        return agentTaskIndex.getAgentTaskCounters(targetVM).getJobTaskCount(jobId) > 0 ? INVALID : VALID;
     }
 }
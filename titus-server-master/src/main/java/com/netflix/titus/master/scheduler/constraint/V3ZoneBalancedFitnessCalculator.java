@@ -24,6 +24,7 @@ import com.netflix.fenzo.VMTaskFitnessCalculator;
 import com.netflix.fenzo.VirtualMachineCurrentState;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
 import com.netflix.titus.master.scheduler.SchedulerUtils;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 import com.netflix.titus.master.scheduler.resourcecache.TaskCache;
 
 public class V3ZoneBalancedFitnessCalculator implements VMTaskFitnessCalculator {
@@ -34,11 +35,13 @@ public class V3ZoneBalancedFitnessCalculator implements VMTaskFitnessCalculator
     private static final double MATCHING = 1.0;
 
     private final TaskCache taskCache;
+    private final AgentTaskIndex agentTaskIndex;
     private final int expectedValues;
     private final String zoneAttributeName;
 
-    public V3ZoneBalancedFitnessCalculator(TaskCache taskCache, int expectedValues, String zoneAttributeName) {
+    public V3ZoneBalancedFitnessCalculator(TaskCache taskCache, AgentTaskIndex agentTaskIndex, int expectedValues, String zoneAttributeName) {
         this.taskCache = taskCache;
+        this.agentTaskIndex = agentTaskIndex;
         this.expectedValues = expectedValues;
         this.zoneAttributeName = zoneAttributeName;
     }
@@ -61,7 +64,7 @@ public class V3ZoneBalancedFitnessCalculator implements VMTaskFitnessCalculator
         }
 
         V3QueueableTask v3FenzoTask = (V3QueueableTask) taskRequest;
-        Map<String, Integer> tasksByZoneId = SchedulerUtils.groupCurrentlyAssignedTasksByZoneId(v3FenzoTask.getJob().getId(), taskTrackerState.getAllCurrentlyAssignedTasks().values(), zoneAttributeName);
+        Map<String, Integer> tasksByZoneId = agentTaskIndex.getAssignedTasksByZoneId(v3FenzoTask.getJob().getId(), taskTrackerState, zoneAttributeName);
         Map<String, Integer> runningTasksByZoneId = taskCache.getTasksByZoneIdCounters(v3FenzoTask.getJob().getId());
         for (Map.Entry<String, Integer> entry : runningTasksByZoneId.entrySet()) {
             tasksByZoneId.put(entry.getKey(), tasksByZoneId.getOrDefault(entry.getKey(), 0) + entry.getValue());
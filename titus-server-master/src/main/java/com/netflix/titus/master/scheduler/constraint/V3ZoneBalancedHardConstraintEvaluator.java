@@ -24,6 +24,7 @@ import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VirtualMachineCurrentState;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
 import com.netflix.titus.master.scheduler.SchedulerUtils;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 import com.netflix.titus.master.scheduler.resourcecache.TaskCache;
 
 public class V3ZoneBalancedHardConstraintEvaluator implements ConstraintEvaluator {
@@ -37,9 +38,11 @@ public class V3ZoneBalancedHardConstraintEvaluator implements ConstraintEvaluato
     private final int expectedValues;
     private final String zoneAttributeName;
     private final TaskCache taskCache;
+    private final AgentTaskIndex agentTaskIndex;
 
-    protected V3ZoneBalancedHardConstraintEvaluator(TaskCache taskCache, int expectedValues, String zoneAttributeName) {
+    protected V3ZoneBalancedHardConstraintEvaluator(TaskCache taskCache, AgentTaskIndex agentTaskIndex, int expectedValues, String zoneAttributeName) {
         this.taskCache = taskCache;
+        this.agentTaskIndex = agentTaskIndex;
         this.expectedValues = expectedValues;
         this.zoneAttributeName = zoneAttributeName;
     }
@@ -66,7 +69,7 @@ public class V3ZoneBalancedHardConstraintEvaluator implements ConstraintEvaluato
     }
 
     protected Result evaluate(String targetZoneId, String jobId, TaskTrackerState taskTrackerState) {
-        Map<String, Integer> tasksByZoneId = SchedulerUtils.groupCurrentlyAssignedTasksByZoneId(jobId, taskTrackerState.getAllCurrentlyAssignedTasks().values(), zoneAttributeName);
+        Map<String, Integer> tasksByZoneId = agentTaskIndex.getAssignedTasksByZoneId(jobId, taskTrackerState, zoneAttributeName);
         Map<String, Integer> runningTasksByZoneId = taskCache.getTasksByZoneIdCounters(jobId);
         for (Map.Entry<String, Integer> entry : runningTasksByZoneId.entrySet()) {
             tasksByZoneId.put(entry.getKey(), tasksByZoneId.getOrDefault(entry.getKey(), 0) + entry.getValue());
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheFunctions;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheImage;
+
+/**
+ * Task counters of a single agent, aggregated by the task properties that the fitness calculators and constraint
+ * evaluators compare against. Includes both the tasks running on the agent, and the tasks assigned to it in the
+ * current scheduling iteration.
+ */
+public class AgentTaskCounters {
+
+    private int taskCount;
+    private int serviceTaskCount;
+    private final Map<String, Integer> taskCountByJobId = new HashMap<>();
+    private final Map<AgentResourceCacheImage, Integer> taskCountByImage = new HashMap<>();
+    private final Map<List<String>, Integer> taskCountBySecurityGroups = new HashMap<>();
+
+    private final Set<String> assignedTaskIds = new HashSet<>();
+
+    AgentTaskCounters(VirtualMachineCurrentState targetVM) {
+        for (TaskRequest running : targetVM.getRunningTasks()) {
+            add(running);
+        }
+        syncAssigned(targetVM);
+    }
+
+    public synchronized int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Tasks of jobs other than service jobs are counted as batch tasks.
+     */
+    public synchronized int getBatchTaskCount() {
+        return taskCount - serviceTaskCount;
+    }
+
+    public synchronized int getServiceTaskCount() {
+        return serviceTaskCount;
+    }
+
+    public synchronized int getJobTaskCount(String jobId) {
+        return taskCountByJobId.getOrDefault(jobId, 0);
+    }
+
+    public synchronized int getImageTaskCount(AgentResourceCacheImage image) {
+        return taskCountByImage.getOrDefault(image, 0);
+    }
+
+    /**
+     * Returns the number of tasks having security groups matching the given ones, as defined by
+     * {@link FitnessCalculatorFunctions#areSecurityGroupsEqual(java.util.Collection, java.util.Collection)}.
+     */
+    public synchronized int getSecurityGroupsTaskCount(List<String> securityGroups) {
+        int count = 0;
+        for (Map.Entry<List<String>, Integer> entry : taskCountBySecurityGroups.entrySet()) {
+            if (FitnessCalculatorFunctions.areSecurityGroupsEqual(securityGroups, entry.getKey())) {
+                count += entry.getValue();
+            }
+        }
+        return count;
+    }
+
+    synchronized void addAssigned(TaskAssignmentResult assignment) {
+        if (assignedTaskIds.add(assignment.getTaskId())) {
+            add(assignment.getRequest());
+        }
+    }
+
+    /**
+     * Adds tasks assigned to the agent, that were not reported via {@link #addAssigned(TaskAssignmentResult)}.
+     * Tasks are only added to an agent during a scheduling iteration, so comparing the counts is sufficient.
+     */
+    synchronized void syncAssigned(VirtualMachineCurrentState targetVM) {
+        if (targetVM.getTasksCurrentlyAssigned().size() == assignedTaskIds.size()) {
+            return;
+        }
+        for (TaskAssignmentResult assignment : targetVM.getTasksCurrentlyAssigned()) {
+            addAssigned(assignment);
+        }
+    }
+
+    private void add(TaskRequest taskRequest) {
+        taskCount++;
+        Job<?> job = FitnessCalculatorFunctions.getJob(taskRequest);
+        if (JobFunctions.isServiceJob(job)) {
+            serviceTaskCount++;
+        }
+        taskCountByJobId.merge(job.getId(), 1, Integer::sum);
+        taskCountByImage.merge(AgentResourceCacheFunctions.getImage(taskRequest), 1, Integer::sum);
+        taskCountBySecurityGroups.merge(FitnessCalculatorFunctions.getSecurityGroups(taskRequest), 1, Integer::sum);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.TaskTracker;
+import com.netflix.fenzo.TaskTrackerState;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import com.netflix.titus.master.scheduler.SchedulerUtils;
+
+/**
+ * Per scheduling iteration index of tasks placed on agents, shared by the fitness calculators and the constraint
+ * evaluators. Without it, each (task, agent) evaluation scans all tasks on the agent. With the index, the agent's
+ * tasks are aggregated once per iteration, and the aggregates are updated as Fenzo assigns new tasks.
+ * <p>
+ * The index is reset by {@link #prepare()} at the beginning of each scheduling iteration. If disabled
+ * ({@link SchedulerConfiguration#isAgentTaskIndexEnabled()}), the aggregates are computed from scratch for each
+ * evaluation. The evaluation counters are tagged with the mode, so the two can be compared.
+ */
+@Singleton
+public class AgentTaskIndex {
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_SCHEDULING_SERVICE + "agentTaskIndex.";
+
+    private final SchedulerConfiguration configuration;
+
+    private final ConcurrentMap<String, AgentTaskCounters> countersByHostname = new ConcurrentHashMap<>();
+    private volatile AssignedZoneCounters assignedZoneCounters = AssignedZoneCounters.EMPTY;
+
+    private final Counter indexedEvaluationsCounter;
+    private final Counter scanEvaluationsCounter;
+    private final Counter agentIndexBuildsCounter;
+
+    @Inject
+    public AgentTaskIndex(SchedulerConfiguration configuration, TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        Registry registry = titusRuntime.getRegistry();
+        this.indexedEvaluationsCounter = registry.counter(METRIC_ROOT + "evaluations", "indexed", "true");
+        this.scanEvaluationsCounter = registry.counter(METRIC_ROOT + "evaluations", "indexed", "false");
+        this.agentIndexBuildsCounter = registry.counter(METRIC_ROOT + "agentIndexBuilds");
+    }
+
+    public void prepare() {
+        countersByHostname.clear();
+        this.assignedZoneCounters = AssignedZoneCounters.EMPTY;
+    }
+
+    public void onAssignment(TaskAssignmentResult assignment) {
+        AgentTaskCounters counters = countersByHostname.get(assignment.getHostname());
+        if (counters != null) {
+            counters.addAssigned(assignment);
+        }
+    }
+
+    /**
+     * Returns task counters of the given agent, including tasks assigned to it in the current scheduling iteration.
+     */
+    public AgentTaskCounters getAgentTaskCounters(VirtualMachineCurrentState targetVM) {
+        if (!configuration.isAgentTaskIndexEnabled()) {
+            scanEvaluationsCounter.increment();
+            return new AgentTaskCounters(targetVM);
+        }
+        indexedEvaluationsCounter.increment();
+
+        AgentTaskCounters counters = countersByHostname.get(targetVM.getHostname());
+        if (counters == null) {
+            agentIndexBuildsCounter.increment();
+            counters = countersByHostname.computeIfAbsent(targetVM.getHostname(), hostname -> new AgentTaskCounters(targetVM));
+        }
+        counters.syncAssigned(targetVM);
+        return counters;
+    }
+
+    /**
+     * Returns the number of tasks of a job per zone, that were assigned in the current scheduling iteration.
+     */
+    public Map<String, Integer> getAssignedTasksByZoneId(String jobId, TaskTrackerState taskTrackerState, String zoneAttributeName) {
+        Map<String, TaskTracker.ActiveTask> allAssigned = taskTrackerState.getAllCurrentlyAssignedTasks();
+        if (!configuration.isAgentTaskIndexEnabled()) {
+            return SchedulerUtils.groupCurrentlyAssignedTasksByZoneId(jobId, allAssigned.values(), zoneAttributeName);
+        }
+
+        AssignedZoneCounters current = assignedZoneCounters;
+        if (current.assignedCount != allAssigned.size() || !current.zoneAttributeName.equals(zoneAttributeName)) {
+            current = rebuildAssignedZoneCounters(allAssigned, zoneAttributeName);
+        }
+        return new HashMap<>(current.countersByJobId.getOrDefault(jobId, Collections.emptyMap()));
+    }
+
+    private synchronized AssignedZoneCounters rebuildAssignedZoneCounters(Map<String, TaskTracker.ActiveTask> allAssigned, String zoneAttributeName) {
+        AssignedZoneCounters current = assignedZoneCounters;
+        if (current.assignedCount == allAssigned.size() && current.zoneAttributeName.equals(zoneAttributeName)) {
+            return current;
+        }
+
+        Map<String, Map<String, Integer>> countersByJobId = new HashMap<>();
+        int assignedCount = 0;
+        for (TaskTracker.ActiveTask activeTask : allAssigned.values()) {
+            assignedCount++;
+            TaskRequest request = activeTask.getTaskRequest();
+            if (request instanceof V3QueueableTask) {
+                String zoneId = SchedulerUtils.getAttributeValueOrEmptyString(activeTask.getTotalLease().getAttributeMap(), zoneAttributeName);
+                if (!zoneId.isEmpty()) {
+                    countersByJobId.computeIfAbsent(((V3QueueableTask) request).getJob().getId(), id -> new HashMap<>())
+                            .merge(zoneId, 1, Integer::sum);
+                }
+            }
+        }
+
+        AssignedZoneCounters rebuilt = new AssignedZoneCounters(assignedCount, zoneAttributeName, countersByJobId);
+        this.assignedZoneCounters = rebuilt;
+        return rebuilt;
+    }
+
+    private static class AssignedZoneCounters {
+
+        private static final AssignedZoneCounters EMPTY = new AssignedZoneCounters(0, "", Collections.emptyMap());
+
+        private final int assignedCount;
+        private final String zoneAttributeName;
+        private final Map<String, Map<String, Integer>> countersByJobId;
+
+        private AssignedZoneCounters(int assignedCount, String zoneAttributeName, Map<String, Map<String, Integer>> countersByJobId) {
+            this.assignedCount = assignedCount;
+            this.zoneAttributeName = zoneAttributeName;
+            this.countersByJobId = countersByJobId;
+        }
+    }
+}
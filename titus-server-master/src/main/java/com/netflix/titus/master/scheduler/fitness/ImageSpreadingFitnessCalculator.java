@@ -16,8 +16,6 @@
 
 package com.netflix.titus.master.scheduler.fitness;
 
-import java.util.List;
-
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VMTaskFitnessCalculator;
@@ -35,6 +33,12 @@ public class ImageSpreadingFitnessCalculator implements VMTaskFitnessCalculator
     private static final double MATCHING_TASK_SCORE = 0.5;
     private static final double NO_MATCHING_TASK_SCORE = 1.0;
 
+    private final AgentTaskIndex agentTaskIndex;
+
+    public ImageSpreadingFitnessCalculator(AgentTaskIndex agentTaskIndex) {
+        this.agentTaskIndex = agentTaskIndex;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -42,12 +46,8 @@ public class ImageSpreadingFitnessCalculator implements VMTaskFitnessCalculator
 
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
-        List<TaskRequest> allTasksOnAgent = FitnessCalculatorFunctions.getAllTasksOnAgent(targetVM);
         AgentResourceCacheImage taskRequestImage = AgentResourceCacheFunctions.getImage(taskRequest);
-        long matchingTaskCount = FitnessCalculatorFunctions.countMatchingTasks(allTasksOnAgent, taskOnAgent -> {
-            AgentResourceCacheImage taskOnAgentImage = AgentResourceCacheFunctions.getImage(taskOnAgent);
-            return taskRequestImage.equals(taskOnAgentImage);
-        });
+        int matchingTaskCount = agentTaskIndex.getAgentTaskCounters(targetVM).getImageTaskCount(taskRequestImage);
 
         if (matchingTaskCount == 0) {
             return NO_MATCHING_TASK_SCORE;
@@ -16,15 +16,10 @@
 
 package com.netflix.titus.master.scheduler.fitness;
 
-import com.netflix.fenzo.TaskAssignmentResult;
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VMTaskFitnessCalculator;
 import com.netflix.fenzo.VirtualMachineCurrentState;
-import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
-import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
-import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
-import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
 
 /**
  * A fitness calculator that will prefer task placement on agents with the same job type.
@@ -36,7 +31,11 @@ public class JobTypeFitnessCalculator implements VMTaskFitnessCalculator {
     private static final double EMPTY_HOST_SCORE = 0.7;
     private static final double ZERO_SAME_JOB_TASKS_SCORE = 0.01;
 
-    private enum JobType {Batch, Service}
+    private final AgentTaskIndex agentTaskIndex;
+
+    public JobTypeFitnessCalculator(AgentTaskIndex agentTaskIndex) {
+        this.agentTaskIndex = agentTaskIndex;
+    }
 
     @Override
     public String getName() {
@@ -45,21 +44,12 @@ public class JobTypeFitnessCalculator implements VMTaskFitnessCalculator {
 
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
-        int totalTasks = 0;
-        int totalSameJobTasks = 0;
+        AgentTaskCounters counters = agentTaskIndex.getAgentTaskCounters(targetVM);
+        int totalTasks = counters.getTaskCount();
+        int totalSameJobTasks = FitnessCalculatorFunctions.isServiceJob(taskRequest)
+                ? counters.getServiceTaskCount()
+                : counters.getBatchTaskCount();
 
-        for (TaskRequest request : targetVM.getRunningTasks()) {
-            totalTasks++;
-            if (isSameJobType(taskRequest, request)) {
-                totalSameJobTasks++;
-            }
-        }
-        for (TaskAssignmentResult result : targetVM.getTasksCurrentlyAssigned()) {
-            totalTasks++;
-            if (isSameJobType(taskRequest, result.getRequest())) {
-                totalSameJobTasks++;
-            }
-        }
         if (totalTasks == 0) {
             return EMPTY_HOST_SCORE;
         } else if (totalSameJobTasks == 0) {
@@ -67,18 +57,4 @@ public class JobTypeFitnessCalculator implements VMTaskFitnessCalculator {
         }
         return (double) totalSameJobTasks / (double) totalTasks;
     }
-
-    private boolean isSameJobType(TaskRequest first, TaskRequest second) {
-        return getJobType(first) == getJobType(second);
-    }
-
-    private JobType getJobType(TaskRequest taskRequest) {
-        JobDescriptor.JobDescriptorExt jobDescriptorExt = ((V3QueueableTask) taskRequest).getJob().getJobDescriptor().getExtensions();
-        if (jobDescriptorExt instanceof BatchJobExt) {
-            return JobType.Batch;
-        } else if (jobDescriptorExt instanceof ServiceJobExt) {
-            return JobType.Service;
-        }
-        return JobType.Batch;
-    }
 }
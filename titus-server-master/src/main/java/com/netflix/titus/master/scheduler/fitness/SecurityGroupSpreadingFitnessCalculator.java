@@ -23,7 +23,6 @@ import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VMTaskFitnessCalculator;
 import com.netflix.fenzo.VirtualMachineCurrentState;
 
-import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.areSecurityGroupsEqual;
 import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.getSecurityGroups;
 
 /**
@@ -36,6 +35,12 @@ public class SecurityGroupSpreadingFitnessCalculator implements VMTaskFitnessCal
     private static final double MATCHING_TASK_SCORE = 0.5;
     private static final double NO_MATCHING_TASK_SCORE = 1.0;
 
+    private final AgentTaskIndex agentTaskIndex;
+
+    public SecurityGroupSpreadingFitnessCalculator(AgentTaskIndex agentTaskIndex) {
+        this.agentTaskIndex = agentTaskIndex;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -43,12 +48,8 @@ public class SecurityGroupSpreadingFitnessCalculator implements VMTaskFitnessCal
 
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
-        List<TaskRequest> allTasksOnAgent = FitnessCalculatorFunctions.getAllTasksOnAgent(targetVM);
         List<String> taskSecurityGroups = getSecurityGroups(taskRequest);
-        long matchingTaskCount = FitnessCalculatorFunctions.countMatchingTasks(allTasksOnAgent, taskOnAgent -> {
-            List<String> taskOnAgentJoinedSecurityGroups = getSecurityGroups(taskOnAgent);
-            return areSecurityGroupsEqual(taskSecurityGroups, taskOnAgentJoinedSecurityGroups);
-        });
+        int matchingTaskCount = agentTaskIndex.getAgentTaskCounters(targetVM).getSecurityGroupsTaskCount(taskSecurityGroups);
 
         if (matchingTaskCount == 0) {
             return NO_MATCHING_TASK_SCORE;
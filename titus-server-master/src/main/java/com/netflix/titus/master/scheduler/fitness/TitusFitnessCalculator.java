@@ -38,6 +38,7 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
 
     private final SchedulerConfiguration configuration;
     private final AgentManagementFitnessCalculator agentManagementFitnessCalculator;
+    private final AgentTaskIndex agentTaskIndex;
     private final VMTaskFitnessCalculator criticalServiceJobSpreader;
     private final VMTaskFitnessCalculator criticalServiceJobBinPacker;
     private final VMTaskFitnessCalculator defaultFitnessCalculator;
@@ -47,9 +48,11 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
 
     public TitusFitnessCalculator(SchedulerConfiguration configuration,
                                   AgentManagementFitnessCalculator agentManagementFitnessCalculator,
-                                  AgentResourceCache agentResourceCache) {
+                                  AgentResourceCache agentResourceCache,
+                                  AgentTaskIndex agentTaskIndex) {
         this.configuration = configuration;
         this.agentManagementFitnessCalculator = agentManagementFitnessCalculator;
+        this.agentTaskIndex = agentTaskIndex;
         this.criticalServiceJobSpreader = criticalServiceJobSpreader();
         this.criticalServiceJobBinPacker = criticalServiceJobBinPacker(agentResourceCache);
         this.defaultFitnessCalculator = defaultFitnessCalculator(agentResourceCache);
@@ -75,16 +78,16 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
     private VMTaskFitnessCalculator criticalServiceJobSpreader() {
         List<WeightedFitnessCalculator> calculators = new ArrayList<>();
         if (configuration.isCriticalTierJobSpreadingEnabled()) {
-            calculators.add(new WeightedFitnessCalculator(new JobSpreadingFitnessCalculator(), 0.05));
-            calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.05));
-            calculators.add(new WeightedFitnessCalculator(new ImageSpreadingFitnessCalculator(), 0.1));
-            calculators.add(new WeightedFitnessCalculator(new SecurityGroupSpreadingFitnessCalculator(), 0.3));
+            calculators.add(new WeightedFitnessCalculator(new JobSpreadingFitnessCalculator(agentTaskIndex), 0.05));
+            calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(agentTaskIndex), 0.05));
+            calculators.add(new WeightedFitnessCalculator(new ImageSpreadingFitnessCalculator(agentTaskIndex), 0.1));
+            calculators.add(new WeightedFitnessCalculator(new SecurityGroupSpreadingFitnessCalculator(agentTaskIndex), 0.3));
             calculators.add(new WeightedFitnessCalculator(agentManagementFitnessCalculator, 0.5));
         } else {
             calculators.add(new WeightedFitnessCalculator(BinPackingFitnessCalculators.cpuMemBinPacker, 0.05));
-            calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.05));
-            calculators.add(new WeightedFitnessCalculator(new ImageSpreadingFitnessCalculator(), 0.1));
-            calculators.add(new WeightedFitnessCalculator(new SecurityGroupSpreadingFitnessCalculator(), 0.3));
+            calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(agentTaskIndex), 0.05));
+            calculators.add(new WeightedFitnessCalculator(new ImageSpreadingFitnessCalculator(agentTaskIndex), 0.1));
+            calculators.add(new WeightedFitnessCalculator(new SecurityGroupSpreadingFitnessCalculator(agentTaskIndex), 0.3));
             calculators.add(new WeightedFitnessCalculator(agentManagementFitnessCalculator, 0.5));
         }
 
@@ -93,7 +96,7 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
 
     private VMTaskFitnessCalculator criticalServiceJobBinPacker(AgentResourceCache agentResourceCache) {
         List<WeightedFitnessCalculator> calculators = new ArrayList<>();
-        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.05));
+        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(agentTaskIndex), 0.05));
         calculators.add(new WeightedFitnessCalculator(BinPackingFitnessCalculators.cpuMemBinPacker, 0.1));
         calculators.add(new WeightedFitnessCalculator(new CachedImageFitnessCalculator(agentResourceCache), 0.15));
         calculators.add(new WeightedFitnessCalculator(new CachedSecurityGroupFitnessCalculator(agentResourceCache), 0.2));
@@ -104,7 +107,7 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
     private VMTaskFitnessCalculator defaultFitnessCalculator(AgentResourceCache agentResourceCache) {
         List<WeightedFitnessCalculator> calculators = new ArrayList<>();
         calculators.add(new WeightedFitnessCalculator(BinPackingFitnessCalculators.cpuMemBinPacker, 0.1));
-        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.1));
+        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(agentTaskIndex), 0.1));
         calculators.add(new WeightedFitnessCalculator(new CachedImageFitnessCalculator(agentResourceCache), 0.15));
         calculators.add(new WeightedFitnessCalculator(new CachedSecurityGroupFitnessCalculator(agentResourceCache), 0.15));
         calculators.add(new WeightedFitnessCalculator(agentManagementFitnessCalculator, 0.5));
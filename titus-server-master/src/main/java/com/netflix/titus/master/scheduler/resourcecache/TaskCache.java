@@ -16,166 +16,302 @@
 
 package com.netflix.titus.master.scheduler.resourcecache;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.spectator.api.Counter;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.vpc.SignedIpAddressAllocation;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.code.CodeInvariants;
+import com.netflix.titus.common.util.guice.annotation.Activator;
+import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
 
 /**
  * Helper class that aggregates task data by multiple criteria used by Fenzo constraint/fitness evaluators.
+ * <p>
+ * The aggregates are maintained incrementally. Job and task update events only mark the changed entities, and
+ * {@link #prepare()} (called at the beginning of each scheduling iteration) re-reads their current state from the
+ * job manager and applies the difference. Finished jobs and tasks are re-checked on each iteration, until they are
+ * removed from the job manager (which happens without an event). At a configurable interval the aggregates are
+ * rebuilt from scratch, and compared with the incremental version.
+ * <p>
+ * IP and opportunistic CPU allocations made during a scheduling iteration are kept separately, and are discarded
+ * by the next {@link #prepare()} call. By that time they are expected to be recorded in the task data.
  */
 @Singleton
 public class TaskCache {
 
+    private static final Logger logger = LoggerFactory.getLogger(TaskCache.class);
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_SCHEDULING_SERVICE + "taskCache.";
+
     private final TitusRuntime titusRuntime;
     private final V3JobOperations v3JobOperations;
-    private final AtomicReference<TaskCacheValue> currentCacheValue;
+    private final SchedulerConfiguration configuration;
+
+    private final Set<String> changedJobIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedTaskIds = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> finishedJobIds = new HashSet<>();
+    private final Set<String> finishedTaskIds = new HashSet<>();
+
+    private volatile TaskCacheState state = new TaskCacheState();
+    private volatile IterationAllocations iterationAllocations = new IterationAllocations();
+
+    private volatile boolean incrementalMode;
+    private long lastFullRebuildTimestamp;
+
+    private Subscription eventSubscription;
+
+    private final Counter fullRebuildCounter;
+    private final Counter inconsistentStateCounter;
 
     @Inject
-    public TaskCache(TitusRuntime titusRuntime, V3JobOperations v3JobOperations) {
+    public TaskCache(TitusRuntime titusRuntime, V3JobOperations v3JobOperations, SchedulerConfiguration configuration) {
         this.titusRuntime = titusRuntime;
         this.v3JobOperations = v3JobOperations;
-        this.currentCacheValue = new AtomicReference<>();
+        this.configuration = configuration;
+        this.fullRebuildCounter = titusRuntime.getRegistry().counter(METRIC_ROOT + "fullRebuilds");
+        this.inconsistentStateCounter = titusRuntime.getRegistry().counter(METRIC_ROOT + "inconsistentStates");
+    }
+
+    /**
+     * Until activated, the cache is rebuilt from scratch in each scheduling iteration.
+     */
+    @Activator
+    public void enterActiveMode() {
+        this.eventSubscription = titusRuntime.persistentStream(v3JobOperations.observeJobs()).subscribe(
+                event -> {
+                    if (event instanceof TaskUpdateEvent) {
+                        changedTaskIds.add(((TaskUpdateEvent) event).getCurrentTask().getId());
+                    } else if (event instanceof JobUpdateEvent) {
+                        changedJobIds.add(((JobUpdateEvent) event).getCurrent().getId());
+                    }
+                },
+                e -> logger.error("Job event stream terminated with an error", e),
+                () -> logger.info("Job event stream completed")
+        );
+        this.incrementalMode = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ObservableExt.safeUnsubscribe(eventSubscription);
     }
 
     public void prepare() {
-        currentCacheValue.set(new TaskCacheValue());
+        this.iterationAllocations = new IterationAllocations();
+
+        long now = titusRuntime.getClock().wallTime();
+        if (!incrementalMode) {
+            this.state = buildFullState();
+            return;
+        }
+        if (lastFullRebuildTimestamp == 0 || now - lastFullRebuildTimestamp >= configuration.getTaskCacheFullRebuildIntervalMs()) {
+            // Bring the incremental state up to date first, so both versions reflect the same job manager state.
+            if (lastFullRebuildTimestamp != 0) {
+                applyChanges();
+            }
+            // Events received before the full rebuild are already included in it.
+            changedJobIds.clear();
+            changedTaskIds.clear();
+            TaskCacheState fullState = buildFullState();
+            if (lastFullRebuildTimestamp != 0) {
+                if (!state.hasSameAggregates(fullState)) {
+                    inconsistentStateCounter.increment();
+                    codeInvariants().inconsistent("Incrementally updated task cache differs from the full rebuild: incremental=%s, full=%s",
+                            state, fullState
+                    );
+                }
+            }
+            this.state = fullState;
+            this.finishedJobIds.clear();
+            this.finishedTaskIds.clear();
+            fullState.findFinished(finishedJobIds, finishedTaskIds);
+            this.lastFullRebuildTimestamp = now;
+            fullRebuildCounter.increment();
+            return;
+        }
+        applyChanges();
     }
 
     public Map<String, Integer> getTasksByZoneIdCounters(String jobId) {
-        return currentCacheValue.get().getTasksByZoneIdCounters(jobId);
+        return state.zoneBalanceCountersByJobId.getOrDefault(jobId, Collections.emptyMap());
     }
 
     // Returns a task ID if there is a task assigned to the provided IP allocation
     public Optional<String> getTaskByIpAllocationId(String ipAllocationId) {
-        return Optional.ofNullable(currentCacheValue.get().assignedIpAllocations.get(ipAllocationId));
+        String taskId = iterationAllocations.assignedIpAllocations.get(ipAllocationId);
+        return taskId != null ? Optional.of(taskId) : Optional.ofNullable(state.assignedIpAllocations.get(ipAllocationId));
     }
 
     // Updates the cache to reflect assignment of an IP allocation to a task
     public void addTaskIpAllocation(String ipAllocationId, String taskId) {
-        currentCacheValue.get().assignedIpAllocations.put(ipAllocationId, taskId);
+        iterationAllocations.assignedIpAllocations.put(ipAllocationId, taskId);
     }
 
     public Optional<String> getZoneIdByIpAllocationId(String ipAllocationId) {
-        return Optional.ofNullable(currentCacheValue.get().ipAllocationIdToZoneId.get(ipAllocationId));
+        ZoneReference zoneReference = state.ipAllocationIdToZoneId.get(ipAllocationId);
+        return zoneReference == null ? Optional.empty() : Optional.of(zoneReference.zoneId);
     }
 
     public void addOpportunisticCpuAllocation(OpportunisticCpuAllocation allocation) {
-        CollectionsExt.multiMapAddValue(currentCacheValue.get().assignedOpportunisticCpus, allocation.getAgentId(), allocation);
+        CollectionsExt.multiMapAddValue(iterationAllocations.assignedOpportunisticCpus, allocation.getAgentId(), allocation);
     }
 
     public int getOpportunisticCpusAllocated(String agentId) {
-        return currentCacheValue.get().assignedOpportunisticCpus.getOrDefault(agentId, Collections.emptyList()).stream()
+        int committed = state.assignedOpportunisticCpus.getOrDefault(agentId, Collections.emptyMap()).values().stream()
                 .mapToInt(OpportunisticCpuAllocation::getCpuCount)
                 .sum();
+        int inIteration = iterationAllocations.assignedOpportunisticCpus.getOrDefault(agentId, Collections.emptyList()).stream()
+                .mapToInt(OpportunisticCpuAllocation::getCpuCount)
+                .sum();
+        return committed + inIteration;
     }
 
-    private class TaskCacheValue {
-
-        private final Map<String, Map<String, Integer>> zoneBalanceCountersByJobId;
-
-        // This map contains currently assigned IP allocations, Map<IP Allocation ID, Task ID>
-        private final ConcurrentMap<String, String> assignedIpAllocations;
-
-        // Maps an IP allocation ID to the zone it exists in, Map<IP Allocation ID, Zone ID>
-        private final Map<String, String> ipAllocationIdToZoneId;
-
-        // agentId -> all tasks that were allocated with
-        private final ConcurrentMap<String, List<OpportunisticCpuAllocation>> assignedOpportunisticCpus;
-
-        private TaskCacheValue() {
-            List<Pair<Job, List<Task>>> jobsAndTasks = v3JobOperations.getJobsAndTasks();
-            this.assignedIpAllocations = new ConcurrentHashMap<>();
-            this.zoneBalanceCountersByJobId = new HashMap<>();
-            this.ipAllocationIdToZoneId = new HashMap<>();
-            this.assignedOpportunisticCpus = new ConcurrentHashMap<>();
-            buildTaskCacheInfo(jobsAndTasks);
+    private TaskCacheState buildFullState() {
+        TaskCacheState fullState = new TaskCacheState();
+        for (Pair<Job, List<Task>> jobAndTasks : v3JobOperations.getJobsAndTasks()) {
+            Job<?> job = jobAndTasks.getLeft();
+            fullState.addJob(job);
+            for (Task task : jobAndTasks.getRight()) {
+                fullState.addTask(newTaskContribution(job, task));
+            }
         }
+        return fullState;
+    }
 
-        private Map<String, Integer> getTasksByZoneIdCounters(String jobId) {
-            return zoneBalanceCountersByJobId.getOrDefault(jobId, Collections.emptyMap());
+    private void applyChanges() {
+        Set<String> jobIds = new HashSet<>(finishedJobIds);
+        drainTo(changedJobIds, jobIds);
+        Set<String> taskIds = new HashSet<>(finishedTaskIds);
+        drainTo(changedTaskIds, taskIds);
+
+        for (String jobId : jobIds) {
+            Optional<Job<?>> jobOpt = v3JobOperations.getJob(jobId);
+            if (jobOpt.isPresent()) {
+                Job<?> job = jobOpt.get();
+                state.addJob(job);
+                updateFinished(finishedJobIds, jobId, job.getStatus().getState() == JobState.Finished);
+                // Job descriptor changes may affect the IP allocation zones of all job tasks.
+                taskIds.addAll(state.getTaskIds(jobId));
+            } else {
+                state.removeJob(jobId);
+                finishedJobIds.remove(jobId);
+            }
         }
 
-        private void buildTaskCacheInfo(List<Pair<Job, List<Task>>> jobsAndTasks) {
-            for (Pair<Job, List<Task>> jobAndTask : jobsAndTasks) {
-                Map<String, Integer> jobZoneBalancing = new HashMap<>();
-                for (Task task : jobAndTask.getRight()) {
-                    String zoneId = getZoneId(task);
-                    if (zoneId != null) {
-                        jobZoneBalancing.put(zoneId, jobZoneBalancing.getOrDefault(zoneId, 0) + 1);
-                    }
-
-                    // Get an IP allocation ID that has been assigned to this task. If present,
-                    // check if the task is running and if so, mark the IP allocation as in use.
-                    // In addition, resolve the IP allocation ID's zone ID and cache that as well.
-                    getIpAllocationId(task).ifPresent(ipAllocationId -> {
-                        if (TaskState.isRunning(task.getStatus().getState())) {
-                            assignedIpAllocations.put(ipAllocationId, task.getId());
-                        }
-                        getIpAllocationZone(ipAllocationId, jobAndTask.getLeft().getJobDescriptor()).ifPresent(zoneIdForIpAllocation ->
-                                ipAllocationIdToZoneId.put(ipAllocationId, zoneIdForIpAllocation));
-                    });
-
-                    getOpportunisticCpuAllocation(task).ifPresent(allocation -> {
-                        if (TaskState.isRunning(task.getStatus().getState())) {
-                            CollectionsExt.multiMapAddValue(assignedOpportunisticCpus, allocation.getAgentId(), allocation);
-                        }
-                    });
-                }
-                zoneBalanceCountersByJobId.put(jobAndTask.getLeft().getId(), jobZoneBalancing);
+        for (String taskId : taskIds) {
+            Optional<Pair<Job<?>, Task>> jobAndTaskOpt = v3JobOperations.findTaskById(taskId);
+            if (jobAndTaskOpt.isPresent()) {
+                Task task = jobAndTaskOpt.get().getRight();
+                state.addTask(newTaskContribution(jobAndTaskOpt.get().getLeft(), task));
+                updateFinished(finishedTaskIds, taskId, task.getStatus().getState() == TaskState.Finished);
+            } else {
+                state.removeTask(taskId);
+                finishedTaskIds.remove(taskId);
             }
         }
+    }
 
-        private Optional<String> getIpAllocationZone(String ipAllocationId, JobDescriptor<?> jobDescriptor) {
-            for (SignedIpAddressAllocation signedIpAddressAllocation : jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations()) {
-                if (signedIpAddressAllocation.getIpAddressAllocation().getAllocationId().equals(ipAllocationId)) {
-                    return Optional.of(signedIpAddressAllocation.getIpAddressAllocation().getIpAddressLocation().getAvailabilityZone());
-                }
-            }
-            codeInvariants().inconsistent("Unable to find zone for IP allocation ID {} in job allocations {}",
-                    ipAllocationId, jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations());
-            return Optional.empty();
+    private TaskContribution newTaskContribution(Job<?> job, Task task) {
+        boolean running = TaskState.isRunning(task.getStatus().getState());
+
+        // Get an IP allocation ID that has been assigned to this task. If present, check if the task is running
+        // and if so, mark the IP allocation as in use. In addition, resolve the IP allocation ID's zone ID.
+        String ipAllocationId = getIpAllocationId(task).orElse(null);
+        String ipAllocationZoneId = ipAllocationId == null ? null : getIpAllocationZone(ipAllocationId, job.getJobDescriptor()).orElse(null);
+
+        OpportunisticCpuAllocation opportunisticCpuAllocation = null;
+        Optional<OpportunisticCpuAllocation> allocationOpt = getOpportunisticCpuAllocation(task);
+        if (allocationOpt.isPresent() && running) {
+            opportunisticCpuAllocation = allocationOpt.get();
         }
 
-        private Optional<OpportunisticCpuAllocation> getOpportunisticCpuAllocation(Task task) {
-            Optional<String> allocationIdOpt = getOpportunisticCpuAllocationId(task);
-            Optional<OpportunisticCpuAllocation> allocationOpt = allocationIdOpt
-                    .map(allocationId -> OpportunisticCpuAllocation.newBuilder().withAllocationId(allocationId))
-                    .flatMap(builder -> JobFunctions.getOpportunisticCpuCount(task).map(builder::withCpuCount))
-                    .flatMap(builder -> getAgentId(task).map(builder::withAgentId))
-                    .map(builder -> builder.withTaskId(task.getId()).build());
+        return new TaskContribution(
+                task.getId(),
+                job.getId(),
+                task.getStatus().getState() == TaskState.Finished,
+                getZoneId(task),
+                ipAllocationId,
+                running,
+                ipAllocationZoneId,
+                opportunisticCpuAllocation
+        );
+    }
 
-            if (allocationIdOpt.isPresent() && !allocationOpt.isPresent()) {
-                codeInvariants().inconsistent("Task %s is allocated opportunistic CPU, but is missing extra required information",
-                        task.getId());
+    private Optional<String> getIpAllocationZone(String ipAllocationId, JobDescriptor<?> jobDescriptor) {
+        for (SignedIpAddressAllocation signedIpAddressAllocation : jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations()) {
+            if (signedIpAddressAllocation.getIpAddressAllocation().getAllocationId().equals(ipAllocationId)) {
+                return Optional.of(signedIpAddressAllocation.getIpAddressAllocation().getIpAddressLocation().getAvailabilityZone());
             }
-            return allocationOpt;
         }
+        codeInvariants().inconsistent("Unable to find zone for IP allocation ID {} in job allocations {}",
+                ipAllocationId, jobDescriptor.getContainer().getContainerResources().getSignedIpAddressAllocations());
+        return Optional.empty();
+    }
+
+    private Optional<OpportunisticCpuAllocation> getOpportunisticCpuAllocation(Task task) {
+        Optional<String> allocationIdOpt = getOpportunisticCpuAllocationId(task);
+        Optional<OpportunisticCpuAllocation> allocationOpt = allocationIdOpt
+                .map(allocationId -> OpportunisticCpuAllocation.newBuilder().withAllocationId(allocationId))
+                .flatMap(builder -> JobFunctions.getOpportunisticCpuCount(task).map(builder::withCpuCount))
+                .flatMap(builder -> getAgentId(task).map(builder::withAgentId))
+                .map(builder -> builder.withTaskId(task.getId()).build());
+
+        if (allocationIdOpt.isPresent() && !allocationOpt.isPresent()) {
+            codeInvariants().inconsistent("Task %s is allocated opportunistic CPU, but is missing extra required information",
+                    task.getId());
+        }
+        return allocationOpt;
     }
 
     private CodeInvariants codeInvariants() {
         return titusRuntime.getCodeInvariants();
     }
 
+    private static void drainTo(Set<String> source, Set<String> target) {
+        List<String> drained = new ArrayList<>(source);
+        source.removeAll(drained);
+        target.addAll(drained);
+    }
+
+    private static void updateFinished(Set<String> finishedIds, String id, boolean finished) {
+        if (finished) {
+            finishedIds.add(id);
+        } else {
+            finishedIds.remove(id);
+        }
+    }
+
     private static Optional<String> getAgentId(Task task) {
         return Optional.ofNullable(task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID));
     }
@@ -192,4 +328,222 @@ public class TaskCache {
         return Optional.ofNullable(task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_IP_ALLOCATION_ID));
     }
 
-}
\ No newline at end of file
+    /**
+     * Allocations made during the current scheduling iteration. Updated concurrently by the placement threads.
+     */
+    private static class IterationAllocations {
+
+        // This map contains IP allocations assigned in this iteration, Map<IP Allocation ID, Task ID>
+        private final ConcurrentMap<String, String> assignedIpAllocations = new ConcurrentHashMap<>();
+
+        // agentId -> all tasks that were allocated with
+        private final ConcurrentMap<String, List<OpportunisticCpuAllocation>> assignedOpportunisticCpus = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The aggregates derived from a single task. Kept per task, so that a task change can be applied by removing
+     * its previous contribution, and adding the new one.
+     */
+    private static class TaskContribution {
+
+        private final String taskId;
+        private final String jobId;
+        private final boolean finished;
+        private final String zoneId;
+        private final String ipAllocationId;
+        private final boolean running;
+        private final String ipAllocationZoneId;
+        private final OpportunisticCpuAllocation opportunisticCpuAllocation;
+
+        private TaskContribution(String taskId,
+                                 String jobId,
+                                 boolean finished,
+                                 String zoneId,
+                                 String ipAllocationId,
+                                 boolean running,
+                                 String ipAllocationZoneId,
+                                 OpportunisticCpuAllocation opportunisticCpuAllocation) {
+            this.taskId = taskId;
+            this.jobId = jobId;
+            this.finished = finished;
+            this.zoneId = zoneId;
+            this.ipAllocationId = ipAllocationId;
+            this.running = running;
+            this.ipAllocationZoneId = ipAllocationZoneId;
+            this.opportunisticCpuAllocation = opportunisticCpuAllocation;
+        }
+    }
+
+    private static class ZoneReference {
+
+        private final String zoneId;
+        private int references;
+
+        private ZoneReference(String zoneId) {
+            this.zoneId = zoneId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return zoneId.equals(((ZoneReference) o).zoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            return zoneId.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return zoneId;
+        }
+    }
+
+    /**
+     * Aggregated task data. Modified only by the scheduling thread in {@link #prepare()}, before the placement
+     * evaluation starts.
+     */
+    private static class TaskCacheState {
+
+        private final Map<String, Map<String, Integer>> zoneBalanceCountersByJobId = new HashMap<>();
+
+        // This map contains currently assigned IP allocations, Map<IP Allocation ID, Task ID>
+        private final Map<String, String> assignedIpAllocations = new HashMap<>();
+
+        // Maps an IP allocation ID to the zone it exists in, Map<IP Allocation ID, Zone ID>
+        private final Map<String, ZoneReference> ipAllocationIdToZoneId = new HashMap<>();
+
+        // agentId -> (taskId -> opportunistic CPU allocation of a running task)
+        private final Map<String, Map<String, OpportunisticCpuAllocation>> assignedOpportunisticCpus = new HashMap<>();
+
+        private final Map<String, TaskContribution> contributionsByTaskId = new HashMap<>();
+        private final Map<String, Set<String>> taskIdsByJobId = new HashMap<>();
+        private final Set<String> finishedJobIds = new HashSet<>();
+
+        private void addJob(Job<?> job) {
+            zoneBalanceCountersByJobId.computeIfAbsent(job.getId(), id -> new HashMap<>());
+            if (job.getStatus().getState() == JobState.Finished) {
+                finishedJobIds.add(job.getId());
+            } else {
+                finishedJobIds.remove(job.getId());
+            }
+        }
+
+        private void removeJob(String jobId) {
+            for (String taskId : new ArrayList<>(getTaskIds(jobId))) {
+                removeTask(taskId);
+            }
+            zoneBalanceCountersByJobId.remove(jobId);
+            finishedJobIds.remove(jobId);
+        }
+
+        private Set<String> getTaskIds(String jobId) {
+            return taskIdsByJobId.getOrDefault(jobId, Collections.emptySet());
+        }
+
+        private void addTask(TaskContribution contribution) {
+            removeTask(contribution.taskId);
+
+            contributionsByTaskId.put(contribution.taskId, contribution);
+            taskIdsByJobId.computeIfAbsent(contribution.jobId, id -> new HashSet<>()).add(contribution.taskId);
+
+            if (contribution.zoneId != null) {
+                zoneBalanceCountersByJobId.computeIfAbsent(contribution.jobId, id -> new HashMap<>())
+                        .merge(contribution.zoneId, 1, Integer::sum);
+            }
+            if (contribution.ipAllocationId != null) {
+                if (contribution.running) {
+                    assignedIpAllocations.put(contribution.ipAllocationId, contribution.taskId);
+                }
+                if (contribution.ipAllocationZoneId != null) {
+                    ZoneReference reference = ipAllocationIdToZoneId.get(contribution.ipAllocationId);
+                    if (reference == null || !reference.zoneId.equals(contribution.ipAllocationZoneId)) {
+                        reference = new ZoneReference(contribution.ipAllocationZoneId);
+                        ipAllocationIdToZoneId.put(contribution.ipAllocationId, reference);
+                    }
+                    reference.references++;
+                }
+            }
+            if (contribution.opportunisticCpuAllocation != null) {
+                assignedOpportunisticCpus.computeIfAbsent(contribution.opportunisticCpuAllocation.getAgentId(), id -> new HashMap<>())
+                        .put(contribution.taskId, contribution.opportunisticCpuAllocation);
+            }
+        }
+
+        private void removeTask(String taskId) {
+            TaskContribution contribution = contributionsByTaskId.remove(taskId);
+            if (contribution == null) {
+                return;
+            }
+
+            Set<String> jobTaskIds = taskIdsByJobId.get(contribution.jobId);
+            if (jobTaskIds != null) {
+                jobTaskIds.remove(taskId);
+                if (jobTaskIds.isEmpty()) {
+                    taskIdsByJobId.remove(contribution.jobId);
+                }
+            }
+
+            if (contribution.zoneId != null) {
+                Map<String, Integer> counters = zoneBalanceCountersByJobId.get(contribution.jobId);
+                if (counters != null) {
+                    counters.computeIfPresent(contribution.zoneId, (zone, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+            if (contribution.ipAllocationId != null) {
+                if (contribution.running) {
+                    assignedIpAllocations.remove(contribution.ipAllocationId, taskId);
+                }
+                ZoneReference reference = ipAllocationIdToZoneId.get(contribution.ipAllocationId);
+                if (contribution.ipAllocationZoneId != null && reference != null && reference.zoneId.equals(contribution.ipAllocationZoneId)) {
+                    if (--reference.references <= 0) {
+                        ipAllocationIdToZoneId.remove(contribution.ipAllocationId);
+                    }
+                }
+            }
+            if (contribution.opportunisticCpuAllocation != null) {
+                String agentId = contribution.opportunisticCpuAllocation.getAgentId();
+                Map<String, OpportunisticCpuAllocation> agentAllocations = assignedOpportunisticCpus.get(agentId);
+                if (agentAllocations != null) {
+                    agentAllocations.remove(taskId);
+                    if (agentAllocations.isEmpty()) {
+                        assignedOpportunisticCpus.remove(agentId);
+                    }
+                }
+            }
+        }
+
+        private void findFinished(Set<String> finishedJobIdsOut, Set<String> finishedTaskIdsOut) {
+            finishedJobIdsOut.addAll(finishedJobIds);
+            contributionsByTaskId.values().forEach(contribution -> {
+                if (contribution.finished) {
+                    finishedTaskIdsOut.add(contribution.taskId);
+                }
+            });
+        }
+
+        private boolean hasSameAggregates(TaskCacheState other) {
+            return zoneBalanceCountersByJobId.equals(other.zoneBalanceCountersByJobId)
+                    && assignedIpAllocations.equals(other.assignedIpAllocations)
+                    && ipAllocationIdToZoneId.equals(other.ipAllocationIdToZoneId)
+                    && assignedOpportunisticCpus.equals(other.assignedOpportunisticCpus);
+        }
+
+        @Override
+        public String toString() {
+            return "TaskCacheState{" +
+                    "jobs=" + zoneBalanceCountersByJobId.size() +
+                    ", tasks=" + contributionsByTaskId.size() +
+                    ", assignedIpAllocations=" + assignedIpAllocations.size() +
+                    ", ipAllocationZones=" + ipAllocationIdToZoneId.size() +
+                    ", agentsWithOpportunisticCpus=" + assignedOpportunisticCpus.size() +
+                    '}';
+        }
+    }
+}
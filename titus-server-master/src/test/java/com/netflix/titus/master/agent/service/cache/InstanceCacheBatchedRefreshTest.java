@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.agent.service.cache;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.connector.cloud.Instance;
+import com.netflix.titus.api.connector.cloud.InstanceGroup;
+import com.netflix.titus.common.data.generator.DataGenerator;
+import com.netflix.titus.master.agent.service.AgentManagementConfiguration;
+import com.netflix.titus.testkit.rx.ExtTestSubscriber;
+import com.netflix.titus.testkit.stub.connector.cloud.InstanceGenerators;
+import com.netflix.titus.testkit.stub.connector.cloud.TestableInstanceCloudConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.CACHE_REFRESH_INTERVAL_MS;
+import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.expectInstanceGroupRemovedEvent;
+import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.expectInstanceGroupUpdatedEvent;
+import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.mockedAgentManagementConfiguration;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class InstanceCacheBatchedRefreshTest {
+
+    private static final int INSTANCE_GROUP_COUNT = 4;
+    private static final int BATCH_SIZE = 3;
+    private static final int MAX_REFRESH_INTERVAL_CYCLES = 4;
+
+    private final TestScheduler testScheduler = Schedulers.test();
+
+    private final AgentManagementConfiguration configuration = mockedAgentManagementConfiguration();
+
+    private final TestableInstanceCloudConnector testConnector = new TestableInstanceCloudConnector();
+
+    private InstanceCache cache;
+    private final ExtTestSubscriber<InstanceCacheEvent> eventSubscriber = new ExtTestSubscriber<>();
+
+    @Before
+    public void setUp() {
+        when(configuration.isBatchedCacheRefreshEnabled()).thenReturn(true);
+        when(configuration.getCacheRefreshBatchSize()).thenReturn(BATCH_SIZE);
+        when(configuration.getCacheRefreshMaxIntervalMs()).thenReturn(MAX_REFRESH_INTERVAL_CYCLES * CACHE_REFRESH_INTERVAL_MS);
+
+        DataGenerator<InstanceGroup> instanceGroupsGenerator = InstanceGenerators.instanceGroups(5);
+        instanceGroupsGenerator.apply(testConnector::addInstanceGroup, INSTANCE_GROUP_COUNT);
+        for (int i = 0; i < INSTANCE_GROUP_COUNT; i++) {
+            InstanceGenerators.instances(testConnector.takeInstanceGroup(i)).apply(testConnector::addInstance, 5);
+        }
+
+        cache = InstanceCache.newInstance(configuration, testConnector, Collections.emptySet(), new DefaultRegistry(), testScheduler);
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS); // This will populate the cache with the initial connector state
+        cache.events().subscribe(eventSubscriber);
+
+        testConnector.takeInstanceGroupsByIdCallCount();
+        testConnector.takeInstancesByInstanceGroupIdCallCount();
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    public void testInstanceGroupsAreFetchedInBatches() {
+        assertThat(cache.getInstanceGroups()).hasSize(INSTANCE_GROUP_COUNT);
+
+        // Instances fetched after one cycle, as they were only seen once.
+        nextCycle();
+        assertThat(testConnector.takeInstanceGroupsByIdCallCount()).isEqualTo(2);
+        assertThat(testConnector.takeInstancesByInstanceGroupIdCallCount()).isEqualTo(INSTANCE_GROUP_COUNT);
+
+        // No change, so the refresh interval doubled.
+        nextCycle();
+        assertThat(testConnector.takeInstanceGroupsByIdCallCount()).isEqualTo(2);
+        assertThat(testConnector.takeInstancesByInstanceGroupIdCallCount()).isZero();
+
+        nextCycle();
+        assertThat(testConnector.takeInstancesByInstanceGroupIdCallCount()).isEqualTo(INSTANCE_GROUP_COUNT);
+
+        // The same responses do not produce events.
+        assertThat(eventSubscriber.takeNext()).isNull();
+    }
+
+    @Test
+    public void testInstanceRefreshIntervalIsBounded() {
+        nextCycles(10);
+        testConnector.takeInstancesByInstanceGroupIdCallCount();
+
+        nextCycles(MAX_REFRESH_INTERVAL_CYCLES);
+        assertThat(testConnector.takeInstancesByInstanceGroupIdCallCount()).isEqualTo(INSTANCE_GROUP_COUNT);
+    }
+
+    @Test
+    public void testInstanceGroupChangeIsRefreshedInNextCycle() {
+        nextCycles(10);
+        testConnector.takeInstancesByInstanceGroupIdCallCount();
+
+        InstanceGroup instanceGroup = testConnector.takeInstanceGroup(0).toBuilder().withMax(100).build();
+        testConnector.addInstanceGroup(instanceGroup);
+
+        nextCycle();
+        assertThat(cache.getInstanceGroup(instanceGroup.getId()).getMax()).isEqualTo(100);
+        expectInstanceGroupUpdatedEvent(eventSubscriber, instanceGroup.getId());
+    }
+
+    @Test
+    public void testInstanceChangeIsRefreshedWithinMaxInterval() {
+        nextCycles(10);
+
+        Instance instance = testConnector.takeInstance(0, 0).toBuilder().withIpAddress("10.0.0.1").build();
+        testConnector.addInstance(instance);
+
+        nextCycles(MAX_REFRESH_INTERVAL_CYCLES);
+        assertThat(cache.getAgentInstance(instance.getId()).getIpAddress()).isEqualTo("10.0.0.1");
+        expectInstanceGroupUpdatedEvent(eventSubscriber, instance.getInstanceGroupId());
+    }
+
+    @Test
+    public void testInstanceGroupRemoved() {
+        String removedInstanceGroupId = testConnector.takeInstanceGroup(0).getId();
+        testConnector.removeInstanceGroup(removedInstanceGroupId);
+
+        nextCycle();
+        assertThat(cache.getInstanceGroups()).hasSize(INSTANCE_GROUP_COUNT - 1);
+        expectInstanceGroupRemovedEvent(eventSubscriber, removedInstanceGroupId);
+    }
+
+    @Test
+    public void testRefreshStateIsRecordedAfterCacheUpdateAndClearedOnRemove() {
+        nextCycle();
+        InstanceGroup instanceGroup = testConnector.takeInstanceGroup(0);
+        assertThat(cache.hasRefreshState(instanceGroup.getId())).isTrue();
+
+        // The refresh state is recorded together with the cache update.
+        Instance instance = testConnector.takeInstance(0, 0).toBuilder().withIpAddress("10.0.0.1").build();
+        testConnector.addInstance(instance);
+        nextCycles(MAX_REFRESH_INTERVAL_CYCLES);
+        assertThat(cache.getAgentInstance(instance.getId()).getIpAddress()).isEqualTo("10.0.0.1");
+        assertThat(cache.hasRefreshState(instanceGroup.getId())).isTrue();
+
+        testConnector.removeInstanceGroup(instanceGroup.getId());
+        nextCycle();
+        assertThat(cache.getInstanceGroup(instanceGroup.getId())).isNull();
+        assertThat(cache.hasRefreshState(instanceGroup.getId())).isFalse();
+    }
+
+    private void nextCycle() {
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void nextCycles(int count) {
+        testScheduler.advanceTimeBy(count * CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -120,6 +120,31 @@ public class QuotaEventEmitterTest {
         assertThat(remaining.isOpen()).isTrue();
     }
 
+    @Test
+    public void testLateSubscriberGetsFullSnapshot() throws InterruptedException {
+        TitusRxSubscriber<EvictionEvent> firstSubscriber = subscribeAndCheckSnapshot();
+
+        Job<BatchJobExt> job = newBatchJob(
+                5,
+                budget(numberOfHealthyPolicy(8), hourlyRatePercentage(50), singletonList(officeHourTimeWindow()))
+        );
+        when(quotasManager.findEvictionQuota(Reference.job(job.getId()))).thenReturn(Optional.of(EvictionQuota.jobQuota(job.getId(), 2, "Test")));
+        jobComponentStub.createJob(job);
+        expectJobQuotaEvent(firstSubscriber, job, 2);
+
+        // The second subscriber joins after the job quota was emitted, so it must be included in its snapshot.
+        TitusRxSubscriber<EvictionEvent> secondSubscriber = new TitusRxSubscriber<>();
+        quotaEventEmitter.events(true).subscribe(secondSubscriber);
+        expectSystemQuota(secondSubscriber);
+        expectJobQuotaEvent(secondSubscriber, job, 2);
+        expectSnapshotEnd(secondSubscriber);
+
+        // Both subscribers get the same update.
+        when(quotasManager.findEvictionQuota(Reference.job(job.getId()))).thenReturn(Optional.of(EvictionQuota.jobQuota(job.getId(), 5, "Test")));
+        expectJobQuotaEvent(firstSubscriber, job, 5);
+        expectJobQuotaEvent(secondSubscriber, job, 5);
+    }
+
     private TitusRxSubscriber<EvictionEvent> subscribeAndCheckSnapshot() throws InterruptedException {
         TitusRxSubscriber<EvictionEvent> eventSubscriber = new TitusRxSubscriber<>();
         quotaEventEmitter.events(true).subscribe(eventSubscriber);
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.master.jobmanager.service.JobAndTaskMetricsState.JobCategory;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobAndTaskMetricsStateTest {
+
+    private static final long NOW = 1_000_000_000L;
+
+    private static final HistogramDescriptor HISTOGRAM_DESCRIPTOR = HistogramDescriptor.histogramOf(60_000, 3_600_000);
+
+    private final JobAndTaskMetricsState state = new JobAndTaskMetricsState(
+            EnumSet.of(TaskState.Accepted, TaskState.Started),
+            HISTOGRAM_DESCRIPTOR
+    );
+
+    private final Job<BatchJobExt> job = withCapacityGroup(JobGenerator.oneBatchJob(), "cg1");
+
+    @Test
+    public void testJobAndTaskCounts() {
+        state.updateJob(job);
+        assertThat(state.getJobCount(JobCategory.BatchFenzo)).isEqualTo(1);
+
+        Task task = newTask("task1", TaskState.Started, NOW - 30_000, true);
+        state.updateTask(job, task);
+        assertThat(state.getJobCount(JobCategory.BatchFenzo)).isEqualTo(0);
+        assertThat(state.getJobCount(JobCategory.BatchKubeScheduler)).isEqualTo(1);
+        assertThat(state.getTaskCount()).isEqualTo(1);
+        assertThat(state.getTasksOwnedByKubeScheduler()).isEqualTo(1);
+
+        // Finished task is removed
+        state.updateTask(job, JobFunctions.changeTaskStatus(task, TaskStatus.newBuilder().withState(TaskState.Finished).withTimestamp(NOW).build()));
+        assertThat(state.getJobCount(JobCategory.BatchFenzo)).isEqualTo(1);
+        assertThat(state.getTaskCount()).isZero();
+        assertThat(state.getTasksOwnedByKubeScheduler()).isZero();
+
+        // Finished job is removed together with its tasks
+        state.updateTask(job, newTask("task2", TaskState.Accepted, NOW, false));
+        state.updateJob(JobFunctions.changeJobStatus(job, JobState.Finished, "test"));
+        assertThat(state.getJobCount(JobCategory.BatchFenzo)).isZero();
+        assertThat(state.getTaskCount()).isZero();
+    }
+
+    @Test
+    public void testTaskLivenessHistograms() {
+        state.updateJob(job);
+        state.updateTask(job, newTask("task1", TaskState.Started, NOW - 30_000, false));
+        state.updateTask(job, newTask("task2", TaskState.Started, NOW - 30_000, false));
+        state.updateTask(job, newTask("task3", TaskState.Started, NOW - 600_000, false));
+        state.updateTask(job, newTask("task4", TaskState.Accepted, NOW - 7_200_000, false));
+
+        Map<String, Map<String, Histogram.Builder>> histograms = state.buildCapacityGroupsHistograms(Collections.singleton("cg1"), NOW);
+        assertThat(histograms.get("cg1").get(TaskState.Started.name()).build().getCounters()).containsExactly(2L, 1L, 0L);
+        assertThat(histograms.get("cg1").get(TaskState.Accepted.name()).build().getCounters()).containsExactly(0L, 0L, 1L);
+
+        // Unknown capacity groups are reported as the default one.
+        Job<BatchJobExt> movedJob = withCapacityGroup(job, "unknown");
+        state.updateJob(movedJob);
+        histograms = state.buildCapacityGroupsHistograms(Collections.singleton("cg1"), NOW);
+        assertThat(histograms.get("cg1")).isEmpty();
+        assertThat(histograms.get("DEFAULT").get(TaskState.Started.name()).build().getCounters()).containsExactly(2L, 1L, 0L);
+    }
+
+    private Task newTask(String taskId, TaskState taskState, long timestamp, boolean ownedByKubeScheduler) {
+        return JobGenerator.batchTasks(job).getValue().toBuilder()
+                .withId(taskId)
+                .withStatus(TaskStatus.newBuilder().withState(taskState).withTimestamp(timestamp).build())
+                .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_OWNED_BY_KUBE_SCHEDULER, "" + ownedByKubeScheduler)
+                .build();
+    }
+
+    private static Job<BatchJobExt> withCapacityGroup(Job<BatchJobExt> job, String capacityGroup) {
+        return job.toBuilder()
+                .withJobDescriptor(job.getJobDescriptor().toBuilder().withCapacityGroup(capacityGroup).build())
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.batch;
+
+import java.util.List;
+
+import com.netflix.titus.api.FeatureActivationConfiguration;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobModel;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import com.netflix.titus.master.mesos.VirtualMachineMasterService;
+import com.netflix.titus.master.mesos.kubeapiserver.direct.DirectKubeApiServerIntegrator;
+import com.netflix.titus.master.mesos.kubeapiserver.direct.DirectKubeConfiguration;
+import com.netflix.titus.master.scheduler.SchedulingService;
+import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
+import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BatchDifferenceResolverTest {
+
+    private static final int JOB_SIZE = 20_000;
+
+    /**
+     * With the per-task scan of the job children, resolving a job of this size takes many seconds.
+     */
+    private static final long MAX_RESOLUTION_TIME_MS = 1_000;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test();
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    @SuppressWarnings("unchecked")
+    private final ReconciliationEngine<JobManagerReconcilerEvent> engine = mock(ReconciliationEngine.class);
+
+    private BatchDifferenceResolver resolver;
+
+    @Before
+    public void setUp() {
+        when(configuration.getActiveNotStartedTasksLimit()).thenReturn(JOB_SIZE);
+        when(configuration.getConcurrentReconcilerStoreUpdateLimit()).thenReturn(JOB_SIZE);
+        when(configuration.getTaskRetryerResetTimeMs()).thenReturn(300_000L);
+        when(configuration.getTaskStoreWriteBatchSize()).thenReturn(50);
+
+        this.resolver = new BatchDifferenceResolver(
+                mock(DirectKubeApiServerIntegrator.class),
+                configuration,
+                mock(FeatureActivationConfiguration.class),
+                mock(DirectKubeConfiguration.class),
+                pair -> false,
+                mock(ApplicationSlaManagementService.class),
+                mock(SchedulingService.class),
+                mock(VirtualMachineMasterService.class),
+                mock(JobStore.class),
+                mock(ConstraintEvaluatorTransformer.class),
+                mock(SystemSoftConstraint.class),
+                mock(SystemHardConstraint.class),
+                titusRuntime,
+                Schedulers.immediate()
+        );
+    }
+
+    @Test
+    public void testAllFailedTasksOfLargeJobAreReplacedInLinearTime() {
+        JobDescriptor<BatchJobExt> jobDescriptor = JobFunctions.changeRetryPolicy(
+                batchJobDescriptor(JOB_SIZE),
+                JobModel.newImmediateRetryPolicy().withRetries(3).build()
+        );
+        Job<BatchJobExt> job = batchJobs(jobDescriptor).getValue();
+
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+        for (BatchJobTask task : batchTasks(job).getValues(JOB_SIZE)) {
+            BatchJobTask failedTask = task.toBuilder()
+                    .withStatus(TaskStatus.newBuilder().withState(TaskState.Finished).withReasonCode(TaskStatus.REASON_FAILED).build())
+                    .build();
+            jobHolder = jobHolder.addChild(EntityHolder.newRoot(failedTask.getId(), failedTask));
+        }
+        when(engine.getReferenceView()).thenReturn(jobHolder);
+        when(engine.getRunningView()).thenReturn(jobHolder);
+        when(engine.getStoreView()).thenReturn(jobHolder);
+
+        // Warm up first, and measure next.
+        assertThat(resolver.apply(engine)).hasSize(JOB_SIZE);
+
+        long startTime = System.currentTimeMillis();
+        List<ChangeAction> actions = resolver.apply(engine);
+        long elapsedMs = System.currentTimeMillis() - startTime;
+
+        assertThat(actions).hasSize(JOB_SIZE);
+        assertThat(elapsedMs).isLessThan(MAX_RESOLUTION_TIME_MS);
+    }
+
+    @Test
+    public void testMissingTasksAreCreatedUpToJobSize() {
+        Job<BatchJobExt> job = batchJobs(batchJobDescriptor(10)).getValue();
+
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+        for (BatchJobTask task : batchTasks(job).getValues(4)) {
+            jobHolder = jobHolder.addChild(EntityHolder.newRoot(task.getId(), task));
+        }
+        when(engine.getReferenceView()).thenReturn(jobHolder);
+        when(engine.getRunningView()).thenReturn(jobHolder);
+        when(engine.getStoreView()).thenReturn(jobHolder);
+
+        assertThat(resolver.apply(engine)).hasSize(6);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine.DifferenceResolver;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DirtyTrackingDifferenceResolverTest {
+
+    private static final long LAUNCHED_TIMEOUT_MS = 5_000;
+    private static final long MAX_IDLE_MS = 60_000;
+
+    private final TestClock clock = Clocks.test();
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    @SuppressWarnings("unchecked")
+    private final DifferenceResolver<JobManagerReconcilerEvent> delegate = mock(DifferenceResolver.class);
+
+    @SuppressWarnings("unchecked")
+    private final ReconciliationEngine<JobManagerReconcilerEvent> engine = mock(ReconciliationEngine.class);
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+
+    private DirtyTrackingDifferenceResolver resolver;
+
+    private EntityHolder runningModel;
+
+    @Before
+    public void setUp() {
+        when(configuration.isDirtyTrackedReconciliationEnabled()).thenReturn(true);
+        when(configuration.getDirtyTrackedReconciliationMaxIdleMs()).thenReturn(MAX_IDLE_MS);
+        when(configuration.getTaskInLaunchedStateTimeoutMs()).thenReturn(LAUNCHED_TIMEOUT_MS);
+        when(delegate.apply(any())).thenReturn(Collections.emptyList());
+
+        BatchJobTask task = batchTasks(job).getValue();
+        BatchJobTask launchedTask = BatchJobTask.newBuilder(task)
+                .withStatus(TaskStatus.newBuilder().withState(TaskState.Launched).withTimestamp(clock.wallTime()).build())
+                .build();
+        EntityHolder taskHolder = TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(
+                configuration, EntityHolder.newRoot(launchedTask.getId(), launchedTask), clock
+        );
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job).addChild(taskHolder);
+
+        this.runningModel = jobHolder;
+        when(engine.getReferenceView()).thenReturn(jobHolder);
+        when(engine.getRunningView()).thenAnswer(invocation -> runningModel);
+        when(engine.getStoreView()).thenReturn(jobHolder);
+
+        this.resolver = new DirtyTrackingDifferenceResolver(delegate, configuration, TitusRuntimes.test(clock));
+    }
+
+    @Test
+    public void testUnchangedModelIsNotResolvedAgain() {
+        resolver.apply(engine);
+        resolver.apply(engine);
+        verify(delegate, times(1)).apply(engine);
+
+        // Model change
+        runningModel = runningModel.addTag("someTag", "someValue");
+        resolver.apply(engine);
+        resolver.apply(engine);
+        verify(delegate, times(2)).apply(engine);
+    }
+
+    @Test
+    public void testResolvedAgainWhenTaskTimeoutPasses() {
+        resolver.apply(engine);
+        clock.advanceTime(LAUNCHED_TIMEOUT_MS - 1, TimeUnit.MILLISECONDS);
+        resolver.apply(engine);
+        verify(delegate, times(1)).apply(engine);
+
+        clock.advanceTime(1, TimeUnit.MILLISECONDS);
+        resolver.apply(engine);
+        verify(delegate, times(2)).apply(engine);
+    }
+
+    @Test
+    public void testResolvedAgainAfterMaxIdleTime() {
+        runningModel = EntityHolder.newRoot(job.getId(), job);
+        resolver.apply(engine);
+        clock.advanceTime(MAX_IDLE_MS, TimeUnit.MILLISECONDS);
+        resolver.apply(engine);
+        verify(delegate, times(2)).apply(engine);
+    }
+
+    @Test
+    public void testAlwaysResolvedWhenDisabled() {
+        when(configuration.isDirtyTrackedReconciliationEnabled()).thenReturn(false);
+        resolver.apply(engine);
+        resolver.apply(engine);
+        verify(delegate, times(2)).apply(engine);
+    }
+}
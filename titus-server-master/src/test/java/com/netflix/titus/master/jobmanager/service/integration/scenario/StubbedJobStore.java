@@ -312,6 +312,11 @@ class StubbedJobStore implements JobStore {
                 }));
     }
 
+    @Override
+    public Completable updateTasks(List<Task> tasks) {
+        return Completable.concat(tasks.stream().map(this::updateTask).collect(Collectors.toList()));
+    }
+
     @Override
     public Completable replaceTask(Task oldTask, Task newTask) {
         return beforeCompletable(() ->
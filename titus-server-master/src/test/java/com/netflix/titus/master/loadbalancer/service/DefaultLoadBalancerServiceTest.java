@@ -16,6 +16,7 @@
 
 package com.netflix.titus.master.loadbalancer.service;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -24,8 +25,10 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.connector.cloud.LoadBalancer;
 import com.netflix.titus.api.connector.cloud.LoadBalancerConnector;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
@@ -50,10 +53,12 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.rx.batch.Batch;
+import com.netflix.titus.common.util.rx.batch.Priority;
 import com.netflix.titus.runtime.store.v3.memory.InMemoryLoadBalancerStore;
 import org.junit.Before;
 import org.junit.Test;
 import rx.Completable;
+import rx.Observable;
 import rx.Single;
 import rx.observers.AssertableSubscriber;
 import rx.schedulers.Schedulers;
@@ -1039,6 +1044,65 @@ public class DefaultLoadBalancerServiceTest {
         assertThat(loadBalancerStore.getLoadBalancerTargets(removedId).collectList().block()).isEmpty();
     }
 
+    @Test
+    public void pendingTargetsAreClearedWhenDuplicateUpdatesAreApplied() {
+        String loadBalancerId = "lb-" + UUID.randomUUID().toString();
+        LoadBalancerTarget target = new LoadBalancerTarget(loadBalancerId, "task-1", "1.1.1.1");
+        Instant now = Instant.ofEpochMilli(testScheduler.now());
+
+        defaultStubs();
+        LoadBalancerConfiguration configuration = LoadBalancerTests.mockConfiguration(MIN_TIME_IN_QUEUE_MS);
+        DefaultLoadBalancerService service = new DefaultLoadBalancerService(
+                runtime, configuration, client, loadBalancerStore, loadBalancerJobOperations, reconciler, validator, testScheduler);
+
+        AssertableSubscriber<Batch<TargetStateBatchable, String>> testSubscriber = service.events().test();
+
+        // The second update is equivalent, so the batcher keeps the first one and drops it.
+        reconcilerEvents.onNext(new TargetStateBatchable(Priority.LOW, now, new LoadBalancerTargetState(target, REGISTERED)));
+        reconcilerEvents.onNext(new TargetStateBatchable(Priority.LOW, now.plusMillis(1), new LoadBalancerTargetState(target, REGISTERED)));
+        assertThat(pendingTargets(loadBalancerId)).isEqualTo(1);
+
+        testScheduler.advanceTimeBy(FLUSH_WAIT_TIME_MS, TimeUnit.MILLISECONDS);
+
+        testSubscriber.assertNoErrors().assertValueCount(1);
+        verify(client).registerAll(eq(loadBalancerId), argThat(targets -> targets != null && targets.size() == 1));
+        assertThat(pendingTargets(loadBalancerId)).isZero();
+    }
+
+    @Test
+    public void pendingTargetsAreClearedOnResubscription() {
+        String loadBalancerId = "lb-" + UUID.randomUUID().toString();
+        LoadBalancerTarget target = new LoadBalancerTarget(loadBalancerId, "task-1", "1.1.1.1");
+        Instant now = Instant.ofEpochMilli(testScheduler.now());
+
+        defaultStubs();
+        // Only the first subscription fails, so the retried stream keeps running.
+        PublishSubject<JobManagerEvent<?>> failingTaskEvents = PublishSubject.create();
+        AtomicBoolean failed = new AtomicBoolean();
+        when(v3JobOperations.observeJobs()).thenReturn(Observable.defer(() ->
+                failed.get() ? PublishSubject.<JobManagerEvent<?>>create() : failingTaskEvents
+        ));
+        LoadBalancerConfiguration configuration = LoadBalancerTests.mockConfiguration(MIN_TIME_IN_QUEUE_MS);
+        DefaultLoadBalancerService service = new DefaultLoadBalancerService(
+                runtime, configuration, client, loadBalancerStore, loadBalancerJobOperations, reconciler, validator, testScheduler);
+
+        AssertableSubscriber<Batch<TargetStateBatchable, String>> testSubscriber = service.events().test();
+        reconcilerEvents.onNext(new TargetStateBatchable(Priority.LOW, now, new LoadBalancerTargetState(target, REGISTERED)));
+        assertThat(pendingTargets(loadBalancerId)).isEqualTo(1);
+
+        // The update held by the batcher is lost with the failed subscription.
+        failed.set(true);
+        failingTaskEvents.onError(new RuntimeException("simulated job event stream error"));
+        testSubscriber.assertNoErrors();
+        assertThat(failingTaskEvents.hasObservers()).isFalse();
+        assertThat(pendingTargets(loadBalancerId)).isZero();
+    }
+
+    private double pendingTargets(String loadBalancerId) {
+        Registry registry = runtime.getRegistry();
+        return registry.gauge(registry.createId(LoadBalancerEngine.METRIC_PENDING_TARGETS, "loadBalancerId", loadBalancerId)).value();
+    }
+
     private void verifyReconcilerIgnore(String loadBalancerId, String... ipAddresses) {
         Set<String> ipSet = CollectionsExt.asSet(ipAddresses);
         verify(reconciler, times(ipAddresses.length)).activateCooldownFor(
@@ -130,6 +130,7 @@ public class LoadBalancerTests {
         when(configuration.getMaxTimeMs()).thenReturn(Long.MAX_VALUE);
         when(configuration.getMinTimeMs()).thenReturn(minTimeInQueueMs);
         when(configuration.getBucketSizeMs()).thenReturn(minTimeInQueueMs);
+        when(configuration.getMaxConcurrentBatches()).thenReturn(10);
 
         return configuration;
     }
@@ -34,7 +34,7 @@ import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.Tier;
 import com.netflix.titus.common.data.generator.DataGenerator;
-import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.master.config.MasterConfiguration;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
@@ -42,6 +42,7 @@ import com.netflix.titus.master.scheduler.SchedulerConfiguration;
 import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
 import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
 import com.netflix.titus.master.scheduler.constraint.V3ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.fitness.AgentTaskIndex;
 import com.netflix.titus.master.scheduler.resourcecache.TaskCache;
 import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
 import com.netflix.titus.testkit.model.job.JobGenerator;
@@ -169,8 +170,8 @@ public class DefaultV3TaskInfoRequestFactoryTest {
         DataGenerator<BatchJobTask> tasks = JobGenerator.batchTasks(job);
         BatchJobTask task = tasks.getValue();
         V3ConstraintEvaluatorTransformer transformer = new V3ConstraintEvaluatorTransformer(masterConfiguration,
-                mock(SchedulerConfiguration.class), new TaskCache(mock(TitusRuntime.class), mock(V3JobOperations.class)),
-                mock(AgentManagementService.class));
+                mock(SchedulerConfiguration.class), new TaskCache(TitusRuntimes.internal(), mock(V3JobOperations.class), mock(SchedulerConfiguration.class)),
+                mock(AgentTaskIndex.class), mock(AgentManagementService.class));
 
         V3QueueableTask fenzoTask = new V3QueueableTask(Tier.Flex, null, job, task, runtimePrediction,
                 () -> true,
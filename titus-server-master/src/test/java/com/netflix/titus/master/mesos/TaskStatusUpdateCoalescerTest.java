@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.mesos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskStatusUpdateCoalescerTest {
+
+    private static final CallMetadata CALL_METADATA = CallMetadata.newBuilder().withCallerId("test").build();
+
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+
+    private final List<Map<String, Function<Task, Optional<Task>>>> calls = new ArrayList<>();
+    private final List<PublishSubject<Void>> results = new ArrayList<>();
+
+    private final TaskStatusUpdateCoalescer coalescer = new TaskStatusUpdateCoalescer(v3JobOperations, CALL_METADATA, new DefaultRegistry());
+
+    @Before
+    public void setUp() {
+        when(v3JobOperations.updateTasks(anyString(), anyMap(), any(), anyString(), eq(CALL_METADATA))).thenAnswer(invocation -> {
+            calls.add(invocation.getArgument(1));
+            PublishSubject<Void> result = PublishSubject.create();
+            results.add(result);
+            return result.toCompletable();
+        });
+    }
+
+    @Test
+    public void testUpdatesAreMergedWhileJobUpdateIsInProgress() {
+        coalescer.update("job1", "task1", addContext("first"), "first");
+        assertThat(calls).hasSize(1);
+        assertThat(calls.get(0)).containsOnlyKeys("task1");
+
+        coalescer.update("job1", "task2", addContext("second"), "second");
+        coalescer.update("job1", "task2", task -> Optional.empty(), "noop");
+        coalescer.update("job1", "task2", addContext("third"), "third");
+        coalescer.update("job1", "task3", addContext("fourth"), "fourth");
+        assertThat(calls).hasSize(1);
+        assertThat(coalescer.getPendingCount()).isEqualTo(2);
+
+        results.get(0).onCompleted();
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(1)).containsOnlyKeys("task2", "task3");
+        assertThat(coalescer.getPendingCount()).isEqualTo(0);
+
+        // All updates of a task are applied in the order of arrival.
+        Task task = JobGenerator.oneBatchTask();
+        Task updated = calls.get(1).get("task2").apply(task).get();
+        assertThat(updated.getTaskContext()).containsKeys("second", "third");
+
+        results.get(1).onCompleted();
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    public void testJobsAreUpdatedIndependently() {
+        coalescer.update("job1", "task1", addContext("first"), "first");
+        coalescer.update("job2", "task2", addContext("second"), "second");
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    public void testPendingUpdatesAreAppliedAfterFailure() {
+        coalescer.update("job1", "task1", addContext("first"), "first");
+        coalescer.update("job1", "task1", addContext("second"), "second");
+
+        results.get(0).onError(new RuntimeException("simulated error"));
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(1)).containsOnlyKeys("task1");
+    }
+
+    private Function<Task, Optional<Task>> addContext(String key) {
+        return task -> Optional.of(task.toBuilder().addToTaskContext(key, "true").build());
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.mesos.kubeapiserver;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.StreamSupport;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.mesos.MesosConfiguration;
+import com.netflix.titus.master.mesos.kubeapiserver.direct.KubeApiFacade;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.ApiResponse;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import okhttp3.Call;
+import okio.Timeout;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class KubePodLauncherTest {
+
+    private final MesosConfiguration configuration = mock(MesosConfiguration.class);
+
+    private final KubeApiFacade kubeApiFacade = mock(KubeApiFacade.class);
+
+    private final ApiClient apiClient = mock(ApiClient.class);
+
+    private final CoreV1Api coreV1Api = mock(CoreV1Api.class);
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    private final Map<Call, V1Pod> callToPod = new ConcurrentHashMap<>();
+
+    private final Set<String> createdPods = ConcurrentHashMap.newKeySet();
+
+    private KubePodLauncher launcher;
+
+    @Before
+    public void setUp() throws Exception {
+        when(configuration.getKubePodLaunchConcurrency()).thenReturn(4);
+        when(configuration.getKubePodLaunchMaxInFlight()).thenReturn(2);
+        when(configuration.getKubePodLaunchTimeoutMs()).thenReturn(5_000L);
+        when(configuration.getKubePodLaunchRetryCount()).thenReturn(2);
+        when(kubeApiFacade.getApiClient()).thenReturn(apiClient);
+        when(kubeApiFacade.getCoreV1Api()).thenReturn(coreV1Api);
+
+        // Calls are executed by the api client. Delegate to createNamespacedPod, which is stubbed by each test.
+        when(coreV1Api.createNamespacedPodCall(any(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Call call = mock(Call.class);
+            when(call.timeout()).thenReturn(new Timeout());
+            callToPod.put(call, invocation.getArgument(1));
+            return call;
+        });
+        when(apiClient.execute(any(), any())).thenAnswer(invocation -> {
+            Call call = invocation.getArgument(0);
+            assertThat(call.timeout().timeoutNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5_000));
+            V1Pod created = coreV1Api.createNamespacedPod("default", callToPod.get(call), null, null, null);
+            return new ApiResponse<>(201, Collections.emptyMap(), created);
+        });
+
+        this.launcher = new KubePodLauncher(configuration, kubeApiFacade, titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        launcher.shutdown();
+    }
+
+    @Test
+    public void testLaunch() throws Exception {
+        when(coreV1Api.createNamespacedPod(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            V1Pod pod = invocation.getArgument(1);
+            createdPods.add(pod.getMetadata().getName());
+            return pod;
+        });
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(launcher.launch(newPod("pod" + i))).isTrue();
+        }
+        await().until(() -> createdPods.size() == 10 && launcher.getInFlight() == 0);
+    }
+
+    @Test
+    public void testServerErrorIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(coreV1Api.createNamespacedPod(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ApiException(503, "unavailable");
+            }
+            V1Pod pod = invocation.getArgument(1);
+            createdPods.add(pod.getMetadata().getName());
+            return pod;
+        });
+
+        launcher.launch(newPod("pod1"));
+        await().until(() -> createdPods.contains("pod1") && launcher.getInFlight() == 0);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testBadRequestIsNotRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(coreV1Api.createNamespacedPod(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            throw new ApiException(400, "bad request");
+        });
+
+        launcher.launch(newPod("pod1"));
+        await().until(() -> launcher.getInFlight() == 0);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConflictOnRetryIsSuccess() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(coreV1Api.createNamespacedPod(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            // The first attempt created the pod, but its response was lost.
+            throw attempts.incrementAndGet() == 1 ? new ApiException(503, "unavailable") : new ApiException(409, "conflict");
+        });
+
+        launcher.launch(newPod("pod1"));
+        await().until(() -> launcher.getInFlight() == 0);
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(getLaunchCount("success")).isEqualTo(1);
+        assertThat(getLaunchCount("error")).isEqualTo(0);
+    }
+
+    @Test
+    public void testConflictOnFirstAttemptIsError() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(coreV1Api.createNamespacedPod(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            throw new ApiException(409, "conflict");
+        });
+
+        launcher.launch(newPod("pod1"));
+        await().until(() -> launcher.getInFlight() == 0);
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(getLaunchCount("success")).isEqualTo(0);
+        assertThat(getLaunchCount("error")).isEqualTo(1);
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        CountDownLatch apiServerBlocked = new CountDownLatch(1);
+        when(coreV1Api.createNamespacedPod(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            apiServerBlocked.await(5, TimeUnit.SECONDS);
+            V1Pod pod = invocation.getArgument(1);
+            createdPods.add(pod.getMetadata().getName());
+            return pod;
+        });
+
+        launcher.launch(newPod("pod1"));
+        launcher.launch(newPod("pod2"));
+        assertThat(launcher.getInFlight()).isEqualTo(2);
+
+        // The in-flight limit is reached, so the next launch must wait.
+        AtomicBoolean thirdLaunched = new AtomicBoolean();
+        Thread launchThread = new Thread(() -> thirdLaunched.set(launcher.launch(newPod("pod3"))));
+        launchThread.start();
+        Thread.sleep(100);
+        assertThat(thirdLaunched.get()).isFalse();
+
+        apiServerBlocked.countDown();
+        launchThread.join(5_000);
+        assertThat(thirdLaunched.get()).isTrue();
+        await().until(() -> createdPods.size() == 3);
+    }
+
+    private long getLaunchCount(String status) {
+        Registry registry = titusRuntime.getRegistry();
+        return registry.timers()
+                .filter(timer -> timer.id().name().equals(MetricConstants.METRIC_KUBERNETES + "podLauncher.launchLatency"))
+                .filter(timer -> StreamSupport.stream(timer.id().tags().spliterator(), false)
+                        .anyMatch(tag -> tag.key().equals("status") && tag.value().equals(status))
+                )
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private V1Pod newPod(String name) {
+        return new V1Pod().metadata(new V1ObjectMeta().name(name));
+    }
+}
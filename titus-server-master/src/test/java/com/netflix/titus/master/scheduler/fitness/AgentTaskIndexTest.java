@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheFunctions;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.master.scheduler.SchedulerTestUtils.createTaskRequest;
+import static com.netflix.titus.master.scheduler.SchedulerTestUtils.createVirtualMachineCurrentStateMock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AgentTaskIndexTest {
+
+    private static final String HOSTNAME = "agent1";
+
+    private final SchedulerConfiguration configuration = mock(SchedulerConfiguration.class);
+
+    private final AgentTaskIndex index = new AgentTaskIndex(configuration, TitusRuntimes.internal());
+
+    private final Job<?> batchJob = JobGenerator.oneBatchJob();
+    private final Job<?> serviceJob = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+
+    private final List<TaskAssignmentResult> assigned = new ArrayList<>();
+
+    private VirtualMachineCurrentState vm;
+
+    @Before
+    public void setUp() {
+        when(configuration.isAgentTaskIndexEnabled()).thenReturn(true);
+
+        List<TaskRequest> running = new ArrayList<>();
+        running.add(createTaskRequest("running1", batchJob, null));
+        running.add(createTaskRequest("running2", batchJob, null));
+        this.vm = createVirtualMachineCurrentStateMock(HOSTNAME, running, assigned);
+        when(vm.getHostname()).thenReturn(HOSTNAME);
+
+        index.prepare();
+    }
+
+    @Test
+    public void testCountersOfRunningTasks() {
+        AgentTaskCounters counters = index.getAgentTaskCounters(vm);
+        assertThat(counters.getTaskCount()).isEqualTo(2);
+        assertThat(counters.getBatchTaskCount()).isEqualTo(2);
+        assertThat(counters.getServiceTaskCount()).isZero();
+        assertThat(counters.getJobTaskCount(batchJob.getId())).isEqualTo(2);
+        assertThat(counters.getJobTaskCount(serviceJob.getId())).isZero();
+        assertThat(counters.getImageTaskCount(AgentResourceCacheFunctions.createImage(batchJob))).isEqualTo(2);
+        assertThat(counters.getSecurityGroupsTaskCount(batchJob.getJobDescriptor().getContainer().getSecurityProfile().getSecurityGroups())).isEqualTo(2);
+    }
+
+    @Test
+    public void testAssignmentsAreAdded() {
+        AgentTaskCounters counters = index.getAgentTaskCounters(vm);
+
+        // Reported by the scheduling event listener.
+        TaskAssignmentResult first = newAssignment("assigned1", serviceJob);
+        assigned.add(first);
+        index.onAssignment(first);
+        assertThat(index.getAgentTaskCounters(vm).getServiceTaskCount()).isEqualTo(1);
+
+        // Not reported, but visible in the agent state.
+        assigned.add(newAssignment("assigned2", serviceJob));
+        assertThat(index.getAgentTaskCounters(vm)).isSameAs(counters);
+        assertThat(counters.getTaskCount()).isEqualTo(4);
+        assertThat(counters.getJobTaskCount(serviceJob.getId())).isEqualTo(2);
+    }
+
+    @Test
+    public void testPrepareResetsIndex() {
+        AgentTaskCounters counters = index.getAgentTaskCounters(vm);
+        index.prepare();
+        assertThat(index.getAgentTaskCounters(vm)).isNotSameAs(counters);
+    }
+
+    @Test
+    public void testDisabledIndexScansAgentTasks() {
+        when(configuration.isAgentTaskIndexEnabled()).thenReturn(false);
+        AgentTaskCounters counters = index.getAgentTaskCounters(vm);
+        assertThat(index.getAgentTaskCounters(vm)).isNotSameAs(counters);
+        assertThat(counters.getTaskCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEmptyAgent() {
+        VirtualMachineCurrentState emptyVm = createVirtualMachineCurrentStateMock("agent2", Collections.emptyList(), Collections.emptyList());
+        when(emptyVm.getHostname()).thenReturn("agent2");
+        assertThat(index.getAgentTaskCounters(emptyVm).getTaskCount()).isZero();
+    }
+
+    private TaskAssignmentResult newAssignment(String taskId, Job<?> job) {
+        TaskAssignmentResult assignment = mock(TaskAssignmentResult.class);
+        TaskRequest request = createTaskRequest(taskId, job, null);
+        when(assignment.getTaskId()).thenReturn(taskId);
+        when(assignment.getHostname()).thenReturn(HOSTNAME);
+        when(assignment.getRequest()).thenReturn(request);
+        return assignment;
+    }
+}
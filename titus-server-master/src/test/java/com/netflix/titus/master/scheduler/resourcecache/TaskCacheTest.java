@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.resourcecache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.callmetadata.CallMetadata;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.code.RecordingCodeInvariants;
+import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import com.netflix.titus.testkit.model.job.JobComponentStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.ofBatchSize;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskCacheTest {
+
+    private static final CallMetadata CALL_METADATA = CallMetadata.newBuilder().withCallerId("test").build();
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test();
+
+    private final JobComponentStub jobComponentStub = new JobComponentStub(titusRuntime);
+
+    private final V3JobOperations jobOperations = jobComponentStub.getJobOperations();
+
+    private final SchedulerConfiguration configuration = mock(SchedulerConfiguration.class);
+
+    private final TaskCache taskCache = new TaskCache(titusRuntime, jobOperations, configuration);
+
+    private Job<?> job;
+    private List<Task> tasks;
+
+    @Before
+    public void setUp() {
+        when(configuration.getTaskCacheFullRebuildIntervalMs()).thenReturn(3_600_000L);
+        jobComponentStub.addBatchTemplate("batch", batchJobDescriptors(ofBatchSize(2)));
+        Pair<Job, List<Task>> jobAndTasks = jobComponentStub.createJobAndTasks("batch");
+        this.job = jobAndTasks.getLeft();
+        this.tasks = jobAndTasks.getRight();
+
+        taskCache.enterActiveMode();
+        taskCache.prepare();
+    }
+
+    @After
+    public void tearDown() {
+        taskCache.shutdown();
+    }
+
+    @Test
+    public void testZoneCountersFollowTaskUpdates() {
+        placeInZone(tasks.get(0), "zoneA");
+        placeInZone(tasks.get(1), "zoneB");
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 1).containsEntry("zoneB", 1);
+
+        // Finished tasks are counted until removed from the job manager, which happens without an event.
+        Task finished = jobComponentStub.moveTaskToState(tasks.get(0).getId(), TaskState.Finished);
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 1);
+
+        jobComponentStub.forget(finished);
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).doesNotContainKey("zoneA").containsEntry("zoneB", 1);
+        assertIncrementalStateMatchesFullRebuild();
+    }
+
+    @Test
+    public void testOpportunisticCpusOfRunningTasks() {
+        Task task = tasks.get(0);
+        jobOperations.recordTaskPlacement(task.getId(), current -> current.toBuilder()
+                .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID, "agent1")
+                .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_OPPORTUNISTIC_CPU_ALLOCATION, "allocation1")
+                .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_OPPORTUNISTIC_CPU_COUNT, "4")
+                .build(), CALL_METADATA
+        ).await();
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(0);
+
+        jobComponentStub.moveTaskToState(task.getId(), TaskState.Started);
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(4);
+
+        // Allocations made during a scheduling iteration are discarded by the next one.
+        taskCache.addOpportunisticCpuAllocation(new OpportunisticCpuAllocation(tasks.get(1).getId(), "agent1", "allocation2", 2));
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(6);
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(4);
+
+        jobComponentStub.moveTaskToState(task.getId(), TaskState.Finished);
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(0);
+        assertIncrementalStateMatchesFullRebuild();
+    }
+
+    @Test
+    public void testNewJobIsAdded() {
+        Pair<Job, List<Task>> jobAndTasks = jobComponentStub.createJobAndTasks("batch");
+        placeInZone(jobAndTasks.getRight().get(0), "zoneC");
+        taskCache.prepare();
+        assertThat(taskCache.getTasksByZoneIdCounters(jobAndTasks.getLeft().getId())).containsEntry("zoneC", 1);
+        assertIncrementalStateMatchesFullRebuild();
+    }
+
+    @Test
+    public void testPeriodicFullRebuildAppliesPendingChangesFirst() {
+        placeInZone(tasks.get(0), "zoneA");
+        taskCache.prepare();
+
+        // Changes received since the last iteration must be in the incremental state when compared with the rebuild.
+        placeInZone(tasks.get(1), "zoneB");
+        jobComponentStub.moveTaskToState(tasks.get(0).getId(), TaskState.Finished);
+        ((TestClock) titusRuntime.getClock()).advanceTime(3_600_000L, TimeUnit.MILLISECONDS);
+        taskCache.prepare();
+
+        assertThat(taskCache.getTasksByZoneIdCounters(job.getId())).containsEntry("zoneA", 1).containsEntry("zoneB", 1);
+        assertThat(titusRuntime.getRegistry().counter(MetricConstants.METRIC_SCHEDULING_SERVICE + "taskCache.fullRebuilds").count()).isEqualTo(2);
+        assertThat(titusRuntime.getRegistry().counter(MetricConstants.METRIC_SCHEDULING_SERVICE + "taskCache.inconsistentStates").count()).isZero();
+        assertThat(((RecordingCodeInvariants) titusRuntime.getCodeInvariants()).getViolations()).isEmpty();
+    }
+
+    private void placeInZone(Task task, String zoneId) {
+        jobOperations.recordTaskPlacement(
+                task.getId(),
+                current -> current.toBuilder().addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, zoneId).build(),
+                CALL_METADATA
+        ).await();
+    }
+
+    private void assertIncrementalStateMatchesFullRebuild() {
+        TaskCache fullRebuild = new TaskCache(titusRuntime, jobOperations, configuration);
+        fullRebuild.prepare();
+        for (Job<?> next : jobOperations.getJobs()) {
+            assertThat(taskCache.getTasksByZoneIdCounters(next.getId())).isEqualTo(fullRebuild.getTasksByZoneIdCounters(next.getId()));
+        }
+        assertThat(taskCache.getOpportunisticCpusAllocated("agent1")).isEqualTo(fullRebuild.getOpportunisticCpusAllocated("agent1"));
+    }
+}
@@ -0,0 +1,678 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.base.Preconditions;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobGroupInfo;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.ReadOnlyJobOperations;
+import com.netflix.titus.api.model.Page;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.guice.annotation.Activator;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.JobStatus;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+/**
+ * Secondary indexes over the job/task data of {@link ReadOnlyJobOperations}, used to answer the
+ * {@link JobQueryCriteria} based queries without a scan and sort of all jobs and tasks.
+ * <p>
+ * Each index is a set of keys sorted in the cursor order (see {@link JobManagerCursors}), so a query iterates its
+ * smallest candidate set in the final order, and the page is cut in the same pass. The index only narrows the
+ * candidates. Each candidate is resolved against the current job data, and evaluated with
+ * {@link V3JobQueryCriteriaEvaluator} / {@link V3TaskQueryCriteriaEvaluator}, so a not yet updated index entry never
+ * produces a wrong result. The index is updated from the job event stream, by re-reading the current version of
+ * the changed entity. Entities removed without an event (for example a finished job removed from the job manager)
+ * are purged when found missing during a query.
+ */
+@Singleton
+public class JobQueryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobQueryIndex.class);
+
+    private static final String APP_NAME = "appName";
+    private static final String CAPACITY_GROUP = "capacityGroup";
+    private static final String OWNER = "owner";
+    private static final String IMAGE_NAME = "imageName";
+    private static final String IMAGE_TAG = "imageTag";
+    private static final String JOB_GROUP_STACK = "jobGroupStack";
+    private static final String JOB_GROUP_DETAIL = "jobGroupDetail";
+    private static final String JOB_GROUP_SEQUENCE = "jobGroupSequence";
+    private static final String JOB_STATE = "jobState";
+    private static final String JOB_TYPE = "jobType";
+    private static final String ATTRIBUTE_KEY = "attributeKey";
+
+    private final ReadOnlyJobOperations jobOperations;
+    private final TitusRuntime titusRuntime;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableSet<IndexKey> allJobs = new TreeSet<>();
+    private final Map<String, IndexedJob> jobsById = new HashMap<>();
+    private final Map<String, Map<String, NavigableSet<IndexKey>>> jobPostings = new HashMap<>();
+
+    private final NavigableSet<IndexKey> allTasks = new TreeSet<>();
+    private final Map<String, IndexedTask> tasksById = new HashMap<>();
+    private final Map<TaskState, NavigableSet<IndexKey>> tasksByState = new HashMap<>();
+    private final Map<String, NavigableSet<IndexKey>> tasksByJobId = new HashMap<>();
+
+    private volatile Subscription eventSubscription;
+    private volatile boolean ready;
+
+    @Inject
+    public JobQueryIndex(ReadOnlyJobOperations jobOperations, TitusRuntime titusRuntime) {
+        this.jobOperations = jobOperations;
+        this.titusRuntime = titusRuntime;
+    }
+
+    /**
+     * Subscribes to the job event stream first, and next indexes the current job data. The order guarantees that no
+     * change is missed.
+     */
+    @Activator
+    public void enterActiveMode() {
+        Preconditions.checkState(eventSubscription == null, "Job query index already started");
+
+        this.eventSubscription = titusRuntime.persistentStream(jobOperations.observeJobs()).subscribe(
+                this::onEvent,
+                e -> logger.error("Job event stream terminated with an error", e),
+                () -> logger.info("Job event stream completed")
+        );
+
+        long startTime = titusRuntime.getClock().wallTime();
+        List<Pair<Job, List<Task>>> jobsAndTasks = jobOperations.getJobsAndTasks();
+        jobsAndTasks.forEach(jobAndTasks -> {
+            reindexJob(jobAndTasks.getLeft().getId());
+            jobAndTasks.getRight().forEach(task -> reindexTask(task.getId()));
+        });
+        this.ready = true;
+        logger.info("Job query index initialized in {}ms: jobs={}, tasks={}",
+                titusRuntime.getClock().wallTime() - startTime, jobsById.size(), tasksById.size()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.ready = false;
+        ObservableExt.safeUnsubscribe(eventSubscription);
+    }
+
+    /**
+     * Returns true, if the index is loaded, and follows the job event stream. Queries must not be run against
+     * the index before that.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Pair<List<Job<?>>, Pagination> findJobs(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria, Page page) {
+        V3JobQueryCriteriaEvaluator evaluator = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
+        boolean needsTasks = hasTaskCriteria(criteria);
+
+        List<String> missingJobIds = new ArrayList<>();
+        Pair<List<Job<?>>, Pagination> result = takePage(
+                page,
+                findJobCandidates(criteria),
+                key -> {
+                    Optional<Job<?>> jobOpt = jobOperations.getJob(key.getId());
+                    if (!jobOpt.isPresent()) {
+                        missingJobIds.add(key.getId());
+                        return Optional.empty();
+                    }
+                    Job<?> job = jobOpt.get();
+                    List<Task> tasks = needsTasks ? getTasksOrEmpty(job.getId()) : Collections.emptyList();
+                    return evaluator.test(Pair.of(job, tasks)) ? Optional.of(job) : Optional.empty();
+                },
+                JobManagerCursors::newCoreCursorFrom
+        );
+        missingJobIds.forEach(this::removeJob);
+        return result;
+    }
+
+    public Pair<List<Task>, Pagination> findTasks(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria, Page page) {
+        V3TaskQueryCriteriaEvaluator evaluator = new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime);
+
+        List<String> missingTaskIds = new ArrayList<>();
+        Pair<List<Task>, Pagination> result = takePage(
+                page,
+                findTaskCandidates(criteria),
+                key -> {
+                    Optional<Pair<Job<?>, Task>> jobAndTaskOpt = jobOperations.findTaskById(key.getId());
+                    if (!jobAndTaskOpt.isPresent()) {
+                        missingTaskIds.add(key.getId());
+                        return Optional.empty();
+                    }
+                    return evaluator.test(jobAndTaskOpt.get()) ? Optional.of(jobAndTaskOpt.get().getRight()) : Optional.empty();
+                },
+                JobManagerCursors::newCoreCursorFrom
+        );
+        missingTaskIds.forEach(this::removeTask);
+        return result;
+    }
+
+    private void onEvent(JobManagerEvent<?> event) {
+        try {
+            if (event instanceof JobUpdateEvent) {
+                reindexJob(((JobUpdateEvent) event).getCurrent().getId());
+            } else if (event instanceof TaskUpdateEvent) {
+                reindexTask(((TaskUpdateEvent) event).getCurrentTask().getId());
+            }
+        } catch (Exception e) {
+            titusRuntime.getCodeInvariants().unexpectedError("Cannot update job query index", e);
+        }
+    }
+
+    /**
+     * Selects the smallest candidate set among the indexes matching the query criteria. The returned collection is
+     * a snapshot, and can be safely iterated without holding the lock.
+     */
+    private List<IndexKey> findJobCandidates(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<IndexKey> best = allJobs;
+            if (!criteria.getJobIds().isEmpty()) {
+                best = smaller(best, keysOf(criteria.getJobIds(), jobsById, IndexedJob::getKey));
+            }
+            if (!criteria.getTaskIds().isEmpty()) {
+                Set<String> jobIds = new HashSet<>();
+                criteria.getTaskIds().forEach(taskId -> {
+                    IndexedTask task = tasksById.get(taskId);
+                    if (task != null) {
+                        jobIds.add(task.getJobId());
+                    }
+                });
+                best = smaller(best, keysOf(jobIds, jobsById, IndexedJob::getKey));
+            }
+            for (Pair<String, String> fieldValue : indexedJobFieldsOf(criteria)) {
+                best = smaller(best, jobPosting(fieldValue.getLeft(), fieldValue.getRight()));
+            }
+            return new ArrayList<>(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<IndexKey> findTaskCandidates(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<IndexKey> best = allTasks;
+            if (!criteria.getTaskIds().isEmpty()) {
+                best = smaller(best, keysOf(criteria.getTaskIds(), tasksById, IndexedTask::getKey));
+            }
+            if (!criteria.getTaskStates().isEmpty()) {
+                List<NavigableSet<IndexKey>> byState = new ArrayList<>();
+                criteria.getTaskStates().forEach(state -> {
+                    NavigableSet<IndexKey> posting = tasksByState.get(GrpcJobManagementModelConverters.toCoreTaskState(state));
+                    if (posting != null) {
+                        byState.add(posting);
+                    }
+                });
+                best = smaller(best, byState);
+            }
+
+            // Tasks of the jobs matching the job level criteria.
+            Set<String> candidateJobIds = null;
+            if (!criteria.getJobIds().isEmpty()) {
+                candidateJobIds = criteria.getJobIds();
+            }
+            for (Pair<String, String> fieldValue : indexedJobFieldsOf(criteria)) {
+                NavigableSet<IndexKey> posting = jobPosting(fieldValue.getLeft(), fieldValue.getRight());
+                if (candidateJobIds == null || posting.size() < candidateJobIds.size()) {
+                    Set<String> jobIds = new HashSet<>();
+                    posting.forEach(key -> jobIds.add(key.getId()));
+                    candidateJobIds = jobIds;
+                }
+            }
+            if (candidateJobIds != null) {
+                List<NavigableSet<IndexKey>> byJob = new ArrayList<>();
+                candidateJobIds.forEach(jobId -> {
+                    NavigableSet<IndexKey> posting = tasksByJobId.get(jobId);
+                    if (posting != null) {
+                        byJob.add(posting);
+                    }
+                });
+                best = smaller(best, byJob);
+            }
+            return new ArrayList<>(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cuts a page from the ordered candidate list, following the same rules as
+     * {@link PaginationUtil#takePageWithCursor} and {@link PaginationUtil#takePageWithoutCursor}. The candidates
+     * are already in the cursor order, so no sorting is needed, and only matching entities are kept in memory.
+     */
+    private <T> Pair<List<T>, Pagination> takePage(Page page,
+                                                   List<IndexKey> orderedCandidates,
+                                                   Function<IndexKey, Optional<T>> matcher,
+                                                   Function<T, String> cursorFactory) {
+        boolean withCursor = !StringExt.isEmpty(page.getCursor());
+        IndexKey cursorKey = null;
+        if (withCursor) {
+            cursorKey = JobManagerCursors.decode(page.getCursor())
+                    .map(idAndTimestamp -> new IndexKey(idAndTimestamp.getRight(), idAndTimestamp.getLeft()))
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid cursor: " + page.getCursor()));
+        } else if (page.getPageSize() <= 0) {
+            return Pair.of(Collections.emptyList(), new Pagination(page, false, 0, 0, "", 0));
+        }
+
+        int pageSize = Math.max(0, page.getPageSize());
+        int offset = withCursor ? -1 : page.getPageNumber() * pageSize;
+        int totalItems = 0;
+        T lastMatch = null;
+        List<T> pageItems = new ArrayList<>();
+        for (IndexKey key : orderedCandidates) {
+            Optional<T> matched = matcher.apply(key);
+            if (!matched.isPresent()) {
+                continue;
+            }
+            if (offset < 0 && key.compareTo(cursorKey) > 0) {
+                offset = totalItems;
+            }
+            if (offset >= 0 && totalItems >= offset && pageItems.size() < pageSize) {
+                pageItems.add(matched.get());
+            }
+            lastMatch = matched.get();
+            totalItems++;
+        }
+
+        if (!withCursor) {
+            if (totalItems == 0) {
+                return Pair.of(Collections.emptyList(), new Pagination(page, false, 0, 0, "", 0));
+            }
+            int lastItem = Math.min(totalItems, offset + pageSize);
+            String cursor = pageItems.isEmpty() ? "" : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
+            int cursorPosition = pageItems.isEmpty() ? 0 : lastItem - 1;
+            return Pair.of(pageItems, new Pagination(page, totalItems > lastItem, PaginationUtil.numberOfPages(page, totalItems), totalItems, cursor, cursorPosition));
+        }
+
+        if (offset < 0) {
+            offset = totalItems;
+        }
+        int endOffset = Math.min(totalItems, offset + pageSize);
+        int numberOfPages = PaginationUtil.numberOfPages(page, totalItems);
+        int pageNumber = Math.min(numberOfPages, offset / page.getPageSize());
+        T cursorItem = pageItems.isEmpty() ? lastMatch : pageItems.get(pageItems.size() - 1);
+        Pagination pagination = new Pagination(
+                page.toBuilder().withPageNumber(pageNumber).build(),
+                totalItems > (offset + pageSize),
+                numberOfPages,
+                totalItems,
+                totalItems == 0 ? "" : cursorFactory.apply(cursorItem),
+                totalItems == 0 ? 0 : endOffset - 1
+        );
+        return Pair.of(pageItems, pagination);
+    }
+
+    /**
+     * The current entity version is read while holding the write lock, so the event stream and the initial load
+     * never overwrite a newer index entry with an older one.
+     */
+    private void reindexJob(String jobId) {
+        lock.writeLock().lock();
+        try {
+            Optional<Job<?>> jobOpt = jobOperations.getJob(jobId);
+            if (!jobOpt.isPresent()) {
+                removeJob(jobId);
+                return;
+            }
+            Job<?> job = jobOpt.get();
+            IndexedJob indexed = new IndexedJob(new IndexKey(acceptedTimestampOf(job), jobId), indexedJobFieldsOf(job));
+
+            IndexedJob previous = jobsById.put(jobId, indexed);
+            if (previous != null) {
+                if (previous.getKey().equals(indexed.getKey()) && previous.getFields().equals(indexed.getFields())) {
+                    return;
+                }
+                allJobs.remove(previous.getKey());
+                previous.getFields().forEach(fieldValue -> removeFromPosting(jobPostings, fieldValue, previous.getKey()));
+            }
+            allJobs.add(indexed.getKey());
+            indexed.getFields().forEach(fieldValue ->
+                    jobPostings.computeIfAbsent(fieldValue.getLeft(), f -> new HashMap<>())
+                            .computeIfAbsent(fieldValue.getRight(), v -> new TreeSet<>())
+                            .add(indexed.getKey())
+            );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeJob(String jobId) {
+        lock.writeLock().lock();
+        try {
+            IndexedJob previous = jobsById.remove(jobId);
+            if (previous != null) {
+                allJobs.remove(previous.getKey());
+                previous.getFields().forEach(fieldValue -> removeFromPosting(jobPostings, fieldValue, previous.getKey()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reindexTask(String taskId) {
+        lock.writeLock().lock();
+        try {
+            Optional<Pair<Job<?>, Task>> jobAndTaskOpt = jobOperations.findTaskById(taskId);
+            if (!jobAndTaskOpt.isPresent()) {
+                removeTask(taskId);
+                return;
+            }
+            Task task = jobAndTaskOpt.get().getRight();
+            IndexedTask indexed = new IndexedTask(new IndexKey(acceptedTimestampOf(task), taskId), task.getJobId(), task.getStatus().getState());
+
+            IndexedTask previous = tasksById.put(taskId, indexed);
+            if (previous != null) {
+                if (previous.getKey().equals(indexed.getKey())
+                        && previous.getJobId().equals(indexed.getJobId())
+                        && previous.getState() == indexed.getState()) {
+                    return;
+                }
+                allTasks.remove(previous.getKey());
+                removeTaskPostings(previous);
+            }
+            allTasks.add(indexed.getKey());
+            tasksByState.computeIfAbsent(indexed.getState(), s -> new TreeSet<>()).add(indexed.getKey());
+            tasksByJobId.computeIfAbsent(indexed.getJobId(), j -> new TreeSet<>()).add(indexed.getKey());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTask(String taskId) {
+        lock.writeLock().lock();
+        try {
+            IndexedTask previous = tasksById.remove(taskId);
+            if (previous != null) {
+                allTasks.remove(previous.getKey());
+                removeTaskPostings(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTaskPostings(IndexedTask task) {
+        NavigableSet<IndexKey> byState = tasksByState.get(task.getState());
+        if (byState != null) {
+            byState.remove(task.getKey());
+        }
+        NavigableSet<IndexKey> byJob = tasksByJobId.get(task.getJobId());
+        if (byJob != null) {
+            byJob.remove(task.getKey());
+            if (byJob.isEmpty()) {
+                tasksByJobId.remove(task.getJobId());
+            }
+        }
+    }
+
+    private NavigableSet<IndexKey> jobPosting(String field, String value) {
+        NavigableSet<IndexKey> posting = jobPostings.getOrDefault(field, Collections.emptyMap()).get(value);
+        return posting == null ? Collections.emptyNavigableSet() : posting;
+    }
+
+    private List<Task> getTasksOrEmpty(String jobId) {
+        try {
+            return jobOperations.getTasks(jobId);
+        } catch (Exception e) {
+            // Job removed concurrently.
+            return Collections.emptyList();
+        }
+    }
+
+    private static void removeFromPosting(Map<String, Map<String, NavigableSet<IndexKey>>> postings, Pair<String, String> fieldValue, IndexKey key) {
+        Map<String, NavigableSet<IndexKey>> byValue = postings.get(fieldValue.getLeft());
+        if (byValue == null) {
+            return;
+        }
+        NavigableSet<IndexKey> posting = byValue.get(fieldValue.getRight());
+        if (posting != null) {
+            posting.remove(key);
+            if (posting.isEmpty()) {
+                byValue.remove(fieldValue.getRight());
+            }
+        }
+    }
+
+    private static NavigableSet<IndexKey> smaller(NavigableSet<IndexKey> current, NavigableSet<IndexKey> candidate) {
+        return candidate.size() < current.size() ? candidate : current;
+    }
+
+    /**
+     * Union of the given sets, if its size is smaller than the current best candidate set.
+     */
+    private static NavigableSet<IndexKey> smaller(NavigableSet<IndexKey> current, List<NavigableSet<IndexKey>> toMerge) {
+        if (toMerge.size() == 1) {
+            return smaller(current, toMerge.get(0));
+        }
+        long total = 0;
+        for (NavigableSet<IndexKey> next : toMerge) {
+            total += next.size();
+        }
+        if (total >= current.size()) {
+            return current;
+        }
+        NavigableSet<IndexKey> union = new TreeSet<>();
+        toMerge.forEach(union::addAll);
+        return union;
+    }
+
+    private static <I> NavigableSet<IndexKey> keysOf(Collection<String> ids, Map<String, I> indexed, Function<I, IndexKey> keyResolver) {
+        NavigableSet<IndexKey> keys = new TreeSet<>();
+        ids.forEach(id -> {
+            I entry = indexed.get(id);
+            if (entry != null) {
+                keys.add(keyResolver.apply(entry));
+            }
+        });
+        return keys;
+    }
+
+    private static boolean hasTaskCriteria(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        return !criteria.getTaskIds().isEmpty()
+                || !criteria.getTaskStates().isEmpty()
+                || !criteria.getTaskStateReasons().isEmpty()
+                || criteria.isNeedsMigration();
+    }
+
+    private static List<Pair<String, String>> indexedJobFieldsOf(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        List<Pair<String, String>> fields = new ArrayList<>();
+        criteria.getAppName().ifPresent(value -> fields.add(Pair.of(APP_NAME, value)));
+        criteria.getCapacityGroup().ifPresent(value -> fields.add(Pair.of(CAPACITY_GROUP, value)));
+        criteria.getOwner().ifPresent(value -> fields.add(Pair.of(OWNER, value)));
+        criteria.getImageName().ifPresent(value -> fields.add(Pair.of(IMAGE_NAME, value)));
+        criteria.getImageTag().ifPresent(value -> fields.add(Pair.of(IMAGE_TAG, value)));
+        criteria.getJobGroupStack().ifPresent(value -> fields.add(Pair.of(JOB_GROUP_STACK, value)));
+        criteria.getJobGroupDetail().ifPresent(value -> fields.add(Pair.of(JOB_GROUP_DETAIL, value)));
+        criteria.getJobGroupSequence().ifPresent(value -> fields.add(Pair.of(JOB_GROUP_SEQUENCE, value)));
+        criteria.getJobState().ifPresent(value -> fields.add(Pair.of(JOB_STATE,
+                GrpcJobManagementModelConverters.toCoreJobState((JobStatus.JobState) value).name()
+        )));
+        criteria.getJobType().ifPresent(value -> fields.add(Pair.of(JOB_TYPE, value == JobSpecCase.BATCH ? JobSpecCase.BATCH.name() : JobSpecCase.SERVICE.name())));
+        // With the 'or' operator any attribute can match, so the attribute index cannot narrow the candidate set.
+        if (criteria.isLabelsAndOp()) {
+            criteria.getLabels().keySet().forEach(key -> fields.add(Pair.of(ATTRIBUTE_KEY, key)));
+        }
+        return fields;
+    }
+
+    private static Set<Pair<String, String>> indexedJobFieldsOf(Job<?> job) {
+        JobDescriptor<?> descriptor = job.getJobDescriptor();
+        Set<Pair<String, String>> fields = new HashSet<>();
+        addField(fields, APP_NAME, descriptor.getApplicationName());
+        addField(fields, CAPACITY_GROUP, descriptor.getCapacityGroup());
+        addField(fields, OWNER, descriptor.getOwner() == null ? null : descriptor.getOwner().getTeamEmail());
+        if (descriptor.getContainer() != null && descriptor.getContainer().getImage() != null) {
+            addField(fields, IMAGE_NAME, descriptor.getContainer().getImage().getName());
+            addField(fields, IMAGE_TAG, descriptor.getContainer().getImage().getTag());
+        }
+        JobGroupInfo jobGroupInfo = descriptor.getJobGroupInfo();
+        if (jobGroupInfo != null) {
+            addField(fields, JOB_GROUP_STACK, jobGroupInfo.getStack());
+            addField(fields, JOB_GROUP_DETAIL, jobGroupInfo.getDetail());
+            addField(fields, JOB_GROUP_SEQUENCE, jobGroupInfo.getSequence());
+        }
+        addField(fields, JOB_STATE, job.getStatus().getState().name());
+        addField(fields, JOB_TYPE, JobFunctions.isBatchJob(job) ? JobSpecCase.BATCH.name() : JobSpecCase.SERVICE.name());
+        descriptor.getAttributes().keySet().forEach(key -> addField(fields, ATTRIBUTE_KEY, key));
+        return fields;
+    }
+
+    private static void addField(Set<Pair<String, String>> fields, String field, String value) {
+        if (value != null) {
+            fields.add(Pair.of(field, value));
+        }
+    }
+
+    private static long acceptedTimestampOf(Job<?> job) {
+        return JobFunctions.findJobStatus(job, JobState.Accepted).orElse(job.getStatus()).getTimestamp();
+    }
+
+    private static long acceptedTimestampOf(Task task) {
+        return JobFunctions.findTaskStatus(task, TaskState.Accepted).orElse(task.getStatus()).getTimestamp();
+    }
+
+    /**
+     * Index key ordered the same way as {@link JobManagerCursors#coreJobCursorOrderComparator()} and
+     * {@link JobManagerCursors#coreTaskCursorOrderComparator()}.
+     */
+    static class IndexKey implements Comparable<IndexKey> {
+
+        private final long timestamp;
+        private final String id;
+
+        IndexKey(long timestamp, String id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        @Override
+        public int compareTo(IndexKey other) {
+            int cmp = Long.compare(timestamp, other.timestamp);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            IndexKey indexKey = (IndexKey) o;
+            return timestamp == indexKey.timestamp && id.equals(indexKey.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(timestamp, id);
+        }
+    }
+
+    private static class IndexedJob {
+
+        private final IndexKey key;
+        private final Set<Pair<String, String>> fields;
+
+        private IndexedJob(IndexKey key, Set<Pair<String, String>> fields) {
+            this.key = key;
+            this.fields = fields;
+        }
+
+        private IndexKey getKey() {
+            return key;
+        }
+
+        private Set<Pair<String, String>> getFields() {
+            return fields;
+        }
+    }
+
+    private static class IndexedTask {
+
+        private final IndexKey key;
+        private final String jobId;
+        private final TaskState state;
+
+        private IndexedTask(IndexKey key, String jobId, TaskState state) {
+            this.key = key;
+            this.jobId = jobId;
+            this.state = state;
+        }
+
+        private IndexKey getKey() {
+            return key;
+        }
+
+        private String getJobId() {
+            return jobId;
+        }
+
+        private TaskState getState() {
+            return state;
+        }
+    }
+}
@@ -121,6 +121,11 @@ public class InMemoryJobStore implements JobStore {
         return storeTask(task);
     }
 
+    @Override
+    public Completable updateTasks(List<Task> tasks) {
+        return Completable.fromAction(() -> tasks.forEach(task -> this.tasks.put(task.getId(), task)));
+    }
+
     @Override
     public Completable replaceTask(Task oldTask, Task newTask) {
         return Completable.fromAction(() -> {
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MapEntry;
+import com.google.protobuf.Message;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.PropertiesExt;
+import com.netflix.titus.common.util.ProtobufProjection;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+
+/**
+ * Compares the field selection of a large task query result, done with a compiled {@link ProtobufProjection}, and
+ * with the previous reflective implementation of {@link com.netflix.titus.common.util.ProtobufExt#copy(Message, Set)}.
+ */
+public class ProtobufProjectionPerf {
+
+    private static final int TASK_COUNT = 50_000;
+    private static final int ROUNDS = 20;
+
+    private static final Set<String> FIELDS = asSet("id", "jobId", "status.state", "status.timestamp", "taskContext." + TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST);
+
+    public static void main(String[] args) {
+        BatchJobTask coreTask = JobGenerator.oneBatchTask();
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(GrpcJobManagementModelConverters.toGrpcTask(
+                    coreTask.toBuilder().withId("task#" + i).build(),
+                    EmptyLogStorageInfo.empty()
+            ));
+        }
+
+        // Sanity check, that both implementations return the same result.
+        Task expected = legacyCopy(tasks.get(0), FIELDS);
+        Task actual = ProtobufProjection.<Task>compile(Task.getDescriptor(), FIELDS).apply(tasks.get(0));
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Projection results differ: " + expected + " != " + actual);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            run("legacy copy", tasks, task -> legacyCopy(task, FIELDS));
+            run("compiled projection", tasks, task -> ProtobufProjection.<Task>compile(Task.getDescriptor(), FIELDS).apply(task));
+            run("compiled projection (per query)", tasks, ProtobufProjection.<Task>compile(Task.getDescriptor(), FIELDS)::apply);
+        }
+    }
+
+    private static void run(String name, List<Task> tasks, Function<Task, Task> projection) {
+        long startAllocatedBytes = allocatedBytes();
+        long startTimeNs = System.nanoTime();
+        long checksum = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            List<Task> result = tasks.stream().map(projection).collect(Collectors.toList());
+            checksum += result.size();
+        }
+        long elapsedNs = System.nanoTime() - startTimeNs;
+        long allocated = allocatedBytes() - startAllocatedBytes;
+        long entities = (long) ROUNDS * tasks.size();
+
+        System.out.println(String.format("%-32s: tasks/sec=%.0f, ns/task=%s, allocated bytes/task=%s, checksum=%s",
+                name, entities * 1_000_000_000.0 / elapsedNs, elapsedNs / entities, allocated / entities, checksum
+        ));
+    }
+
+    /**
+     * The previous implementation of {@link com.netflix.titus.common.util.ProtobufExt#copy(Message, Set)}.
+     */
+    private static <T extends Message> T legacyCopy(T entity, Set<String> fields) {
+        Map<String, Set<String>> topNames = PropertiesExt.splitNames(fields, 1);
+        Message.Builder builder = entity.toBuilder();
+        Set<Descriptors.FieldDescriptor> fieldDescriptors = new HashSet<>(builder.getAllFields().keySet());
+        for (Descriptors.FieldDescriptor field : fieldDescriptors) {
+            if (!topNames.containsKey(field.getName())) {
+                builder.clearField(field);
+            } else {
+                Set<String> nested = topNames.get(field.getName());
+                if (nested != null) {
+                    Object value = builder.getField(field);
+                    if (value instanceof Message) {
+                        Message messageValue = (Message) value;
+                        if (!messageValue.getAllFields().isEmpty()) {
+                            builder.setField(field, legacyCopy(messageValue, nested));
+                        }
+                    } else if (value instanceof Collection) {
+                        Collection<?> collection = (Collection<?>) value;
+                        if (!collection.isEmpty()) {
+                            Object first = CollectionsExt.first(collection);
+                            if (first instanceof MapEntry) {
+                                if (((MapEntry) first).getKey() instanceof String) {
+                                    List<?> filteredMap = collection.stream()
+                                            .filter(item -> nested.contains(((MapEntry<String, Object>) item).getKey()))
+                                            .collect(Collectors.toList());
+                                    builder.setField(field, filteredMap);
+                                }
+                            } else if (first instanceof Message) {
+                                Iterator<?> it = collection.iterator();
+                                int size = collection.size();
+                                for (int i = 0; i < size; i++) {
+                                    builder.setRepeatedField(field, i, legacyCopy((Message) it.next(), nested));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return (T) builder.build();
+    }
+
+    /**
+     * Total number of bytes allocated by all live threads.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+}
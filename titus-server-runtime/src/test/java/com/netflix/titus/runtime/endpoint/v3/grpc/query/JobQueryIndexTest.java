@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.service.ReadOnlyJobOperations;
+import com.netflix.titus.api.model.Page;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
+import com.netflix.titus.testkit.model.job.JobComponentStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.ofBatchSize;
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobQueryIndexTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test();
+
+    private final JobComponentStub jobComponentStub = new JobComponentStub(titusRuntime);
+
+    private final ReadOnlyJobOperations jobOperations = jobComponentStub.getJobOperations();
+
+    private final JobQueryIndex index = new JobQueryIndex(jobOperations, titusRuntime);
+
+    @Before
+    public void setUp() {
+        jobComponentStub.addBatchTemplate("app1", batchJobDescriptors(ofBatchSize(2), jd -> jd.toBuilder().withApplicationName("app1").build()));
+        jobComponentStub.addBatchTemplate("app2", batchJobDescriptors(ofBatchSize(2), jd -> jd.toBuilder().withApplicationName("app2").build()));
+
+        // Half of the jobs is created before the index is activated, and half after.
+        for (int i = 0; i < 5; i++) {
+            jobComponentStub.createJobAndTasks(i % 2 == 0 ? "app1" : "app2");
+        }
+        index.enterActiveMode();
+        for (int i = 0; i < 5; i++) {
+            jobComponentStub.createJobAndTasks(i % 2 == 0 ? "app1" : "app2");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    public void testFindJobsByIndexedField() {
+        JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria = newCriteria().withAppName("app1").build();
+        assertSameJobPages(criteria);
+        assertThat(index.findJobs(criteria, Page.unlimited()).getLeft()).hasSize(5);
+    }
+
+    @Test
+    public void testFindJobsWithNoCriteria() {
+        assertSameJobPages(newCriteria().build());
+    }
+
+    @Test
+    public void testFindTasksByState() {
+        Task task = jobOperations.getTasks().get(0);
+        jobComponentStub.moveTaskToState(task, TaskState.Started);
+
+        JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria = newCriteria()
+                .withTaskStates(asSet(TaskStatus.TaskState.Started))
+                .build();
+        assertSameTaskPages(criteria);
+        assertThat(index.findTasks(criteria, Page.unlimited()).getLeft()).extracting(Task::getId).containsExactly(task.getId());
+
+        // Job level criteria are applied to tasks as well.
+        assertSameTaskPages(newCriteria().withAppName("app2").build());
+    }
+
+    @Test
+    public void testRemovedJobIsNotReturned() {
+        Job<?> job = jobOperations.findJobs(j -> true, 0, 1).get(0);
+        jobComponentStub.finishJob(job);
+
+        List<Job<?>> jobs = index.findJobs(newCriteria().build(), Page.unlimited()).getLeft();
+        assertThat(jobs).hasSize(9);
+        assertThat(jobs).extracting(Job::getId).doesNotContain(job.getId());
+    }
+
+    @Test
+    public void testEmptyPageWithoutCursor() {
+        Pair<List<Job<?>>, Pagination> result = index.findJobs(newCriteria().withAppName("unknownApp").build(), Page.newBuilder().withPageSize(PAGE_SIZE).build());
+        assertThat(result.getLeft()).isEmpty();
+        assertThat(result.getRight().hasMore()).isFalse();
+        assertThat(result.getRight().getTotalItems()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCursor() {
+        index.findJobs(newCriteria().build(), Page.newBuilder().withPageSize(PAGE_SIZE).withCursor("badCursor").build());
+    }
+
+    private void assertSameJobPages(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        List<Job<?>> allMatching = jobOperations.findJobs(new V3JobQueryCriteriaEvaluator(criteria, titusRuntime), 0, Integer.MAX_VALUE / 2);
+        assertSamePages(
+                page -> index.findJobs(criteria, page),
+                page -> PaginationUtil.takePageWithCursor(page, allMatching,
+                        JobManagerCursors.coreJobCursorOrderComparator(), JobManagerCursors::coreJobIndexOf, JobManagerCursors::newCoreCursorFrom
+                ),
+                Job::getId
+        );
+    }
+
+    private void assertSameTaskPages(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        List<Task> allMatching = jobOperations.findTasks(new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime), 0, Integer.MAX_VALUE / 2)
+                .stream()
+                .map(Pair::getRight)
+                .collect(Collectors.toList());
+        assertSamePages(
+                page -> index.findTasks(criteria, page),
+                page -> PaginationUtil.takePageWithCursor(page, allMatching,
+                        JobManagerCursors.coreTaskCursorOrderComparator(), JobManagerCursors::coreTaskIndexOf, JobManagerCursors::newCoreCursorFrom
+                ),
+                Task::getId
+        );
+    }
+
+    /**
+     * Walks all pages, first using page numbers and next using cursors, and checks that the index returns exactly
+     * the same result as the full scan.
+     */
+    private <T> void assertSamePages(Function<Page, Pair<List<T>, Pagination>> indexQuery,
+                                     Function<Page, Pair<List<T>, Pagination>> scanQuery,
+                                     Function<T, String> idOf) {
+        for (int pageNumber = 0; pageNumber < 5; pageNumber++) {
+            Page page = Page.newBuilder().withPageNumber(pageNumber).withPageSize(PAGE_SIZE).build();
+            assertSameResult(indexQuery.apply(page), scanQuery.apply(page), idOf);
+        }
+
+        List<String> allIds = new ArrayList<>();
+        Pair<List<T>, Pagination> expected = scanQuery.apply(Page.newBuilder().withPageSize(PAGE_SIZE).build());
+        while (true) {
+            expected.getLeft().forEach(item -> allIds.add(idOf.apply(item)));
+            if (!expected.getRight().hasMore()) {
+                break;
+            }
+            Page next = Page.newBuilder().withPageSize(PAGE_SIZE).withCursor(expected.getRight().getCursor()).build();
+            expected = scanQuery.apply(next);
+            assertSameResult(indexQuery.apply(next), expected, idOf);
+        }
+        assertThat(allIds).hasSize(expected.getRight().getTotalItems());
+    }
+
+    private <T> void assertSameResult(Pair<List<T>, Pagination> actual, Pair<List<T>, Pagination> expected, Function<T, String> idOf) {
+        assertThat(actual.getLeft().stream().map(idOf).collect(Collectors.toList()))
+                .isEqualTo(expected.getLeft().stream().map(idOf).collect(Collectors.toList()));
+        assertThat(actual.getRight()).isEqualTo(expected.getRight());
+    }
+
+    private JobQueryCriteria.Builder<TaskStatus.TaskState, JobSpecCase> newCriteria() {
+        return JobQueryCriteria.newBuilder();
+    }
+}
@@ -44,4 +44,18 @@ public interface RelocationConfiguration {
 
     @DefaultValue("90000")
     long getRdsTimeoutMs();
+
+    /**
+     * If set to true, the relocation plans are updated for the tasks affected by the job and agent changes emitted
+     * by the replicated caches, instead of waiting for the next {@link #getRelocationScheduleIntervalMs()} iteration.
+     * The periodic iteration, which evaluates all tasks, is still executed to recover from missed events.
+     */
+    @DefaultValue("false")
+    boolean isEventDrivenWorkflowEnabled();
+
+    /**
+     * Time window in which the job and agent changes are collected before the affected tasks are evaluated.
+     */
+    @DefaultValue("1000")
+    long getEventDrivenEvaluationDelayMs();
 }
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.supplementary.relocation.descheduler;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -25,6 +26,7 @@ import java.util.Set;
 import com.google.common.base.Preconditions;
 import com.netflix.titus.api.agent.model.AgentInstance;
 import com.netflix.titus.api.agent.service.ReadOnlyAgentOperations;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.supplementary.relocation.util.RelocationPredicates;
@@ -52,7 +54,18 @@ class EvacuatedAgentsAllocationTracker {
                     }
                 })
         );
-        this.removableAgentsAndTasksByAgentId = transformValues(removableAgentsById, i -> Pair.of(i, RelocationUtil.findTasksOnInstance(i, tasksById.values())));
+        this.removableAgentsAndTasksByAgentId = transformValues(removableAgentsById, i -> Pair.of(i, new ArrayList<>()));
+
+        // Single pass over all tasks, instead of one per removable agent. Tasks are kept in the task map order.
+        for (Task task : tasksById.values()) {
+            String agentId = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID);
+            if (agentId != null && RelocationUtil.isAssignedToAgent(task)) {
+                Pair<AgentInstance, List<Task>> agentTasksPair = removableAgentsAndTasksByAgentId.get(agentId);
+                if (agentTasksPair != null) {
+                    agentTasksPair.getRight().add(task);
+                }
+            }
+        }
 
         for (Pair<AgentInstance, List<Task>> agentTasksPair : removableAgentsAndTasksByAgentId.values()) {
             agentTasksPair.getRight().forEach(task -> removableAgentsByTaskId.put(task.getId(), agentTasksPair.getLeft()));
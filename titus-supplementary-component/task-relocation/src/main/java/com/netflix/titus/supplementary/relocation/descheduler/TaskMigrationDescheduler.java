@@ -20,9 +20,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.netflix.titus.api.agent.model.AgentInstance;
 import com.netflix.titus.api.jobmanager.model.job.Job;
@@ -52,6 +56,14 @@ class TaskMigrationDescheduler {
      */
     private static final double TASK_ON_AGENT_PENALTY = 1.0 / MAX_EXPECTED_AGENT_CPUS;
 
+    private static final Comparator<AgentCandidate> FITNESS_ORDER = Comparator
+            .comparingDouble(AgentCandidate::getFitness).reversed()
+            .thenComparingInt(AgentCandidate::getOrdinal);
+
+    private static final Comparator<AgentCandidate> TASK_COUNT_ORDER = Comparator
+            .<AgentCandidate>comparingInt(candidate -> candidate.getTasks().size()).reversed()
+            .thenComparingInt(AgentCandidate::getOrdinal);
+
     private final Map<String, TaskRelocationPlan> plannedAheadTaskRelocationPlans;
 
     private final EvacuatedAgentsAllocationTracker evacuatedAgentsAllocationTracker;
@@ -60,6 +72,15 @@ class TaskMigrationDescheduler {
     private final Map<String, Task> tasksById;
     private final Clock clock;
 
+    /**
+     * Candidate agents with a non-zero fitness. Created on the first {@link #nextBestMatch()} call, after the quota
+     * consumed by the requested evictions is known.
+     */
+    private NavigableSet<AgentCandidate> candidateQueue;
+    private NavigableSet<AgentCandidate> candidatesByTaskCount;
+    private Map<String, AgentCandidate> candidatesByAgentId;
+    private Map<String, Set<AgentCandidate>> candidatesByJobId;
+
     TaskMigrationDescheduler(Map<String, TaskRelocationPlan> plannedAheadTaskRelocationPlans,
                              EvacuatedAgentsAllocationTracker evacuatedAgentsAllocationTracker,
                              EvictionQuotaTracker evictionQuotaTracker,
@@ -113,26 +134,107 @@ class TaskMigrationDescheduler {
         return result;
     }
 
+    /**
+     * Returns the removable agent with the highest fitness, and the tasks to evict from it. If more than one agent has
+     * the same fitness, the first one in {@link EvacuatedAgentsAllocationTracker#getRemovableAgentsById()} order is
+     * chosen.
+     * <p>
+     * The agent fitness values are computed once, and kept in a priority queue. After each match only the agents
+     * whose fitness could have changed are evaluated again. These are the agents with tasks chosen from the jobs
+     * that have now less quota than the number of the chosen tasks, and the agents with more chosen tasks than the
+     * remaining system quota. Quotas only decrease within a descheduling cycle, so an agent with no fitness never
+     * gets one back.
+     */
     Optional<Pair<AgentInstance, List<Task>>> nextBestMatch() {
         if (evictionQuotaTracker.getSystemEvictionQuota() <= 0) {
             return Optional.empty();
         }
+        if (candidateQueue == null) {
+            buildCandidateQueue();
+        }
+        if (candidateQueue.isEmpty()) {
+            return Optional.empty();
+        }
 
-        return evacuatedAgentsAllocationTracker.getRemovableAgentsById().values().stream()
-                .map(i -> Pair.of(i, computeFitness(i)))
-                .filter(p -> p.getRight().getLeft() > 0)
-                .max(Comparator.comparingDouble(p -> p.getRight().getLeft()))
-                .map(p -> {
-                    AgentInstance agent = p.getLeft();
-                    List<Task> tasks = p.getRight().getRight();
+        AgentCandidate best = candidateQueue.first();
+        AgentInstance agent = best.getAgent();
+        List<Task> tasks = best.getTasks();
 
-                    tasks.forEach(task -> {
-                        evacuatedAgentsAllocationTracker.descheduled(task);
-                        evictionQuotaTracker.consumeQuota(task.getJobId());
-                    });
+        tasks.forEach(task -> {
+            evacuatedAgentsAllocationTracker.descheduled(task);
+            evictionQuotaTracker.consumeQuota(task.getJobId());
+        });
+        updateCandidatesAfterMatch(best);
 
-                    return Pair.of(agent, tasks);
-                });
+        return Optional.of(Pair.of(agent, tasks));
+    }
+
+    private void buildCandidateQueue() {
+        this.candidateQueue = new TreeSet<>(FITNESS_ORDER);
+        this.candidatesByTaskCount = new TreeSet<>(TASK_COUNT_ORDER);
+        this.candidatesByAgentId = new HashMap<>();
+        this.candidatesByJobId = new HashMap<>();
+
+        int ordinal = 0;
+        for (AgentInstance agent : evacuatedAgentsAllocationTracker.getRemovableAgentsById().values()) {
+            addCandidate(agent, ordinal++);
+        }
+    }
+
+    private void updateCandidatesAfterMatch(AgentCandidate matched) {
+        if (evictionQuotaTracker.getSystemEvictionQuota() <= 0) {
+            return;
+        }
+
+        Set<AgentCandidate> affected = new HashSet<>();
+        affected.add(matched);
+        for (String jobId : matched.getTaskCountByJobId().keySet()) {
+            long jobQuota = evictionQuotaTracker.getJobEvictionQuota(jobId);
+            for (AgentCandidate candidate : candidatesByJobId.getOrDefault(jobId, Collections.emptySet())) {
+                if (candidate.getTaskCountByJobId().get(jobId) > jobQuota) {
+                    affected.add(candidate);
+                }
+            }
+        }
+        long systemQuota = evictionQuotaTracker.getSystemEvictionQuota();
+        for (AgentCandidate candidate : candidatesByTaskCount) {
+            if (candidate.getTasks().size() <= systemQuota) {
+                break;
+            }
+            affected.add(candidate);
+        }
+
+        for (AgentCandidate candidate : affected) {
+            removeCandidate(candidate);
+            addCandidate(candidate.getAgent(), candidate.getOrdinal());
+        }
+    }
+
+    private void addCandidate(AgentInstance agent, int ordinal) {
+        Pair<Double, List<Task>> fitness = computeFitness(agent);
+        if (fitness.getLeft() <= 0) {
+            return;
+        }
+        AgentCandidate candidate = new AgentCandidate(agent, ordinal, fitness.getLeft(), fitness.getRight());
+        candidateQueue.add(candidate);
+        candidatesByTaskCount.add(candidate);
+        candidatesByAgentId.put(agent.getId(), candidate);
+        candidate.getTaskCountByJobId().keySet().forEach(jobId -> candidatesByJobId.computeIfAbsent(jobId, j -> new HashSet<>()).add(candidate));
+    }
+
+    private void removeCandidate(AgentCandidate candidate) {
+        if (candidatesByAgentId.remove(candidate.getAgent().getId()) == null) {
+            return;
+        }
+        candidateQueue.remove(candidate);
+        candidatesByTaskCount.remove(candidate);
+        candidate.getTaskCountByJobId().keySet().forEach(jobId -> {
+            Set<AgentCandidate> jobCandidates = candidatesByJobId.get(jobId);
+            jobCandidates.remove(candidate);
+            if (jobCandidates.isEmpty()) {
+                candidatesByJobId.remove(jobId);
+            }
+        });
     }
 
     DeschedulingFailure getDeschedulingFailure(Task task) {
@@ -230,4 +332,41 @@ class TaskMigrationDescheduler {
 
         return relocationPlan.getRelocationTime() <= clock.wallTime();
     }
+
+    private static class AgentCandidate {
+
+        private final AgentInstance agent;
+        private final int ordinal;
+        private final double fitness;
+        private final List<Task> tasks;
+        private final Map<String, Integer> taskCountByJobId = new HashMap<>();
+
+        private AgentCandidate(AgentInstance agent, int ordinal, double fitness, List<Task> tasks) {
+            this.agent = agent;
+            this.ordinal = ordinal;
+            this.fitness = fitness;
+            this.tasks = tasks;
+            tasks.forEach(task -> taskCountByJobId.merge(task.getJobId(), 1, Integer::sum));
+        }
+
+        private AgentInstance getAgent() {
+            return agent;
+        }
+
+        private int getOrdinal() {
+            return ordinal;
+        }
+
+        private double getFitness() {
+            return fitness;
+        }
+
+        private List<Task> getTasks() {
+            return tasks;
+        }
+
+        private Map<String, Integer> getTaskCountByJobId() {
+            return taskCountByJobId;
+        }
+    }
 }
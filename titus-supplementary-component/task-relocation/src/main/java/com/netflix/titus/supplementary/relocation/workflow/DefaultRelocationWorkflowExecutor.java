@@ -22,6 +22,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.PreDestroy;
@@ -42,6 +44,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.IOExt;
 import com.netflix.titus.common.util.retry.Retryers;
 import com.netflix.titus.common.util.rx.ReactorExt;
+import com.netflix.titus.common.util.rx.RetryHandlerBuilder;
 import com.netflix.titus.runtime.connector.agent.AgentDataReplicator;
 import com.netflix.titus.runtime.connector.eviction.EvictionDataReplicator;
 import com.netflix.titus.runtime.connector.eviction.EvictionServiceClient;
@@ -60,7 +63,10 @@ import com.netflix.titus.supplementary.relocation.workflow.step.TaskEvictionResu
 import com.netflix.titus.supplementary.relocation.workflow.step.TaskEvictionStep;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.ReplayProcessor;
 import reactor.core.scheduler.Schedulers;
 
@@ -71,6 +77,11 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
 
     private static final long STALENESS_THRESHOLD_MS = 30_000;
 
+    private static final Duration REPLICATORS_READINESS_CHECK_INTERVAL = Duration.ofSeconds(2);
+
+    private static final long CHANGE_SUBSCRIPTION_RETRY_DELAY_MS = 1_000;
+    private static final long CHANGE_SUBSCRIPTION_MAX_RETRY_DELAY_MS = 30_000;
+
     /**
      * A marker object (do not optimize by changing the value to {@link Collections#emptyList()}).
      */
@@ -87,6 +98,16 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
     private final WorkflowMetrics metrics;
     private ScheduleReference localSchedulerDisposable;
 
+    private final CompletableFuture<Void> replicatorsReady;
+    private final Disposable replicatorsReadySubscription;
+    private final RelocationChangeTracker changeTracker;
+    private volatile Disposable changeSubscription;
+
+    /**
+     * Serializes the periodic and the event triggered iterations.
+     */
+    private final Object workflowLock = new Object();
+
     private final RelocationMetricsStep relocationMetricsStep;
     private final MustBeRelocatedSelfManagedTaskCollectorStep mustBeRelocatedSelfManagedTaskCollectorStep;
     private final DeschedulerStep deschedulerStep;
@@ -123,7 +144,9 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
 
         newRelocationPlanEmitter.onNext(Collections.emptyList());
 
-        ensureReplicatorsReady();
+        this.replicatorsReady = new CompletableFuture<>();
+        this.replicatorsReadySubscription = checkReplicatorsReady();
+        this.changeTracker = new RelocationChangeTracker(agentOperations, jobOperations);
 
         RelocationTransactionLogger transactionLog = new RelocationTransactionLogger(jobOperations);
         this.relocationMetricsStep = new RelocationMetricsStep(agentOperations, jobOperations, titusRuntime);
@@ -147,41 +170,103 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
                 .withRetryerSupplier(() -> Retryers.exponentialBackoff(1, 5, TimeUnit.MINUTES))
                 .build();
         this.localSchedulerDisposable = titusRuntime.getLocalScheduler().schedule(relocationScheduleDescriptor, this::nextRelocationStep, true);
+
+        if (configuration.isEventDrivenWorkflowEnabled()) {
+            replicatorsReady.thenRun(this::subscribeToChanges);
+        }
     }
 
     @Override
     public void deactivate() {
         localSchedulerDisposable.cancel();
+        unsubscribeFromChanges();
     }
 
     /**
-     * Replicated caches start with empty snapshots and infinitely long staleness. We cannot proceed with
-     * the workflow setup until we have the caches ready, so we block here.
+     * Replicated caches start with empty snapshots and infinitely long staleness. Instead of blocking the
+     * bootstrap, {@link #replicatorsReady} is completed once all caches are ready, and the workflow iterations are
+     * skipped until then.
      * TODO This should be handled in more generic way, and be part of the replicated caches toolkit.
      */
-    private void ensureReplicatorsReady() {
-        boolean agentsReady = false;
-        boolean jobsReady = false;
-        boolean evictionsReady = false;
-        while (!(agentsReady && jobsReady && evictionsReady)) {
-            agentsReady = agentsReady || agentDataReplicator.getStalenessMs() < STALENESS_THRESHOLD_MS;
-            jobsReady = jobsReady || jobDataReplicator.getStalenessMs() < STALENESS_THRESHOLD_MS;
-            evictionsReady = evictionsReady || evictionDataReplicator.getStalenessMs() < STALENESS_THRESHOLD_MS;
-
-            if (!(agentsReady && jobsReady && evictionsReady)) {
-                logger.info("Replicated caches not ready: agentsReady={}, jobsReady={}, evictionReady={}", agentsReady, jobsReady, evictionsReady);
-                try {
-                    Thread.sleep(2_000);
-                } catch (InterruptedException e) {
-                    throw new IllegalStateException("Bootstrap process terminated");
-                }
-            }
+    private Disposable checkReplicatorsReady() {
+        if (areReplicatorsReady()) {
+            replicatorsReady.complete(null);
+            return Disposables.disposed();
+        }
+        return Flux.interval(REPLICATORS_READINESS_CHECK_INTERVAL, Schedulers.parallel())
+                .filter(tick -> areReplicatorsReady())
+                .next()
+                .subscribe(tick -> replicatorsReady.complete(null));
+    }
+
+    private boolean areReplicatorsReady() {
+        boolean agentsReady = agentDataReplicator.getStalenessMs() < STALENESS_THRESHOLD_MS;
+        boolean jobsReady = jobDataReplicator.getStalenessMs() < STALENESS_THRESHOLD_MS;
+        boolean evictionsReady = evictionDataReplicator.getStalenessMs() < STALENESS_THRESHOLD_MS;
+
+        if (!(agentsReady && jobsReady && evictionsReady)) {
+            logger.info("Replicated caches not ready: agentsReady={}, jobsReady={}, evictionReady={}", agentsReady, jobsReady, evictionsReady);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Job and agent changes are collected by {@link RelocationChangeTracker}, and the affected tasks are evaluated
+     * at most once per {@link RelocationConfiguration#getEventDrivenEvaluationDelayMs()}. If any of the replicator
+     * event streams terminates, the subscription is re-created with an exponential backoff.
+     */
+    private synchronized void subscribeToChanges() {
+        if (changeSubscription != null || localSchedulerDisposable.isClosed()) {
+            return;
+        }
+
+        Flux<Object> changes = Flux.<Object>merge(
+                failOnCompletion(jobDataReplicator.events(), "Job").doOnNext(event -> changeTracker.onJobEvent(event.getRight())),
+                failOnCompletion(agentDataReplicator.events(), "Agent").doOnNext(event -> changeTracker.onAgentEvent(event.getRight())),
+                // Subscribed last, so the index is built after the event subscriptions, and no task update is missed.
+                Mono.fromRunnable(changeTracker::resync)
+        ).retryWhen(RetryHandlerBuilder.retryHandler()
+                .withTitle("Job and agent change subscription")
+                .withUnlimitedRetries()
+                .withDelay(CHANGE_SUBSCRIPTION_RETRY_DELAY_MS, CHANGE_SUBSCRIPTION_MAX_RETRY_DELAY_MS, TimeUnit.MILLISECONDS)
+                .withReactorScheduler(Schedulers.parallel())
+                .buildReactorExponentialBackoff()
+        );
+        this.changeSubscription = changes
+                .sample(Duration.ofMillis(configuration.getEventDrivenEvaluationDelayMs()))
+                .onBackpressureLatest()
+                .publishOn(Schedulers.elastic())
+                .subscribe(
+                        next -> nextIncrementalRelocationStep(),
+                        e -> logger.error("Job and agent change subscription terminated with an error. Only periodic relocation iterations will be executed", e)
+                );
+
+        logger.info("Subscribed to job and agent changes");
+    }
+
+    /**
+     * Replicator event streams are infinite, so completion is turned into an error to trigger the resubscription.
+     */
+    private static <T> Flux<T> failOnCompletion(Flux<T> events, String source) {
+        return events.concatWith(Flux.defer(() -> Flux.error(new IllegalStateException(source + " event stream completed"))));
+    }
+
+    private synchronized void unsubscribeFromChanges() {
+        if (changeSubscription != null) {
+            changeSubscription.dispose();
+            changeSubscription = null;
         }
     }
 
     @PreDestroy
     public void shutdown() {
-        IOExt.closeSilently(newRelocationPlanEmitter::dispose, localSchedulerDisposable::cancel);
+        IOExt.closeSilently(
+                newRelocationPlanEmitter::dispose,
+                replicatorsReadySubscription::dispose,
+                this::unsubscribeFromChanges,
+                localSchedulerDisposable::cancel
+        );
     }
 
     @Override
@@ -216,6 +301,11 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
 
     private void nextRelocationStep(ExecutionContext executionContext) {
         long count = executionContext.getExecutionId().getTotal();
+        if (!replicatorsReady.isDone()) {
+            logger.info("Replicated caches not ready. Skipping the task relocation iteration {}", count);
+            return;
+        }
+
         boolean descheduling = titusRuntime.getClock().isPast(lastDeschedulingTimestamp + configuration.getDeschedulingIntervalMs());
 
         logger.info("Starting task relocation iteration {} (descheduling={})...", count, descheduling);
@@ -223,7 +313,9 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
         Stopwatch stopwatch = Stopwatch.createStarted();
         boolean executed = false;
         try {
-            executed = doWork(descheduling);
+            synchronized (workflowLock) {
+                executed = doWork(descheduling);
+            }
             logger.info("Task relocation iteration {} finished in {}sec", count, stopwatch.elapsed(TimeUnit.SECONDS));
         } catch (Exception e) {
             logger.error("Task relocation iteration {} failed after {}sec", count, stopwatch.elapsed(TimeUnit.SECONDS), e);
@@ -234,6 +326,32 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
         }
     }
 
+    /**
+     * Evaluates the relocation requirements of the tasks affected by job and agent changes only. Descheduling is
+     * executed if its interval passed.
+     */
+    private void nextIncrementalRelocationStep() {
+        if (!changeTracker.hasChanges()) {
+            return;
+        }
+        boolean descheduling = titusRuntime.getClock().isPast(lastDeschedulingTimestamp + configuration.getDeschedulingIntervalMs());
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        boolean executed = false;
+        try {
+            synchronized (workflowLock) {
+                executed = doIncrementalWork(descheduling);
+            }
+            logger.debug("Incremental task relocation iteration finished in {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            logger.error("Incremental task relocation iteration failed after {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS), e);
+        }
+
+        if (executed && descheduling) {
+            this.lastDeschedulingTimestamp = titusRuntime.getClock().wallTime();
+        }
+    }
+
     private boolean doWork(boolean descheduling) {
         if (hasStaleData()) {
             logger.info("Stale data. Skipping the task relocation iteration");
@@ -244,7 +362,29 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
         relocationMetricsStep.updateMetrics();
 
         // Self managed relocation plans
+        if (configuration.isEventDrivenWorkflowEnabled()) {
+            changeTracker.resync();
+        }
         Map<String, TaskRelocationPlan> newSelfManagedRelocationPlan = mustBeRelocatedSelfManagedTaskCollectorStep.collectTasksThatMustBeRelocated();
+        updateRelocationPlansAndEvict(newSelfManagedRelocationPlan, descheduling);
+
+        return true;
+    }
+
+    private boolean doIncrementalWork(boolean descheduling) {
+        // The relocation plans are built by the full iteration first.
+        if (lastRelocationPlan == PLANS_NOT_READY || hasStaleData()) {
+            return false;
+        }
+
+        Set<String> affectedTaskIds = changeTracker.drainAffectedTaskIds();
+        Map<String, TaskRelocationPlan> newSelfManagedRelocationPlan = mustBeRelocatedSelfManagedTaskCollectorStep.updateTasksThatMustBeRelocated(affectedTaskIds);
+        updateRelocationPlansAndEvict(newSelfManagedRelocationPlan, descheduling);
+
+        return true;
+    }
+
+    private void updateRelocationPlansAndEvict(Map<String, TaskRelocationPlan> newSelfManagedRelocationPlan, boolean descheduling) {
         this.lastRelocationPlan = mustBeRelocatedTaskStoreUpdateStep.persistChangesInStore(newSelfManagedRelocationPlan);
         newRelocationPlanEmitter.onNext(new ArrayList<>(lastRelocationPlan.values()));
 
@@ -267,8 +407,6 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
                 }
             });
         }
-
-        return true;
     }
 
     private boolean hasStaleData() {
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.supplementary.relocation.workflow;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.netflix.titus.api.agent.model.event.AgentEvent;
+import com.netflix.titus.api.agent.model.event.AgentInstanceGroupRemovedEvent;
+import com.netflix.titus.api.agent.model.event.AgentInstanceGroupUpdateEvent;
+import com.netflix.titus.api.agent.model.event.AgentInstanceRemovedEvent;
+import com.netflix.titus.api.agent.model.event.AgentInstanceUpdateEvent;
+import com.netflix.titus.api.agent.service.ReadOnlyAgentOperations;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.ReadOnlyJobOperations;
+import com.netflix.titus.supplementary.relocation.util.RelocationUtil;
+
+/**
+ * Collects job and agent changes emitted by the replicated caches, and maps them to the tasks which relocation
+ * requirements must be evaluated again. A job change affects all its tasks, and an agent or an instance group change
+ * affects all tasks running on the agent or the instance group agents. To resolve the latter, an index of tasks by
+ * agent id is maintained from the task update events.
+ * <p>
+ * The event callbacks and {@link #drainAffectedTaskIds()} are called from different threads, so all methods are
+ * synchronized.
+ */
+class RelocationChangeTracker {
+
+    private final ReadOnlyAgentOperations agentOperations;
+    private final ReadOnlyJobOperations jobOperations;
+
+    private final Map<String, String> agentIdByTaskId = new HashMap<>();
+    private final Map<String, Set<String>> taskIdsByAgentId = new HashMap<>();
+
+    private final Set<String> changedTaskIds = new HashSet<>();
+    private final Set<String> changedJobIds = new HashSet<>();
+    private final Set<String> changedAgentIds = new HashSet<>();
+    private final Set<String> changedInstanceGroupIds = new HashSet<>();
+
+    RelocationChangeTracker(ReadOnlyAgentOperations agentOperations, ReadOnlyJobOperations jobOperations) {
+        this.agentOperations = agentOperations;
+        this.jobOperations = jobOperations;
+    }
+
+    /**
+     * Rebuilds the task index from the current job cache snapshot. Called when the event subscription is created,
+     * and after each full relocation iteration to recover from missed events.
+     */
+    synchronized void resync() {
+        agentIdByTaskId.clear();
+        taskIdsByAgentId.clear();
+        jobOperations.getTasks().forEach(this::indexTask);
+    }
+
+    synchronized void onJobEvent(JobManagerEvent<?> event) {
+        if (event instanceof TaskUpdateEvent) {
+            Task task = ((TaskUpdateEvent) event).getCurrentTask();
+            indexTask(task);
+            changedTaskIds.add(task.getId());
+        } else if (event instanceof JobUpdateEvent) {
+            Job<?> job = ((JobUpdateEvent) event).getCurrent();
+            changedJobIds.add(job.getId());
+        }
+    }
+
+    synchronized void onAgentEvent(AgentEvent event) {
+        if (event instanceof AgentInstanceUpdateEvent) {
+            changedAgentIds.add(((AgentInstanceUpdateEvent) event).getAgentInstance().getId());
+        } else if (event instanceof AgentInstanceRemovedEvent) {
+            changedAgentIds.add(((AgentInstanceRemovedEvent) event).getAgentInstanceId());
+        } else if (event instanceof AgentInstanceGroupUpdateEvent) {
+            changedInstanceGroupIds.add(((AgentInstanceGroupUpdateEvent) event).getAgentInstanceGroup().getId());
+        } else if (event instanceof AgentInstanceGroupRemovedEvent) {
+            changedInstanceGroupIds.add(((AgentInstanceGroupRemovedEvent) event).getInstanceGroupId());
+        }
+    }
+
+    synchronized boolean hasChanges() {
+        return !(changedTaskIds.isEmpty() && changedJobIds.isEmpty() && changedAgentIds.isEmpty() && changedInstanceGroupIds.isEmpty());
+    }
+
+    /**
+     * Returns ids of all tasks affected by the changes collected since the last invocation, and clears the changes.
+     */
+    synchronized Set<String> drainAffectedTaskIds() {
+        Set<String> result = new HashSet<>(changedTaskIds);
+
+        changedJobIds.forEach(jobId -> jobOperations.getTasks(jobId).forEach(task -> result.add(task.getId())));
+        changedInstanceGroupIds.forEach(instanceGroupId ->
+                agentOperations.getAgentInstances(instanceGroupId).forEach(instance -> changedAgentIds.add(instance.getId()))
+        );
+        changedAgentIds.forEach(agentId -> result.addAll(taskIdsByAgentId.getOrDefault(agentId, Collections.emptySet())));
+
+        changedTaskIds.clear();
+        changedJobIds.clear();
+        changedAgentIds.clear();
+        changedInstanceGroupIds.clear();
+
+        return result;
+    }
+
+    private void indexTask(Task task) {
+        String previousAgentId = agentIdByTaskId.remove(task.getId());
+        if (previousAgentId != null) {
+            Set<String> agentTaskIds = taskIdsByAgentId.get(previousAgentId);
+            agentTaskIds.remove(task.getId());
+            if (agentTaskIds.isEmpty()) {
+                taskIdsByAgentId.remove(previousAgentId);
+            }
+        }
+
+        String agentId = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID);
+        if (agentId != null && RelocationUtil.isAssignedToAgent(task)) {
+            agentIdByTaskId.put(task.getId(), agentId);
+            taskIdsByAgentId.computeIfAbsent(agentId, id -> new HashSet<>()).add(task.getId());
+        }
+    }
+}
@@ -17,15 +17,18 @@
 package com.netflix.titus.supplementary.relocation.workflow.step;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Stopwatch;
 import com.netflix.titus.api.agent.model.AgentInstance;
 import com.netflix.titus.api.agent.service.ReadOnlyAgentOperations;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
@@ -81,6 +84,51 @@ public class MustBeRelocatedSelfManagedTaskCollectorStep {
         }
     }
 
+    /**
+     * Evaluates again only the given tasks, and returns relocation plans of all tasks, including those computed by
+     * the previous iterations. Plans of tasks that are no longer running, or not found, are removed.
+     */
+    public Map<String, TaskRelocationPlan> updateTasksThatMustBeRelocated(Collection<String> taskIds) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            Map<String, TaskRelocationPlan> result = updateRelocationPlans(taskIds);
+            metrics.onSuccess(result.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            logger.debug("Step results after update of {} tasks: {}", taskIds.size(), result);
+            return result;
+        } catch (Exception e) {
+            logger.error("Step processing error", e);
+            metrics.onError(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            throw e;
+        }
+    }
+
+    private Map<String, TaskRelocationPlan> updateRelocationPlans(Collection<String> taskIds) {
+        Map<String, TaskRelocationPlan> result = new HashMap<>(lastResult);
+
+        taskIds.forEach(taskId -> {
+            Optional<TaskRelocationPlan> plan = jobOperations.findTaskById(taskId).flatMap(jobAndTask -> {
+                Task task = jobAndTask.getRight();
+                if (!isActive(task)) {
+                    return Optional.empty();
+                }
+                String instanceId = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID);
+                if (instanceId == null) {
+                    return Optional.empty();
+                }
+                return agentOperations.findAgentInstance(instanceId).flatMap(instance -> evaluate(jobAndTask.getLeft(), task, instance));
+            });
+            if (plan.isPresent()) {
+                result.put(taskId, plan.get());
+            } else {
+                result.remove(taskId);
+            }
+        });
+
+        this.lastResult = result;
+
+        return result;
+    }
+
     private Map<String, TaskRelocationPlan> buildRelocationPlans() {
         Map<String, TaskRelocationPlan> result = new HashMap<>();
         List<Triple<Job<?>, Task, AgentInstance>> allItems = findAllJobTaskAgentTriples();
@@ -93,10 +141,7 @@ public class MustBeRelocatedSelfManagedTaskCollectorStep {
             Task task = triple.getSecond();
             AgentInstance instance = triple.getThird();
 
-            agentOperations.findInstanceGroup(instance.getInstanceGroupId()).ifPresent(instanceGroup ->
-                    checkIfNeedsRelocationPlan(job, task, instanceGroup, instance).ifPresent(reason ->
-                            result.put(task.getId(), buildSelfManagedRelocationPlan(job, task, reason))
-                    ));
+            evaluate(job, task, instance).ifPresent(plan -> result.put(task.getId(), plan));
         });
 
         this.lastResult = result;
@@ -110,8 +155,7 @@ public class MustBeRelocatedSelfManagedTaskCollectorStep {
         List<Triple<Job<?>, Task, AgentInstance>> result = new ArrayList<>();
         jobOperations.getJobs().forEach(job -> {
             jobOperations.getTasks(job.getId()).forEach(task -> {
-                TaskState taskState = task.getStatus().getState();
-                if (taskState == TaskState.StartInitiated || taskState == TaskState.Started) {
+                if (isActive(task)) {
                     AgentInstance instance = taskToInstanceMap.get(task.getId());
                     if (instance != null) {
                         result.add(Triple.of(job, task, instance));
@@ -124,6 +168,18 @@ public class MustBeRelocatedSelfManagedTaskCollectorStep {
         return result;
     }
 
+    private Optional<TaskRelocationPlan> evaluate(Job<?> job, Task task, AgentInstance instance) {
+        return agentOperations.findInstanceGroup(instance.getInstanceGroupId()).flatMap(instanceGroup ->
+                checkIfNeedsRelocationPlan(job, task, instanceGroup, instance).map(reason ->
+                        buildSelfManagedRelocationPlan(job, task, reason)
+                ));
+    }
+
+    private boolean isActive(Task task) {
+        TaskState taskState = task.getStatus().getState();
+        return taskState == TaskState.StartInitiated || taskState == TaskState.Started;
+    }
+
     /**
      * Relocation plans today are limited to self managed polices.
      */
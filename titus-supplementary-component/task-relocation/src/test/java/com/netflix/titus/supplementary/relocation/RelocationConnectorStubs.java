@@ -157,6 +157,11 @@ public class RelocationConnectorStubs {
         return this;
     }
 
+    public RelocationConnectorStubs setSystemQuota(int quota) {
+        evictionComponentStub.setSystemQuota(quota);
+        return this;
+    }
+
     public RelocationConnectorStubs setQuota(String jobId, int quota) {
         Preconditions.checkArgument(jobComponentStub.getJobOperations().getJob(jobId).isPresent());
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.supplementary.relocation.descheduler;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.agent.model.InstanceGroupLifecycleState;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.common.data.generator.MutableDataGenerator;
+import com.netflix.titus.supplementary.relocation.RelocationConnectorStubs;
+import com.netflix.titus.supplementary.relocation.model.DeschedulingResult;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+
+import static com.netflix.titus.api.agent.model.AgentFunctions.withId;
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.ofServiceSize;
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.withDisruptionBudget;
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.withJobId;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentServerGroups;
+import static com.netflix.titus.testkit.model.agent.AgentTestFunctions.inState;
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.budget;
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.selfManagedPolicy;
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.unlimitedRate;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+
+/**
+ * Measures a full descheduling cycle in a generated cell with 5k agents and 200k tasks, of which a fifth run on
+ * agents from removable instance groups. Job quotas are small relative to the number of tasks on each agent, so
+ * the agent fitness changes after almost each match, which is the worst case for the agent selection.
+ */
+public class DeschedulerPerf {
+
+    private static final int INSTANCE_GROUPS = 50;
+    private static final int REMOVABLE_INSTANCE_GROUPS = 10;
+    private static final int AGENTS_PER_INSTANCE_GROUP = 100;
+    private static final int JOBS = 2_000;
+    private static final int TASKS_PER_JOB = 100;
+    private static final int JOB_QUOTA = 10;
+    private static final int ITERATIONS = 10;
+
+    private final RelocationConnectorStubs relocationConnectorStubs = new RelocationConnectorStubs();
+
+    private void doRun() {
+        long setupStartTime = System.currentTimeMillis();
+        createCell();
+        System.out.println(String.format("Cell setup: agents=%s, tasks=%s, time=%sms",
+                INSTANCE_GROUPS * AGENTS_PER_INSTANCE_GROUP, JOBS * TASKS_PER_JOB, System.currentTimeMillis() - setupStartTime
+        ));
+
+        DefaultDeschedulerService deschedulerService = new DefaultDeschedulerService(
+                relocationConnectorStubs.getJobOperations(),
+                relocationConnectorStubs.getEvictionOperations(),
+                relocationConnectorStubs.getAgentOperations(),
+                relocationConnectorStubs.getTitusRuntime()
+        );
+
+        // Warm up first, and measure next.
+        deschedulerService.deschedule(Collections.emptyMap());
+
+        int resultCount = 0;
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<DeschedulingResult> results = deschedulerService.deschedule(Collections.emptyMap());
+            resultCount = results.size();
+        }
+        long elapsedMs = System.currentTimeMillis() - startTime;
+
+        System.out.println(String.format("iterations=%3s, deschedulingResults=%6s, deschedule=%10.3fms/cycle",
+                ITERATIONS, resultCount, ((double) elapsedMs) / ITERATIONS
+        ));
+    }
+
+    private void createCell() {
+        MutableDataGenerator<AgentInstanceGroup> instanceGroupGenerator = new MutableDataGenerator<>(
+                agentServerGroups(Tier.Flex, AGENTS_PER_INSTANCE_GROUP)
+        );
+        for (int i = 0; i < INSTANCE_GROUPS; i++) {
+            InstanceGroupLifecycleState state = i < REMOVABLE_INSTANCE_GROUPS
+                    ? InstanceGroupLifecycleState.Removable
+                    : InstanceGroupLifecycleState.Active;
+            relocationConnectorStubs.addInstanceGroup(instanceGroupGenerator.getValue().but(withId("instanceGroup" + i), inState(state)));
+        }
+
+        MutableDataGenerator<Job<ServiceJobExt>> jobGenerator = new MutableDataGenerator<>(
+                JobGenerator.serviceJobs(oneTaskServiceJobDescriptor().but(
+                        ofServiceSize(TASKS_PER_JOB),
+                        withDisruptionBudget(budget(selfManagedPolicy(30_000), unlimitedRate(), Collections.emptyList()))
+                ))
+        );
+        for (int i = 0; i < JOBS; i++) {
+            String jobId = "job" + i;
+            relocationConnectorStubs.addJob(jobGenerator.getValue().but(withJobId(jobId)));
+            relocationConnectorStubs.setQuota(jobId, JOB_QUOTA);
+
+            List<Task> tasks = relocationConnectorStubs.getJobOperations().getTasks(jobId);
+            relocationConnectorStubs.place("instanceGroup" + (i % INSTANCE_GROUPS), tasks.toArray(new Task[0]));
+        }
+    }
+
+    public static void main(String[] args) {
+        new DeschedulerPerf().doRun();
+    }
+}
@@ -143,6 +143,58 @@ public class TaskMigrationDeschedulerTest {
         assertThat(results.get().getLeft().getId()).isEqualTo(agent2);
     }
 
+    @Test
+    public void testFitnessIsUpdatedAfterJobQuotaIsConsumed() {
+        List<AgentInstance> removableAgents = agentOperations.getAgentInstances("removable1");
+        String agent1 = removableAgents.get(0).getId();
+        String agent2 = removableAgents.get(1).getId();
+        List<Task> tasksOfJob1 = jobOperations.getTasks("job1");
+        List<Task> tasksOfJob2 = jobOperations.getTasks("job2");
+        List<Task> tasksOfJobToMigrate = jobOperations.getTasks("jobToMigrate");
+        dataGenerator.placeOnAgent(agent1, tasksOfJob1.get(0), tasksOfJob1.get(1), tasksOfJob2.get(0));
+        dataGenerator.placeOnAgent(agent2, tasksOfJob1.get(2), tasksOfJobToMigrate.get(0));
+        dataGenerator.setQuota("job1", 2);
+        dataGenerator.setQuota("job2", 1);
+        dataGenerator.setQuota("jobToMigrate", 0);
+
+        // Agent1 can be fully evacuated, and it takes all job1 quota, so agent2 has no tasks that can be evicted.
+        TaskMigrationDescheduler descheduler = newDescheduler(Collections.emptyMap());
+        Optional<Pair<AgentInstance, List<Task>>> first = descheduler.nextBestMatch();
+        assertThat(first).isPresent();
+        assertThat(first.get().getLeft().getId()).isEqualTo(agent1);
+        assertThat(first.get().getRight()).hasSize(3);
+        assertThat(descheduler.nextBestMatch()).isEmpty();
+    }
+
+    @Test
+    public void testFitnessIsUpdatedAfterSystemQuotaIsConsumed() {
+        List<AgentInstance> removableAgents = agentOperations.getAgentInstances("removable1");
+        String agent1 = removableAgents.get(0).getId();
+        String agent2 = removableAgents.get(1).getId();
+        List<Task> tasksOfJob1 = jobOperations.getTasks("job1");
+        List<Task> tasksOfJob2 = jobOperations.getTasks("job2");
+        List<Task> tasksOfJobToMigrate = jobOperations.getTasks("jobToMigrate");
+        dataGenerator.placeOnAgent(agent1, tasksOfJob1.get(0), tasksOfJob1.get(1), tasksOfJob1.get(2));
+        dataGenerator.placeOnAgent(agent2, tasksOfJob2.get(0), tasksOfJob2.get(1), tasksOfJobToMigrate.get(0));
+        dataGenerator.setQuota("job1", 10);
+        dataGenerator.setQuota("job2", 10);
+        dataGenerator.setQuota("jobToMigrate", 0);
+        dataGenerator.setSystemQuota(4);
+
+        TaskMigrationDescheduler descheduler = newDescheduler(Collections.emptyMap());
+        Optional<Pair<AgentInstance, List<Task>>> first = descheduler.nextBestMatch();
+        assertThat(first).isPresent();
+        assertThat(first.get().getLeft().getId()).isEqualTo(agent1);
+        assertThat(first.get().getRight()).hasSize(3);
+
+        // Only one task can be evicted from agent2 with the remaining system quota.
+        Optional<Pair<AgentInstance, List<Task>>> second = descheduler.nextBestMatch();
+        assertThat(second).isPresent();
+        assertThat(second.get().getLeft().getId()).isEqualTo(agent2);
+        assertThat(second.get().getRight()).hasSize(1);
+        assertThat(descheduler.nextBestMatch()).isEmpty();
+    }
+
     @Test
     public void testFailures() {
         Task job1Task0 = jobOperations.getTasks("job1").get(0);
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.supplementary.relocation.workflow;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.event.AgentEvent;
+import com.netflix.titus.api.agent.model.event.AgentInstanceUpdateEvent;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
+import com.netflix.titus.api.relocation.model.TaskRelocationPlan;
+import com.netflix.titus.common.util.archaius2.Archaius2Ext;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.runtime.connector.agent.AgentDataReplicator;
+import com.netflix.titus.runtime.connector.agent.AgentSnapshot;
+import com.netflix.titus.runtime.connector.eviction.EvictionDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.supplementary.relocation.AbstractTaskRelocationTest;
+import com.netflix.titus.supplementary.relocation.RelocationConfiguration;
+import com.netflix.titus.supplementary.relocation.TestDataFactory;
+import com.netflix.titus.supplementary.relocation.descheduler.DeschedulerService;
+import com.netflix.titus.supplementary.relocation.store.TaskRelocationResultStore;
+import com.netflix.titus.supplementary.relocation.store.TaskRelocationStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.netflix.titus.supplementary.relocation.TestDataFactory.newSelfManagedDisruptionBudget;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultRelocationWorkflowExecutorTest extends AbstractTaskRelocationTest {
+
+    private static final long TIMEOUT_MS = 30_000;
+
+    private final RelocationConfiguration configuration = Archaius2Ext.newConfiguration(RelocationConfiguration.class,
+            "titus.relocation.eventDrivenWorkflowEnabled", "true",
+            "titus.relocation.eventDrivenEvaluationDelayMs", "10"
+    );
+
+    private final JobDataReplicator jobDataReplicator = mock(JobDataReplicator.class);
+    private final AgentDataReplicator agentDataReplicator = mock(AgentDataReplicator.class);
+    private final EvictionDataReplicator evictionDataReplicator = mock(EvictionDataReplicator.class);
+
+    private final TaskRelocationStore activeStore = mock(TaskRelocationStore.class);
+
+    private final List<DirectProcessor<Pair<JobSnapshot, JobManagerEvent<?>>>> jobEventSubscriptions = new CopyOnWriteArrayList<>();
+    private final List<DirectProcessor<Pair<AgentSnapshot, AgentEvent>>> agentEventSubscriptions = new CopyOnWriteArrayList<>();
+
+    private DefaultRelocationWorkflowExecutor executor;
+
+    public DefaultRelocationWorkflowExecutorTest() {
+        super(TestDataFactory.activeRemovableSetup());
+    }
+
+    @Before
+    public void setUp() {
+        when(jobDataReplicator.getStalenessMs()).thenReturn(0L);
+        when(agentDataReplicator.getStalenessMs()).thenReturn(0L);
+        when(evictionDataReplicator.getStalenessMs()).thenReturn(0L);
+
+        when(jobDataReplicator.events()).thenReturn(Flux.defer(() -> newSubscription(jobEventSubscriptions)));
+        when(agentDataReplicator.events()).thenReturn(Flux.defer(() -> newSubscription(agentEventSubscriptions)));
+
+        when(activeStore.getAllTaskRelocationPlans()).thenReturn(Mono.just(Collections.emptyMap()));
+        when(activeStore.createOrUpdateTaskRelocationPlans(anyList())).thenAnswer(invocation -> {
+            List<TaskRelocationPlan> plans = invocation.getArgument(0);
+            Map<String, Optional<Throwable>> result = plans.stream().collect(Collectors.toMap(TaskRelocationPlan::getTaskId, plan -> Optional.empty()));
+            return Mono.just(result);
+        });
+
+        this.executor = new DefaultRelocationWorkflowExecutor(
+                configuration,
+                agentDataReplicator,
+                agentOperations,
+                jobDataReplicator,
+                jobOperations,
+                evictionDataReplicator,
+                evictionServiceClient,
+                mock(DeschedulerService.class),
+                activeStore,
+                mock(TaskRelocationResultStore.class),
+                titusRuntime
+        );
+        executor.activate();
+
+        // The test clock does not move, so only the first full iteration is executed.
+        await().timeout(TIMEOUT_MS, TimeUnit.MILLISECONDS).until(this::arePlansReady);
+        awaitSubscriptions(1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testJobEventTriggersIncrementalEvaluation() {
+        Task task = addTaskOnRemovableAgent("job1");
+        assertThat(executor.getPlannedRelocations()).doesNotContainKey(task.getId());
+
+        emitJobEvent(task);
+        awaitPlannedRelocation(task);
+    }
+
+    @Test
+    public void testResubscriptionAfterJobEventStreamError() {
+        last(jobEventSubscriptions).onError(new RuntimeException("simulated replicator error"));
+        awaitSubscriptions(2);
+
+        Task task = addTaskOnRemovableAgent("job1");
+        emitJobEvent(task);
+        awaitPlannedRelocation(task);
+    }
+
+    @Test
+    public void testResubscriptionAfterAgentEventStreamCompletion() {
+        // Added before the resubscription, so it is indexed by the tracker without a job event.
+        Task task = addTaskOnRemovableAgent("job1");
+
+        last(agentEventSubscriptions).onComplete();
+        awaitSubscriptions(2);
+
+        AgentInstance agent = agentOperations.getAgentInstance(task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID));
+        last(agentEventSubscriptions).onNext(Pair.of(null, new AgentInstanceUpdateEvent(agent)));
+        awaitPlannedRelocation(task);
+    }
+
+    private <T> Flux<T> newSubscription(List<DirectProcessor<T>> subscriptions) {
+        DirectProcessor<T> processor = DirectProcessor.create();
+        subscriptions.add(processor);
+        return processor;
+    }
+
+    private boolean arePlansReady() {
+        try {
+            executor.getPlannedRelocations();
+            return true;
+        } catch (RelocationWorkflowException e) {
+            return false;
+        }
+    }
+
+    private void awaitSubscriptions(int count) {
+        await().timeout(TIMEOUT_MS, TimeUnit.MILLISECONDS).until(() ->
+                isSubscribed(jobEventSubscriptions, count) && isSubscribed(agentEventSubscriptions, count)
+        );
+    }
+
+    private <T> boolean isSubscribed(List<DirectProcessor<T>> subscriptions, int count) {
+        return subscriptions.size() == count && last(subscriptions).hasDownstreams();
+    }
+
+    private Task addTaskOnRemovableAgent(String jobId) {
+        Job<BatchJobExt> job = TestDataFactory.newBatchJob(jobId, 1, newSelfManagedDisruptionBudget(1_000));
+        relocationConnectorStubs.addJob(job);
+        Task task = jobOperations.getTasks(jobId).get(0);
+        relocationConnectorStubs.place(TestDataFactory.REMOVABLE_INSTANCE_GROUP, task);
+        return jobOperations.findTaskById(task.getId()).get().getRight();
+    }
+
+    private void emitJobEvent(Task task) {
+        Job<?> job = jobOperations.getJob(task.getJobId()).get();
+        last(jobEventSubscriptions).onNext(Pair.of(null, TaskUpdateEvent.taskChange(job, task, task, JobManagerConstants.UNDEFINED_CALL_METADATA)));
+    }
+
+    private void awaitPlannedRelocation(Task task) {
+        await().timeout(TIMEOUT_MS, TimeUnit.MILLISECONDS).until(() -> executor.getPlannedRelocations().containsKey(task.getId()));
+    }
+
+    private static <T> T last(List<T> items) {
+        return items.get(items.size() - 1);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.supplementary.relocation.workflow;
+
+import java.util.List;
+
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.event.AgentInstanceGroupUpdateEvent;
+import com.netflix.titus.api.agent.model.event.AgentInstanceUpdateEvent;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
+import com.netflix.titus.supplementary.relocation.AbstractTaskRelocationTest;
+import com.netflix.titus.supplementary.relocation.TestDataFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.supplementary.relocation.TestDataFactory.newSelfManagedDisruptionBudget;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RelocationChangeTrackerTest extends AbstractTaskRelocationTest {
+
+    private final RelocationChangeTracker tracker;
+
+    private Job<BatchJobExt> job;
+    private Task task1;
+    private Task task2;
+
+    public RelocationChangeTrackerTest() {
+        super(TestDataFactory.activeRemovableSetup());
+        this.tracker = new RelocationChangeTracker(agentOperations, jobOperations);
+    }
+
+    @Before
+    public void setUp() {
+        this.job = TestDataFactory.newBatchJob("job1", 2, newSelfManagedDisruptionBudget(1_000));
+        relocationConnectorStubs.addJob(job);
+        List<Task> tasks = jobOperations.getTasks();
+        relocationConnectorStubs.place(TestDataFactory.ACTIVE_INSTANCE_GROUP, tasks.get(0));
+        relocationConnectorStubs.place(TestDataFactory.REMOVABLE_INSTANCE_GROUP, tasks.get(1));
+        this.task1 = jobOperations.findTaskById(tasks.get(0).getId()).get().getRight();
+        this.task2 = jobOperations.findTaskById(tasks.get(1).getId()).get().getRight();
+
+        tracker.resync();
+    }
+
+    @Test
+    public void testTaskChange() {
+        assertThat(tracker.hasChanges()).isFalse();
+
+        tracker.onJobEvent(TaskUpdateEvent.taskChange(job, task1, task1, JobManagerConstants.UNDEFINED_CALL_METADATA));
+        assertThat(tracker.hasChanges()).isTrue();
+        assertThat(tracker.drainAffectedTaskIds()).containsOnly(task1.getId());
+        assertThat(tracker.hasChanges()).isFalse();
+    }
+
+    @Test
+    public void testJobChangeAffectsAllJobTasks() {
+        tracker.onJobEvent(JobUpdateEvent.jobChange(job, job, JobManagerConstants.UNDEFINED_CALL_METADATA));
+        assertThat(tracker.drainAffectedTaskIds()).containsOnly(task1.getId(), task2.getId());
+    }
+
+    @Test
+    public void testAgentChangeAffectsTasksOnAgent() {
+        AgentInstance agent = agentOperations.getAgentInstance(task2.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID));
+        tracker.onAgentEvent(new AgentInstanceUpdateEvent(agent));
+        assertThat(tracker.drainAffectedTaskIds()).containsOnly(task2.getId());
+    }
+
+    @Test
+    public void testInstanceGroupChangeAffectsTasksOnAllInstanceGroupAgents() {
+        tracker.onAgentEvent(new AgentInstanceGroupUpdateEvent(agentOperations.getInstanceGroup(TestDataFactory.ACTIVE_INSTANCE_GROUP)));
+        assertThat(tracker.drainAffectedTaskIds()).containsOnly(task1.getId());
+    }
+}
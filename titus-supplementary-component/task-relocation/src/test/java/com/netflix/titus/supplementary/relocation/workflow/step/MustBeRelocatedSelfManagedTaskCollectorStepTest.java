@@ -16,6 +16,7 @@
 
 package com.netflix.titus.supplementary.relocation.workflow.step;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -80,4 +81,24 @@ public class MustBeRelocatedSelfManagedTaskCollectorStepTest extends AbstractTas
 
         assertThat(first).isEqualTo(second);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIncrementalUpdateEvaluatesOnlyGivenTasks() {
+        Job<BatchJobExt> job = TestDataFactory.newBatchJob("job1", 2, newSelfManagedDisruptionBudget(1_000));
+        relocationConnectorStubs.addJob(job);
+        Task task1 = jobOperations.getTasks().get(0);
+        Task task2 = jobOperations.getTasks().get(1);
+        relocationConnectorStubs.place(TestDataFactory.REMOVABLE_INSTANCE_GROUP, task1);
+        relocationConnectorStubs.place(TestDataFactory.ACTIVE_INSTANCE_GROUP, task2);
+
+        assertThat(step.collectTasksThatMustBeRelocated()).containsOnlyKeys(task1.getId());
+
+        // Task moved to the removable instance group is picked up, and the plan of the other task is kept.
+        relocationConnectorStubs.place(TestDataFactory.REMOVABLE_INSTANCE_GROUP, task2);
+        assertThat(step.updateTasksThatMustBeRelocated(Collections.singleton(task2.getId()))).containsOnlyKeys(task1.getId(), task2.getId());
+
+        // Task moved to the active instance group no longer needs a plan.
+        relocationConnectorStubs.place(TestDataFactory.ACTIVE_INSTANCE_GROUP, task1);
+        assertThat(step.updateTasksThatMustBeRelocated(Collections.singleton(task1.getId()))).containsOnlyKeys(task2.getId());
+    }
+}
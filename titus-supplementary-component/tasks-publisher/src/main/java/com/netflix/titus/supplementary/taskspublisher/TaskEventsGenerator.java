@@ -18,27 +18,46 @@ package com.netflix.titus.supplementary.taskspublisher;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.jobmanager.JobAttributes;
-import com.netflix.titus.common.util.tuple.Pair;
-import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
 import com.netflix.titus.supplementary.taskspublisher.es.ElasticSearchUtils;
+import com.netflix.titus.supplementary.taskspublisher.es.EsTaskPublisherMetrics;
 import reactor.core.publisher.ConnectableFlux;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+/**
+ * Converts task updates into {@link TaskDocument}s. Jobs are taken from a local cache of converted core {@link Job}s,
+ * which is kept up to date by the job updates from the same event stream. A job is fetched from Titus API only if
+ * the task update arrives before any update of its job.
+ */
 public class TaskEventsGenerator {
 
+    private static final int MAX_JOB_CACHE_SIZE = 40000;
+
     private final Map<String, String> taskDocumentBaseContext;
     private TitusClient titusClient;
     private ConnectableFlux<TaskDocument> taskEvents;
 
+    private final Cache<String, Job<?>> jobs;
+    private final Counter jobCacheHits;
+    private final Counter jobCacheMisses;
+
     public TaskEventsGenerator(TitusClient titusClient,
-                               Map<String, String> taskDocumentBaseContext) {
+                               Map<String, String> taskDocumentBaseContext,
+                               Registry registry) {
         this.titusClient = titusClient;
         this.taskDocumentBaseContext = taskDocumentBaseContext;
+        this.jobs = Caffeine.newBuilder().maximumSize(MAX_JOB_CACHE_SIZE).build();
+        this.jobCacheHits = registry.counter(EsTaskPublisherMetrics.METRIC_JOB_CACHE + "hits");
+        this.jobCacheMisses = registry.counter(EsTaskPublisherMetrics.METRIC_JOB_CACHE + "misses");
         buildEventStream();
     }
 
@@ -49,16 +68,15 @@ public class TaskEventsGenerator {
     private void buildEventStream() {
         taskEvents = titusClient.getJobAndTaskUpdates()
                 .publishOn(Schedulers.elastic())
-                .flatMap(jobOrTaskUpdate -> jobOrTaskUpdate.hasTask() ? Flux.just(jobOrTaskUpdate.getTask()) : Flux.empty())
-                .map(task -> {
-                    final Mono<Job> jobById = titusClient.getJobById(task.getJobId());
-                    return Pair.of(task, jobById);
-                })
-                .flatMap(taskMonoPair -> {
-                    final Task task = taskMonoPair.getLeft();
-                    return taskMonoPair.getRight()
-                            .map(job -> {
-                                final com.netflix.titus.api.jobmanager.model.job.Job coreJob = GrpcJobManagementModelConverters.toCoreJob(job);
+                .flatMap(jobOrTaskUpdate -> {
+                    if (jobOrTaskUpdate.hasJob()) {
+                        com.netflix.titus.grpc.protogen.Job job = jobOrTaskUpdate.getJob();
+                        jobs.put(job.getId(), GrpcJobManagementModelConverters.toCoreJob(job));
+                        return Flux.empty();
+                    }
+                    final Task task = jobOrTaskUpdate.getTask();
+                    return findCoreJob(task.getJobId())
+                            .map(coreJob -> {
                                 final com.netflix.titus.api.jobmanager.model.job.Task coreTask = GrpcJobManagementModelConverters.toCoreTask(coreJob, task);
                                 return TaskDocument.fromV3Task(coreTask, coreJob, ElasticSearchUtils.DATE_FORMAT, buildTaskContext(task));
                             }).flux();
@@ -68,6 +86,20 @@ public class TaskEventsGenerator {
                 .publish();
     }
 
+    private Mono<Job<?>> findCoreJob(String jobId) {
+        Job<?> cached = jobs.getIfPresent(jobId);
+        if (cached != null) {
+            jobCacheHits.increment();
+            return Mono.just(cached);
+        }
+        jobCacheMisses.increment();
+        return titusClient.getJobById(jobId).map(job -> {
+            // Do not override a newer version that might have arrived with a job update in the meantime.
+            Job<?> coreJob = GrpcJobManagementModelConverters.toCoreJob(job);
+            Job<?> previous = jobs.asMap().putIfAbsent(jobId, coreJob);
+            return previous != null ? previous : coreJob;
+        });
+    }
     private Map<String, String> buildTaskContext(Task task) {
         String stack = "";
         if (task.getTaskContextMap().containsKey(JobAttributes.JOB_ATTRIBUTES_CELL)) {
@@ -98,7 +98,7 @@ public class TasksPublisherConfiguration {
     @Bean
     @ConditionalOnMissingBean
     public TaskEventsGenerator getTaskEventsGenerator() {
-        return new TaskEventsGenerator(getTitusClient(), Collections.emptyMap());
+        return new TaskEventsGenerator(getTitusClient(), Collections.emptyMap(), new DefaultRegistry());
     }
 
     @Bean
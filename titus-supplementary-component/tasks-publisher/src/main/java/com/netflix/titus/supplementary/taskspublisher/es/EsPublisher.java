@@ -17,11 +17,13 @@ package com.netflix.titus.supplementary.taskspublisher.es;
 
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.netflix.spectator.api.Functions;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.common.LeaderActivationListener;
 import com.netflix.titus.common.util.rx.ReactorExt;
@@ -45,6 +47,7 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
     private final EsClient<TaskDocument> esClient;
     private final EsPublisherConfiguration esPublisherConfiguration;
     private final Registry registry;
+    private final Timer bulkIndexLatency;
 
     private AtomicInteger numErrors = new AtomicInteger(0);
     private AtomicInteger numTasksUpdated = new AtomicInteger(0);
@@ -61,6 +64,7 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
         this.esPublisherConfiguration = esPublisherConfiguration;
         this.indexDateFormat = new SimpleDateFormat(esPublisherConfiguration.getTaskDocumentEsIndexDateSuffixPattern());
         this.registry = registry;
+        this.bulkIndexLatency = registry.timer(EsTaskPublisherMetrics.METRIC_BULK_INDEX_LATENCY);
         configureMetrics();
     }
 
@@ -68,14 +72,17 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
     public void activate() {
         ConnectableFlux<TaskDocument> taskEvents = taskEventsGenerator.getTaskEvents();
         subscription = taskEvents.bufferTimeout(100, Duration.ofSeconds(5))
-                .flatMap(taskDocuments ->
-                                esClient.bulkIndexDocuments(
-                                        taskDocuments,
-                                        ElasticSearchUtils.buildEsIndexNameCurrent(esPublisherConfiguration.getTaskDocumentEsIndexName(), indexDateFormat),
-                                        ES_RECORD_TYPE)
-                                        .retryWhen(TaskPublisherRetryUtil.buildRetryHandler(
-                                                TaskPublisherRetryUtil.INITIAL_RETRY_DELAY_MS,
-                                                TaskPublisherRetryUtil.MAX_RETRY_DELAY_MS, 3)),
+                .flatMap(taskDocuments -> {
+                            long startTime = registry.clock().monotonicTime();
+                            return esClient.bulkIndexDocuments(
+                                    taskDocuments,
+                                    ElasticSearchUtils.buildEsIndexNameCurrent(esPublisherConfiguration.getTaskDocumentEsIndexName(), indexDateFormat),
+                                    ES_RECORD_TYPE)
+                                    .retryWhen(TaskPublisherRetryUtil.buildRetryHandler(
+                                            TaskPublisherRetryUtil.INITIAL_RETRY_DELAY_MS,
+                                            TaskPublisherRetryUtil.MAX_RETRY_DELAY_MS, 3))
+                                    .doOnSuccess(ignored -> bulkIndexLatency.record(registry.clock().monotonicTime() - startTime, TimeUnit.NANOSECONDS));
+                        },
                         MAX_CONCURRENCY)
                 .doOnError(e -> {
                     logger.error("Error in indexing documents (Retrying) : ", e);
@@ -19,5 +19,7 @@ public class EsTaskPublisherMetrics {
 
     public static final String METRIC_ROOT = "titus.";
     public static final String METRIC_ES_PUBLISHER = METRIC_ROOT + "tasks.es.publish.";
+    public static final String METRIC_JOB_CACHE = METRIC_ES_PUBLISHER + "jobCache.";
+    public static final String METRIC_BULK_INDEX_LATENCY = METRIC_ES_PUBLISHER + "bulkIndexLatency";
 
 }
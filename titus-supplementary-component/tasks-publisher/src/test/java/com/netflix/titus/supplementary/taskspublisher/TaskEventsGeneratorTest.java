@@ -21,8 +21,12 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.ext.elasticsearch.EsClient;
 import com.netflix.titus.ext.elasticsearch.model.BulkEsIndexResp;
 import com.netflix.titus.ext.elasticsearch.model.BulkEsIndexRespItem;
@@ -32,6 +36,7 @@ import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverte
 import com.netflix.titus.supplementary.taskspublisher.TitusClient.JobOrTaskUpdate;
 import com.netflix.titus.supplementary.taskspublisher.config.EsPublisherConfiguration;
 import com.netflix.titus.supplementary.taskspublisher.es.EsPublisher;
+import com.netflix.titus.supplementary.taskspublisher.es.EsTaskPublisherMetrics;
 import com.netflix.titus.testkit.model.job.JobGenerator;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
@@ -44,6 +49,8 @@ import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -84,7 +91,8 @@ public class TaskEventsGeneratorTest {
         int numTasks = 5;
         final TaskEventsGenerator taskEventsGenerator = new TaskEventsGenerator(
                 mockTitusClient(numTasks),
-                Collections.emptyMap());
+                Collections.emptyMap(),
+                new DefaultRegistry());
 
         EsPublisher esPublisher = new EsPublisher(taskEventsGenerator, mockElasticSearchClient(),
                 mockEsPublisherConfiguration(), new DefaultRegistry());
@@ -106,4 +114,27 @@ public class TaskEventsGeneratorTest {
             fail("Timeout in checkPublisherState ", e);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void jobsAreTakenFromJobUpdates() {
+        int numTasks = 5;
+        Job<BatchJobExt> job = JobGenerator.oneBatchJob();
+        Flux<JobOrTaskUpdate> updates = Flux.fromStream(Stream.concat(
+                Stream.of(JobOrTaskUpdate.jobUpdate(GrpcJobManagementModelConverters.toGrpcJob(job))),
+                JobGenerator.batchTasks(job).getValues(numTasks).stream()
+                        .map(task -> JobOrTaskUpdate.taskUpdate(GrpcJobManagementModelConverters.toGrpcTask(task, new EmptyLogStorageInfo<>())))
+        ));
+        TitusClient titusClient = mock(TitusClient.class);
+        when(titusClient.getJobAndTaskUpdates()).thenReturn(updates);
+
+        Registry registry = new DefaultRegistry();
+        TaskEventsGenerator taskEventsGenerator = new TaskEventsGenerator(titusClient, Collections.emptyMap(), registry);
+
+        List<TaskDocument> taskDocuments = taskEventsGenerator.getTaskEvents().autoConnect().collectList().block(Duration.ofSeconds(30));
+        assertThat(taskDocuments).hasSize(numTasks);
+        assertThat(taskDocuments.get(0).getJobId()).isEqualTo(job.getId());
+        verify(titusClient, never()).getJobById(anyString());
+        assertThat(registry.counter(EsTaskPublisherMetrics.METRIC_JOB_CACHE + "hits").count()).isEqualTo(numTasks);
+        assertThat(registry.counter(EsTaskPublisherMetrics.METRIC_JOB_CACHE + "misses").count()).isEqualTo(0);
+    }
+}
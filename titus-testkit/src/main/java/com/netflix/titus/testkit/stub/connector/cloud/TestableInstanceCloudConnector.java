@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -50,6 +51,9 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
     private final Map<String, Pair<Instance, Integer>> instancesById = new HashMap<>();
     private final Map<String, List<Consumer<String>>> interceptorsById = new HashMap<>();
 
+    private final AtomicInteger instanceGroupsByIdCallCounter = new AtomicInteger();
+    private final AtomicInteger instancesByInstanceGroupIdCallCounter = new AtomicInteger();
+
     @Override
     public Observable<List<InstanceGroup>> getInstanceGroups() {
         return Observable.fromCallable(() -> instanceGroupsById.values().stream()
@@ -58,13 +62,16 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
 
     @Override
     public Observable<List<InstanceGroup>> getInstanceGroups(List<String> instanceGroupIds) {
-        return Observable.fromCallable(() -> instanceGroupIds.stream()
-                .filter(instanceGroupsById::containsKey)
-                .map(id -> {
-                    executeInterceptors(id);
-                    return instanceGroupsById.get(id).getFirst();
-                })
-                .collect(Collectors.toList()));
+        return Observable.fromCallable(() -> {
+            instanceGroupsByIdCallCounter.incrementAndGet();
+            return instanceGroupIds.stream()
+                    .filter(instanceGroupsById::containsKey)
+                    .map(id -> {
+                        executeInterceptors(id);
+                        return instanceGroupsById.get(id).getFirst();
+                    })
+                    .collect(Collectors.toList());
+        });
     }
 
     @Override
@@ -92,11 +99,13 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
 
     @Override
     public Observable<List<Instance>> getInstancesByInstanceGroupId(String instanceGroupId) {
-        return Observable.fromCallable(() -> instancesById.values().stream()
-                .map(Pair::getLeft)
-                .filter(instance -> instance.getInstanceGroupId().equals(instanceGroupId))
-                .collect(Collectors.toList())
-        );
+        return Observable.fromCallable(() -> {
+            instancesByInstanceGroupIdCallCounter.incrementAndGet();
+            return instancesById.values().stream()
+                    .map(Pair::getLeft)
+                    .filter(instance -> instance.getInstanceGroupId().equals(instanceGroupId))
+                    .collect(Collectors.toList());
+        });
     }
 
     @Override
@@ -235,6 +244,20 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
                 .getLeft();
     }
 
+    /**
+     * Returns the number of {@link #getInstanceGroups(List)} calls since the last invocation of this method.
+     */
+    public int takeInstanceGroupsByIdCallCount() {
+        return instanceGroupsByIdCallCounter.getAndSet(0);
+    }
+
+    /**
+     * Returns the number of {@link #getInstancesByInstanceGroupId(String)} calls since the last invocation of this method.
+     */
+    public int takeInstancesByInstanceGroupIdCallCount() {
+        return instancesByInstanceGroupIdCallCounter.getAndSet(0);
+    }
+
     private void executeInterceptors(String id) {
         List<Consumer<String>> interceptors = interceptorsById.get(id);
         if (interceptors == null) {